@@ -51,8 +51,10 @@ REM Create the srcalc database.
 call create_database.bat
 
 echo Creating Connection Pool in Glassfish...
+REM useCursorFetch makes MySQL honor the fetch size when streaming reports. Without it,
+REM Connector/J reads the whole result set into memory.
 REM Must use "call" because asadmin is a batch file.
-call %ASADMIN% create-jdbc-connection-pool --datasourceclassname com.mysql.jdbc.jdbc2.optional.MysqlDataSource --restype javax.sql.DataSource --validationtable=DUAL --isconnectvalidatereq=true --property password=%SRCALC_PASSWORD%:user=srcalc:url=jdbc\:mysql\://localhost\:3306/srcalc srcalcDbPool
+call %ASADMIN% create-jdbc-connection-pool --datasourceclassname com.mysql.jdbc.jdbc2.optional.MysqlDataSource --restype javax.sql.DataSource --validationtable=DUAL --isconnectvalidatereq=true --property password=%SRCALC_PASSWORD%:user=srcalc:url=jdbc\:mysql\://localhost\:3306/srcalc?useCursorFetch\=true srcalcDbPool
 IF ERRORLEVEL 1 goto Abort
 call %ASADMIN% ping-connection-pool srcalcDbPool
 IF ERRORLEVEL 1 goto Abort
@@ -5,9 +5,12 @@ USE srcalc;
 
 create table boolean_variable (id integer not null, primary key (id));
 create table cpt (id integer not null auto_increment, complexity varchar(40) not null, cpt_code varchar(5) not null, eligible boolean not null, long_description varchar(256) not null, rvu float not null, short_description varchar(256) not null, primary key (id));
+create table daily_outcome (id integer not null auto_increment, rollup_date date not null, provider_type varchar(80) not null, specialty_name varchar(100) not null, user_station varchar(10) not null, outcome_count integer not null, risk_model_name varchar(80) not null, risk_sum double precision not null, primary key (id));
+create table daily_utilization (id integer not null auto_increment, rollup_date date not null, provider_type varchar(80) not null, specialty_name varchar(100) not null, user_station varchar(10) not null, seconds_to_first_run_sum bigint not null, seconds_to_sign_sum bigint not null, signed_count integer not null, total_count integer not null, primary key (id));
 create table discrete_numerical_var (units varchar(40) not null, lower_bound float not null, lower_inclusive boolean not null, upper_bound float not null, upper_inclusive boolean not null, id integer not null, primary key (id));
 create table discrete_numerical_var_category (variable_id integer not null, option_value varchar(80) not null, upper_bound float not null, upper_inclusive boolean not null, primary key (variable_id, option_value, upper_bound, upper_inclusive));
-create table historical_calc (id integer not null auto_increment, provider_type varchar(80), seconds_to_first_run integer not null, specialty_name varchar(100) not null, start_timestamp datetime not null, user_station varchar(10) not null, primary key (id));
+create table historical_calc (id integer not null auto_increment, model_version integer, provider_type varchar(80), seconds_to_first_run integer not null, specialty_name varchar(100) not null, start_timestamp datetime not null, user_station varchar(10) not null, primary key (id));
+create table model_version (id integer not null, version integer not null, primary key (id));
 create table multi_select_variable (display_type varchar(255), id integer not null, primary key (id));
 create table multi_select_variable_option (variable_id integer not null, option_value varchar(80) not null, option_index integer not null, primary key (variable_id, option_index));
 create table numerical_variable (units varchar(40) not null, lower_bound float not null, lower_inclusive boolean not null, upper_bound float not null, upper_inclusive boolean not null, id integer not null, primary key (id));
@@ -18,6 +21,8 @@ create table risk_model_derived_term (risk_model_id integer not null, rule integ
 create table risk_model_discrete_term (risk_model_id integer not null, option_index integer not null, variable integer not null, coefficient float not null, primary key (risk_model_id, option_index, variable, coefficient));
 create table risk_model_numerical_term (risk_model_id integer not null, variable integer not null, coefficient float not null, primary key (risk_model_id, variable, coefficient));
 create table risk_model_procedure_term (risk_model_id integer not null, variable integer not null, coefficient float not null, primary key (risk_model_id, variable, coefficient));
+create table risk_save_delivery (result_id integer not null, attempt_count integer not null, duz varchar(20) not null, last_attempt_timestamp datetime, last_error varchar(255), next_attempt_timestamp datetime, status varchar(10) not null, primary key (result_id));
+create table rollup_status (id integer not null, covered_from date not null, primary key (id));
 create table rule (id integer not null auto_increment, bypass_enabled boolean not null, display_name varchar(80) not null, summand_expression varchar(255) not null, primary key (id));
 create table rule_value_matcher (rule_id integer not null, boolean_expression varchar(255), expression_enabled boolean not null, variable integer);
 create table signed_result (run_id integer not null, cpt_code varchar(5), patient_dfn integer not null, signature_timestamp datetime not null, primary key (run_id));
@@ -27,6 +32,8 @@ create table specialty (id integer not null auto_increment, name varchar(100) no
 create table specialty_risk_model (specialty_id integer not null, risk_model_id integer not null, primary key (specialty_id, risk_model_id));
 create table variable (id integer not null auto_increment, display_name varchar(80) not null, help_text varchar(4000), variable_key varchar(40) not null, retrieval_key integer, variable_group integer not null, primary key (id));
 create table variable_group (id integer not null auto_increment, display_order integer not null, name varchar(255), primary key (id));
+alter table daily_outcome add constraint UK_daily_outcome_key unique (rollup_date, user_station, specialty_name, provider_type, risk_model_name);
+alter table daily_utilization add constraint UK_daily_utilization_key unique (rollup_date, user_station, specialty_name, provider_type);
 alter table variable add constraint UK_3on3hwgilp01pjk6iqxarybnm unique (variable_key);
 alter table boolean_variable add index FK_8s7i3kftdcnt17a8us2sh6qou (id), add constraint FK_8s7i3kftdcnt17a8us2sh6qou foreign key (id) references variable (id);
 alter table discrete_numerical_var add index FK_1hmr3q0o9tn8xd48slnkwk0ld (id), add constraint FK_1hmr3q0o9tn8xd48slnkwk0ld foreign key (id) references variable (id);
@@ -47,6 +54,7 @@ alter table risk_model_procedure_term add index FK_6qew8kqxs6kjujfnjblxpa45c (va
 alter table risk_model_procedure_term add index FK_d3tmxsvauxneoplv06nwqro2j (risk_model_id), add constraint FK_d3tmxsvauxneoplv06nwqro2j foreign key (risk_model_id) references risk_model (id);
 alter table rule_value_matcher add index FK_3hhhc928hdy3o0beed9wjnq9m (variable), add constraint FK_3hhhc928hdy3o0beed9wjnq9m foreign key (variable) references variable (id);
 alter table rule_value_matcher add index FK_rnatr4b2fmd3kx6ff0ka1g4le (rule_id), add constraint FK_rnatr4b2fmd3kx6ff0ka1g4le foreign key (rule_id) references rule (id);
+alter table risk_save_delivery add index FK_risk_save_delivery_result (result_id), add constraint FK_risk_save_delivery_result foreign key (result_id) references signed_result (run_id);
 alter table signed_result add index FK_fbh9rjcin6qo4vi5cyhvqneok (run_id), add constraint FK_fbh9rjcin6qo4vi5cyhvqneok foreign key (run_id) references historical_calc (id);
 alter table signed_result_input add index FK_a7w1dts524sqt755yf1q8igvv (result_id), add constraint FK_a7w1dts524sqt755yf1q8igvv foreign key (result_id) references signed_result (run_id);
 alter table signed_result_outcome add index FK_jbofpapc0i5qoixu28f4ekjm (result_id), add constraint FK_jbofpapc0i5qoixu28f4ekjm foreign key (result_id) references signed_result (run_id);
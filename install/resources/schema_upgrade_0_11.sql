@@ -0,0 +1,16 @@
+-- Upgrades the DB schema from v0.10 to v0.11.
+
+-- Daily report rollups. Run the rollup rebuild job (nightly by default) to backfill.
+create table daily_outcome (id integer not null auto_increment, rollup_date date not null, provider_type varchar(80) not null, specialty_name varchar(100) not null, user_station varchar(10) not null, outcome_count integer not null, risk_model_name varchar(80) not null, risk_sum double precision not null, primary key (id));
+create table daily_utilization (id integer not null auto_increment, rollup_date date not null, provider_type varchar(80) not null, specialty_name varchar(100) not null, user_station varchar(10) not null, seconds_to_first_run_sum bigint not null, seconds_to_sign_sum bigint not null, signed_count integer not null, total_count integer not null, primary key (id));
+create table rollup_status (id integer not null, covered_from date not null, primary key (id));
+alter table daily_outcome add constraint UK_daily_outcome_key unique (rollup_date, user_station, specialty_name, provider_type, risk_model_name);
+alter table daily_utilization add constraint UK_daily_utilization_key unique (rollup_date, user_station, specialty_name, provider_type);
+
+-- Versioned model snapshots.
+create table model_version (id integer not null, version integer not null, primary key (id));
+alter table historical_calc add column model_version integer;
+
+-- The outbox of signed results to save in VistA Surgery.
+create table risk_save_delivery (result_id integer not null, attempt_count integer not null, duz varchar(20) not null, last_attempt_timestamp datetime, last_error varchar(255), next_attempt_timestamp datetime, status varchar(10) not null, primary key (result_id));
+alter table risk_save_delivery add index FK_risk_save_delivery_result (result_id), add constraint FK_risk_save_delivery_result foreign key (result_id) references signed_result (run_id);
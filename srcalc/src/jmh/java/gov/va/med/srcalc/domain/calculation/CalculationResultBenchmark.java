@@ -0,0 +1,47 @@
+package gov.va.med.srcalc.domain.calculation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks building the note body and the signed result of a {@link
+ * CalculationResult}, as done for each saved calculation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculationResultBenchmark
+{
+    private CalculationResult fResult;
+    
+    /**
+     * Calculates the sample result.
+     */
+    @Setup
+    public void setup()
+    {
+        fResult = SampleCalculations.thoracicResult();
+    }
+    
+    /**
+     * Builds the progress note body.
+     */
+    @Benchmark
+    public String buildNoteBody()
+    {
+        return fResult.buildNoteBody();
+    }
+    
+    /**
+     * Builds the signed result, which converts each value to a String.
+     */
+    @Benchmark
+    public SignedResult signed()
+    {
+        return fResult.signed();
+    }
+}
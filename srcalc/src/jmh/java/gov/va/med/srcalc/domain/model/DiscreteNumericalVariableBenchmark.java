@@ -0,0 +1,56 @@
+package gov.va.med.srcalc.domain.model;
+
+import java.util.concurrent.TimeUnit;
+
+import gov.va.med.srcalc.domain.calculation.DiscreteNumericalValue;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks categorizing numerical values with {@link DiscreteNumericalVariable}, which
+ * happens for each discrete numerical value entered or retrieved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscreteNumericalVariableBenchmark
+{
+    /**
+     * The value to categorize: one for each of the sample variable's categories.
+     */
+    @Param({"35", "55", "65", "75"})
+    public float fValue;
+    
+    private DiscreteNumericalVariable fVariable;
+    
+    /**
+     * Constructs the variable.
+     */
+    @Setup
+    public void setup()
+    {
+        fVariable = SampleModels.cardiacAgeVariable();
+    }
+    
+    /**
+     * Finds the category containing the value.
+     */
+    @Benchmark
+    public DiscreteNumericalVariable.Category getContainingCategory()
+    {
+        return fVariable.getContainingCategory(fValue);
+    }
+    
+    /**
+     * Makes a Value from the number, which also validates it.
+     * @throws Exception never, since the values are in range
+     */
+    @Benchmark
+    public DiscreteNumericalValue makeValue() throws Exception
+    {
+        return fVariable.makeValue(fValue);
+    }
+}
@@ -0,0 +1,106 @@
+package gov.va.med.srcalc.domain.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import gov.va.med.srcalc.domain.calculation.Value;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Benchmarks {@link RiskModel#calculate(java.util.Collection)} against {@link
+ * CompiledRiskModel#calculate(java.util.Collection)} with a model of about the size of
+ * the larger national models.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RiskModelBenchmark
+{
+    /**
+     * The number of boolean variables to add to the sample variables. Most terms in the
+     * national models are boolean.
+     */
+    private static final int BOOLEAN_VARIABLE_COUNT = 40;
+    
+    private RiskModel fModel;
+    private CompiledRiskModel fCompiledModel;
+    private List<Value> fValues;
+    
+    /**
+     * Builds the model, its compiled form and a value for each variable.
+     * @throws Exception if the sample values are invalid
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        final NumericalVariable ageVar = SampleModels.ageVariable();
+        final MultiSelectVariable genderVar = SampleModels.genderVariable();
+        final MultiSelectVariable fsVar = SampleModels.functionalStatusVariable();
+        final ProcedureVariable procVar = SampleModels.procedureVariable();
+        final DiscreteNumericalVariable wbcVar = SampleModels.wbcVariable();
+        final List<Variable> variables = new ArrayList<>();
+        fValues = new ArrayList<>();
+        variables.add(ageVar);
+        fValues.add(ageVar.makeValue(65.0f));
+        variables.add(genderVar);
+        fValues.add(genderVar.makeValue(genderVar.getOptions().get(0)));
+        variables.add(fsVar);
+        // Totally dependent, so that the derived term's rule applies.
+        fValues.add(fsVar.makeValue(fsVar.getOptions().get(2)));
+        variables.add(procVar);
+        fValues.add(procVar.makeValue(SampleModels.repairLeftProcedure()));
+        variables.add(wbcVar);
+        fValues.add(wbcVar.makeValue(12.5f));
+        for (int i = 0; i < BOOLEAN_VARIABLE_COUNT; ++i)
+        {
+            final BooleanVariable boolVar = new BooleanVariable(
+                    "Condition " + i,
+                    SampleModels.recentClinicalVariableGroup(),
+                    "condition" + i);
+            variables.add(boolVar);
+            fValues.add(boolVar.makeValue(i % 2 == 0));
+        }
+        
+        fModel = SampleModels.makeSampleRiskModel(
+                "Benchmark Model",
+                ImmutableSet.of(new DerivedTerm(0.25f, RuleBenchmark.ageMultiplierRule())),
+                variables.toArray(new Variable[variables.size()]));
+        fCompiledModel = fModel.compile();
+    }
+    
+    /**
+     * Calculates the model directly, without compiling it.
+     * @throws MissingValuesException never
+     */
+    @Benchmark
+    public float calculate() throws MissingValuesException
+    {
+        return fModel.calculate(fValues);
+    }
+    
+    /**
+     * Calculates the compiled model, as done for each calculation.
+     * @throws MissingValuesException never
+     */
+    @Benchmark
+    public float calculateCompiled() throws MissingValuesException
+    {
+        return fCompiledModel.calculate(fValues);
+    }
+    
+    /**
+     * Compiles the model, as done for each new model snapshot.
+     */
+    @Benchmark
+    public CompiledRiskModel compile()
+    {
+        return fModel.compile();
+    }
+}
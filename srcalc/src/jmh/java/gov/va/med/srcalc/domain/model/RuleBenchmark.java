@@ -0,0 +1,86 @@
+package gov.va.med.srcalc.domain.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import gov.va.med.srcalc.domain.calculation.Value;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks {@link Rule#apply(Rule.EvaluationContext)}, which evaluates the rule's SpEL
+ * expressions, with both a matching and a non-matching value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuleBenchmark
+{
+    private Rule fRule;
+    private Rule.EvaluationContext fMatchingContext;
+    private Rule.EvaluationContext fNonMatchingContext;
+    
+    /**
+     * Returns a Rule that multiplies age by the coefficient if Functional Status ==
+     * Totally dependent. Unlike {@link SampleModels#ageAndFsRule()}, its expressions can
+     * be evaluated.
+     */
+    static Rule ageMultiplierRule()
+    {
+        final ValueMatcher totallyDependentMatcher = new ValueMatcher(
+                SampleModels.functionalStatusVariable(),
+                "#functionalStatus == 'Totally dependent'",
+                true);
+        final ValueMatcher ageMatcher = new ValueMatcher(SampleModels.ageVariable(), "", false);
+        return new Rule(
+                Arrays.asList(totallyDependentMatcher, ageMatcher),
+                "#age * #coefficient",
+                true,
+                "Age multiplier for Functional Status");
+    }
+    
+    /**
+     * Builds the rule and the values to apply it to.
+     * @throws Exception if the sample values are invalid
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        fRule = ageMultiplierRule();
+        final NumericalVariable ageVar = SampleModels.ageVariable();
+        final MultiSelectVariable fsVar = SampleModels.functionalStatusVariable();
+        
+        final HashMap<Variable, Value> matchingValues = new HashMap<>();
+        matchingValues.put(ageVar, ageVar.makeValue(65.0f));
+        matchingValues.put(fsVar, fsVar.makeValue(fsVar.getOptions().get(2)));
+        fMatchingContext = new Rule.EvaluationContext(0.25f, matchingValues);
+        
+        final HashMap<Variable, Value> nonMatchingValues = new HashMap<>(matchingValues);
+        nonMatchingValues.put(fsVar, fsVar.makeValue(fsVar.getOptions().get(0)));
+        fNonMatchingContext = new Rule.EvaluationContext(0.25f, nonMatchingValues);
+    }
+    
+    /**
+     * Applies the rule to values which fire it.
+     * @throws MissingValuesException never
+     */
+    @Benchmark
+    public float applyMatching() throws MissingValuesException
+    {
+        return fRule.apply(fMatchingContext);
+    }
+    
+    /**
+     * Applies the rule to values which do not fire it.
+     * @throws MissingValuesException never
+     */
+    @Benchmark
+    public float applyNonMatching() throws MissingValuesException
+    {
+        return fRule.apply(fNonMatchingContext);
+    }
+}
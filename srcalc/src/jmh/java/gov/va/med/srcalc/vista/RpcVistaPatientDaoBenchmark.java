@@ -0,0 +1,165 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import gov.va.med.srcalc.domain.Patient;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Benchmarks parsing the VistA responses into a {@link Patient} with {@link
+ * RpcVistaPatientDao#getPatient(int)}. The RPCs return canned responses immediately,
+ * so this measures only the parsing, not VistA.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RpcVistaPatientDaoBenchmark
+{
+    private static final String DUZ = "11716";
+    private static final int PATIENT_DFN = 500;
+    
+    private RpcVistaPatientDao fDao;
+    
+    /**
+     * Constructs the DAO with the canned responses.
+     */
+    @Setup
+    public void setup()
+    {
+        fDao = new RpcVistaPatientDao(new CannedProcedureCaller(), DUZ);
+    }
+    
+    /**
+     * Retrieves and parses all of the patient data.
+     */
+    @Benchmark
+    public Patient getPatient()
+    {
+        return fDao.getPatient(PATIENT_DFN);
+    }
+    
+    /**
+     * Returns a realistic response for each remote procedure used by {@link
+     * RpcVistaPatientDao#getPatient(int)}.
+     */
+    private static final class CannedProcedureCaller implements VistaProcedureCaller
+    {
+        private static final List<String> PATIENT = ImmutableList.of("TESTPATIENT^50^M");
+        
+        private static final List<String> RECENT_VITALS = ImmutableList.of(
+                "Temperature:  (03/05/10@09:00)  98.6 F  (37.0 C)  _NURSE,ONE_Vitals",
+                "Pulse:        (03/05/10@09:00)  74  _NURSE,ONE_Vitals",
+                "Respiration:  (03/05/10@09:00)  18  _NURSE,ONE_Vitals",
+                "Blood Pressure:  (03/05/10@09:00)  120/80  _NURSE,ONE_Vitals",
+                "Pain:  (03/05/10@09:00)  0  _NURSE,ONE_Vitals",
+                "Height:  (03/05/10@09:00)  5 ft 10 in (177.80 cm)  _NURSE,ONE_Vitals",
+                "Weight:  (03/05/10@09:00)  185.00 lb (84.09 kg)  _NURSE,ONE_Vitals",
+                "Body Mass Index:  (03/05/10@09:00)  26.54  _NURSE,ONE_Vitals");
+        
+        private static final List<String> WEIGHTS = ImmutableList.of(
+                "21557^04/17/09@12:00 Wt: 185.00 lb (84.09 kg) _NURSE,ONE",
+                "       @12:00 Body Mass Index: 25.86",
+                "22296^08/24/09@14:00 Wt: 190.00 lb (86.36 kg) _NURSE,ONE",
+                "       @14:00 Body Mass Index: 26.56");
+        
+        private static final List<String> HEALTH_FACTORS = ImmutableList.of(
+                "08/25/2014^REFUSED INFLUENZA IMMUNIZATION",
+                "08/22/2014^DEPRESSION ASSESS POSITIVE (MDD)",
+                "08/08/2014^CURRENT SMOKER",
+                "07/30/2014^GEC HOMELESS");
+        
+        private static final List<String> MEDICATIONS = ImmutableList.of(
+                "403962R;O^METOPROLOL TARTRATE 50MG TAB^3110228^^^3",
+                "404062R;O^SIMVASTATIN 40MG TAB^3110228^^^3");
+        
+        private static final List<String> NOTES = ImmutableList.of(
+                "<notes>",
+                "<note localTitle='NURSING ADMISSION EVALUATION NOTE' signDate='04/01/2004 22:24'>",
+                "<body>",
+                "<![CDATA[Patient is independent in all activities of daily living.]]>",
+                "<![CDATA[DNR status was discussed with the patient.]]>",
+                "</body>",
+                "</note>",
+                "</notes>");
+        
+        @Override
+        public List<String> doRpc(
+                final String duz, final RemoteProcedure procedure, final String... args)
+        {
+            switch (procedure)
+            {
+                case GET_PATIENT:
+                    return PATIENT;
+                case GET_RECENT_VITALS:
+                    return RECENT_VITALS;
+                case GET_VITAL:
+                    return WEIGHTS;
+                case GET_HEALTH_FACTORS:
+                    return HEALTH_FACTORS;
+                case GET_ACTIVE_MEDICATIONS:
+                    return MEDICATIONS;
+                case GET_ADL_STATUS:
+                case GET_NOTES_WITH_SUBSTRING:
+                    return NOTES;
+                default:
+                    throw new UnsupportedOperationException("not canned: " + procedure);
+            }
+        }
+        
+        @Override
+        public String doSaveProgressNoteCall(
+                final String duz,
+                final String encryptedSignature,
+                final String patientDfn,
+                final List<String> noteLines)
+        {
+            throw new UnsupportedOperationException("not canned");
+        }
+        
+        @Override
+        public String doSaveRiskCalculationCall(
+                final String duz,
+                final String patientDfn,
+                final String cptCode,
+                final String dateTime,
+                final List<String> outcomes)
+        {
+            throw new UnsupportedOperationException("not canned");
+        }
+        
+        @Override
+        public String doRetrieveLabsCall(
+                final String duz, final String patientDfn, final List<String> labNames)
+        {
+            return labNames.get(0) + "^3.0^02/02/2015@14:35:12^g/dl";
+        }
+        
+        @Override
+        public List<String> doRetrieveMultipleLabsCall(
+                final String duz,
+                final String patientDfn,
+                final List<List<String>> labNameLists)
+        {
+            final ArrayList<String> results = new ArrayList<>(labNameLists.size());
+            for (final List<String> labNames : labNameLists)
+            {
+                results.add(doRetrieveLabsCall(duz, patientDfn, labNames));
+            }
+            return results;
+        }
+        
+        @Override
+        public String getDivision()
+        {
+            return "500";
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package gov.va.med.srcalc.web.controller.admin;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import gov.va.med.srcalc.domain.model.Procedure;
+import gov.va.med.srcalc.util.csv.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks reading an uploaded procedure CSV file with {@link ProcedureRowTranslator}.
+ * The national CPT file is not in the repository, so this uses a generated file of
+ * about its size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcedureCsvBenchmark
+{
+    /**
+     * The number of procedure rows in the generated file.
+     */
+    private static final int ROW_COUNT = 10000;
+    
+    private String fCsvContent;
+    
+    /**
+     * Generates the CSV content.
+     */
+    @Setup
+    public void setup()
+    {
+        final StringBuilder csv = new StringBuilder(ROW_COUNT * 80);
+        csv.append("CPT,RVU,Eligible,Complexity,Long Description,Short Description\r\n");
+        for (int i = 0; i < ROW_COUNT; ++i)
+        {
+            csv.append(String.format(
+                    "%05d,%.2f,%s,%s,\"Long description of procedure %d, with a comma\",Procedure %d\r\n",
+                    10000 + i,
+                    (i % 500) / 10.0f,
+                    (i % 7 == 0) ? "N" : "Y",
+                    (i % 3 == 0) ? "Complex" : "Standard",
+                    i,
+                    i));
+        }
+        fCsvContent = csv.toString();
+    }
+    
+    /**
+     * Reads all of the procedures into memory.
+     */
+    @Benchmark
+    public TabularParseResult<Procedure> readObjects()
+    {
+        final TabularParseResult<Procedure> result =
+                new CsvReader<>(new ProcedureRowTranslator())
+                .readObjects(new StringReader(fCsvContent));
+        if (result.hasErrors())
+        {
+            throw new IllegalStateException("generated CSV was invalid: " + result.getErrors());
+        }
+        return result;
+    }
+    
+    /**
+     * Streams the procedures, as done for large uploads.
+     */
+    @Benchmark
+    public TabularStreamResult streamObjects()
+    {
+        return new CsvReader<>(new ProcedureRowTranslator()).streamObjects(
+                new StringReader(fCsvContent),
+                new RowHandler<Procedure>()
+                {
+                    @Override
+                    public void handleRow(final Procedure rowObject)
+                    {
+                        // Only measure the parsing.
+                    }
+                },
+                CsvReader.DEFAULT_MAX_ERRORS);
+    }
+}
@@ -0,0 +1,64 @@
+package gov.va.med.srcalc.web.view;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import gov.va.med.srcalc.domain.calculation.Value;
+import gov.va.med.srcalc.domain.model.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+/**
+ * Benchmarks parsing a submitted {@link VariableEntry} into Values with {@link
+ * InputParserVisitor}, as done for each calculation form submission.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputParserVisitorBenchmark
+{
+    private List<AbstractVariable> fVariables;
+    private VariableEntry fVariableEntry;
+    
+    /**
+     * Builds an entry with a valid value for each sample variable.
+     */
+    @Setup
+    public void setup()
+    {
+        fVariables = SampleModels.sampleVariableList();
+        fVariableEntry = new VariableEntry(fVariables)
+                .putDynamicValue("procedure", SampleModels.repairLeftProcedure().getCptCode())
+                .putDynamicValue("age", "65")
+                .putDynamicValue("gender", "Male")
+                .putDynamicValue("dnr", "true")
+                .putDynamicValue("functionalStatus", "Independent")
+                .putDynamicValue("wbc", VariableEntry.SPECIAL_NUMERICAL)
+                .putDynamicValue(VariableEntry.makeNumericalInputName("wbc"), "12.5")
+                .putDynamicValue("wbcIsNormal", "false");
+    }
+    
+    /**
+     * Parses the entry, as done for each form submission.
+     */
+    @Benchmark
+    public List<Value> parse()
+    {
+        final BeanPropertyBindingResult errors =
+                new BeanPropertyBindingResult(fVariableEntry, "variableEntry");
+        final InputParserVisitor visitor = new InputParserVisitor(fVariableEntry, errors);
+        for (final AbstractVariable variable : fVariables)
+        {
+            visitor.visit(variable);
+        }
+        if (errors.hasErrors())
+        {
+            throw new IllegalStateException("sample input was invalid: " + errors);
+        }
+        return visitor.getValues();
+    }
+}
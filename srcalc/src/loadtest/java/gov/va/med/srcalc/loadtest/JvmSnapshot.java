@@ -0,0 +1,133 @@
+package gov.va.med.srcalc.loadtest;
+
+import java.lang.management.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>A snapshot of the JVM's heap and garbage collection statistics. Since the load test
+ * runs the application in-process, these are the server-side statistics.</p>
+ *
+ * <p>Per Effective Java Item 17, this class is marked final because it was not
+ * designed for inheritance.</p>
+ */
+public final class JvmSnapshot
+{
+    private final long fHeapUsed;
+    private final long fHeapCommitted;
+    private final long fHeapMax;
+    private final long fPeakHeapUsed;
+    private final ImmutableMap<String, Long> fGcCounts;
+    private final ImmutableMap<String, Long> fGcMillis;
+
+    private JvmSnapshot(
+            final MemoryUsage heap,
+            final long peakHeapUsed,
+            final Map<String, Long> gcCounts,
+            final Map<String, Long> gcMillis)
+    {
+        fHeapUsed = heap.getUsed();
+        fHeapCommitted = heap.getCommitted();
+        fHeapMax = heap.getMax();
+        fPeakHeapUsed = peakHeapUsed;
+        fGcCounts = ImmutableMap.copyOf(gcCounts);
+        fGcMillis = ImmutableMap.copyOf(gcMillis);
+    }
+
+    /**
+     * Resets the peak heap usage so that the next snapshot's peak only covers the time
+     * since this call.
+     */
+    public static void resetPeakUsage()
+    {
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+            {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the current statistics.
+     */
+    public static JvmSnapshot take()
+    {
+        // The sum of the pools' peaks overestimates the heap's peak, since the pools
+        // peak at different times, but it is the best the MXBeans offer.
+        long peakHeapUsed = 0;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+            {
+                peakHeapUsed += pool.getPeakUsage().getUsed();
+            }
+        }
+        final LinkedHashMap<String, Long> gcCounts = new LinkedHashMap<>();
+        final LinkedHashMap<String, Long> gcMillis = new LinkedHashMap<>();
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            gcCounts.put(gc.getName(), gc.getCollectionCount());
+            gcMillis.put(gc.getName(), gc.getCollectionTime());
+        }
+        return new JvmSnapshot(
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage(),
+                peakHeapUsed,
+                gcCounts,
+                gcMillis);
+    }
+
+    /**
+     * Returns the heap used, in bytes.
+     */
+    public long getHeapUsed()
+    {
+        return fHeapUsed;
+    }
+
+    /**
+     * Returns the heap committed, in bytes.
+     */
+    public long getHeapCommitted()
+    {
+        return fHeapCommitted;
+    }
+
+    /**
+     * Returns the maximum heap size in bytes, or -1 if undefined.
+     */
+    public long getHeapMax()
+    {
+        return fHeapMax;
+    }
+
+    /**
+     * Returns an upper bound of the peak heap used, in bytes, since the last call to
+     * {@link #resetPeakUsage()}.
+     */
+    public long getPeakHeapUsed()
+    {
+        return fPeakHeapUsed;
+    }
+
+    /**
+     * Returns the total number of collections by each garbage collector, keyed by the
+     * collector's name.
+     */
+    public ImmutableMap<String, Long> getGcCounts()
+    {
+        return fGcCounts;
+    }
+
+    /**
+     * Returns the approximate total time (ms) spent in each garbage collector, keyed by
+     * the collector's name.
+     */
+    public ImmutableMap<String, Long> getGcMillis()
+    {
+        return fGcMillis;
+    }
+}
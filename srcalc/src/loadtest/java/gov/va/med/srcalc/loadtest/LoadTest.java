@@ -0,0 +1,249 @@
+package gov.va.med.srcalc.loadtest;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.naming.NamingException;
+import javax.servlet.Filter;
+
+import gov.va.med.srcalc.security.SimulatedVistaDaoFactory;
+import gov.va.med.srcalc.vista.VistaDaoFactory;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.mock.jndi.SimpleNamingContextBuilder;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.XmlWebApplicationContext;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+/**
+ * <p>Drives concurrent simulated users through the full user journey (see {@link
+ * SimulatedUser}) and reports the throughput, the latency percentiles and error count of
+ * each step and the heap and garbage collection statistics.</p>
+ *
+ * <p>The application runs in-process from the WAR's applicationContext.xml, with the
+ * "simulated-vista" profile in place of VistA and an in-memory database containing the
+ * sample models. Requests go through the Spring Security filter chain and the
+ * DispatcherServlet, but JSPs are not rendered. Run it with the 'loadTest' Gradle task
+ * from the srcalc directory. See {@link LoadTestSettings} for the parameters.</p>
+ */
+public final class LoadTest
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTest.class);
+
+    /**
+     * The simulated divisions to log in to. Must match applicationContext.xml.
+     */
+    private static final List<String> DIVISIONS = ImmutableList.of("500", "605", "640");
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 95.0, 99.0, 100.0};
+
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    private LoadTest()
+    {
+    }
+
+    /**
+     * Runs the load test.
+     * @param args an optional path of a file to also write the report to
+     * @throws Exception if the application could not be started or the test was
+     * interrupted
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        final LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        bindDataSource();
+        final XmlWebApplicationContext context = startApplication();
+        final String report;
+        try
+        {
+            report = run(context, settings);
+        }
+        finally
+        {
+            context.close();
+        }
+
+        System.out.print(report);
+        if (args.length > 0)
+        {
+            final File reportFile = new File(args[0]);
+            Files.write(report, reportFile, StandardCharsets.UTF_8);
+            System.out.println("Wrote the report to " + reportFile);
+        }
+    }
+
+    /**
+     * Binds an in-memory database where applicationContext.xml expects the container to
+     * provide it. The test hibernate.properties creates the schema and sample models.
+     */
+    private static void bindDataSource() throws NamingException
+    {
+        final SimpleNamingContextBuilder builder =
+                SimpleNamingContextBuilder.emptyActivatedContextBuilder();
+        final JDBCDataSource dataSource = new JDBCDataSource();
+        // HSQLDB locks whole tables by default, which would make concurrent rollup
+        // updates fail far more often than on a real database with row locks.
+        dataSource.setUrl("jdbc:hsqldb:mem:srcalcloadtest;hsqldb.tx=mvcc");
+        builder.bind("java:comp/env/jdbc/srcalcDB", dataSource);
+    }
+
+    /**
+     * Starts the application context with the simulated VistA.
+     */
+    private static XmlWebApplicationContext startApplication()
+    {
+        final XmlWebApplicationContext context = new XmlWebApplicationContext();
+        context.setServletContext(
+                new MockServletContext("src/main/webapp", new FileSystemResourceLoader()));
+        context.setConfigLocation("/WEB-INF/applicationContext.xml");
+        context.getEnvironment().setActiveProfiles("simulated-vista");
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * Runs the simulated users to completion and returns the report.
+     */
+    private static String run(
+            final XmlWebApplicationContext context, final LoadTestSettings settings)
+            throws InterruptedException
+    {
+        final MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context)
+                .addFilters(context.getBean("springSecurityFilterChain", Filter.class))
+                .build();
+        final SimulatedVistaDaoFactory vistaDaoFactory =
+                (SimulatedVistaDaoFactory)context.getBean(VistaDaoFactory.class);
+        final int patientCount =
+                vistaDaoFactory.getCaller(DIVISIONS.get(0)).getPatients().getSize();
+
+        final EnumMap<Step, StepStatistics> statistics = new EnumMap<>(Step.class);
+        for (final Step step : Step.values())
+        {
+            statistics.put(step, new StepStatistics(step));
+        }
+
+        LOGGER.warn("Starting load test: {}", settings);
+        final ScheduledExecutorService executor =
+                Executors.newScheduledThreadPool(settings.getUsers());
+        final ArrayList<Future<Integer>> users = new ArrayList<>();
+        System.gc();
+        JvmSnapshot.resetPeakUsage();
+        final JvmSnapshot before = JvmSnapshot.take();
+        final long start = System.nanoTime();
+        try
+        {
+            for (int i = 0; i < settings.getUsers(); ++i)
+            {
+                // Start the users evenly over the ramp-up time.
+                final long delay = settings.getRampUpMillis() * i / settings.getUsers();
+                users.add(executor.schedule(
+                        new SimulatedUser(
+                                mockMvc, settings, statistics, i, DIVISIONS, patientCount),
+                        delay,
+                        TimeUnit.MILLISECONDS));
+            }
+            int succeeded = 0;
+            for (final Future<Integer> user : users)
+            {
+                try
+                {
+                    succeeded += user.get();
+                }
+                catch (final ExecutionException ex)
+                {
+                    LOGGER.error("A simulated user failed unexpectedly.", ex.getCause());
+                }
+            }
+            final double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            final JvmSnapshot after = JvmSnapshot.take();
+
+            return formatReport(
+                    settings, statistics, succeeded, elapsedSeconds, before, after);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Formats the report as plain text.
+     */
+    private static String formatReport(
+            final LoadTestSettings settings,
+            final Map<Step, StepStatistics> statistics,
+            final int succeededJourneys,
+            final double elapsedSeconds,
+            final JvmSnapshot before,
+            final JvmSnapshot after)
+    {
+        final StringWriter stringWriter = new StringWriter();
+        final PrintWriter out = new PrintWriter(stringWriter);
+        final int journeys = settings.getUsers() * settings.getJourneysPerUser();
+        int requests = 0;
+        for (final StepStatistics stepStats : statistics.values())
+        {
+            requests += stepStats.getCount();
+        }
+
+        out.println("===== srcalc load test =====");
+        out.printf("Settings:    %s%n", settings);
+        out.printf("Elapsed:     %.1f s%n", elapsedSeconds);
+        out.printf("Journeys:    %d of %d completed, %.2f/s%n",
+                succeededJourneys, journeys, succeededJourneys / elapsedSeconds);
+        out.printf("Requests:    %d, %.2f/s%n", requests, requests / elapsedSeconds);
+        out.println();
+
+        out.printf("%-22s %7s %6s %9s", "Step", "Count", "Errors", "Mean ms");
+        for (final double percentile : PERCENTILES)
+        {
+            out.printf(" %9s", percentile == 100.0 ? "Max ms" : "p" + (int)percentile + " ms");
+        }
+        out.println();
+        for (final StepStatistics stepStats : statistics.values())
+        {
+            out.printf("%-22s %7d %6d %9.1f",
+                    stepStats.getStep().getDescription(),
+                    stepStats.getCount(),
+                    stepStats.getErrorCount(),
+                    stepStats.getMeanMillis());
+            for (final double percentile : PERCENTILES)
+            {
+                out.printf(" %9.1f", stepStats.getPercentileMillis(percentile));
+            }
+            out.println();
+        }
+        out.println();
+
+        out.printf("Heap:        %.1f MB used at end, %.1f MB peak, %.1f MB committed,"
+                + " %.1f MB max%n",
+                after.getHeapUsed() / MEGABYTE,
+                after.getPeakHeapUsed() / MEGABYTE,
+                after.getHeapCommitted() / MEGABYTE,
+                after.getHeapMax() / MEGABYTE);
+        long totalGcMillis = 0;
+        for (final String collector : after.getGcCounts().keySet())
+        {
+            final long count =
+                    after.getGcCounts().get(collector) - before.getGcCounts().get(collector);
+            final long millis =
+                    after.getGcMillis().get(collector) - before.getGcMillis().get(collector);
+            totalGcMillis += millis;
+            out.printf("GC:          %s: %d collections, %d ms%n", collector, count, millis);
+        }
+        out.printf("GC overhead: %.2f%% of elapsed time%n",
+                totalGcMillis / 10.0 / elapsedSeconds);
+        out.flush();
+        return stringWriter.toString();
+    }
+}
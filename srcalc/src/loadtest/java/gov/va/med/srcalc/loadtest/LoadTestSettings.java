@@ -0,0 +1,120 @@
+package gov.va.med.srcalc.loadtest;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>The parameters of a load test run. Immutable.</p>
+ *
+ * <p>Per Effective Java Item 17, this class is marked final because it was not
+ * designed for inheritance.</p>
+ */
+public final class LoadTestSettings
+{
+    /**
+     * The system property specifying the number of concurrent simulated users.
+     */
+    public static final String USERS_PROPERTY = "loadtest.users";
+
+    /**
+     * The system property specifying the number of journeys each user makes.
+     */
+    public static final String JOURNEYS_PROPERTY = "loadtest.journeys";
+
+    /**
+     * The system property specifying the mean think time (ms) between steps.
+     */
+    public static final String THINK_MILLIS_PROPERTY = "loadtest.thinkMillis";
+
+    /**
+     * The system property specifying the time (ms) over which to start the users.
+     */
+    public static final String RAMP_UP_MILLIS_PROPERTY = "loadtest.rampUpMillis";
+
+    private final int fUsers;
+    private final int fJourneysPerUser;
+    private final long fThinkMillis;
+    private final long fRampUpMillis;
+
+    /**
+     * Constructs an instance.
+     * @param users the number of concurrent simulated users
+     * @param journeysPerUser the number of journeys each user makes
+     * @param thinkMillis the mean think time between steps
+     * @param rampUpMillis the time over which to start the users, evenly spaced
+     * @throws IllegalArgumentException if any parameter is out of range
+     */
+    public LoadTestSettings(
+            final int users,
+            final int journeysPerUser,
+            final long thinkMillis,
+            final long rampUpMillis)
+    {
+        Preconditions.checkArgument(users > 0, "must have at least 1 user");
+        Preconditions.checkArgument(journeysPerUser > 0, "must make at least 1 journey");
+        Preconditions.checkArgument(thinkMillis >= 0, "think time must be non-negative");
+        Preconditions.checkArgument(rampUpMillis >= 0, "ramp-up time must be non-negative");
+        fUsers = users;
+        fJourneysPerUser = journeysPerUser;
+        fThinkMillis = thinkMillis;
+        fRampUpMillis = rampUpMillis;
+    }
+
+    /**
+     * Returns the settings specified by the system properties above, defaulting to a
+     * short run of 10 users making 5 journeys each.
+     * @throws IllegalArgumentException if any property is invalid
+     */
+    public static LoadTestSettings fromSystemProperties()
+    {
+        return new LoadTestSettings(
+                Integer.getInteger(USERS_PROPERTY, 10),
+                Integer.getInteger(JOURNEYS_PROPERTY, 5),
+                Long.getLong(THINK_MILLIS_PROPERTY, 1000L),
+                Long.getLong(RAMP_UP_MILLIS_PROPERTY, 5000L));
+    }
+
+    /**
+     * Returns the number of concurrent simulated users.
+     */
+    public int getUsers()
+    {
+        return fUsers;
+    }
+
+    /**
+     * Returns the number of journeys each user makes.
+     */
+    public int getJourneysPerUser()
+    {
+        return fJourneysPerUser;
+    }
+
+    /**
+     * Returns the mean think time (ms) between steps. The actual think time is uniformly
+     * distributed between half and one and a half times this value.
+     */
+    public long getThinkMillis()
+    {
+        return fThinkMillis;
+    }
+
+    /**
+     * Returns the time (ms) over which to start the users.
+     */
+    public long getRampUpMillis()
+    {
+        return fRampUpMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("users", fUsers)
+                .add("journeysPerUser", fJourneysPerUser)
+                .add("thinkMillis", fThinkMillis)
+                .add("rampUpMillis", fRampUpMillis)
+                .toString();
+    }
+}
@@ -0,0 +1,310 @@
+package gov.va.med.srcalc.loadtest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+import gov.va.med.srcalc.security.SrcalcWebAuthnDetailsSource;
+import gov.va.med.srcalc.vista.VistaPatientDao;
+import gov.va.med.srcalc.web.SrcalcUrls;
+import gov.va.med.srcalc.web.controller.DynamicVarParams;
+import gov.va.med.srcalc.web.view.VariableEntry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * <p>A simulated user who repeatedly makes the full user journey: logging in, starting a
+ * calculation for a random patient, selecting a specialty, entering the variables,
+ * viewing the results and signing the calculation. Each journey is a new HTTP session.
+ * Each request's latency and success is recorded in the given {@link StepStatistics}.
+ * </p>
+ *
+ * <p>A journey is abandoned at its first failed step. A step fails if the request throws
+ * an exception or does not have the expected response.</p>
+ */
+public final class SimulatedUser implements Callable<Integer>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulatedUser.class);
+
+    /**
+     * The scripted specialties and their variable values, which are valid for the
+     * sample risk models.
+     */
+    private static final List<ScriptedCalculation> CALCULATIONS = ImmutableList.of(
+            new ScriptedCalculation("Cardiac")
+                    .add("gender", "Male")
+                    .add("age", "55")
+                    .add("bmi", "18.7"),
+            new ScriptedCalculation("Thoracic")
+                    .add("procedure", "26546")
+                    .add("asaClassification", "Class 3")
+                    .add("age", "55")
+                    .add("dnr", "false")
+                    .add("bmi", "18.7")
+                    .add("preopPneumonia", "true")
+                    .add("alkalinePhosphatase", ">125mU/ml")
+                    .add("bun", VariableEntry.SPECIAL_NUMERICAL)
+                    .add(VariableEntry.makeNumericalInputName("bun"), "15.0"));
+
+    private final MockMvc fMockMvc;
+    private final LoadTestSettings fSettings;
+    private final Map<Step, StepStatistics> fStatistics;
+    private final String fUserName;
+    private final List<String> fDivisions;
+    private final int fPatientCount;
+
+    /**
+     * Constructs an instance.
+     * @param mockMvc performs the requests against the application
+     * @param settings specifies the number of journeys and think time
+     * @param statistics the statistics to record each step in. Must contain every Step.
+     * @param userNumber identifies this user
+     * @param divisions the divisions to log in to, chosen randomly for each journey
+     * @param patientCount the number of patients in each division, with DFNs starting
+     * at 1
+     */
+    public SimulatedUser(
+            final MockMvc mockMvc,
+            final LoadTestSettings settings,
+            final Map<Step, StepStatistics> statistics,
+            final int userNumber,
+            final List<String> divisions,
+            final int patientCount)
+    {
+        fMockMvc = mockMvc;
+        fSettings = settings;
+        fStatistics = statistics;
+        fUserName = "LOADTEST" + userNumber;
+        fDivisions = ImmutableList.copyOf(divisions);
+        fPatientCount = patientCount;
+    }
+
+    /**
+     * Makes the configured number of journeys.
+     * @return the number of successful journeys
+     * @throws InterruptedException if interrupted while thinking
+     */
+    @Override
+    public Integer call() throws InterruptedException
+    {
+        int succeeded = 0;
+        for (int i = 0; i < fSettings.getJourneysPerUser(); ++i)
+        {
+            if (makeJourney())
+            {
+                ++succeeded;
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * Makes one journey.
+     * @return true if the journey completed, false if it was abandoned
+     * @throws InterruptedException if interrupted while thinking
+     */
+    private boolean makeJourney() throws InterruptedException
+    {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String division = fDivisions.get(random.nextInt(fDivisions.size()));
+        final int patientDfn = 1 + random.nextInt(fPatientCount);
+        final ScriptedCalculation calculation =
+                CALCULATIONS.get(random.nextInt(CALCULATIONS.size()));
+
+        final MvcResult login = perform(
+                Step.LOGIN,
+                post(SrcalcUrls.LOGIN_TARGET)
+                        .param("accessCode", fUserName)
+                        .param("verifyCode", fUserName)
+                        .param(SrcalcWebAuthnDetailsSource.DIVISION_PARAM, division),
+                SrcalcUrls.DEFAULT_PAGE,
+                null);
+        if (login == null)
+        {
+            return false;
+        }
+        // Logging in replaces the session to prevent session fixation.
+        final MockHttpSession session =
+                (MockHttpSession)login.getRequest().getSession(false);
+
+        think();
+        if (perform(
+                Step.NEW_CALC,
+                get("/newCalc").session(session)
+                        .param("patientDfn", Integer.toString(patientDfn)),
+                null,
+                null) == null)
+        {
+            return false;
+        }
+
+        think();
+        if (perform(
+                Step.SELECT_SPECIALTY,
+                post("/selectSpecialty").session(session)
+                        .param("specialty", calculation.getSpecialtyName()),
+                "/enterVars",
+                null) == null)
+        {
+            return false;
+        }
+        // The browser follows the redirect immediately.
+        if (perform(Step.PRESENT_VARIABLES, get("/enterVars").session(session), null, null)
+                == null)
+        {
+            return false;
+        }
+
+        think();
+        if (perform(
+                Step.ENTER_VARIABLES,
+                calculation.getValues().addTo(post("/enterVars").session(session)),
+                "/displayResults",
+                null) == null)
+        {
+            return false;
+        }
+        if (perform(Step.DISPLAY_RESULTS, get("/displayResults").session(session), null, null)
+                == null)
+        {
+            return false;
+        }
+
+        think();
+        return perform(
+                Step.SIGN,
+                post("/signCalculation").session(session).param("eSig", fUserName),
+                null,
+                VistaPatientDao.SaveNoteCode.SUCCESS.getDescription()) != null;
+    }
+
+    /**
+     * Performs the given request, recording its latency and success.
+     * @param step the step to record the request as
+     * @param request the request to perform
+     * @param expectedRedirect the URL the response must redirect to. If null, the
+     * response must have status 200.
+     * @param expectedContent if non-null, text the response content must contain
+     * @return the result if the request succeeded, null otherwise
+     */
+    private MvcResult perform(
+            final Step step,
+            final MockHttpServletRequestBuilder request,
+            final String expectedRedirect,
+            final String expectedContent)
+    {
+        final long start = System.nanoTime();
+        MvcResult result = null;
+        String failure = null;
+        try
+        {
+            result = fMockMvc.perform(request).andReturn();
+            // Handlers which call VistA complete asynchronously. The browser only sees
+            // the response rendered by the dispatch after completion.
+            if (result.getRequest().isAsyncStarted())
+            {
+                // Wait for completion: asyncDispatch() does not.
+                result.getAsyncResult();
+                result = fMockMvc.perform(asyncDispatch(result)).andReturn();
+            }
+            failure = checkResponse(result.getResponse(), expectedRedirect, expectedContent);
+        }
+        catch (final Exception ex)
+        {
+            failure = ex.toString();
+        }
+        final long latency = System.nanoTime() - start;
+        fStatistics.get(step).record(latency, failure == null);
+        if (failure != null)
+        {
+            LOGGER.debug("{} failed for {}: {}", step, fUserName, failure);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a description of how the response is not as expected, or null if it is.
+     */
+    private static String checkResponse(
+            final MockHttpServletResponse response,
+            final String expectedRedirect,
+            final String expectedContent) throws Exception
+    {
+        if (expectedRedirect != null)
+        {
+            if (!expectedRedirect.equals(response.getRedirectedUrl()))
+            {
+                return "redirected to " + response.getRedirectedUrl();
+            }
+        }
+        else if (response.getStatus() != 200)
+        {
+            return "status " + response.getStatus();
+        }
+        if (expectedContent != null && !response.getContentAsString().contains(expectedContent))
+        {
+            return "unexpected content " + response.getContentAsString();
+        }
+        return null;
+    }
+
+    /**
+     * Sleeps for a random think time.
+     * @throws InterruptedException if interrupted while sleeping
+     */
+    private void think() throws InterruptedException
+    {
+        final long mean = fSettings.getThinkMillis();
+        if (mean > 0)
+        {
+            Thread.sleep(mean / 2 + ThreadLocalRandom.current().nextLong(mean + 1));
+        }
+    }
+
+    /**
+     * A specialty and the variable values to enter for it.
+     */
+    private static final class ScriptedCalculation
+    {
+        private final String fSpecialtyName;
+        private final DynamicVarParams fValues = new DynamicVarParams();
+
+        ScriptedCalculation(final String specialtyName)
+        {
+            fSpecialtyName = specialtyName;
+        }
+
+        /**
+         * Adds the value of the given variable.
+         */
+        ScriptedCalculation add(final String variableName, final String value)
+        {
+            fValues.add(variableName, value);
+            return this;
+        }
+
+        String getSpecialtyName()
+        {
+            return fSpecialtyName;
+        }
+
+        DynamicVarParams getValues()
+        {
+            return fValues;
+        }
+    }
+}
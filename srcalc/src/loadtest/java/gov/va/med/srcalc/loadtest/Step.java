@@ -0,0 +1,30 @@
+package gov.va.med.srcalc.loadtest;
+
+/**
+ * The steps of the scripted user journey, in order.
+ */
+public enum Step
+{
+    LOGIN("POST /checkLogin"),
+    NEW_CALC("GET /newCalc"),
+    SELECT_SPECIALTY("POST /selectSpecialty"),
+    PRESENT_VARIABLES("GET /enterVars"),
+    ENTER_VARIABLES("POST /enterVars"),
+    DISPLAY_RESULTS("GET /displayResults"),
+    SIGN("POST /signCalculation");
+
+    private final String fDescription;
+
+    Step(final String description)
+    {
+        fDescription = description;
+    }
+
+    /**
+     * Returns the HTTP method and path of the step's request.
+     */
+    public String getDescription()
+    {
+        return fDescription;
+    }
+}
@@ -0,0 +1,116 @@
+package gov.va.med.srcalc.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p>Records the latencies and errors of one {@link Step}.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class StepStatistics
+{
+    private final Step fStep;
+
+    /**
+     * The latencies (in microseconds) of all completed requests, including failed ones.
+     */
+    private final ArrayList<Long> fLatencies = new ArrayList<>();
+
+    private int fErrorCount = 0;
+
+    /**
+     * Constructs an instance with no recorded requests.
+     */
+    public StepStatistics(final Step step)
+    {
+        fStep = step;
+    }
+
+    /**
+     * Returns the step being recorded.
+     */
+    public Step getStep()
+    {
+        return fStep;
+    }
+
+    /**
+     * Records a request.
+     * @param latencyNanos the request's latency
+     * @param succeeded whether the request succeeded
+     */
+    public synchronized void record(final long latencyNanos, final boolean succeeded)
+    {
+        fLatencies.add(latencyNanos / 1000L);
+        if (!succeeded)
+        {
+            ++fErrorCount;
+        }
+    }
+
+    /**
+     * Returns the number of recorded requests.
+     */
+    public synchronized int getCount()
+    {
+        return fLatencies.size();
+    }
+
+    /**
+     * Returns the number of failed requests.
+     */
+    public synchronized int getErrorCount()
+    {
+        return fErrorCount;
+    }
+
+    /**
+     * Returns the mean latency in milliseconds, or 0 if there are no requests.
+     */
+    public synchronized double getMeanMillis()
+    {
+        if (fLatencies.isEmpty())
+        {
+            return 0.0;
+        }
+        long total = 0;
+        for (final long latency : fLatencies)
+        {
+            total += latency;
+        }
+        return total / 1000.0 / fLatencies.size();
+    }
+
+    /**
+     * Returns the given percentile of the latencies in milliseconds (using the
+     * nearest-rank method), or 0 if there are no requests.
+     * @param percentile the percentile, in (0, 100]
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public double getPercentileMillis(final double percentile)
+    {
+        if (percentile <= 0.0 || percentile > 100.0)
+        {
+            throw new IllegalArgumentException("percentile must be in (0, 100]");
+        }
+        final long[] sorted = sortedLatencies();
+        if (sorted.length == 0)
+        {
+            return 0.0;
+        }
+        final int rank = (int)Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[rank - 1] / 1000.0;
+    }
+
+    private synchronized long[] sortedLatencies()
+    {
+        final long[] latencies = new long[fLatencies.size()];
+        for (int i = 0; i < latencies.length; ++i)
+        {
+            latencies[i] = fLatencies.get(i);
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+}
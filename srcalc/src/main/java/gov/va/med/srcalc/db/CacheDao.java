@@ -0,0 +1,77 @@
+package gov.va.med.srcalc.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.inject.Inject;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.joda.time.DateTime;
+import org.springframework.stereotype.Repository;
+
+/**
+ * <p>Provides information about the Hibernate second-level cache, which holds the model
+ * entities. The cached entities and collections are marked with {@link
+ * org.hibernate.annotations.Cache} and the regions are configured in
+ * srcalc-ehcache.xml.</p>
+ *
+ * <p>Changes made through Hibernate keep the cache consistent. Code which writes cached
+ * entities with SQL must evict them itself: see {@link ProcedureDao}.</p>
+ */
+@Repository
+public class CacheDao
+{
+    private final SessionFactory fSessionFactory;
+
+    /**
+     * Constructs an instance.
+     * @param sessionFactory the SessionFactory whose cache to inspect
+     */
+    @Inject // Allow arguments to be autowired.
+    public CacheDao(final SessionFactory sessionFactory)
+    {
+        fSessionFactory = sessionFactory;
+    }
+
+    /**
+     * Returns the current cache statistics. The counts will all be zero if the
+     * SessionFactory does not collect statistics. Does not require a transaction.
+     */
+    public CacheStatistics getStatistics()
+    {
+        final Statistics stats = fSessionFactory.getStatistics();
+        final String[] regionNames = stats.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        final ArrayList<CacheStatistics.RegionStatistics> regions =
+                new ArrayList<>(regionNames.length);
+        for (final String name : regionNames)
+        {
+            final SecondLevelCacheStatistics region =
+                    stats.getSecondLevelCacheStatistics(name);
+            // Null if the region is not an entity or collection region.
+            if (region != null)
+            {
+                regions.add(new CacheStatistics.RegionStatistics(
+                        name,
+                        new CacheStatistics.Counts(
+                                region.getHitCount(),
+                                region.getMissCount(),
+                                region.getPutCount()),
+                        region.getElementCountInMemory()));
+            }
+        }
+        return new CacheStatistics(
+                new DateTime(stats.getStartTime()),
+                new CacheStatistics.Counts(
+                        stats.getSecondLevelCacheHitCount(),
+                        stats.getSecondLevelCacheMissCount(),
+                        stats.getSecondLevelCachePutCount()),
+                new CacheStatistics.Counts(
+                        stats.getQueryCacheHitCount(),
+                        stats.getQueryCacheMissCount(),
+                        stats.getQueryCachePutCount()),
+                regions);
+    }
+}
@@ -0,0 +1,209 @@
+package gov.va.med.srcalc.db;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * <p>An immutable summary of the second-level cache statistics since a given time. See
+ * {@link CacheDao#getStatistics()}.</p>
+ *
+ * <p>Per Effective Java Item 17, this class is marked final because it was not designed
+ * for inheritance.</p>
+ */
+public final class CacheStatistics
+{
+    private final DateTime fCollectedSince;
+    private final Counts fSecondLevelCounts;
+    private final Counts fQueryCounts;
+    private final ImmutableList<RegionStatistics> fRegions;
+
+    /**
+     * Constructs an instance with the given properties.
+     * @param collectedSince when statistics collection started
+     * @param secondLevelCounts the combined counts of the entity and collection caches
+     * @param queryCounts the counts of the query cache
+     * @param regions the statistics of each cache region
+     */
+    public CacheStatistics(
+            final DateTime collectedSince,
+            final Counts secondLevelCounts,
+            final Counts queryCounts,
+            final List<RegionStatistics> regions)
+    {
+        fCollectedSince = Objects.requireNonNull(collectedSince);
+        fSecondLevelCounts = Objects.requireNonNull(secondLevelCounts);
+        fQueryCounts = Objects.requireNonNull(queryCounts);
+        fRegions = ImmutableList.copyOf(regions);
+    }
+
+    /**
+     * Returns when statistics collection started: usually application startup.
+     */
+    public DateTime getCollectedSince()
+    {
+        return fCollectedSince;
+    }
+
+    /**
+     * Returns the combined counts of all entity and collection cache regions.
+     */
+    public Counts getSecondLevelCounts()
+    {
+        return fSecondLevelCounts;
+    }
+
+    /**
+     * Returns the counts of the query cache.
+     */
+    public Counts getQueryCounts()
+    {
+        return fQueryCounts;
+    }
+
+    /**
+     * Returns the statistics of each cache region.
+     * @return an ImmutableList in region name order
+     */
+    public ImmutableList<RegionStatistics> getRegions()
+    {
+        return fRegions;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("collectedSince", fCollectedSince)
+                .add("secondLevelCounts", fSecondLevelCounts)
+                .add("queryCounts", fQueryCounts)
+                .add("regions", fRegions)
+                .toString();
+    }
+
+    /**
+     * The hit, miss and put counts of a cache. Immutable.
+     */
+    public static final class Counts
+    {
+        private final long fHitCount;
+        private final long fMissCount;
+        private final long fPutCount;
+
+        /**
+         * Constructs an instance with the given counts.
+         */
+        public Counts(final long hitCount, final long missCount, final long putCount)
+        {
+            fHitCount = hitCount;
+            fMissCount = missCount;
+            fPutCount = putCount;
+        }
+
+        /**
+         * Returns the number of lookups found in the cache.
+         */
+        public long getHitCount()
+        {
+            return fHitCount;
+        }
+
+        /**
+         * Returns the number of lookups not found in the cache.
+         */
+        public long getMissCount()
+        {
+            return fMissCount;
+        }
+
+        /**
+         * Returns the number of objects put in the cache.
+         */
+        public long getPutCount()
+        {
+            return fPutCount;
+        }
+
+        /**
+         * Returns the percentage of lookups found in the cache, or -1 if there were no
+         * lookups.
+         */
+        public double getHitPercentage()
+        {
+            final long lookups = fHitCount + fMissCount;
+            return (lookups == 0) ? -1.0 : (100.0 * fHitCount / lookups);
+        }
+
+        @Override
+        public String toString()
+        {
+            return MoreObjects.toStringHelper(this)
+                    .add("hits", fHitCount)
+                    .add("misses", fMissCount)
+                    .add("puts", fPutCount)
+                    .toString();
+        }
+    }
+
+    /**
+     * The statistics of a single cache region. Immutable.
+     */
+    public static final class RegionStatistics
+    {
+        private final String fName;
+        private final Counts fCounts;
+        private final long fElementCount;
+
+        /**
+         * Constructs an instance with the given properties.
+         * @param name the region name
+         * @param counts the region's counts
+         * @param elementCount the number of elements currently in the region
+         */
+        public RegionStatistics(final String name, final Counts counts, final long elementCount)
+        {
+            fName = Objects.requireNonNull(name);
+            fCounts = Objects.requireNonNull(counts);
+            fElementCount = elementCount;
+        }
+
+        /**
+         * Returns the region name: usually the name of the cached entity class or
+         * collection role.
+         */
+        public String getName()
+        {
+            return fName;
+        }
+
+        /**
+         * Returns the region's hit, miss and put counts.
+         */
+        public Counts getCounts()
+        {
+            return fCounts;
+        }
+
+        /**
+         * Returns the number of elements currently in the region.
+         */
+        public long getElementCount()
+        {
+            return fElementCount;
+        }
+
+        @Override
+        public String toString()
+        {
+            return MoreObjects.toStringHelper(this)
+                    .add("name", fName)
+                    .add("counts", fCounts)
+                    .add("elementCount", fElementCount)
+                    .toString();
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 
 import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
+import gov.va.med.srcalc.domain.calculation.SignedResult;
 
 /**
  * <p>Encapsulates search parameters for {@link HistoricalCalculation}s.</p>
@@ -85,20 +86,18 @@ public final class HistoricalSearchParameters
     }
     
     /**
-     * Constructs a Hibernate {@link DetachedCriteria} that will perform the search. No
-     * maximum is set (because the {@link DetachedCriteria} interface does not allow it):
-     * that is the calling code's responsibility.
-     * @return a DetachedCriteria on {@link HistoricalCalculation} objects
+     * Adds restrictions for the present parameters to the given criteria.
+     * @param criteria the criteria to restrict
+     * @param startTimestampProperty the path of the HistoricalCalculation's start
+     * timestamp in the criteria
      */
-    DetachedCriteria makeCriteria()
+    private void addRestrictions(
+            final DetachedCriteria criteria, final String startTimestampProperty)
     {
-        final DetachedCriteria criteria =
-                DetachedCriteria.forClass(HistoricalCalculation.class);
-        
         if (fMinDate.isPresent())
         {
             criteria.add(Restrictions.ge(
-                    "startTimestamp", fMinDate.get().toDateTimeAtStartOfDay()));
+                    startTimestampProperty, fMinDate.get().toDateTimeAtStartOfDay()));
         }
         
         if (fMaxDate.isPresent())
@@ -106,10 +105,36 @@ public final class HistoricalSearchParameters
             // There is no toDateTimeAtEndOfDay(), so simulate it by using less than (not
             // equal) to start of the next day.
             criteria.add(Restrictions.lt(
-                    "startTimestamp",
+                    startTimestampProperty,
                     fMaxDate.get().plusDays(1).toDateTimeAtStartOfDay()));
         }
-        
+    }
+    
+    /**
+     * Constructs a Hibernate {@link DetachedCriteria} that will perform the search. No
+     * maximum is set (because the {@link DetachedCriteria} interface does not allow it):
+     * that is the calling code's responsibility.
+     * @return a DetachedCriteria on {@link HistoricalCalculation} objects
+     */
+    DetachedCriteria makeCriteria()
+    {
+        final DetachedCriteria criteria =
+                DetachedCriteria.forClass(HistoricalCalculation.class);
+        addRestrictions(criteria, "startTimestamp");
+        return criteria;
+    }
+    
+    /**
+     * Constructs a Hibernate {@link DetachedCriteria} that will find the {@link
+     * SignedResult}s of the matching HistoricalCalculations.
+     * @param calcAlias the alias to give the HistoricalCalculation in the criteria
+     * @return a DetachedCriteria on {@link SignedResult} objects
+     */
+    DetachedCriteria makeSignedResultCriteria(final String calcAlias)
+    {
+        final DetachedCriteria criteria = DetachedCriteria.forClass(SignedResult.class)
+                .createAlias("historicalCalculation", calcAlias);
+        addRestrictions(criteria, calcAlias + ".startTimestamp");
         return criteria;
     }
         
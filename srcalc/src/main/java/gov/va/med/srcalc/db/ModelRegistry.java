@@ -0,0 +1,193 @@
+package gov.va.med.srcalc.db;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.base.Optional;
+
+import gov.va.med.srcalc.domain.model.ModelSnapshot;
+import gov.va.med.srcalc.domain.model.ModelVersion;
+import gov.va.med.srcalc.domain.model.ProcedureCatalog;
+import gov.va.med.srcalc.domain.model.Specialty;
+import gov.va.med.srcalc.domain.model.SpecialtySnapshot;
+
+/**
+ * <p>Holds the shared {@link ModelSnapshot}, so that calculations do not need to load
+ * the model from the database. There should only be one instance per application.</p>
+ *
+ * <p>The snapshot is loaded on first use. When an administrator changes the model, the
+ * {@link ModelVersion} is incremented in the same transaction and, once that commits,
+ * the snapshot is discarded so that the next use loads the new version. A change of the
+ * {@link ProcedureCatalog} also causes a reload.</p>
+ */
+@Repository
+public class ModelRegistry
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelRegistry.class);
+    
+    private final SessionFactory fSessionFactory;
+    private final SpecialtyDao fSpecialtyDao;
+    private final ProcedureDao fProcedureDao;
+    
+    /**
+     * The current snapshot, or null if it must be (re)loaded.
+     */
+    private final AtomicReference<ModelSnapshot> fSnapshot = new AtomicReference<>();
+    
+    /**
+     * Counts committed model changes, so that a snapshot loaded concurrently with a
+     * change is not published.
+     */
+    private final AtomicLong fChangeCount = new AtomicLong();
+    
+    /**
+     * Constructs an instance.
+     * @param sessionFactory the SessionFactory used to get the current session.
+     * @param specialtyDao loads the Specialties
+     * @param procedureDao provides the procedure catalog for ProcedureVariables
+     */
+    @Inject // Allow arguments to be autowired.
+    public ModelRegistry(
+            final SessionFactory sessionFactory,
+            final SpecialtyDao specialtyDao,
+            final ProcedureDao procedureDao)
+    {
+        fSessionFactory = sessionFactory;
+        fSpecialtyDao = specialtyDao;
+        fProcedureDao = procedureDao;
+    }
+    
+    private Session getCurrentSession()
+    {
+        return fSessionFactory.getCurrentSession();
+    }
+    
+    /**
+     * Returns the shared snapshot of the current model, loading it from the database if
+     * necessary. Must be called within a transaction, which must not modify the model.
+     */
+    public ModelSnapshot getSnapshot()
+    {
+        final ProcedureCatalog catalog = fProcedureDao.getCatalog();
+        final ModelSnapshot current = fSnapshot.get();
+        // A transaction which changed the model must see its own changes, but must not
+        // share them because it may not commit.
+        final boolean changedHere = TransactionSynchronizationManager.hasResource(this);
+        if (current != null && !changedHere &&
+                current.getProcedureCatalogVersion() == catalog.getVersion())
+        {
+            return current;
+        }
+        
+        final long changeCount = fChangeCount.get();
+        final ModelSnapshot loaded = loadSnapshot(catalog);
+        // Also don't publish the snapshot if the model changed while loading it: it may
+        // be stale.
+        if (!changedHere && fChangeCount.get() == changeCount &&
+                fSnapshot.compareAndSet(current, loaded))
+        {
+            LOGGER.info("Published new model snapshot: {}.", loaded);
+        }
+        return loaded;
+    }
+    
+    /**
+     * Returns the snapshot of the Specialty with the given name from the current model,
+     * if it exists.
+     * @see #getSnapshot()
+     */
+    public Optional<SpecialtySnapshot> getSpecialty(final String name)
+    {
+        return getSnapshot().getSpecialty(name);
+    }
+    
+    private ModelSnapshot loadSnapshot(final ProcedureCatalog catalog)
+    {
+        final ModelVersion version = (ModelVersion)getCurrentSession()
+                .get(ModelVersion.class, ModelVersion.SINGLETON_ID);
+        final List<Specialty> specialties = fSpecialtyDao.getAllSpecialtiesWithRiskModels();
+        for (final Specialty specialty : specialties)
+        {
+            SpecialtyDao.loadProcedures(specialty, catalog);
+        }
+        final ModelSnapshot snapshot = new ModelSnapshot(
+                version == null ? ModelVersion.INITIAL_VERSION : version.getVersion(),
+                catalog.getVersion(),
+                specialties);
+        LOGGER.debug("Loaded {}.", snapshot);
+        return snapshot;
+    }
+    
+    /**
+     * <p>Records that the model has changed in the current transaction, incrementing the
+     * persistent {@link ModelVersion}. Concurrent changes are serialized by locking the
+     * version.</p>
+     *
+     * <p>Once the transaction commits, the shared snapshot is discarded and will be
+     * reloaded on next use. If it does not commit, the shared snapshot is kept. Snapshots
+     * loaded by the transaction itself are never shared.</p>
+     * @return the new version
+     */
+    public int modelChanged()
+    {
+        final Session session = getCurrentSession();
+        ModelVersion version = (ModelVersion)session
+                .get(ModelVersion.class, ModelVersion.SINGLETON_ID, LockOptions.UPGRADE);
+        if (version == null)
+        {
+            version = new ModelVersion();
+            session.save(version);
+        }
+        final int newVersion = version.increment();
+        LOGGER.info("Model changed: now version {}.", newVersion);
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            // Mark the transaction as changing the model, once.
+            if (!TransactionSynchronizationManager.hasResource(this))
+            {
+                TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+                TransactionSynchronizationManager.registerSynchronization(
+                        new TransactionSynchronizationAdapter()
+                        {
+                            @Override
+                            public void afterCommit()
+                            {
+                                discardSnapshot();
+                            }
+                            
+                            @Override
+                            public void afterCompletion(final int status)
+                            {
+                                TransactionSynchronizationManager.unbindResource(
+                                        ModelRegistry.this);
+                            }
+                        });
+            }
+        }
+        else
+        {
+            discardSnapshot();
+        }
+        return newVersion;
+    }
+    
+    private void discardSnapshot()
+    {
+        fChangeCount.incrementAndGet();
+        fSnapshot.set(null);
+        LOGGER.debug("Discarded the model snapshot.");
+    }
+}
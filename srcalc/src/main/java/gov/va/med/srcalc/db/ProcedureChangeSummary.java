@@ -0,0 +1,80 @@
+package gov.va.med.srcalc.db;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Summarizes the changes made by replacing the set of Procedures. Immutable.
+ */
+public final class ProcedureChangeSummary
+{
+    private final int fInsertedCount;
+    private final int fUpdatedCount;
+    private final int fRemovedCount;
+    private final int fUnchangedCount;
+    
+    /**
+     * Constructs an instance.
+     */
+    public ProcedureChangeSummary(
+            final int insertedCount,
+            final int updatedCount,
+            final int removedCount,
+            final int unchangedCount)
+    {
+        fInsertedCount = insertedCount;
+        fUpdatedCount = updatedCount;
+        fRemovedCount = removedCount;
+        fUnchangedCount = unchangedCount;
+    }
+    
+    /**
+     * Returns the number of Procedures with new CPT codes.
+     */
+    public int getInsertedCount()
+    {
+        return fInsertedCount;
+    }
+    
+    /**
+     * Returns the number of existing Procedures whose attributes changed.
+     */
+    public int getUpdatedCount()
+    {
+        return fUpdatedCount;
+    }
+    
+    /**
+     * Returns the number of existing Procedures which were not in the new set.
+     */
+    public int getRemovedCount()
+    {
+        return fRemovedCount;
+    }
+    
+    /**
+     * Returns the number of existing Procedures which were not changed.
+     */
+    public int getUnchangedCount()
+    {
+        return fUnchangedCount;
+    }
+    
+    /**
+     * Returns the number of Procedures in the new set.
+     */
+    public int getTotalCount()
+    {
+        return fInsertedCount + fUpdatedCount + fUnchangedCount;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("inserted", fInsertedCount)
+                .add("updated", fUpdatedCount)
+                .add("removed", fRemovedCount)
+                .add("unchanged", fUnchangedCount)
+                .toString();
+    }
+}
@@ -1,6 +1,9 @@
 package gov.va.med.srcalc.db;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 
@@ -9,26 +12,38 @@ import org.hibernate.criterion.Order;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.google.common.collect.ImmutableList;
 
 import gov.va.med.srcalc.domain.model.Procedure;
+import gov.va.med.srcalc.domain.model.ProcedureCatalog;
 
 /**
- * DAO for {@link Procedure} objects.
+ * <p>DAO for {@link Procedure} objects.</p>
+ * 
+ * <p>Also maintains the shared {@link ProcedureCatalog}, so there should only be one
+ * instance per application.</p>
  */
 @Repository
 public class ProcedureDao
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProcedureDao.class);
     
+    private final SessionFactory fSessionFactory;
+    
     /**
-     * The number of Procedures that will be updated in a single batch before flushing
-     * and clearing the Session.
+     * The current catalog, or null if it must be (re)loaded.
      */
-    private static final int BATCH_SIZE = 50;
+    private final AtomicReference<ProcedureCatalog> fCatalog = new AtomicReference<>();
     
-    private final SessionFactory fSessionFactory;
+    private final AtomicLong fLastCatalogVersion = new AtomicLong();
+    
+    /**
+     * Binds the catalog published by the current transaction until it commits.
+     */
+    private final Object fPendingCatalogKey = new Object();
     
     /**
      * Constructs an instance.
@@ -67,41 +82,141 @@ public class ProcedureDao
     }
     
     /**
-     * <p>Completely replaces all Procedures in the database with the given set.</p>
+     * Returns the shared catalog of all procedures (in ascending CPT code order),
+     * loading it from the database if necessary. Must be called within a transaction.
+     * A transaction which has changed the procedures sees its own new catalog; other
+     * transactions only see it once it commits.
+     */
+    public ProcedureCatalog getCatalog()
+    {
+        final ProcedureCatalog pending =
+                (ProcedureCatalog)TransactionSynchronizationManager.getResource(fPendingCatalogKey);
+        if (pending != null)
+        {
+            return pending;
+        }
+        ProcedureCatalog catalog = fCatalog.get();
+        while (catalog == null)
+        {
+            final ProcedureCatalog loaded = loadCatalog();
+            if (fCatalog.compareAndSet(null, loaded))
+            {
+                return loaded;
+            }
+            // Another thread beat us to it.
+            catalog = fCatalog.get();
+        }
+        return catalog;
+    }
+    
+    private ProcedureCatalog loadCatalog()
+    {
+        final ProcedureCatalog catalog = new ProcedureCatalog(
+                fLastCatalogVersion.incrementAndGet(), getAllProcedures());
+        LOGGER.debug("Loaded {}.", catalog);
+        return catalog;
+    }
+    
+    /**
+     * Evicts all Procedures from the second-level cache. Necessary after writing them
+     * with SQL, which Hibernate does not see.
+     */
+    private void evictCachedProcedures()
+    {
+        fSessionFactory.getCache().evictEntityRegion(Procedure.class);
+    }
+    
+    /**
+     * <p>Publishes a new catalog after the procedures have changed in the current
+     * transaction. The new catalog is built now but only replaces the old one,
+     * atomically, once the transaction commits, so other transactions never see
+     * uncommitted procedures. Until then, {@link #getCatalog()} returns it only within
+     * the current transaction. If the transaction does not commit, the catalog is
+     * discarded.</p>
+     * 
+     * <p>Without transaction synchronization, the catalog is published immediately.</p>
+     * 
+     * <p>Also evicts the cached Procedures, both now and when the transaction completes,
+     * since other transactions may cache the old state in the meantime.</p>
+     */
+    void publishNewCatalog()
+    {
+        evictCachedProcedures();
+        final ProcedureCatalog built = loadCatalog();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            fCatalog.set(built);
+            LOGGER.info("Published new procedure catalog: {}.", built);
+            return;
+        }
+        
+        if (TransactionSynchronizationManager.hasResource(fPendingCatalogKey))
+        {
+            // Published more than once in this transaction: the last one wins.
+            TransactionSynchronizationManager.unbindResource(fPendingCatalogKey);
+            TransactionSynchronizationManager.bindResource(fPendingCatalogKey, built);
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(fPendingCatalogKey, built);
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter()
+                {
+                    @Override
+                    public void afterCommit()
+                    {
+                        final ProcedureCatalog published = (ProcedureCatalog)
+                                TransactionSynchronizationManager.getResource(
+                                        fPendingCatalogKey);
+                        fCatalog.set(published);
+                        LOGGER.info("Published new procedure catalog: {}.", published);
+                    }
+
+                    @Override
+                    public void afterCompletion(final int status)
+                    {
+                        final Object pending = TransactionSynchronizationManager
+                                .unbindResourceIfPossible(fPendingCatalogKey);
+                        evictCachedProcedures();
+                        if (status != STATUS_COMMITTED)
+                        {
+                            LOGGER.info("Discarded uncommitted {}.", pending);
+                        }
+                    }
+                });
+    }
+    
+    /**
+     * <p>Completely replaces all Procedures in the database with the given set. Only
+     * the differences are written: see {@link ProcedureReplacement}.</p>
      * 
      * <p><strong>Warning:</strong> the current Hibernate Session will be cleared by this
      * method.</p>
      * @param newProcedures the new procedure set
-     * @return the number of procedures that were replaced
+     * @return the counts of each type of change
      */
-    public int replaceAllProcedures(final Set<Procedure> newProcedures)
+    public ProcedureChangeSummary replaceAllProcedures(final Set<Procedure> newProcedures)
+    {
+        final ProcedureReplacement replacement = beginReplacement();
+        replacement.apply(newProcedures);
+        return replacement.finish();
+    }
+    
+    /**
+     * <p>Begins replacing all Procedures in the database with a new set, which may then
+     * be given in chunks. The returned object must only be used in the current
+     * transaction. A new catalog is published when the replacement finishes.</p>
+     * 
+     * <p><strong>Warning:</strong> the current Hibernate Session will be cleared by this
+     * method.</p>
+     */
+    public ProcedureReplacement beginReplacement()
     {
         final Session session = getCurrentSession();
-        LOGGER.debug("Deleting all Procedures from the database.");
-        final Query deleteQuery = session.createQuery("delete Procedure");
-        final int deleteCount = deleteQuery.executeUpdate();
-        LOGGER.debug("Deleted {} Procedures from the database.", deleteCount);
-
-        LOGGER.debug("About to save {} Procedures to the database.", newProcedures.size());
-        int i = 1;
-        for (final Procedure p : newProcedures)
-        {
-            LOGGER.trace("Saving {}", p);
-            session.save(p);
-            // Per Hibernate recommendation, divide the saves into batches and clear the
-            // Session between them.
-            if (i % BATCH_SIZE == 0)
-            {
-                session.flush();
-                session.clear();
-            }
-            ++i;
-        }
-        // Do a final flush and clear for consistency.
+        // Make sure any pending changes are visible to our SQL.
         session.flush();
-        session.clear();
-        LOGGER.debug("Done saving procedures.");
-        
-        return deleteCount;
+        @SuppressWarnings("unchecked") // trust hibernate
+        final List<Procedure> existing = session.createCriteria(Procedure.class).list();
+        return new ProcedureReplacement(this, session, existing);
     }
 }
@@ -8,15 +8,15 @@ import gov.va.med.srcalc.domain.model.*;
  */
 public class ProcedureLoaderVisitor implements VariableVisitor
 {
-    private final ProcedureDao fDao;
+    private final ProcedureCatalog fCatalog;
     
     /**
      * Constructs an instance.
-     * @param session the DAO to use for retrieving procedures
+     * @param catalog the (shared) catalog to give to each ProcedureVariable
      */
-    public ProcedureLoaderVisitor(final ProcedureDao session)
+    public ProcedureLoaderVisitor(final ProcedureCatalog catalog)
     {
-        fDao = session;
+        fCatalog = catalog;
     }
 
     @Override
@@ -40,7 +40,7 @@ public class ProcedureLoaderVisitor implements VariableVisitor
     @Override
     public void visitProcedure(ProcedureVariable variable) throws Exception
     {
-        variable.setProcedures(fDao.getAllProcedures());
+        variable.setProcedureCatalog(fCatalog);
     }
     
     @Override
@@ -0,0 +1,275 @@
+package gov.va.med.srcalc.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import gov.va.med.srcalc.domain.model.Procedure;
+
+/**
+ * <p>Replaces the set of persistent Procedures by applying only the differences from
+ * the existing set, keyed by CPT code: new CPT codes are inserted, changed Procedures
+ * are updated in place and missing CPT codes are removed. Inserts and updates are sent
+ * using JDBC batching.</p>
+ *
+ * <p>The new Procedures may be given in chunks via {@link #apply(Collection)}, followed
+ * by one call to {@link #finish()}. All of these must happen in the same transaction so
+ * that readers see the replacement atomically. Obtain an instance from {@link
+ * ProcedureDao#beginReplacement()}.</p>
+ *
+ * <p>Not thread-safe.</p>
+ */
+public class ProcedureReplacement
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcedureReplacement.class);
+
+    /**
+     * The number of statements to send in a single JDBC batch.
+     */
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    /**
+     * The maximum number of IDs to put in a single delete statement.
+     */
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    // We use SQL directly because Procedure is an immutable entity: Hibernate will not
+    // update it.
+    private static final String INSERT_SQL =
+            "insert into cpt (cpt_code, rvu, short_description, long_description, " +
+            "complexity, eligible) values (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL =
+            "update cpt set rvu = ?, short_description = ?, long_description = ?, " +
+            "complexity = ?, eligible = ? where id = ?";
+
+    private final ProcedureDao fDao;
+    
+    private final Session fSession;
+
+    /**
+     * The existing Procedures not (yet) in the new set, by CPT code.
+     */
+    private final HashMap<String, Procedure> fUnmatched = new HashMap<>();
+
+    /**
+     * The CPT codes in the new set so far.
+     */
+    private final HashSet<String> fNewCptCodes = new HashSet<>();
+
+    /**
+     * IDs of existing Procedures with duplicate CPT codes, which we always remove.
+     */
+    private final ArrayList<Integer> fDuplicateIds = new ArrayList<>();
+
+    private int fInsertedCount = 0;
+    private int fUpdatedCount = 0;
+    private int fUnchangedCount = 0;
+    private boolean fFinished = false;
+
+    /**
+     * Constructs an instance, loading the existing Procedures.
+     * @param dao the DAO to notify when finished
+     * @param session the current Hibernate session. Will be cleared.
+     * @param existing all existing Procedures
+     */
+    ProcedureReplacement(
+            final ProcedureDao dao, final Session session, final List<Procedure> existing)
+    {
+        fDao = dao;
+        fSession = session;
+        for (final Procedure p : existing)
+        {
+            if (fUnmatched.containsKey(p.getCptCode()))
+            {
+                fDuplicateIds.add(p.getId());
+            }
+            else
+            {
+                fUnmatched.put(p.getCptCode(), p);
+            }
+        }
+        // We only need the values from here on.
+        fSession.clear();
+        LOGGER.debug("Loaded {} existing Procedures.", fUnmatched.size());
+    }
+
+    /**
+     * Returns true if the given Procedures have the same attributes (other than ID).
+     */
+    private static boolean sameAttributes(final Procedure a, final Procedure b)
+    {
+        return a.equals(b) &&
+                a.getShortDescription().equals(b.getShortDescription()) &&
+                a.getLongDescription().equals(b.getLongDescription()) &&
+                a.getComplexity().equals(b.getComplexity()) &&
+                a.isEligible() == b.isEligible();
+    }
+
+    private void checkNotFinished()
+    {
+        if (fFinished)
+        {
+            throw new IllegalStateException("The replacement has already finished.");
+        }
+    }
+
+    /**
+     * Applies the given chunk of the new Procedure set. If a CPT code appears more than
+     * once in the new set, only the first Procedure is kept.
+     * @throws IllegalStateException if {@link #finish()} has already been called
+     */
+    public void apply(final Collection<Procedure> newProcedures)
+    {
+        checkNotFinished();
+
+        final ArrayList<Procedure> inserts = new ArrayList<>();
+        final LinkedHashMap<Integer, Procedure> updates = new LinkedHashMap<>();
+        for (final Procedure p : newProcedures)
+        {
+            if (!fNewCptCodes.add(p.getCptCode()))
+            {
+                LOGGER.debug("Ignoring duplicate CPT code {}.", p.getCptCode());
+                continue;
+            }
+
+            final Procedure existing = fUnmatched.remove(p.getCptCode());
+            if (existing == null)
+            {
+                inserts.add(p);
+            }
+            else if (sameAttributes(existing, p))
+            {
+                ++fUnchangedCount;
+            }
+            else
+            {
+                updates.put(existing.getId(), p);
+            }
+        }
+
+        fSession.doWork(new Work()
+        {
+            @Override
+            public void execute(final Connection connection) throws SQLException
+            {
+                executeInserts(connection, inserts);
+                executeUpdates(connection, updates);
+            }
+        });
+        fInsertedCount += inserts.size();
+        fUpdatedCount += updates.size();
+    }
+
+    private static void executeInserts(
+            final Connection connection, final List<Procedure> inserts)
+            throws SQLException
+    {
+        if (inserts.isEmpty())
+        {
+            return;
+        }
+        try (final PreparedStatement statement = connection.prepareStatement(INSERT_SQL))
+        {
+            int pending = 0;
+            for (final Procedure p : inserts)
+            {
+                statement.setString(1, p.getCptCode());
+                statement.setFloat(2, p.getRvu());
+                statement.setString(3, p.getShortDescription());
+                statement.setString(4, p.getLongDescription());
+                statement.setString(5, p.getComplexity());
+                statement.setBoolean(6, p.isEligible());
+                statement.addBatch();
+                if (++pending == JDBC_BATCH_SIZE)
+                {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            // Some drivers reject executing an empty batch.
+            if (pending > 0)
+            {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private static void executeUpdates(
+            final Connection connection, final Map<Integer, Procedure> updates)
+            throws SQLException
+    {
+        if (updates.isEmpty())
+        {
+            return;
+        }
+        try (final PreparedStatement statement = connection.prepareStatement(UPDATE_SQL))
+        {
+            int pending = 0;
+            for (final Map.Entry<Integer, Procedure> update : updates.entrySet())
+            {
+                final Procedure p = update.getValue();
+                statement.setFloat(1, p.getRvu());
+                statement.setString(2, p.getShortDescription());
+                statement.setString(3, p.getLongDescription());
+                statement.setString(4, p.getComplexity());
+                statement.setBoolean(5, p.isEligible());
+                statement.setInt(6, update.getKey());
+                statement.addBatch();
+                if (++pending == JDBC_BATCH_SIZE)
+                {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            // Some drivers reject executing an empty batch.
+            if (pending > 0)
+            {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Removes the existing Procedures whose CPT codes were not in the new set and
+     * completes the replacement, publishing a new {@link
+     * gov.va.med.srcalc.domain.model.ProcedureCatalog}.
+     * @return the counts of each type of change
+     * @throws IllegalStateException if this method has already been called
+     */
+    public ProcedureChangeSummary finish()
+    {
+        checkNotFinished();
+        fFinished = true;
+
+        final ArrayList<Integer> removedIds = new ArrayList<>(fDuplicateIds);
+        for (final Procedure p : fUnmatched.values())
+        {
+            removedIds.add(p.getId());
+        }
+        for (final List<Integer> chunk : Lists.partition(removedIds, DELETE_CHUNK_SIZE))
+        {
+            fSession.createQuery("delete Procedure where id in (:ids)")
+                .setParameterList("ids", chunk)
+                .executeUpdate();
+        }
+
+        fDao.publishNewCatalog();
+
+        final ProcedureChangeSummary summary = new ProcedureChangeSummary(
+                fInsertedCount, fUpdatedCount, removedIds.size(), fUnchangedCount);
+        LOGGER.debug(
+                "Replaced Procedures: {} (including {} duplicate(s) removed).",
+                summary,
+                fDuplicateIds.size());
+        return summary;
+    }
+}
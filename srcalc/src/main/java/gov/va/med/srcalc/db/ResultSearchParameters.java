@@ -6,6 +6,7 @@ import java.util.Set;
 
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
+import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
@@ -216,6 +217,74 @@ public final class ResultSearchParameters
         return SearchResults.fromList(foundItems, MAX_RESULTS);
     }
     
+    /**
+     * <p>Constructs an HQL query for the outcomes of the matching SignedResults, with
+     * one row per outcome. The query aliases the SignedResult as {@code r}, its
+     * HistoricalCalculation as {@code c} and the outcome as {@code o}.</p>
+     * 
+     * <p>Unlike {@link #doSearch(Session)}, the query has no maximum. Rows are ordered
+     * by descending signature timestamp and then by SignedResult, so the outcomes of
+     * each SignedResult are adjacent.</p>
+     * 
+     * @param session the current Hibernate session
+     * @param selectClause the select clause of the query, without the "select" keyword
+     * @return a read-only query
+     */
+    Query makeOutcomeQuery(final Session session, final String selectClause)
+    {
+        final StringBuilder hql = new StringBuilder()
+                .append("select ").append(selectClause)
+                .append(" from SignedResult r join r.historicalCalculation c")
+                .append(" join r.outcomes o where 1 = 1");
+        if (fMinDate.isPresent())
+        {
+            hql.append(" and r.signatureTimestamp >= :minDate");
+        }
+        if (fMaxDate.isPresent())
+        {
+            // Like doSearch(), use less than the start of the next day.
+            hql.append(" and r.signatureTimestamp < :maxDate");
+        }
+        if (fCptCode.isPresent())
+        {
+            hql.append(" and r.cptCodeNullable = :cptCode");
+        }
+        if (!fSpecialtyNames.isEmpty())
+        {
+            hql.append(" and c.specialtyName in (:specialtyNames)");
+        }
+        if (fStationNumber.isPresent())
+        {
+            hql.append(" and c.userStation = :stationNumber");
+        }
+        hql.append(" order by r.signatureTimestamp desc, r.id");
+        LOGGER.trace("Outcome query: {}", hql);
+
+        final Query query = session.createQuery(hql.toString()).setReadOnly(true);
+        if (fMinDate.isPresent())
+        {
+            query.setParameter("minDate", fMinDate.get().toDateTimeAtStartOfDay());
+        }
+        if (fMaxDate.isPresent())
+        {
+            query.setParameter(
+                    "maxDate", fMaxDate.get().plusDays(1).toDateTimeAtStartOfDay());
+        }
+        if (fCptCode.isPresent())
+        {
+            query.setParameter("cptCode", fCptCode.get());
+        }
+        if (!fSpecialtyNames.isEmpty())
+        {
+            query.setParameterList("specialtyNames", fSpecialtyNames);
+        }
+        if (fStationNumber.isPresent())
+        {
+            query.setParameter("stationNumber", fStationNumber.get());
+        }
+        return query;
+    }
+    
     @Override
     public String toString()
     {
@@ -4,17 +4,24 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Property;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.joda.time.Seconds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.profiler.Profiler;
@@ -22,11 +29,16 @@ import org.springframework.stereotype.Repository;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
+import gov.va.med.srcalc.domain.calculation.DailyOutcome;
+import gov.va.med.srcalc.domain.calculation.DailyUtilization;
 import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
 import gov.va.med.srcalc.domain.calculation.HistoricalRunInfo;
+import gov.va.med.srcalc.domain.calculation.RollupKey;
 import gov.va.med.srcalc.domain.calculation.SignedResult;
 import gov.va.med.srcalc.util.SearchResults;
+import gov.va.med.srcalc.util.csv.RowHandler;
 
 /**
  * Data Access Object (DAO) for {@link HistoricalCalculation}s and {@link SignedResult}s.
@@ -36,16 +48,62 @@ public class ResultsDao
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(ResultsDao.class);
     
+    /**
+     * The number of rows to fetch at a time when streaming large query results. Note
+     * that MySQL Connector/J ignores the fetch size, and reads the entire result set
+     * into memory, unless the connection URL enables <code>useCursorFetch</code>. The
+     * connection pool created by the installer does so.
+     */
+    private static final int FETCH_SIZE = 1000;
+    
+    /**
+     * The alias given to the HistoricalCalculation in SignedResult criteria.
+     */
+    private static final String CALC_ALIAS = "calc";
+    
+    /**
+     * The columns selected by {@link #streamSignedResults(ResultSearchParameters,
+     * RowHandler)}. The constants below are the column indices.
+     */
+    private static final String OUTCOME_COLUMNS =
+            "r.id, r.patientDfn, r.cptCodeNullable, r.signatureTimestamp, " +
+            "c.specialtyName, c.userStation, c.startTimestamp, c.secondsToFirstRun, " +
+            "c.providerTypeNullable, index(o), o";
+    private static final int COL_RESULT_ID = 0;
+    private static final int COL_PATIENT_DFN = 1;
+    private static final int COL_CPT_CODE = 2;
+    private static final int COL_SIGNATURE_TIMESTAMP = 3;
+    private static final int COL_SPECIALTY_NAME = 4;
+    private static final int COL_USER_STATION = 5;
+    private static final int COL_START_TIMESTAMP = 6;
+    private static final int COL_SECONDS_TO_FIRST_RUN = 7;
+    private static final int COL_PROVIDER_TYPE = 8;
+    private static final int COL_OUTCOME_NAME = 9;
+    private static final int COL_OUTCOME_RISK = 10;
+    
+    /**
+     * Groups the {@link #computeUtilizationRollups(LocalDate)} by every rollup key
+     * attribute.
+     */
+    private static final ImmutableList<UtilizationGrouping> ROLLUP_GROUPINGS =
+            ImmutableList.of(
+                    UtilizationGrouping.STATION,
+                    UtilizationGrouping.SPECIALTY,
+                    UtilizationGrouping.PROVIDER_TYPE);
+    
     private final SessionFactory fSessionFactory;
+    private final RollupDao fRollupDao;
     
     /**
      * Constructs an instance.
      * @param sessionFactory the SessionFactory used to get the current session.
+     * @param rollupDao maintains the daily rollups of the persisted objects
      */
     @Inject
-    public ResultsDao(final SessionFactory sessionFactory)
+    public ResultsDao(final SessionFactory sessionFactory, final RollupDao rollupDao)
     {
         fSessionFactory = sessionFactory;
+        fRollupDao = rollupDao;
     }
     
     private Session getCurrentSession()
@@ -54,9 +112,9 @@ public class ResultsDao
     }
     
     /**
-     * Persists the given new (aka transient) {@link HistoricalCalculation}. Note that
-     * this method does not support updating an already-persistent object (because
-     * they are immutable).
+     * Persists the given new (aka transient) {@link HistoricalCalculation} and adds it to
+     * the daily rollups. Note that this method does not support updating an
+     * already-persistent object (because they are immutable).
      * @param calc the object to persist
      * @throws HibernateException if the given object is already persistent
      */
@@ -64,22 +122,32 @@ public class ResultsDao
     {
         LOGGER.debug("Persisting new HistoricalCalculation: {}", calc);
         getCurrentSession().persist(calc);
+        fRollupDao.recordCalculation(calc);
     }
     
     /**
-     * Persists the given new (aka transient) SignedResult. Note that this method does not
-     * support updating an already-persistent object (because they are immutable).
+     * Persists the given new (aka transient) SignedResult, along with its
+     * HistoricalCalculation if that is also new, and adds them to the daily rollups.
+     * Note that this method does not support updating an already-persistent object
+     * (because they are immutable).
      * @param result the object to persist
      * @throws HibernateException if the given object is already persistent
      */
     public void persistSignedResult(final SignedResult result)
     {
         LOGGER.debug("Persisting new SignedResult: {}", result);
+        // An unsaved HistoricalCalculation does not have an ID yet.
+        final boolean newCalc = result.getHistoricalCalculation().getId() == 0;
         // persist() is actually more precisely what we want here, but for some reason
         // Hibernate adds cascade=persist to properties with @MapsId (as SignedResult.
         // historicalCalculation does). If we call persist() here, it tries to persist the
         // already-persisted HistoricalCalculation and throws an Exception.
         getCurrentSession().save(result);
+        if (newCalc)
+        {
+            fRollupDao.recordCalculation(result.getHistoricalCalculation());
+        }
+        fRollupDao.recordSignedResult(result);
     }
     
     /**
@@ -95,6 +163,83 @@ public class ResultsDao
         return parameters.doSearch(getCurrentSession());
     }
     
+    /**
+     * Reconstructs a SignedResult (without inputs) from the given outcome query row and
+     * outcomes.
+     */
+    private static SignedResult makeOutcomeResult(
+            final Object[] row, final Map<String, Float> outcomes)
+    {
+        final HistoricalCalculation calc = new HistoricalCalculation(
+                (String)row[COL_SPECIALTY_NAME],
+                (String)row[COL_USER_STATION],
+                (DateTime)row[COL_START_TIMESTAMP],
+                (Integer)row[COL_SECONDS_TO_FIRST_RUN],
+                Optional.fromNullable((String)row[COL_PROVIDER_TYPE]));
+        return new SignedResult(
+                calc,
+                (Integer)row[COL_PATIENT_DFN],
+                Optional.fromNullable((String)row[COL_CPT_CODE]),
+                (DateTime)row[COL_SIGNATURE_TIMESTAMP],
+                ImmutableMap.<String, String>of(),
+                outcomes);
+    }
+    
+    /**
+     * <p>Passes each {@link SignedResult} matching the given parameters to the given
+     * handler, in descending signature timestamp order. There is no maximum number of
+     * results.</p>
+     * 
+     * <p>To keep memory use constant, no entities are loaded: the SignedResults are
+     * reconstructed from a forward-only scroll over their outcomes, fetched {@link
+     * #FETCH_SIZE} rows at a time. As such, the given
+     * SignedResults are transient and have no inputs. SignedResults without any
+     * outcomes are omitted.</p>
+     * 
+     * @param parameters the search parameters. The maximum does not apply.
+     * @param handler receives each SignedResult
+     * @return the number of SignedResults passed to the handler
+     */
+    public int streamSignedResults(
+            final ResultSearchParameters parameters, final RowHandler<SignedResult> handler)
+    {
+        LOGGER.debug("Streaming SignedResults with parameters {}.", parameters);
+        final ScrollableResults rows = parameters
+                .makeOutcomeQuery(getCurrentSession(), OUTCOME_COLUMNS)
+                .setFetchSize(FETCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        int resultCount = 0;
+        try
+        {
+            // The outcomes of each SignedResult are on adjacent rows.
+            Object[] resultRow = null;
+            HashMap<String, Float> outcomes = new HashMap<>();
+            while (rows.next())
+            {
+                final Object[] row = rows.get();
+                if (resultRow != null && !resultRow[COL_RESULT_ID].equals(row[COL_RESULT_ID]))
+                {
+                    handler.handleRow(makeOutcomeResult(resultRow, outcomes));
+                    ++resultCount;
+                    outcomes = new HashMap<>();
+                }
+                resultRow = row;
+                outcomes.put((String)row[COL_OUTCOME_NAME], (Float)row[COL_OUTCOME_RISK]);
+            }
+            if (resultRow != null)
+            {
+                handler.handleRow(makeOutcomeResult(resultRow, outcomes));
+                ++resultCount;
+            }
+        }
+        finally
+        {
+            rows.close();
+        }
+        LOGGER.debug("Streamed {} SignedResults.", resultCount);
+        return resultCount;
+    }
+    
     /**
      * Merges the given HistoricalCalculations and SignedResults into HistoricalRunInfo
      * objects.
@@ -177,4 +322,215 @@ public class ResultsDao
 
         return SearchResults.fromList(runInfos, HistoricalSearchParameters.MAX_RESULTS);
     }
+    
+    /**
+     * Returns the values of the leading group properties in the given projected row.
+     */
+    private static List<String> groupValues(final Object[] row, final int groupCount)
+    {
+        final ArrayList<String> values = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; ++i)
+        {
+            values.add((String)row[i]);
+        }
+        return values;
+    }
+    
+    /**
+     * Accumulates signature statistics for one group.
+     */
+    private static final class SignedTally
+    {
+        private int fCount = 0;
+        private long fSecondsToSignSum = 0;
+    }
+    
+    /**
+     * <p>Computes utilization statistics for the HistoricalCalculations matching the given
+     * parameters, grouped by the given attributes. Unlike {@link
+     * #getHistoricalRunInfos(HistoricalSearchParameters)}, this method does not load any
+     * entities and there is no maximum number of calculations.</p>
+     * 
+     * <p>Total counts and seconds to first run are aggregated by the database. The
+     * seconds to sign require date arithmetic that HQL does not portably support, so the
+     * timestamps of the signed calculations are streamed {@link #FETCH_SIZE} rows at a
+     * time and summed here. Only the per-group tallies are held in memory.</p>
+     * 
+     * @param parameters specifies which calculations to consider
+     * @param groupings the attributes to group by, in order. If empty, all matching
+     * calculations form one group.
+     * @return one aggregate per non-empty group, in no particular order
+     */
+    public ImmutableList<UtilizationAggregate> getUtilizationAggregates(
+            final HistoricalSearchParameters parameters,
+            final List<UtilizationGrouping> groupings)
+    {
+        LOGGER.debug(
+                "Doing utilization aggregation with parameters {} and groupings {}.",
+                parameters,
+                groupings);
+        final Profiler profiler = new Profiler("utilization aggregation");
+        profiler.setLogger(LOGGER);
+        final Session session = getCurrentSession();
+        final int groupCount = groupings.size();
+
+        /* First stream the signature timestamps of the signed calculations. */
+        profiler.start("SignedResult aggregation");
+        final ProjectionList signedProjection = Projections.projectionList();
+        for (final UtilizationGrouping grouping : groupings)
+        {
+            signedProjection.add(
+                    Projections.property(CALC_ALIAS + "." + grouping.getPropertyName()));
+        }
+        signedProjection
+            .add(Projections.property(CALC_ALIAS + ".startTimestamp"))
+            .add(Projections.property("signatureTimestamp"));
+        final HashMap<List<String>, SignedTally> signedTallies = new HashMap<>();
+        final ScrollableResults signedRows = parameters
+                .makeSignedResultCriteria(CALC_ALIAS)
+                .getExecutableCriteria(session)
+                .setProjection(signedProjection)
+                .setFetchSize(FETCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try
+        {
+            while (signedRows.next())
+            {
+                final Object[] row = signedRows.get();
+                final List<String> key = groupValues(row, groupCount);
+                SignedTally tally = signedTallies.get(key);
+                if (tally == null)
+                {
+                    tally = new SignedTally();
+                    signedTallies.put(key, tally);
+                }
+                ++tally.fCount;
+                tally.fSecondsToSignSum += Seconds.secondsBetween(
+                        (DateTime)row[groupCount], (DateTime)row[groupCount + 1])
+                        .getSeconds();
+            }
+        }
+        finally
+        {
+            signedRows.close();
+        }
+
+        /* Now let the database count all of the calculations. */
+        profiler.start("HistoricalCalculation aggregation");
+        final ProjectionList totalProjection = Projections.projectionList();
+        for (final UtilizationGrouping grouping : groupings)
+        {
+            totalProjection.add(Projections.groupProperty(grouping.getPropertyName()));
+        }
+        totalProjection
+            .add(Projections.rowCount())
+            .add(Projections.sum("secondsToFirstRun"));
+        @SuppressWarnings("unchecked") // trust Hibernate
+        final List<Object[]> totalRows = parameters.makeCriteria()
+                .getExecutableCriteria(session)
+                .setProjection(totalProjection)
+                .list();
+
+        /* Merge the two. */
+        final ImmutableList.Builder<UtilizationAggregate> aggregates =
+                ImmutableList.builder();
+        for (final Object[] row : totalRows)
+        {
+            final int totalCount = ((Number)row[groupCount]).intValue();
+            // Without groupings, the database returns a row even if nothing matched.
+            if (totalCount == 0)
+            {
+                continue;
+            }
+            final List<String> key = groupValues(row, groupCount);
+            final SignedTally tally = Optional.fromNullable(signedTallies.get(key))
+                    .or(new SignedTally());
+            aggregates.add(new UtilizationAggregate(
+                    key,
+                    totalCount,
+                    ((Number)row[groupCount + 1]).longValue(),
+                    tally.fCount,
+                    tally.fSecondsToSignSum));
+        }
+        profiler.stop().log();
+
+        return aggregates.build();
+    }
+    
+    /**
+     * Computes the {@link DailyUtilization}s of the given day from the raw
+     * HistoricalCalculations and SignedResults, for rebuilding the rollups.
+     * @param day the start day of the calculations
+     * @return the transient rollups, one per non-empty group
+     */
+    public ImmutableList<DailyUtilization> computeUtilizationRollups(final LocalDate day)
+    {
+        final HistoricalSearchParameters parameters = new HistoricalSearchParameters();
+        parameters.setMinDate(day);
+        parameters.setMaxDate(day);
+        final ImmutableList.Builder<DailyUtilization> rollups = ImmutableList.builder();
+        for (final UtilizationAggregate aggregate :
+            getUtilizationAggregates(parameters, ROLLUP_GROUPINGS))
+        {
+            final List<String> groupValues = aggregate.getGroupValues();
+            rollups.add(new DailyUtilization(
+                    new RollupKey(
+                            day,
+                            groupValues.get(0),
+                            groupValues.get(1),
+                            Optional.fromNullable(groupValues.get(2))),
+                    aggregate.getTotalCount(),
+                    aggregate.getSecondsToFirstRunSum(),
+                    aggregate.getSignedCount(),
+                    aggregate.getSecondsToSignSum()));
+        }
+        return rollups.build();
+    }
+    
+    /**
+     * Computes the {@link DailyOutcome}s of the given day from the raw SignedResults, for
+     * rebuilding the rollups.
+     * @param day the signature day of the results
+     * @return the transient rollups, one per non-empty group
+     */
+    public ImmutableList<DailyOutcome> computeOutcomeRollups(final LocalDate day)
+    {
+        @SuppressWarnings("unchecked") // trust Hibernate
+        final List<Object[]> rows = getCurrentSession().createQuery(
+                "select c.userStation, c.specialtyName, c.providerTypeNullable, index(o)," +
+                " count(o), sum(o)" +
+                " from SignedResult r join r.historicalCalculation c join r.outcomes o" +
+                " where r.signatureTimestamp >= :start and r.signatureTimestamp < :end" +
+                " group by c.userStation, c.specialtyName, c.providerTypeNullable, index(o)")
+                .setParameter("start", day.toDateTimeAtStartOfDay())
+                .setParameter("end", day.plusDays(1).toDateTimeAtStartOfDay())
+                .list();
+        final ImmutableList.Builder<DailyOutcome> rollups = ImmutableList.builder();
+        for (final Object[] row : rows)
+        {
+            rollups.add(new DailyOutcome(
+                    new RollupKey(
+                            day,
+                            (String)row[0],
+                            (String)row[1],
+                            Optional.fromNullable((String)row[2])),
+                    (String)row[3],
+                    ((Number)row[4]).intValue(),
+                    ((Number)row[5]).doubleValue()));
+        }
+        return rollups.build();
+    }
+    
+    /**
+     * Returns the start day of the earliest HistoricalCalculation, if there are any.
+     */
+    public Optional<LocalDate> getFirstCalculationDate()
+    {
+        final DateTime first = (DateTime)getCurrentSession()
+                .createCriteria(HistoricalCalculation.class)
+                .setProjection(Projections.min("startTimestamp"))
+                .uniqueResult();
+        return first == null ?
+                Optional.<LocalDate>absent() : Optional.of(first.toLocalDate());
+    }
 }
@@ -0,0 +1,126 @@
+package gov.va.med.srcalc.db;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.joda.time.DateTime;
+import org.springframework.stereotype.Repository;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+import gov.va.med.srcalc.domain.calculation.RiskSaveDelivery;
+import gov.va.med.srcalc.domain.calculation.SignedResult;
+
+/**
+ * Data Access Object (DAO) for the outbox of {@link RiskSaveDelivery}s.
+ */
+@Repository
+public class RiskSaveOutboxDao
+{
+    private final SessionFactory fSessionFactory;
+
+    /**
+     * Constructs an instance.
+     * @param sessionFactory the SessionFactory used to get the current session.
+     */
+    @Inject
+    public RiskSaveOutboxDao(final SessionFactory sessionFactory)
+    {
+        fSessionFactory = sessionFactory;
+    }
+
+    private Session getCurrentSession()
+    {
+        return fSessionFactory.getCurrentSession();
+    }
+
+    /**
+     * Persists the given new delivery. Its SignedResult must already be persistent.
+     * @throws org.hibernate.HibernateException if the SignedResult already has a
+     * delivery
+     */
+    public void enqueue(final RiskSaveDelivery delivery)
+    {
+        // As in ResultsDao.persistSignedResult(), persist() would try to persist the
+        // @MapsId SignedResult again.
+        getCurrentSession().save(delivery);
+    }
+
+    /**
+     * Returns the delivery with the given ID, if it exists.
+     */
+    public Optional<RiskSaveDelivery> getDelivery(final int id)
+    {
+        return Optional.fromNullable(
+                (RiskSaveDelivery)getCurrentSession().get(RiskSaveDelivery.class, id));
+    }
+
+    /**
+     * Returns the pending deliveries which are due at the given time, earliest first.
+     * Their SignedResults are fully loaded, so they may be used outside of the session.
+     * @param now the current time
+     * @param maxCount the maximum number of deliveries to return
+     */
+    public ImmutableList<RiskSaveDelivery> getDueDeliveries(final DateTime now, final int maxCount)
+    {
+        @SuppressWarnings("unchecked") // trust Hibernate
+        final List<RiskSaveDelivery> list = getCurrentSession()
+                .createQuery("from RiskSaveDelivery d where d.status = :status" +
+                        " and d.nextAttemptTimestamp <= :now order by d.nextAttemptTimestamp")
+                .setParameter("status", RiskSaveDelivery.Status.PENDING)
+                .setParameter("now", now)
+                .setMaxResults(maxCount)
+                .list();
+        for (final RiskSaveDelivery delivery : list)
+        {
+            final SignedResult result = delivery.getSignedResult();
+            // The outcomes are sent to VistA.
+            Hibernate.initialize(result.getOutcomes());
+        }
+        return ImmutableList.copyOf(list);
+    }
+
+    /**
+     * Claims the given pending delivery for an attempt by postponing its next attempt
+     * to the given time. Only one of several concurrent claims of the same delivery
+     * succeeds, even from different nodes, because each claim requires the delivery's
+     * next attempt time to still be what was loaded.
+     * @param delivery the delivery as loaded by {@link #getDueDeliveries(DateTime, int)}
+     * @param leaseUntil when to retry the delivery if the attempt never records its
+     * outcome (e.g., the node stops)
+     * @return true if claimed, false if another transaction claimed or changed it first
+     */
+    public boolean claim(final RiskSaveDelivery delivery, final DateTime leaseUntil)
+    {
+        final int updated = getCurrentSession()
+                .createQuery("update RiskSaveDelivery set nextAttemptTimestamp = :leaseUntil" +
+                        " where id = :id and status = :status" +
+                        " and nextAttemptTimestamp = :loadedNextAttempt")
+                .setParameter("leaseUntil", leaseUntil)
+                .setInteger("id", delivery.getId())
+                .setParameter("status", RiskSaveDelivery.Status.PENDING)
+                .setParameter("loadedNextAttempt", delivery.getNextAttemptTimestamp())
+                .executeUpdate();
+        return updated == 1;
+    }
+
+    /**
+     * Returns all deliveries which are pending or failed, failed first and then by next
+     * attempt time.
+     */
+    public ImmutableList<RiskSaveDelivery> getUndeliveredDeliveries()
+    {
+        @SuppressWarnings("unchecked") // trust Hibernate
+        final List<RiskSaveDelivery> list = getCurrentSession()
+                .createQuery("from RiskSaveDelivery d where d.status <> :delivered" +
+                        " order by d.status, d.nextAttemptTimestamp, d.id")
+                .setParameter("delivered", RiskSaveDelivery.Status.DELIVERED)
+                .list();
+        return ImmutableList.copyOf(list);
+    }
+}
@@ -0,0 +1,500 @@
+package gov.va.med.srcalc.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.LockMode;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.jdbc.Work;
+import org.joda.time.LocalDate;
+import org.joda.time.Seconds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+import gov.va.med.srcalc.domain.calculation.DailyOutcome;
+import gov.va.med.srcalc.domain.calculation.DailyUtilization;
+import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
+import gov.va.med.srcalc.domain.calculation.RollupKey;
+import gov.va.med.srcalc.domain.calculation.RollupStatus;
+import gov.va.med.srcalc.domain.calculation.SignedResult;
+
+/**
+ * <p>Data Access Object (DAO) for the daily rollups of historical calculation data:
+ * {@link DailyUtilization}s, {@link DailyOutcome}s and the {@link RollupStatus}.</p>
+ *
+ * <p>The rollups are updated incrementally as calculations and results are recorded.
+ * Each increment is a single update of the group's row, so concurrent increments do
+ * not lose updates. If two transactions insert the first row of a group concurrently,
+ * the loser rolls back to a savepoint and adds to the winner's row instead.</p>
+ *
+ * <p>Only that collision is handled here. Any other failure of an increment, such as a
+ * deadlock or a lock timeout, propagates and fails the recording transaction: the
+ * database may already have rolled the transaction back, so carrying on would lose the
+ * recorded calculation or result while reporting success.</p>
+ *
+ * <p>The increments and the rebuilds of a day lock the {@link RollupStatus} row, shared
+ * and exclusively respectively, so an increment never lands between a rebuild reading
+ * the raw data and inserting the rollups computed from it. See {@link
+ * #lockForRebuild()}.</p>
+ */
+@Repository
+public class RollupDao
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(RollupDao.class);
+    
+    /**
+     * The restriction of the increments to one rollup group.
+     */
+    private static final String KEY_RESTRICTION =
+            " where rollup_date = ? and user_station = ? and specialty_name = ?" +
+            " and provider_type = ?";
+    
+    /**
+     * The increment of a utilization group. Takes the same parameters, in the same
+     * order, as {@link #UTILIZATION_INSERT_SQL}.
+     */
+    private static final String UTILIZATION_UPDATE_SQL =
+            "update daily_utilization set total_count = total_count + ?," +
+            " seconds_to_first_run_sum = seconds_to_first_run_sum + ?," +
+            " signed_count = signed_count + ?," +
+            " seconds_to_sign_sum = seconds_to_sign_sum + ?" +
+            KEY_RESTRICTION;
+    
+    private static final String UTILIZATION_INSERT_SQL =
+            "insert into daily_utilization (total_count, seconds_to_first_run_sum," +
+            " signed_count, seconds_to_sign_sum, rollup_date, user_station," +
+            " specialty_name, provider_type) values (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    /**
+     * The increment of an outcome group. Takes the same parameters, in the same order,
+     * as {@link #OUTCOME_INSERT_SQL}.
+     */
+    private static final String OUTCOME_UPDATE_SQL =
+            "update daily_outcome set outcome_count = outcome_count + ?," +
+            " risk_sum = risk_sum + ?" +
+            KEY_RESTRICTION + " and risk_model_name = ?";
+    
+    private static final String OUTCOME_INSERT_SQL =
+            "insert into daily_outcome (outcome_count, risk_sum, rollup_date," +
+            " user_station, specialty_name, provider_type, risk_model_name)" +
+            " values (?, ?, ?, ?, ?, ?, ?)";
+    
+    /**
+     * The SQLState class of integrity constraint violations, such as a duplicate key.
+     */
+    private static final String INTEGRITY_VIOLATION_STATE_CLASS = "23";
+    
+    private final SessionFactory fSessionFactory;
+    
+    /**
+     * Constructs an instance.
+     * @param sessionFactory the SessionFactory used to get the current session.
+     */
+    @Inject
+    public RollupDao(final SessionFactory sessionFactory)
+    {
+        fSessionFactory = sessionFactory;
+    }
+    
+    private Session getCurrentSession()
+    {
+        return fSessionFactory.getCurrentSession();
+    }
+    
+    /**
+     * Sets the rollup key parameters of an increment statement, starting at the given
+     * index.
+     * @return the index of the next parameter
+     */
+    private static int setKey(
+            final PreparedStatement statement, final int firstIndex, final RollupKey key)
+            throws SQLException
+    {
+        int i = firstIndex;
+        statement.setDate(i++, java.sql.Date.valueOf(key.getDate().toString()));
+        statement.setString(i++, key.getUserStation());
+        statement.setString(i++, key.getSpecialtyName());
+        statement.setString(i++, key.getProviderType());
+        return i;
+    }
+    
+    /**
+     * Adds the given amounts to the utilization statistics of the given group, creating
+     * the group if necessary.
+     */
+    private void addUtilization(
+            final RollupKey key,
+            final int totalCount,
+            final long secondsToFirstRun,
+            final int signedCount,
+            final long secondsToSign)
+    {
+        increment(
+                "DailyUtilization group " + key,
+                UTILIZATION_UPDATE_SQL,
+                UTILIZATION_INSERT_SQL,
+                new ParameterSetter()
+                {
+                    @Override
+                    public void setParameters(final PreparedStatement statement)
+                            throws SQLException
+                    {
+                        statement.setInt(1, totalCount);
+                        statement.setLong(2, secondsToFirstRun);
+                        statement.setInt(3, signedCount);
+                        statement.setLong(4, secondsToSign);
+                        setKey(statement, 5, key);
+                    }
+                });
+    }
+    
+    /**
+     * Adds the given outcome to the outcome statistics of the given group, creating the
+     * group if necessary.
+     */
+    private void addOutcome(final RollupKey key, final String riskModelName, final float risk)
+    {
+        increment(
+                "DailyOutcome group " + key + " for " + riskModelName,
+                OUTCOME_UPDATE_SQL,
+                OUTCOME_INSERT_SQL,
+                new ParameterSetter()
+                {
+                    @Override
+                    public void setParameters(final PreparedStatement statement)
+                            throws SQLException
+                    {
+                        statement.setInt(1, 1);
+                        statement.setDouble(2, risk);
+                        final int next = setKey(statement, 3, key);
+                        statement.setString(next, riskModelName);
+                    }
+                });
+    }
+    
+    /**
+     * Increments one rollup group, inserting its row if it does not exist yet.
+     * @param description describes the group for the log
+     * @param updateSql the increment of the group's row
+     * @param insertSql the insertion of the group's row
+     * @param parameters sets the parameters of both statements
+     * @throws HibernateException if the increment failed for any reason besides a
+     * concurrent insertion of the group's row
+     */
+    private void increment(
+            final String description,
+            final String updateSql,
+            final String insertSql,
+            final ParameterSetter parameters)
+    {
+        LOGGER.debug("Incrementing the {}.", description);
+        getCurrentSession().doWork(new Work()
+        {
+            @Override
+            public void execute(final Connection connection) throws SQLException
+            {
+                upsert(connection, updateSql, insertSql, parameters);
+            }
+        });
+    }
+    
+    /**
+     * Executes the given update, or the given insert if the update did not match a row.
+     * If another transaction inserts the row first, rolls back to a savepoint and
+     * retries the update once.
+     * @throws SQLException for any other failure, which is not rolled back here since
+     * the database may have already rolled back the whole transaction
+     */
+    private static void upsert(
+            final Connection connection,
+            final String updateSql,
+            final String insertSql,
+            final ParameterSetter parameters)
+            throws SQLException
+    {
+        final Savepoint savepoint = connection.setSavepoint();
+        try
+        {
+            if (executeUpdate(connection, updateSql, parameters) == 0)
+            {
+                executeUpdate(connection, insertSql, parameters);
+            }
+        }
+        catch (final SQLException e)
+        {
+            if (!isIntegrityViolation(e))
+            {
+                throw e;
+            }
+            // Some drivers discard the savepoint on rolling back to it, so do not release it.
+            connection.rollback(savepoint);
+            LOGGER.debug("Another transaction inserted the row first. Updating it.");
+            if (executeUpdate(connection, updateSql, parameters) == 0)
+            {
+                throw e;
+            }
+            return;
+        }
+        connection.releaseSavepoint(savepoint);
+    }
+    
+    private static int executeUpdate(
+            final Connection connection, final String sql, final ParameterSetter parameters)
+            throws SQLException
+    {
+        try (final PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            parameters.setParameters(statement);
+            return statement.executeUpdate();
+        }
+    }
+    
+    private static boolean isIntegrityViolation(final SQLException e)
+    {
+        return e.getSQLState() != null &&
+                e.getSQLState().startsWith(INTEGRITY_VIOLATION_STATE_CLASS);
+    }
+    
+    /**
+     * Waits for any rebuild in progress and keeps new ones out until the current
+     * transaction ends. Since a rebuild waits for the increments in progress in turn,
+     * any increment is either included in the rebuilt rollups or added to them
+     * afterward.
+     * @throws HibernateException if the lock failed, e.g. timed out. The current
+     * Session is unusable afterward, so the transaction must be rolled back.
+     */
+    private void lockForIncrement()
+    {
+        getCurrentSession().get(
+                RollupStatus.class,
+                RollupStatus.SINGLETON_ID,
+                new LockOptions(LockMode.PESSIMISTIC_READ));
+    }
+    
+    /**
+     * Adds the given new HistoricalCalculation to the rollup of its start day.
+     * @param calc the calculation, which must not be recorded already
+     * @throws HibernateException if the rollup could not be updated. The current
+     * transaction must be rolled back: see the class documentation.
+     */
+    public void recordCalculation(final HistoricalCalculation calc)
+    {
+        lockForIncrement();
+        addUtilization(
+                new RollupKey(calc.getStartTimestamp().toLocalDate(), calc),
+                1,
+                calc.getSecondsToFirstRun(),
+                0,
+                0);
+    }
+    
+    /**
+     * Adds the given new SignedResult to the utilization rollup of its calculation's
+     * start day and to the outcome rollups of its signature day. Does not record the
+     * HistoricalCalculation itself: see {@link #recordCalculation(HistoricalCalculation)}.
+     * @param result the result, which must not be recorded already
+     * @throws HibernateException if the rollups could not be updated. The current
+     * transaction must be rolled back: see the class documentation.
+     */
+    public void recordSignedResult(final SignedResult result)
+    {
+        lockForIncrement();
+        final HistoricalCalculation calc = result.getHistoricalCalculation();
+        addUtilization(
+                new RollupKey(calc.getStartTimestamp().toLocalDate(), calc),
+                0,
+                0,
+                1,
+                Seconds.secondsBetween(
+                        calc.getStartTimestamp(), result.getSignatureTimestamp())
+                        .getSeconds());
+        final RollupKey outcomeKey =
+                new RollupKey(result.getSignatureTimestamp().toLocalDate(), calc);
+        for (final Map.Entry<String, Float> outcome : result.getOutcomes().entrySet())
+        {
+            addOutcome(outcomeKey, outcome.getKey(), outcome.getValue());
+        }
+    }
+    
+    /**
+     * Locks the rollups for rebuilding until the current transaction ends: waits for the
+     * increments in progress in other transactions, and keeps new ones waiting. Call
+     * before reading the raw data of a rebuild.
+     * @return the first day from which the rollups are complete, if any
+     * @see #getCoveredFrom()
+     */
+    public Optional<LocalDate> lockForRebuild()
+    {
+        final Session session = getCurrentSession();
+        final RollupStatus status = (RollupStatus)session.get(
+                RollupStatus.class,
+                RollupStatus.SINGLETON_ID,
+                new LockOptions(LockMode.PESSIMISTIC_WRITE));
+        if (status != null)
+        {
+            return Optional.of(status.getCoveredFrom());
+        }
+        // The increments can only wait on an existing row, so insert it now. Since the
+        // increments are running, the rollups are complete from tomorrow onward.
+        session.save(new RollupStatus(new LocalDate().plusDays(1)));
+        session.flush();
+        LOGGER.info("Created the rollup status.");
+        return Optional.absent();
+    }
+    
+    /**
+     * Deletes all rollups of the given day. Intended for rebuilding the day.
+     * @return the number of deleted rollups
+     */
+    public int deleteDay(final LocalDate day)
+    {
+        final Session session = getCurrentSession();
+        return session.createQuery("delete from DailyUtilization where key.date = :date")
+                    .setParameter("date", day)
+                    .executeUpdate() +
+                session.createQuery("delete from DailyOutcome where key.date = :date")
+                    .setParameter("date", day)
+                    .executeUpdate();
+    }
+    
+    /**
+     * Persists the given new DailyUtilization, e.g. when rebuilding a day.
+     */
+    public void saveUtilization(final DailyUtilization utilization)
+    {
+        getCurrentSession().save(utilization);
+    }
+    
+    /**
+     * Persists the given new DailyOutcome, e.g. when rebuilding a day.
+     */
+    public void saveOutcome(final DailyOutcome outcome)
+    {
+        getCurrentSession().save(outcome);
+    }
+    
+    /**
+     * Returns the first day from which the rollups are complete, if any.
+     * @see RollupStatus#getCoveredFrom()
+     */
+    public Optional<LocalDate> getCoveredFrom()
+    {
+        final RollupStatus status = (RollupStatus)getCurrentSession()
+                .get(RollupStatus.class, RollupStatus.SINGLETON_ID);
+        return status == null ?
+                Optional.<LocalDate>absent() : Optional.of(status.getCoveredFrom());
+    }
+    
+    /**
+     * Records that the rollups are complete from the given day onward.
+     * @see RollupStatus#getCoveredFrom()
+     */
+    public void setCoveredFrom(final LocalDate coveredFrom)
+    {
+        final RollupStatus status = (RollupStatus)getCurrentSession()
+                .get(RollupStatus.class, RollupStatus.SINGLETON_ID);
+        if (status == null)
+        {
+            getCurrentSession().save(new RollupStatus(coveredFrom));
+        }
+        else
+        {
+            status.setCoveredFrom(coveredFrom);
+        }
+    }
+    
+    /**
+     * Sums the utilization rollups of the given days, grouped by the given attributes.
+     * Only whole days are covered, so the caller must ensure the rollups are complete
+     * for them.
+     * @param from the first day to include
+     * @param to the last day to include, if any
+     * @param groupings the attributes to group by, in order. If empty, all days form one
+     * group.
+     * @return one aggregate per non-empty group, in no particular order
+     * @see ResultsDao#getUtilizationAggregates(HistoricalSearchParameters, List)
+     */
+    public ImmutableList<UtilizationAggregate> getUtilizationAggregates(
+            final LocalDate from,
+            final Optional<LocalDate> to,
+            final List<UtilizationGrouping> groupings)
+    {
+        LOGGER.debug(
+                "Summing utilization rollups from {} to {} with groupings {}.",
+                from,
+                to,
+                groupings);
+        final ProjectionList projection = Projections.projectionList();
+        for (final UtilizationGrouping grouping : groupings)
+        {
+            projection.add(Projections.groupProperty(grouping.getRollupPropertyName()));
+        }
+        projection
+            .add(Projections.sum("totalCount"))
+            .add(Projections.sum("secondsToFirstRunSum"))
+            .add(Projections.sum("signedCount"))
+            .add(Projections.sum("secondsToSignSum"));
+        final Criteria criteria = getCurrentSession()
+                .createCriteria(DailyUtilization.class)
+                .add(Restrictions.ge("key.date", from))
+                .setProjection(projection);
+        if (to.isPresent())
+        {
+            criteria.add(Restrictions.le("key.date", to.get()));
+        }
+        @SuppressWarnings("unchecked") // trust Hibernate
+        final List<Object[]> rows = criteria.list();
+    
+        final int groupCount = groupings.size();
+        final ImmutableList.Builder<UtilizationAggregate> aggregates =
+                ImmutableList.builder();
+        for (final Object[] row : rows)
+        {
+            // Without groupings, the database returns a row of nulls if nothing matched.
+            if (row[groupCount] == null)
+            {
+                continue;
+            }
+            final ArrayList<String> groupValues = new ArrayList<>(groupCount);
+            for (int i = 0; i < groupCount; ++i)
+            {
+                final String value = (String)row[i];
+                // Translate the stored "" back to the missing provider type.
+                groupValues.add(value.isEmpty() ? null : value);
+            }
+            aggregates.add(new UtilizationAggregate(
+                    groupValues,
+                    ((Number)row[groupCount]).intValue(),
+                    ((Number)row[groupCount + 1]).longValue(),
+                    ((Number)row[groupCount + 2]).intValue(),
+                    ((Number)row[groupCount + 3]).longValue()));
+        }
+        return aggregates.build();
+    }
+    
+    /**
+     * Sets the parameters of a statement.
+     */
+    private interface ParameterSetter
+    {
+        void setParameters(PreparedStatement statement) throws SQLException;
+    }
+}
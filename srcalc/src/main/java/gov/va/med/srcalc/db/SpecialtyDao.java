@@ -1,5 +1,6 @@
 package gov.va.med.srcalc.db;
 
+import gov.va.med.srcalc.domain.model.ProcedureCatalog;
 import gov.va.med.srcalc.domain.model.Specialty;
 import gov.va.med.srcalc.domain.model.Variable;
 
@@ -27,14 +28,18 @@ public class SpecialtyDao
     
     private final SessionFactory fSessionFactory;
     
+    private final ProcedureDao fProcedureDao;
+    
     /**
      * Constructs an instance.
      * @param sessionFactory the SessionFactory used to get the current session.
+     * @param procedureDao provides the procedure catalog for ProcedureVariables
      */
     @Inject // Allow arguments to be autowired.
-    public SpecialtyDao(final SessionFactory sessionFactory)
+    public SpecialtyDao(final SessionFactory sessionFactory, final ProcedureDao procedureDao)
     {
         fSessionFactory = sessionFactory;
+        fProcedureDao = procedureDao;
     }
     
     /**
@@ -57,11 +62,22 @@ public class SpecialtyDao
                 "from Specialty s left join fetch s.riskModels where s.name = :name");
         q.setString("name", name);
         final Specialty s = (Specialty)q.uniqueResult();
+        if (s != null)
+        {
+            loadProcedures(s, fProcedureDao.getCatalog());
+        }
+        return s;
+    }
+    
+    /**
+     * Gives the ProcedureVariables of the given Specialty the given catalog.
+     */
+    static void loadProcedures(final Specialty specialty, final ProcedureCatalog catalog)
+    {
         // Kludge until I figure out how to get Hibernate to automatically load
         // the procedures for a ProcedureVariable.
-        ProcedureLoaderVisitor visitor =
-                new ProcedureLoaderVisitor(new ProcedureDao(fSessionFactory));
-        for (Variable var : s.getModelVariables())
+        final ProcedureLoaderVisitor visitor = new ProcedureLoaderVisitor(catalog);
+        for (Variable var : specialty.getModelVariables())
         {
             try
             {
@@ -74,17 +90,18 @@ public class SpecialtyDao
                         "ProcedureLoaderVisitor threw an Exception!", e);
             }
         }
-        return s;
     }
 
     /**
-     * Returns all Specialties in the database.
+     * Returns all Specialties in the database. The result is cached in the query cache.
      * @return a List ordered by Specialty name
      */
     @SuppressWarnings("unchecked") // trust Hibernate
     public List<Specialty> getAllSpecialties()
     {
-        return getCurrentSession().createQuery("from Specialty s order by s.name").list();
+        return getCurrentSession().createQuery("from Specialty s order by s.name")
+                .setCacheable(true)
+                .list();
     }
     
     /**
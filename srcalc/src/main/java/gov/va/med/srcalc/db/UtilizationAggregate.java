@@ -0,0 +1,159 @@
+package gov.va.med.srcalc.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * <p>Aggregate utilization statistics for one group of {@link
+ * gov.va.med.srcalc.domain.calculation.HistoricalCalculation}s, as computed by {@link
+ * ResultsDao#getUtilizationAggregates(HistoricalSearchParameters, List)}. Immutable.</p>
+ * 
+ * <p>Per Effective Java Item 17, this class is marked final because it was not
+ * designed for inheritance.</p>
+ */
+public final class UtilizationAggregate
+{
+    private final List<String> fGroupValues;
+    private final int fTotalCount;
+    private final long fSecondsToFirstRunSum;
+    private final int fSignedCount;
+    private final long fSecondsToSignSum;
+    
+    /**
+     * Constructs an instance with the given properties.
+     * @param groupValues See {@link #getGroupValues()}. Defensively-copied.
+     * @param totalCount See {@link #getTotalCount()}.
+     * @param secondsToFirstRunSum See {@link #getSecondsToFirstRunSum()}.
+     * @param signedCount See {@link #getSignedCount()}.
+     * @param secondsToSignSum See {@link #getSecondsToSignSum()}.
+     */
+    public UtilizationAggregate(
+            final List<String> groupValues,
+            final int totalCount,
+            final long secondsToFirstRunSum,
+            final int signedCount,
+            final long secondsToSignSum)
+    {
+        // ImmutableList does not permit the null values we need.
+        fGroupValues = Collections.unmodifiableList(new ArrayList<>(groupValues));
+        fTotalCount = totalCount;
+        fSecondsToFirstRunSum = secondsToFirstRunSum;
+        fSignedCount = signedCount;
+        fSecondsToSignSum = secondsToSignSum;
+    }
+    
+    /**
+     * Returns the values identifying this group, in the order of the requested
+     * {@link UtilizationGrouping}s. A value may be null (e.g., for a missing provider
+     * type).
+     * @return an unmodifiable list
+     */
+    public List<String> getGroupValues()
+    {
+        return fGroupValues;
+    }
+    
+    /**
+     * Returns the total number of calculations in the group (including unsigned).
+     */
+    public int getTotalCount()
+    {
+        return fTotalCount;
+    }
+    
+    /**
+     * Returns the sum of the seconds to first run of all calculations in the group.
+     */
+    public long getSecondsToFirstRunSum()
+    {
+        return fSecondsToFirstRunSum;
+    }
+    
+    /**
+     * Returns the number of signed calculations in the group.
+     */
+    public int getSignedCount()
+    {
+        return fSignedCount;
+    }
+    
+    /**
+     * Returns the sum of the seconds to sign of the signed calculations in the group.
+     */
+    public long getSecondsToSignSum()
+    {
+        return fSecondsToSignSum;
+    }
+    
+    /**
+     * Returns the statistics of the union of this group and the given group.
+     * @param other an aggregate with the same group values, e.g. for other days
+     * @throws IllegalArgumentException if the group values differ
+     */
+    public UtilizationAggregate plus(final UtilizationAggregate other)
+    {
+        if (!fGroupValues.equals(other.fGroupValues))
+        {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot add group %s to group %s.",
+                    other.fGroupValues,
+                    fGroupValues));
+        }
+        return new UtilizationAggregate(
+                fGroupValues,
+                fTotalCount + other.fTotalCount,
+                fSecondsToFirstRunSum + other.fSecondsToFirstRunSum,
+                fSignedCount + other.fSignedCount,
+                fSecondsToSignSum + other.fSecondsToSignSum);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("groupValues", fGroupValues)
+                .add("totalCount", fTotalCount)
+                .add("secondsToFirstRunSum", fSecondsToFirstRunSum)
+                .add("signedCount", fSignedCount)
+                .add("secondsToSignSum", fSecondsToSignSum)
+                .toString();
+    }
+    
+    /**
+     * Returns true if the given object is also a {@link UtilizationAggregate} with the
+     * same properties, false otherwise.
+     */
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (obj instanceof UtilizationAggregate)
+        {
+            final UtilizationAggregate other = (UtilizationAggregate)obj;
+            
+            return this.fGroupValues.equals(other.fGroupValues) &&
+                    this.fTotalCount == other.fTotalCount &&
+                    this.fSecondsToFirstRunSum == other.fSecondsToFirstRunSum &&
+                    this.fSignedCount == other.fSignedCount &&
+                    this.fSecondsToSignSum == other.fSecondsToSignSum;
+        }
+        else
+        {
+            return false;
+        }
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(
+                fGroupValues,
+                fTotalCount,
+                fSecondsToFirstRunSum,
+                fSignedCount,
+                fSecondsToSignSum);
+    }
+}
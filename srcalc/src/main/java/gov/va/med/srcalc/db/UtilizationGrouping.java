@@ -0,0 +1,65 @@
+package gov.va.med.srcalc.db;
+
+import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
+
+/**
+ * The {@link HistoricalCalculation} attributes by which utilization statistics may be
+ * grouped.
+ */
+public enum UtilizationGrouping
+{
+    /**
+     * Groups by {@link HistoricalCalculation#getUserStation()}.
+     */
+    STATION("userStation", "key.userStation", "Station"),
+    
+    /**
+     * Groups by {@link HistoricalCalculation#getSpecialtyName()}.
+     */
+    SPECIALTY("specialtyName", "key.specialtyName", "Specialty"),
+    
+    /**
+     * Groups by {@link HistoricalCalculation#getProviderType()}. Calculations without a
+     * provider type form their own group.
+     */
+    PROVIDER_TYPE("providerTypeNullable", "key.providerType", "Provider Type");
+    
+    private final String fPropertyName;
+    private final String fRollupPropertyName;
+    private final String fDisplayName;
+    
+    private UtilizationGrouping(
+            final String propertyName,
+            final String rollupPropertyName,
+            final String displayName)
+    {
+        fPropertyName = propertyName;
+        fRollupPropertyName = rollupPropertyName;
+        fDisplayName = displayName;
+    }
+    
+    /**
+     * Returns the name of the mapped HistoricalCalculation property to group by.
+     */
+    String getPropertyName()
+    {
+        return fPropertyName;
+    }
+    
+    /**
+     * Returns the name of the equivalent mapped {@link
+     * gov.va.med.srcalc.domain.calculation.DailyUtilization} property to group by.
+     */
+    String getRollupPropertyName()
+    {
+        return fRollupPropertyName;
+    }
+    
+    /**
+     * Returns a human-readable name for the grouping.
+     */
+    public String getDisplayName()
+    {
+        return fDisplayName;
+    }
+}
@@ -61,7 +61,8 @@ public class VariableDao
     }
     
     /**
-     * Returns all VariableGroups in the database, in arbitrary order.
+     * Returns all VariableGroups in the database, in arbitrary order. The result is cached
+     * in the query cache.
      * @return an ImmutableCollection
      */
     public ImmutableCollection<VariableGroup> getAllVariableGroups()
@@ -70,7 +71,9 @@ public class VariableDao
 
         @SuppressWarnings("unchecked") // trust Hibernate
         final List<VariableGroup> list =
-                getCurrentSession().createCriteria(VariableGroup.class).list();
+                getCurrentSession().createCriteria(VariableGroup.class)
+                    .setCacheable(true)
+                    .list();
         
         return ImmutableList.copyOf(list);
     }
@@ -1,5 +1,6 @@
 package gov.va.med.srcalc.domain;
 
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
 import gov.va.med.srcalc.domain.calculation.RetrievedValue;
 
 import java.io.Serializable;
@@ -27,7 +28,7 @@ public class Patient implements Serializable
     /**
      * Change this when changing the class!
      */
-    private static final long serialVersionUID = 2L;
+    private static final long serialVersionUID = 3L;
     
     private final int fDfn;
     
@@ -43,6 +44,7 @@ public class Patient implements Serializable
     private List<String> fActiveMedications;
     private List<ReferenceNote> fAdlNotes;
     private List<ReferenceNote> fDnrNotes;
+    private RetrievalPlan fRetrievedData;
     
     /**
      * Constructs an instance with the given properties and empty collections for all
@@ -59,6 +61,26 @@ public class Patient implements Serializable
         this.fActiveMedications = new ArrayList<String>();
         this.fAdlNotes = new ArrayList<ReferenceNote>();
         this.fDnrNotes = new ArrayList<ReferenceNote>(); 
+        this.fRetrievedData = RetrievalPlan.NOTHING;
+    }
+    
+    /**
+     * Constructs a copy of the given Patient. The copy has its own collections, so
+     * modifying them does not affect the original.
+     */
+    public Patient(final Patient other)
+    {
+        this(other.fDfn, other.fName, other.fGender, other.fAge);
+        this.fBmi = other.fBmi;
+        this.fWeight = other.fWeight;
+        this.fWeight6MonthsAgo = other.fWeight6MonthsAgo;
+        this.fHeight = other.fHeight;
+        this.fLabs.putAll(other.fLabs);
+        this.fHealthFactors.addAll(other.fHealthFactors);
+        this.fActiveMedications.addAll(other.fActiveMedications);
+        this.fAdlNotes.addAll(other.fAdlNotes);
+        this.fDnrNotes.addAll(other.fDnrNotes);
+        this.fRetrievedData = other.fRetrievedData;
     }
     
     /**
@@ -213,6 +235,80 @@ public class Patient implements Serializable
         return fDnrNotes;
     }
     
+    /**
+     * Returns which data besides the demographics has been retrieved for this patient.
+     * Data outside of this plan has not been looked for, so its absence means nothing.
+     */
+    public RetrievalPlan getRetrievedData()
+    {
+        return fRetrievedData;
+    }
+    
+    /**
+     * Records that the given data has been retrieved, in addition to any data already
+     * retrieved.
+     */
+    public void addRetrievedData(final RetrievalPlan retrieved)
+    {
+        fRetrievedData = fRetrievedData.union(retrieved);
+    }
+    
+    /**
+     * Copies the given data from another instance of the same patient and records it as
+     * retrieved.
+     * @param other the other instance, which must have retrieved the given data
+     * @param data the data to copy
+     * @throws IllegalArgumentException if the other instance is a different patient or
+     * has not retrieved the given data
+     */
+    public void copyRetrievedData(final Patient other, final RetrievalPlan data)
+    {
+        if (other.fDfn != fDfn || !other.fRetrievedData.covers(data))
+        {
+            throw new IllegalArgumentException(
+                    other + " has not retrieved " + data + " for " + this);
+        }
+        if (data.includes(RetrievalPlan.Section.VITALS))
+        {
+            fBmi = other.fBmi;
+            fWeight = other.fWeight;
+            fWeight6MonthsAgo = other.fWeight6MonthsAgo;
+            fHeight = other.fHeight;
+        }
+        for (final VistaLabs lab : data.getLabs())
+        {
+            if (other.fLabs.containsKey(lab))
+            {
+                fLabs.put(lab, other.fLabs.get(lab));
+            }
+            else
+            {
+                fLabs.remove(lab);
+            }
+        }
+        if (data.includes(RetrievalPlan.Section.HEALTH_FACTORS))
+        {
+            fHealthFactors.clear();
+            fHealthFactors.addAll(other.fHealthFactors);
+        }
+        if (data.includes(RetrievalPlan.Section.ACTIVE_MEDICATIONS))
+        {
+            fActiveMedications.clear();
+            fActiveMedications.addAll(other.fActiveMedications);
+        }
+        if (data.includes(RetrievalPlan.Section.ADL_NOTES))
+        {
+            fAdlNotes.clear();
+            fAdlNotes.addAll(other.fAdlNotes);
+        }
+        if (data.includes(RetrievalPlan.Section.DNR_NOTES))
+        {
+            fDnrNotes.clear();
+            fDnrNotes.addAll(other.fDnrNotes);
+        }
+        addRetrievedData(data);
+    }
+    
     @Override
     public String toString()
     {
@@ -14,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.primitives.Ints;
 
@@ -34,12 +35,21 @@ public class Calculation implements Serializable
     /**
      * Change this when changing the class!
      */
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     private final DateTime fStartDateTime;
     private Patient fPatient;
     private Specialty fSpecialty;
     private Optional<HistoricalCalculation> fHistoricalCalculation;
+    /**
+     * The compiled form of the specialty's risk models. Lazily built and not
+     * serialized: it is cheap to rebuild from the Specialty.
+     */
+    private transient ImmutableList<CompiledRiskModel> fCompiledModels;
+    /**
+     * The version of the model from which the specialty was taken, if known.
+     */
+    private Optional<Integer> fModelVersion;
     
     /**
      * This class presents a pure JavaBean interface, with a default constructor and
@@ -49,6 +59,7 @@ public class Calculation implements Serializable
     {
         fStartDateTime = DateTime.now();
         fHistoricalCalculation = Optional.absent();
+        fModelVersion = Optional.absent();
     }
     
     /**
@@ -102,6 +113,29 @@ public class Calculation implements Serializable
     public void setSpecialty(final Specialty specialty)
     {
         this.fSpecialty = specialty;
+        fCompiledModels = null;
+        fModelVersion = Optional.absent();
+    }
+    
+    /**
+     * Set the specialty for this calculation from a shared snapshot, reusing its
+     * compiled risk models. The snapshot's model version will be recorded in the
+     * {@link HistoricalCalculation}.
+     */
+    public void setSpecialty(final SpecialtySnapshot snapshot)
+    {
+        this.fSpecialty = snapshot.getSpecialty();
+        fCompiledModels = snapshot.getCompiledModels();
+        fModelVersion = Optional.of(snapshot.getModelVersion());
+    }
+    
+    /**
+     * Returns the version of the model from which the specialty was taken, if it was
+     * set from a {@link SpecialtySnapshot}.
+     */
+    public Optional<Integer> getModelVersion()
+    {
+        return fModelVersion;
     }
     
     /**
@@ -175,7 +209,7 @@ public class Calculation implements Serializable
         final TreeMap<String, Float> outcomes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
         // Collect all missing variables into this set.
         final Set<Variable> missingVars = new HashSet<>();
-        for (final RiskModel model : getSpecialty().getRiskModels())
+        for (final CompiledRiskModel model : getCompiledModels())
         {
             try
             {
@@ -216,6 +250,25 @@ public class Calculation implements Serializable
         return result;
     }
     
+    /**
+     * Returns the compiled form of each of the specialty's {@link RiskModel}s,
+     * compiling them on first use.
+     */
+    private ImmutableList<CompiledRiskModel> getCompiledModels()
+    {
+        if (fCompiledModels == null)
+        {
+            final ImmutableList.Builder<CompiledRiskModel> builder = ImmutableList.builder();
+            for (final RiskModel model : getSpecialty().getRiskModels())
+            {
+                builder.add(model.compile());
+            }
+            fCompiledModels = builder.build();
+            LOGGER.debug("Compiled risk models: {}", fCompiledModels);
+        }
+        return fCompiledModels;
+    }
+    
     /**
      * Constructs a HistoricalCalculation object from this Calculation, given the
      * timestamp of the first result.
@@ -241,7 +294,8 @@ public class Calculation implements Serializable
                 user.getStationNumber(),
                 fStartDateTime,
                 secondsToResult,
-                user.getProviderType());
+                user.getProviderType(),
+                fModelVersion);
     }
     
     /**
@@ -0,0 +1,162 @@
+package gov.va.med.srcalc.domain.calculation;
+
+import gov.va.med.srcalc.util.DisplayNameConditions;
+
+import java.util.Objects;
+
+import javax.persistence.*;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * <p>Outcome statistics for one risk model over the {@link SignedResult}s signed on one
+ * day in one station, specialty and provider type.</p>
+ * 
+ * <p>The statistics are maintained incrementally (see {@link
+ * gov.va.med.srcalc.db.RollupDao}), so this class presents an immutable public
+ * interface only.</p>
+ */
+@Entity
+@Table(
+        name = "daily_outcome",
+        uniqueConstraints = @UniqueConstraint(columnNames = {
+                "rollup_date",
+                "user_station",
+                "specialty_name",
+                "provider_type",
+                "risk_model_name" }))
+public class DailyOutcome
+{
+    private int fId;
+    private RollupKey fKey;
+    private String fRiskModelName;
+    private int fOutcomeCount;
+    private double fRiskSum;
+    
+    /**
+     * Intended for reflection-based construction only. Business code should use the other
+     * constructor.
+     */
+    DailyOutcome()
+    {
+    }
+    
+    /**
+     * Constructs an instance with the given properties.
+     * @param key see {@link #getKey()}
+     * @param riskModelName see {@link #getRiskModelName()}
+     * @param outcomeCount see {@link #getOutcomeCount()}
+     * @param riskSum see {@link #getRiskSum()}
+     */
+    public DailyOutcome(
+            final RollupKey key,
+            final String riskModelName,
+            final int outcomeCount,
+            final double riskSum)
+    {
+        fKey = Objects.requireNonNull(key);
+        fRiskModelName = Objects.requireNonNull(riskModelName);
+        fOutcomeCount = outcomeCount;
+        fRiskSum = riskSum;
+    }
+    
+    /**
+     * The object's surrogate primary key. Don't show this to the user.
+     */
+    @Id
+    @GeneratedValue
+    public int getId()
+    {
+        return fId;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setId(final int id)
+    {
+        fId = id;
+    }
+    
+    /**
+     * Returns the day and group of these statistics. The day is the signature day of
+     * the results.
+     */
+    @Embedded
+    public RollupKey getKey()
+    {
+        return fKey;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setKey(final RollupKey key)
+    {
+        fKey = key;
+    }
+    
+    /**
+     * Returns the name of the risk model of the outcomes.
+     * @see SignedResult#getOutcomes()
+     */
+    @Basic
+    @Column(name = "risk_model_name", nullable = false, length = DisplayNameConditions.DISPLAY_NAME_MAX)
+    public String getRiskModelName()
+    {
+        return fRiskModelName;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setRiskModelName(final String riskModelName)
+    {
+        fRiskModelName = riskModelName;
+    }
+    
+    /**
+     * Returns the number of outcomes.
+     */
+    @Basic
+    public int getOutcomeCount()
+    {
+        return fOutcomeCount;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setOutcomeCount(final int outcomeCount)
+    {
+        fOutcomeCount = outcomeCount;
+    }
+    
+    /**
+     * Returns the sum of the outcomes' risks.
+     */
+    @Basic
+    public double getRiskSum()
+    {
+        return fRiskSum;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setRiskSum(final double riskSum)
+    {
+        fRiskSum = riskSum;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("key", fKey)
+                .add("riskModelName", fRiskModelName)
+                .add("outcomeCount", fOutcomeCount)
+                .add("riskSum", fRiskSum)
+                .toString();
+    }
+}
@@ -0,0 +1,179 @@
+package gov.va.med.srcalc.domain.calculation;
+
+import java.util.Objects;
+
+import javax.persistence.*;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * <p>Utilization statistics for the {@link HistoricalCalculation}s started on one day
+ * in one station, specialty and provider type. These rollups let reports avoid
+ * scanning every calculation.</p>
+ * 
+ * <p>The statistics are maintained incrementally (see {@link
+ * gov.va.med.srcalc.db.RollupDao}), so this class presents an immutable public
+ * interface only.</p>
+ */
+@Entity
+@Table(
+        name = "daily_utilization",
+        uniqueConstraints = @UniqueConstraint(columnNames = {
+                "rollup_date", "user_station", "specialty_name", "provider_type" }))
+public class DailyUtilization
+{
+    private int fId;
+    private RollupKey fKey;
+    private int fTotalCount;
+    private long fSecondsToFirstRunSum;
+    private int fSignedCount;
+    private long fSecondsToSignSum;
+    
+    /**
+     * Intended for reflection-based construction only. Business code should use the other
+     * constructor.
+     */
+    DailyUtilization()
+    {
+    }
+    
+    /**
+     * Constructs an instance with the given properties.
+     * @param key see {@link #getKey()}
+     * @param totalCount see {@link #getTotalCount()}
+     * @param secondsToFirstRunSum see {@link #getSecondsToFirstRunSum()}
+     * @param signedCount see {@link #getSignedCount()}
+     * @param secondsToSignSum see {@link #getSecondsToSignSum()}
+     */
+    public DailyUtilization(
+            final RollupKey key,
+            final int totalCount,
+            final long secondsToFirstRunSum,
+            final int signedCount,
+            final long secondsToSignSum)
+    {
+        fKey = Objects.requireNonNull(key);
+        fTotalCount = totalCount;
+        fSecondsToFirstRunSum = secondsToFirstRunSum;
+        fSignedCount = signedCount;
+        fSecondsToSignSum = secondsToSignSum;
+    }
+    
+    /**
+     * The object's surrogate primary key. Don't show this to the user.
+     */
+    @Id
+    @GeneratedValue
+    public int getId()
+    {
+        return fId;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setId(final int id)
+    {
+        fId = id;
+    }
+    
+    /**
+     * Returns the day and group of these statistics. The day is the start day of the
+     * calculations.
+     */
+    @Embedded
+    public RollupKey getKey()
+    {
+        return fKey;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setKey(final RollupKey key)
+    {
+        fKey = key;
+    }
+    
+    /**
+     * Returns the number of calculations (including unsigned).
+     */
+    @Basic
+    public int getTotalCount()
+    {
+        return fTotalCount;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setTotalCount(final int totalCount)
+    {
+        fTotalCount = totalCount;
+    }
+    
+    /**
+     * Returns the sum of {@link HistoricalCalculation#getSecondsToFirstRun()} for all of
+     * the calculations.
+     */
+    @Basic
+    public long getSecondsToFirstRunSum()
+    {
+        return fSecondsToFirstRunSum;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setSecondsToFirstRunSum(final long secondsToFirstRunSum)
+    {
+        fSecondsToFirstRunSum = secondsToFirstRunSum;
+    }
+    
+    /**
+     * Returns the number of signed calculations.
+     */
+    @Basic
+    public int getSignedCount()
+    {
+        return fSignedCount;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setSignedCount(final int signedCount)
+    {
+        fSignedCount = signedCount;
+    }
+    
+    /**
+     * Returns the sum of {@link SignedResult#getSecondsToSign()} for the signed
+     * calculations.
+     */
+    @Basic
+    public long getSecondsToSignSum()
+    {
+        return fSecondsToSignSum;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setSecondsToSignSum(final long secondsToSignSum)
+    {
+        fSecondsToSignSum = secondsToSignSum;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("key", fKey)
+                .add("totalCount", fTotalCount)
+                .add("secondsToFirstRunSum", fSecondsToFirstRunSum)
+                .add("signedCount", fSignedCount)
+                .add("secondsToSignSum", fSecondsToSignSum)
+                .toString();
+    }
+}
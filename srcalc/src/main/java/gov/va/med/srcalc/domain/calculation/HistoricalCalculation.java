@@ -35,7 +35,7 @@ public final class HistoricalCalculation implements Serializable
     /**
      * Change this when changing the class!
      */
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     /**
      * The maximum length of a station number String, e.g. {@link #getUserStation()}.
@@ -53,6 +53,7 @@ public final class HistoricalCalculation implements Serializable
     private DateTime fStartTimestamp;
     private int fSecondsToFirstRun;
     private Optional<String> fProviderType;
+    private Optional<Integer> fModelVersion;
     
     /**
      * Intended for reflection-based construction only. Business code should use the other
@@ -76,6 +77,32 @@ public final class HistoricalCalculation implements Serializable
             final DateTime startTimestamp,
             final int secondsToFirstRun,
             final Optional<String> providerType)
+    {
+        this(
+                specialtyName,
+                providerStation,
+                startTimestamp,
+                secondsToFirstRun,
+                providerType,
+                Optional.<Integer>absent());
+    }
+    
+    /**
+     * Constructs an instance with the given properties.
+     * @param specialtyName see {@link #getSpecialtyName()}
+     * @param providerStation see {@link #getUserStation()}
+     * @param startTimestamp see {@link #getStartTimestamp()}
+     * @param secondsToFirstRun see {@link #getSecondsToFirstRun()}
+     * @param providerType see {@link #getProviderType()}.
+     * @param modelVersion see {@link #getModelVersion()}.
+     */
+    public HistoricalCalculation(
+            final String specialtyName,
+            final String providerStation,
+            final DateTime startTimestamp,
+            final int secondsToFirstRun,
+            final Optional<String> providerType,
+            final Optional<Integer> modelVersion)
     {
         // Use setters to verify constraints.
         setSpecialtyName(specialtyName);
@@ -84,6 +111,7 @@ public final class HistoricalCalculation implements Serializable
         fStartTimestamp = startTimestamp.withMillisOfSecond(0);
         fSecondsToFirstRun = secondsToFirstRun;
         setProviderType(providerType);
+        fModelVersion = Objects.requireNonNull(modelVersion);
     }
     
     /**
@@ -236,6 +264,38 @@ public final class HistoricalCalculation implements Serializable
         setProviderType(Optional.fromNullable(providerType));
     }
     
+    /**
+     * Returns the version of the risk model used by the calculation, if it was
+     * recorded.
+     * @see gov.va.med.srcalc.domain.model.ModelSnapshot#getVersion()
+     */
+    @Transient
+    public Optional<Integer> getModelVersion()
+    {
+        return fModelVersion;
+    }
+    
+    /**
+     * Similar to {@link #getModelVersion()}, but represents a missing version as null.
+     * Purely to support Hibernate, which does not support Guava's Optional class.
+     * @return the optional model version as a nullable Integer
+     */
+    @Basic
+    @Column(name = "model_version", nullable = true)
+    Integer getModelVersionNullable()
+    {
+        return fModelVersion.orNull();
+    }
+    
+    /**
+     * For reflection-based construction only. Business code must provide this value to
+     * the constructor.
+     */
+    void setModelVersionNullable(final Integer modelVersion)
+    {
+        fModelVersion = Optional.fromNullable(modelVersion);
+    }
+    
     @Override
     public String toString()
     {
@@ -245,6 +305,7 @@ public final class HistoricalCalculation implements Serializable
                 .add("secondsToFirstRun", fSecondsToFirstRun)
                 .add("userStation", fUserStation)
                 .add("providerType", fProviderType)
+                .add("modelVersion", fModelVersion)
                 .toString();
     }
     
@@ -268,7 +329,8 @@ public final class HistoricalCalculation implements Serializable
                     Objects.equals(this.fUserStation, other.fUserStation) &&
                     Objects.equals(this.fStartTimestamp, other.fStartTimestamp) &&
                     (this.fSecondsToFirstRun == other.fSecondsToFirstRun) &&
-                    Objects.equals(this.fProviderType, other.fProviderType);
+                    Objects.equals(this.fProviderType, other.fProviderType) &&
+                    Objects.equals(this.fModelVersion, other.fModelVersion);
         }
         else
         {
@@ -284,7 +346,8 @@ public final class HistoricalCalculation implements Serializable
                 fUserStation,
                 fStartTimestamp,
                 fSecondsToFirstRun,
-                fProviderType);
+                fProviderType,
+                fModelVersion);
     }
 
 }
@@ -0,0 +1,258 @@
+package gov.va.med.srcalc.domain.calculation;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import gov.va.med.srcalc.domain.VistaLabs;
+import gov.va.med.srcalc.domain.model.Variable;
+
+/**
+ * <p>Describes which patient data to retrieve from VistA besides the basic demographics
+ * (name, gender and age), which are always retrieved.</p>
+ *
+ * <p>{@link #forVariables(Iterable)} derives a plan from the {@link ValueRetriever}s of
+ * a specialty's variables, so a calculation only retrieves the data its risk models can
+ * use.</p>
+ *
+ * <p>Immutable.</p>
+ */
+public final class RetrievalPlan implements Serializable
+{
+    /**
+     * The sections of patient data which are retrieved as a whole. (Labs are retrieved
+     * individually: see {@link RetrievalPlan#getLabs()}.)
+     */
+    public enum Section
+    {
+        /**
+         * Height, weight, BMI and weight 6 months ago.
+         */
+        VITALS,
+        HEALTH_FACTORS,
+        ACTIVE_MEDICATIONS,
+        ADL_NOTES,
+        DNR_NOTES
+    }
+
+    /**
+     * Change this when changing the class!
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Retrieves only the demographics.
+     */
+    public static final RetrievalPlan NOTHING = new RetrievalPlan(
+            EnumSet.noneOf(Section.class), EnumSet.noneOf(VistaLabs.class));
+
+    /**
+     * Retrieves all available patient data.
+     */
+    public static final RetrievalPlan ALL = new RetrievalPlan(
+            EnumSet.allOf(Section.class), EnumSet.allOf(VistaLabs.class));
+
+    /**
+     * Retrieves the health factors and active medications, which are presented as
+     * reference information for every specialty.
+     */
+    public static final RetrievalPlan REFERENCE_INFO = new RetrievalPlan(
+            EnumSet.of(Section.HEALTH_FACTORS, Section.ACTIVE_MEDICATIONS),
+            EnumSet.noneOf(VistaLabs.class));
+
+    private final ImmutableSet<Section> fSections;
+    private final ImmutableSet<VistaLabs> fLabs;
+
+    private RetrievalPlan(final EnumSet<Section> sections, final EnumSet<VistaLabs> labs)
+    {
+        fSections = Sets.immutableEnumSet(sections);
+        fLabs = Sets.immutableEnumSet(labs);
+    }
+
+    /**
+     * Returns the plan to retrieve the given sections and labs.
+     */
+    public static RetrievalPlan of(final Set<Section> sections, final Set<VistaLabs> labs)
+    {
+        final EnumSet<Section> sectionSet = EnumSet.noneOf(Section.class);
+        sectionSet.addAll(sections);
+        final EnumSet<VistaLabs> labSet = EnumSet.noneOf(VistaLabs.class);
+        labSet.addAll(labs);
+        return new RetrievalPlan(sectionSet, labSet);
+    }
+
+    /**
+     * Returns the plan to retrieve the data used by the given variables, plus the
+     * {@link #REFERENCE_INFO}.
+     * @param variables the variables to be presented, e.g. {@link
+     * gov.va.med.srcalc.domain.model.Specialty#getModelVariables()}
+     */
+    public static RetrievalPlan forVariables(final Iterable<? extends Variable> variables)
+    {
+        final EnumSet<Section> sections = EnumSet.copyOf(REFERENCE_INFO.fSections);
+        final EnumSet<VistaLabs> labs = EnumSet.noneOf(VistaLabs.class);
+        for (final Variable variable : variables)
+        {
+            final ValueRetriever retriever = variable.getRetriever();
+            if (retriever == null)
+            {
+                continue;
+            }
+            switch (retriever)
+            {
+                case GENDER:
+                case AGE:
+                    // Always retrieved.
+                    break;
+                case BMI:
+                case WEIGHT:
+                case WEIGHT_6_MONTHS_AGO:
+                case HEIGHT:
+                    sections.add(Section.VITALS);
+                    break;
+                case ADL_NOTES:
+                    sections.add(Section.ADL_NOTES);
+                    break;
+                case DNR_NOTES:
+                    sections.add(Section.DNR_NOTES);
+                    break;
+                default:
+                    // The rest retrieve the lab of the same name.
+                    labs.add(VistaLabs.valueOf(retriever.name()));
+                    break;
+            }
+        }
+        return new RetrievalPlan(sections, labs);
+    }
+
+    /**
+     * Returns the sections to retrieve.
+     */
+    public ImmutableSet<Section> getSections()
+    {
+        return fSections;
+    }
+
+    /**
+     * Returns the labs to retrieve, in declaration order.
+     */
+    public ImmutableSet<VistaLabs> getLabs()
+    {
+        return fLabs;
+    }
+
+    /**
+     * Returns true if this plan retrieves the given section.
+     */
+    public boolean includes(final Section section)
+    {
+        return fSections.contains(section);
+    }
+
+    /**
+     * Returns true if this plan retrieves only the demographics.
+     */
+    public boolean isEmpty()
+    {
+        return fSections.isEmpty() && fLabs.isEmpty();
+    }
+
+    /**
+     * Returns true if this plan retrieves everything the given plan does.
+     */
+    public boolean covers(final RetrievalPlan other)
+    {
+        return fSections.containsAll(other.fSections) && fLabs.containsAll(other.fLabs);
+    }
+
+    /**
+     * Returns a plan which retrieves everything this plan or the given plan does.
+     */
+    public RetrievalPlan union(final RetrievalPlan other)
+    {
+        final EnumSet<Section> sections = copySections();
+        sections.addAll(other.fSections);
+        final EnumSet<VistaLabs> labs = copyLabs();
+        labs.addAll(other.fLabs);
+        return new RetrievalPlan(sections, labs);
+    }
+
+    /**
+     * Returns a plan which retrieves everything this plan does that the given plan
+     * does not.
+     */
+    public RetrievalPlan minus(final RetrievalPlan other)
+    {
+        final EnumSet<Section> sections = copySections();
+        sections.removeAll(other.fSections);
+        final EnumSet<VistaLabs> labs = copyLabs();
+        labs.removeAll(other.fLabs);
+        return new RetrievalPlan(sections, labs);
+    }
+
+    /**
+     * Returns a plan which retrieves everything this plan does except the given section.
+     */
+    public RetrievalPlan without(final Section section)
+    {
+        final EnumSet<Section> sections = copySections();
+        sections.remove(section);
+        return new RetrievalPlan(sections, copyLabs());
+    }
+
+    /**
+     * Returns a plan which retrieves everything this plan does except the given labs.
+     */
+    public RetrievalPlan withoutLabs(final Collection<VistaLabs> labs)
+    {
+        final EnumSet<VistaLabs> remainingLabs = copyLabs();
+        remainingLabs.removeAll(labs);
+        return new RetrievalPlan(copySections(), remainingLabs);
+    }
+
+    private EnumSet<Section> copySections()
+    {
+        final EnumSet<Section> sections = EnumSet.noneOf(Section.class);
+        sections.addAll(fSections);
+        return sections;
+    }
+
+    private EnumSet<VistaLabs> copyLabs()
+    {
+        final EnumSet<VistaLabs> labs = EnumSet.noneOf(VistaLabs.class);
+        labs.addAll(fLabs);
+        return labs;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("sections", fSections)
+                .add("labs", fLabs)
+                .toString();
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (o instanceof RetrievalPlan) // false if o == null
+        {
+            final RetrievalPlan other = (RetrievalPlan)o;
+            return fSections.equals(other.fSections) && fLabs.equals(other.fLabs);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(fSections, fLabs);
+    }
+}
@@ -0,0 +1,332 @@
+package gov.va.med.srcalc.domain.calculation;
+
+import gov.va.med.srcalc.util.Preconditions;
+
+import java.util.Objects;
+
+import javax.persistence.*;
+
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * <p>The delivery of a {@link SignedResult} to VistA Surgery (the SR ASRC RISK SAVE remote
+ * procedure). Signing a calculation stores a pending delivery in the same transaction as
+ * the SignedResult (a transactional outbox); a background job delivers it later, retrying
+ * transient failures with exponential backoff.</p>
+ *
+ * <p>The delivery is identified by its SignedResult, so each result is delivered at
+ * most once successfully: this identifier is the delivery's idempotency key. A delivery
+ * may still be sent twice if a node stops after VistA saved the result but before the
+ * success was recorded. Each attempt sends the same patient, CPT code and signature
+ * timestamp, so VistA files the repeat as the same risk calculation.</p>
+ */
+@Entity
+public class RiskSaveDelivery
+{
+    /**
+     * The maximum number of attempts to deliver a result before giving up.
+     */
+    public static final int MAX_ATTEMPTS = 10;
+
+    /**
+     * The delay before the first retry. Each subsequent retry doubles the delay, up to
+     * {@link #MAX_RETRY_DELAY}.
+     */
+    public static final Duration INITIAL_RETRY_DELAY = Duration.standardMinutes(1);
+
+    /**
+     * The maximum delay between retries.
+     */
+    public static final Duration MAX_RETRY_DELAY = Duration.standardHours(1);
+
+    /**
+     * The maximum length of {@link #getLastError()}.
+     */
+    public static final int LAST_ERROR_MAX = 255;
+
+    /**
+     * The maximum length of {@link #getDuz()}.
+     */
+    public static final int DUZ_MAX = 20;
+
+    /**
+     * The state of a delivery.
+     */
+    public enum Status
+    {
+        /**
+         * Not delivered yet, and will be attempted at the next attempt time.
+         */
+        PENDING,
+
+        /**
+         * Saved in VistA.
+         */
+        DELIVERED,
+
+        /**
+         * Not delivered, and will not be attempted again unless an administrator retries
+         * it.
+         */
+        FAILED
+    }
+
+    private int fId;
+    private SignedResult fSignedResult;
+    private String fDuz;
+    private Status fStatus;
+    private int fAttemptCount;
+    private DateTime fNextAttemptTimestamp;
+    private DateTime fLastAttemptTimestamp;
+    private String fLastError;
+
+    /**
+     * Intended for reflection-based construction only. Business code should use the other
+     * constructor.
+     */
+    RiskSaveDelivery()
+    {
+    }
+
+    /**
+     * Constructs a pending delivery which is due immediately.
+     * @param signedResult See {@link #getSignedResult()}.
+     * @param duz See {@link #getDuz()}.
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if the DUZ is empty or longer than {@link #DUZ_MAX}
+     */
+    public RiskSaveDelivery(final SignedResult signedResult, final String duz)
+    {
+        fSignedResult = Objects.requireNonNull(signedResult);
+        fDuz = Preconditions.requireWithin(duz, 1, DUZ_MAX);
+        fStatus = Status.PENDING;
+        fAttemptCount = 0;
+        fNextAttemptTimestamp = signedResult.getSignatureTimestamp();
+    }
+
+    /**
+     * The delivery's primary key, which is the ID of its SignedResult.
+     */
+    @Id
+    public int getId()
+    {
+        return fId;
+    }
+
+    /**
+     * For reflection-based construction only.
+     */
+    void setId(final int id)
+    {
+        fId = id;
+    }
+
+    /**
+     * Returns the SignedResult to deliver.
+     * @return never null
+     */
+    @OneToOne(fetch = FetchType.EAGER, optional = false)
+    @JoinColumn(name = "result_id")
+    @MapsId
+    public SignedResult getSignedResult()
+    {
+        return fSignedResult;
+    }
+
+    /**
+     * For reflection-based construction only.
+     */
+    void setSignedResult(final SignedResult signedResult)
+    {
+        fSignedResult = signedResult;
+    }
+
+    /**
+     * Returns the DUZ of the user who signed the result, under whom it is saved in VistA.
+     * The VistA division is the result's {@link HistoricalCalculation#getUserStation()
+     * station}.
+     */
+    @Column(nullable = false, length = DUZ_MAX)
+    public String getDuz()
+    {
+        return fDuz;
+    }
+
+    /**
+     * For reflection-based construction only.
+     */
+    void setDuz(final String duz)
+    {
+        fDuz = duz;
+    }
+
+    /**
+     * Returns the state of the delivery.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    public Status getStatus()
+    {
+        return fStatus;
+    }
+
+    /**
+     * For reflection-based construction only.
+     */
+    void setStatus(final Status status)
+    {
+        fStatus = status;
+    }
+
+    /**
+     * Returns the number of attempts to deliver the result so far.
+     */
+    @Basic
+    public int getAttemptCount()
+    {
+        return fAttemptCount;
+    }
+
+    /**
+     * For reflection-based construction only.
+     */
+    void setAttemptCount(final int attemptCount)
+    {
+        fAttemptCount = attemptCount;
+    }
+
+    /**
+     * Returns the time at or after which the next attempt is due, if pending. Null
+     * otherwise.
+     */
+    @Basic
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    public DateTime getNextAttemptTimestamp()
+    {
+        return fNextAttemptTimestamp;
+    }
+
+    /**
+     * For reflection-based construction only.
+     */
+    void setNextAttemptTimestamp(final DateTime nextAttemptTimestamp)
+    {
+        fNextAttemptTimestamp = nextAttemptTimestamp;
+    }
+
+    /**
+     * Returns the time of the last attempt, or null if there have been no attempts.
+     */
+    @Basic
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    public DateTime getLastAttemptTimestamp()
+    {
+        return fLastAttemptTimestamp;
+    }
+
+    /**
+     * For reflection-based construction only.
+     */
+    void setLastAttemptTimestamp(final DateTime lastAttemptTimestamp)
+    {
+        fLastAttemptTimestamp = lastAttemptTimestamp;
+    }
+
+    /**
+     * Returns the error message of the last failed attempt, or null if none failed.
+     */
+    @Column(length = LAST_ERROR_MAX)
+    public String getLastError()
+    {
+        return fLastError;
+    }
+
+    /**
+     * For reflection-based construction only.
+     */
+    void setLastError(final String lastError)
+    {
+        fLastError = lastError;
+    }
+
+    /**
+     * Returns the delay after the given number of failed attempts before the next one.
+     * @param attemptCount the number of failed attempts, at least 1
+     */
+    public static Duration retryDelay(final int attemptCount)
+    {
+        // Cap the shift to avoid overflow: the delay reaches the maximum long before.
+        final long delay = INITIAL_RETRY_DELAY.getMillis() << Math.min(attemptCount - 1, 20);
+        return new Duration(Math.min(delay, MAX_RETRY_DELAY.getMillis()));
+    }
+
+    /**
+     * Records a successful attempt.
+     * @param attemptTimestamp the time of the attempt
+     */
+    public void recordDelivered(final DateTime attemptTimestamp)
+    {
+        ++fAttemptCount;
+        fLastAttemptTimestamp = attemptTimestamp;
+        fStatus = Status.DELIVERED;
+        fNextAttemptTimestamp = null;
+    }
+
+    /**
+     * Records a failed attempt. The delivery is retried after {@link #retryDelay(int)}
+     * unless the failure is permanent or this was the last of {@link #MAX_ATTEMPTS}.
+     * @param attemptTimestamp the time of the attempt
+     * @param error describes the failure. Truncated to {@link #LAST_ERROR_MAX}.
+     * @param permanent true if retrying cannot succeed, such as if VistA rejected the
+     * data
+     */
+    public void recordFailure(
+            final DateTime attemptTimestamp, final String error, final boolean permanent)
+    {
+        ++fAttemptCount;
+        fLastAttemptTimestamp = attemptTimestamp;
+        fLastError = error.length() > LAST_ERROR_MAX ? error.substring(0, LAST_ERROR_MAX) : error;
+        if (permanent || fAttemptCount >= MAX_ATTEMPTS)
+        {
+            fStatus = Status.FAILED;
+            fNextAttemptTimestamp = null;
+        }
+        else
+        {
+            fNextAttemptTimestamp = attemptTimestamp.plus(retryDelay(fAttemptCount));
+        }
+    }
+
+    /**
+     * Makes a delivery pending again, due at the given time, so that it is retried. Resets
+     * the attempt count to allow another {@link #MAX_ATTEMPTS} attempts.
+     * @param dueTimestamp the time of the next attempt
+     * @throws IllegalStateException if the result was already delivered
+     */
+    public void retry(final DateTime dueTimestamp)
+    {
+        if (fStatus == Status.DELIVERED)
+        {
+            throw new IllegalStateException("The result was already delivered.");
+        }
+        fStatus = Status.PENDING;
+        fAttemptCount = 0;
+        fNextAttemptTimestamp = dueTimestamp;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("id", fId)
+                .add("status", fStatus)
+                .add("attemptCount", fAttemptCount)
+                .add("nextAttemptTimestamp", fNextAttemptTimestamp)
+                .add("lastError", fLastError)
+                .toString();
+    }
+}
@@ -0,0 +1,199 @@
+package gov.va.med.srcalc.domain.calculation;
+
+import gov.va.med.srcalc.domain.model.Specialty;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.*;
+
+import org.hibernate.annotations.Type;
+import org.joda.time.LocalDate;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Optional;
+
+/**
+ * <p>Identifies one group of a daily rollup: a day, station, specialty and provider
+ * type. See {@link DailyUtilization} and {@link DailyOutcome}.</p>
+ * 
+ * <p>A missing provider type is stored as an empty string so that the database can
+ * enforce uniqueness of the keys.</p>
+ * 
+ * <p>This class presents an immutable public interface.</p>
+ *
+ * <p>Per Effective Java Item 17, this class is marked final because it was not
+ * designed for inheritance.</p>
+ */
+@Embeddable
+public final class RollupKey implements Serializable
+{
+    /**
+     * Change this when changing the class!
+     */
+    private static final long serialVersionUID = 1L;
+    
+    private LocalDate fDate;
+    private String fUserStation;
+    private String fSpecialtyName;
+    private String fProviderType;
+    
+    /**
+     * Intended for reflection-based construction only. Business code should use the other
+     * constructor.
+     */
+    RollupKey()
+    {
+    }
+    
+    /**
+     * Constructs an instance for the given day and the attributes of the given
+     * HistoricalCalculation.
+     * @param date the day
+     * @param calc provides the station, specialty and provider type
+     */
+    public RollupKey(final LocalDate date, final HistoricalCalculation calc)
+    {
+        this(date, calc.getUserStation(), calc.getSpecialtyName(), calc.getProviderType());
+    }
+    
+    /**
+     * Constructs an instance with the given properties.
+     * @param date see {@link #getDate()}
+     * @param userStation see {@link #getUserStation()}
+     * @param specialtyName see {@link #getSpecialtyName()}
+     * @param providerType see {@link #getProviderType()}
+     */
+    public RollupKey(
+            final LocalDate date,
+            final String userStation,
+            final String specialtyName,
+            final Optional<String> providerType)
+    {
+        fDate = Objects.requireNonNull(date);
+        fUserStation = Objects.requireNonNull(userStation);
+        fSpecialtyName = Objects.requireNonNull(specialtyName);
+        fProviderType = providerType.or("");
+    }
+    
+    /**
+     * Returns the day of the group.
+     */
+    @Basic
+    @Column(name = "rollup_date", nullable = false)
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentLocalDate")
+    public LocalDate getDate()
+    {
+        return fDate;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setDate(final LocalDate date)
+    {
+        fDate = date;
+    }
+    
+    /**
+     * Returns the station number of the group.
+     * @see HistoricalCalculation#getUserStation()
+     */
+    @Basic
+    @Column(
+            name = "user_station",
+            nullable = false,
+            length = HistoricalCalculation.STATION_NUMBER_MAX)
+    public String getUserStation()
+    {
+        return fUserStation;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setUserStation(final String userStation)
+    {
+        fUserStation = userStation;
+    }
+    
+    /**
+     * Returns the specialty name of the group.
+     * @see HistoricalCalculation#getSpecialtyName()
+     */
+    @Basic
+    @Column(name = "specialty_name", nullable = false, length = Specialty.SPECIALTY_NAME_MAX)
+    public String getSpecialtyName()
+    {
+        return fSpecialtyName;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setSpecialtyName(final String specialtyName)
+    {
+        fSpecialtyName = specialtyName;
+    }
+    
+    /**
+     * Returns the provider type of the group, or an empty string for calculations
+     * without a provider type.
+     * @see HistoricalCalculation#getProviderType()
+     */
+    @Basic
+    @Column(
+            name = "provider_type",
+            nullable = false,
+            length = HistoricalCalculation.PROVIDER_TYPE_MAX)
+    public String getProviderType()
+    {
+        return fProviderType;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setProviderType(final String providerType)
+    {
+        fProviderType = providerType;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("date", fDate)
+                .add("userStation", fUserStation)
+                .add("specialtyName", fSpecialtyName)
+                .add("providerType", fProviderType)
+                .toString();
+    }
+    
+    /**
+     * Implements value equality for all properties.
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (o instanceof RollupKey)
+        {
+            final RollupKey other = (RollupKey)o;
+            
+            return Objects.equals(this.fDate, other.fDate) &&
+                    Objects.equals(this.fUserStation, other.fUserStation) &&
+                    Objects.equals(this.fSpecialtyName, other.fSpecialtyName) &&
+                    Objects.equals(this.fProviderType, other.fProviderType);
+        }
+        else
+        {
+            return false;
+        }
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(fDate, fUserStation, fSpecialtyName, fProviderType);
+    }
+}
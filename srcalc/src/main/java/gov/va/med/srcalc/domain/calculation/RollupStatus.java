@@ -0,0 +1,88 @@
+package gov.va.med.srcalc.domain.calculation;
+
+import javax.persistence.*;
+
+import org.hibernate.annotations.Type;
+import org.joda.time.LocalDate;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Records how much of the history the daily rollups ({@link DailyUtilization} and {@link
+ * DailyOutcome}) cover. There is at most one instance, with the ID {@link #SINGLETON_ID}.
+ */
+@Entity
+@Table(name = "rollup_status")
+public class RollupStatus
+{
+    /**
+     * The ID of the only instance.
+     */
+    public static final int SINGLETON_ID = 1;
+    
+    private int fId;
+    private LocalDate fCoveredFrom;
+    
+    /**
+     * Intended for reflection-based construction only. Business code should use the other
+     * constructor.
+     */
+    RollupStatus()
+    {
+    }
+    
+    /**
+     * Constructs the instance with the given coverage.
+     * @param coveredFrom see {@link #getCoveredFrom()}
+     */
+    public RollupStatus(final LocalDate coveredFrom)
+    {
+        fId = SINGLETON_ID;
+        fCoveredFrom = coveredFrom;
+    }
+    
+    /**
+     * The object's primary key: always {@link #SINGLETON_ID}.
+     */
+    @Id
+    public int getId()
+    {
+        return fId;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setId(final int id)
+    {
+        fId = id;
+    }
+    
+    /**
+     * Returns the first day from which the rollups are complete. Data from earlier days
+     * must come from the raw tables.
+     */
+    @Basic
+    @Column(nullable = false)
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentLocalDate")
+    public LocalDate getCoveredFrom()
+    {
+        return fCoveredFrom;
+    }
+    
+    /**
+     * Sets the first day from which the rollups are complete.
+     */
+    public void setCoveredFrom(final LocalDate coveredFrom)
+    {
+        fCoveredFrom = coveredFrom;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("coveredFrom", fCoveredFrom)
+                .toString();
+    }
+}
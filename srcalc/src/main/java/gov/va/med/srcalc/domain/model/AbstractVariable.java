@@ -9,6 +9,8 @@ import java.util.regex.Pattern;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Proxy;
 
 import com.github.rjeschke.txtmark.Processor;
@@ -32,6 +34,8 @@ import com.google.common.base.Optional;
  * fetching anyway.
  */
 @Proxy(lazy = false)
+// Subclasses share the cache region of this root entity.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public abstract class AbstractVariable implements Variable
 {
     /**
@@ -0,0 +1,365 @@
+package gov.va.med.srcalc.domain.model;
+
+import gov.va.med.srcalc.domain.calculation.*;
+
+import java.util.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>A flat, immutable evaluation plan for a {@link RiskModel}. Each required
+ * {@link Variable} is resolved to a dense integer slot and each term is reduced to a
+ * kind code, a slot and a coefficient in primitive arrays, so that {@link
+ * #calculate(Collection)} is a simple loop with no per-call collection building.</p>
+ *
+ * <p>The plan is a snapshot: later modifications to the source RiskModel (or to the
+ * options of its {@link DiscreteVariable}s) are not reflected. Terms are evaluated
+ * in the same order as {@link RiskModel#getTerms()} at compilation time, which makes
+ * the results bit-identical to {@link RiskModel#calculate(Collection)}.</p>
+ *
+ * <p>Per Effective Java Item 17, this class is marked final because it was not
+ * designed for inheritance.</p>
+ */
+public final class CompiledRiskModel
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompiledRiskModel.class);
+
+    private static final int KIND_CONSTANT = 0;
+    private static final int KIND_BOOLEAN = 1;
+    private static final int KIND_DISCRETE = 2;
+    private static final int KIND_NUMERICAL = 3;
+    private static final int KIND_PROCEDURE = 4;
+    private static final int KIND_DERIVED = 5;
+
+    /**
+     * Marks a term which does not use a variable slot.
+     */
+    private static final int NO_SLOT = -1;
+
+    private final String fDisplayName;
+    private final ImmutableMap<Variable, Integer> fSlots;
+    private final ImmutableList<Variable> fSlotVariables;
+    private final int[] fKinds;
+    private final int[] fTermSlots;
+    private final float[] fCoefficients;
+    private final MultiSelectOption[] fOptions;
+    private final Rule[] fRules;
+    private final boolean fHasDerivedTerms;
+
+    /**
+     * Compiles the given RiskModel. Business code should use {@link RiskModel#compile()}.
+     * @throws IndexOutOfBoundsException if a {@link DiscreteTerm} refers to an option
+     * that does not exist
+     */
+    CompiledRiskModel(final RiskModel model)
+    {
+        fDisplayName = model.getDisplayName();
+
+        final List<ModelTerm> terms = model.getTerms().asList();
+        final int termCount = terms.size();
+        fKinds = new int[termCount];
+        fTermSlots = new int[termCount];
+        fCoefficients = new float[termCount];
+        fOptions = new MultiSelectOption[termCount];
+        fRules = new Rule[termCount];
+
+        // Assign the slots in order of first use for a deterministic layout.
+        final LinkedHashMap<Variable, Integer> slots = new LinkedHashMap<>();
+        final TermCompiler compiler = new TermCompiler(slots);
+        for (int i = 0; i < termCount; ++i)
+        {
+            compiler.fIndex = i;
+            terms.get(i).accept(compiler);
+        }
+
+        fSlots = ImmutableMap.copyOf(slots);
+        fSlotVariables = ImmutableList.copyOf(slots.keySet());
+        fHasDerivedTerms = compiler.fFoundDerivedTerm;
+    }
+
+    /**
+     * Returns the display name of the source model at compilation time.
+     */
+    public String getDisplayName()
+    {
+        return fDisplayName;
+    }
+
+    /**
+     * Returns the Variables required by the model, in slot order.
+     * @return an ImmutableList
+     */
+    public ImmutableList<Variable> getSlotVariables()
+    {
+        return fSlotVariables;
+    }
+
+    /**
+     * Returns the number of terms in the plan, including the constant term.
+     */
+    public int getTermCount()
+    {
+        return fKinds.length;
+    }
+
+    /**
+     * Calculates the result of the model. Has the same contract as {@link
+     * RiskModel#calculate(Collection)}, except that values for Variables which the
+     * model does not require are ignored instead of checked for duplicates.
+     * @param inputValues the input values. There must be exactly one input value
+     * per required variable.
+     * @return the calculated result
+     * @throws IllegalArgumentException if there is more than one input value for a
+     * required variable or a value is of the wrong type for its term
+     * @throws MissingValuesException if there are any required variables without an
+     * assigned value
+     */
+    public float calculate(final Collection<Value> inputValues) throws MissingValuesException
+    {
+        final Value[] slotValues = new Value[fSlotVariables.size()];
+        for (final Value v : inputValues)
+        {
+            final Integer slot = fSlots.get(v.getVariable());
+            if (slot == null)
+            {
+                continue;
+            }
+            if (slotValues[slot] != null)
+            {
+                throw new IllegalArgumentException(
+                        "Multiple values provided for Variable " + v.getVariable());
+            }
+            slotValues[slot] = v;
+        }
+
+        // Only Rules need a Map, so only build the (lightweight) view if necessary.
+        final Map<Variable, Value> valueMap =
+                fHasDerivedTerms ? new SlotValueMap(slotValues) : null;
+
+        float sum = 0.0f;
+        // Lazily allocated: the common case is a complete set of values.
+        Set<Variable> missingVars = null;
+        for (int i = 0; i < fKinds.length; ++i)
+        {
+            final int kind = fKinds[i];
+            final float coefficient = fCoefficients[i];
+            if (kind == KIND_CONSTANT)
+            {
+                sum += coefficient;
+                continue;
+            }
+            if (kind == KIND_DERIVED)
+            {
+                try
+                {
+                    sum += fRules[i].apply(new Rule.EvaluationContext(coefficient, valueMap));
+                }
+                catch (final MissingValuesException e)
+                {
+                    if (missingVars == null)
+                    {
+                        missingVars = new HashSet<>();
+                    }
+                    missingVars.addAll(e.getMissingVariables());
+                }
+                continue;
+            }
+
+            // All other kinds are single-variable terms.
+            final Value value = slotValues[fTermSlots[i]];
+            if (value == null)
+            {
+                if (missingVars == null)
+                {
+                    missingVars = new HashSet<>();
+                }
+                missingVars.add(fSlotVariables.get(fTermSlots[i]));
+                continue;
+            }
+            sum += singleVariableSummand(i, kind, coefficient, value);
+        }
+
+        if (missingVars != null)
+        {
+            throw new MissingValuesException(missingVars);
+        }
+        LOGGER.debug("Sum for {} is {}", fDisplayName, sum);
+        final float expSum = (float)Math.exp(sum);
+
+        return expSum / (1 + expSum);
+    }
+
+    /**
+     * Computes the summand of a single-variable term exactly as the corresponding
+     * {@link SingleVariableTerm} would.
+     * @throws IllegalArgumentException if the value is not of the required type
+     */
+    private float singleVariableSummand(
+            final int termIndex, final int kind, final float coefficient, final Value value)
+    {
+        switch (kind)
+        {
+            case KIND_BOOLEAN:
+                return Boolean.TRUE.equals(value.getValue()) ? coefficient : 0.0f;
+            case KIND_DISCRETE:
+                if (!(value instanceof DiscreteValue))
+                {
+                    throw new IllegalArgumentException("Value was not a DiscreteValue");
+                }
+                return fOptions[termIndex].equals(((DiscreteValue)value).getSelectedOption())
+                        ? coefficient : 0.0f;
+            case KIND_NUMERICAL:
+                if (!(value instanceof NumericalValue))
+                {
+                    throw new IllegalArgumentException("Value was not a NumericalValue");
+                }
+                return ((NumericalValue)value).getValue().floatValue() * coefficient;
+            case KIND_PROCEDURE:
+                if (!(value instanceof ProcedureValue))
+                {
+                    throw new IllegalArgumentException("Value was not a ProcedureValue");
+                }
+                return ((ProcedureValue)value).getValue().getRvu() * coefficient;
+            default:
+                throw new IllegalStateException("Unknown term kind " + kind);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+                "CompiledRiskModel \"%s\" with %d slots and %d terms",
+                fDisplayName,
+                fSlotVariables.size(),
+                // -1 to subtract out the constant term
+                fKinds.length - 1);
+    }
+
+    /**
+     * Fills in the plan arrays for each visited term.
+     */
+    private final class TermCompiler implements ModelTermVisitor
+    {
+        private final Map<Variable, Integer> fSlotMap;
+        private int fIndex;
+        private boolean fFoundDerivedTerm = false;
+
+        public TermCompiler(final Map<Variable, Integer> slotMap)
+        {
+            fSlotMap = slotMap;
+        }
+
+        /**
+         * Returns the slot for the given variable, assigning a new one if necessary.
+         */
+        private int slotFor(final Variable variable)
+        {
+            final Integer existing = fSlotMap.get(variable);
+            if (existing != null)
+            {
+                return existing;
+            }
+            final int newSlot = fSlotMap.size();
+            fSlotMap.put(variable, newSlot);
+            return newSlot;
+        }
+
+        private void set(final int kind, final int slot, final float coefficient)
+        {
+            fKinds[fIndex] = kind;
+            fTermSlots[fIndex] = slot;
+            fCoefficients[fIndex] = coefficient;
+        }
+
+        @Override
+        public void visitConstantTerm(final ConstantTerm term)
+        {
+            set(KIND_CONSTANT, NO_SLOT, term.getCoefficient());
+        }
+
+        @Override
+        public void visitDerivedTerm(final DerivedTerm term)
+        {
+            // Reserve slots for the Rule's variables so that the SlotValueMap can
+            // find their values.
+            for (final ValueMatcher matcher : term.getRule().getMatchers())
+            {
+                slotFor(matcher.getVariable());
+            }
+            set(KIND_DERIVED, NO_SLOT, term.getCoefficient());
+            fRules[fIndex] = term.getRule();
+            fFoundDerivedTerm = true;
+        }
+
+        @Override
+        public void visitBooleanTerm(final BooleanTerm term)
+        {
+            set(KIND_BOOLEAN, slotFor(term.getVariable()), term.getCoefficient());
+        }
+
+        @Override
+        public void visitDiscreteTerm(final DiscreteTerm term)
+        {
+            set(KIND_DISCRETE, slotFor(term.getVariable()), term.getCoefficient());
+            fOptions[fIndex] = term.getOption();
+        }
+
+        @Override
+        public void visitNumericalTerm(final NumericalTerm term)
+        {
+            set(KIND_NUMERICAL, slotFor(term.getVariable()), term.getCoefficient());
+        }
+
+        @Override
+        public void visitProcedureTerm(final ProcedureTerm term)
+        {
+            set(KIND_PROCEDURE, slotFor(term.getVariable()), term.getCoefficient());
+        }
+    }
+
+    /**
+     * A read-only Map view of the slotted values for {@link Rule#apply(Rule.EvaluationContext)}.
+     * Lookups go through the (shared) slot index instead of a per-calculation HashMap.
+     */
+    private final class SlotValueMap extends AbstractMap<Variable, Value>
+    {
+        private final Value[] fValues;
+
+        public SlotValueMap(final Value[] values)
+        {
+            fValues = values;
+        }
+
+        @Override
+        public Value get(final Object key)
+        {
+            final Integer slot = fSlots.get(key);
+            return (slot == null) ? null : fValues[slot];
+        }
+
+        @Override
+        public boolean containsKey(final Object key)
+        {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<Variable, Value>> entrySet()
+        {
+            final LinkedHashMap<Variable, Value> entries = new LinkedHashMap<>();
+            for (int i = 0; i < fValues.length; ++i)
+            {
+                if (fValues[i] != null)
+                {
+                    entries.put(fSlotVariables.get(i), fValues[i]);
+                }
+            }
+            return Collections.unmodifiableSet(entries.entrySet());
+        }
+    }
+}
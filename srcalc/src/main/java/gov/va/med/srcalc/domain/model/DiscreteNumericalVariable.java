@@ -7,6 +7,8 @@ import java.util.*;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Sort;
 import org.hibernate.annotations.SortType;
 import org.slf4j.Logger;
@@ -62,6 +64,7 @@ public final class DiscreteNumericalVariable extends AbstractNumericalVariable
      * Returns all categories associated with this instance.
      */
     @ElementCollection(fetch = FetchType.EAGER)  // eager-load due to close association
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @Sort(type = SortType.NATURAL)
     // Override strange defaults.
     @CollectionTable(
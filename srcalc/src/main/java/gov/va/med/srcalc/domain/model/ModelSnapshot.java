@@ -0,0 +1,97 @@
+package gov.va.med.srcalc.domain.model;
+
+import java.util.Collection;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>A snapshot of the whole risk model at one version: a {@link SpecialtySnapshot} for
+ * every {@link Specialty}. Since the model changes rarely, one snapshot is shared by
+ * all calculations and replaced with a new one when an administrator saves a
+ * change.</p>
+ *
+ * <p>Immutable.</p>
+ */
+public final class ModelSnapshot
+{
+    private final int fVersion;
+    private final long fProcedureCatalogVersion;
+    private final ImmutableMap<String, SpecialtySnapshot> fSpecialties;
+
+    /**
+     * Constructs an instance, compiling each Specialty's RiskModels.
+     * @param version see {@link #getVersion()}
+     * @param procedureCatalogVersion see {@link #getProcedureCatalogVersion()}
+     * @param specialties all specialties, in the order to present them, fully loaded.
+     * They must not be modified afterward.
+     */
+    public ModelSnapshot(
+            final int version,
+            final long procedureCatalogVersion,
+            final Collection<Specialty> specialties)
+    {
+        fVersion = version;
+        fProcedureCatalogVersion = procedureCatalogVersion;
+        final ImmutableMap.Builder<String, SpecialtySnapshot> builder =
+                ImmutableMap.builder();
+        for (final Specialty specialty : specialties)
+        {
+            builder.put(specialty.getName(), new SpecialtySnapshot(version, specialty));
+        }
+        fSpecialties = builder.build();
+    }
+
+    /**
+     * Returns the version of the model. Versions increase as the model is changed and
+     * persist across restarts, so they may be recorded with calculations.
+     * @see ModelVersion
+     */
+    public int getVersion()
+    {
+        return fVersion;
+    }
+
+    /**
+     * Returns the version of the {@link ProcedureCatalog} used by the snapshot's
+     * {@link ProcedureVariable}s.
+     */
+    public long getProcedureCatalogVersion()
+    {
+        return fProcedureCatalogVersion;
+    }
+
+    /**
+     * Returns the snapshot of the Specialty with the given name, if any.
+     */
+    public Optional<SpecialtySnapshot> getSpecialty(final String name)
+    {
+        return Optional.fromNullable(fSpecialties.get(name));
+    }
+
+    /**
+     * Returns all Specialties, in the order given to the constructor. Callers must not
+     * modify them.
+     */
+    public ImmutableList<Specialty> getSpecialties()
+    {
+        final ImmutableList.Builder<Specialty> specialties = ImmutableList.builder();
+        for (final SpecialtySnapshot snapshot : fSpecialties.values())
+        {
+            specialties.add(snapshot.getSpecialty());
+        }
+        return specialties.build();
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("version", fVersion)
+                .add("procedureCatalogVersion", fProcedureCatalogVersion)
+                .add("specialties", fSpecialties.keySet())
+                .toString();
+    }
+}
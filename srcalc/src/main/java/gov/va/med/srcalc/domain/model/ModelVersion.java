@@ -0,0 +1,90 @@
+package gov.va.med.srcalc.domain.model;
+
+import javax.persistence.*;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Records the current version of the risk model, which increases whenever an
+ * administrator saves a change. There is at most one instance, with the ID {@link
+ * #SINGLETON_ID}. Without an instance, the version is {@link #INITIAL_VERSION}.
+ * @see ModelSnapshot
+ */
+@Entity
+@Table(name = "model_version")
+public class ModelVersion
+{
+    /**
+     * The ID of the only instance.
+     */
+    public static final int SINGLETON_ID = 1;
+    
+    /**
+     * The version of the model before any changes are recorded.
+     */
+    public static final int INITIAL_VERSION = 0;
+    
+    private int fId;
+    private int fVersion;
+    
+    /**
+     * Constructs the instance at the {@link #INITIAL_VERSION}.
+     */
+    public ModelVersion()
+    {
+        fId = SINGLETON_ID;
+        fVersion = INITIAL_VERSION;
+    }
+    
+    /**
+     * The object's primary key: always {@link #SINGLETON_ID}.
+     */
+    @Id
+    public int getId()
+    {
+        return fId;
+    }
+    
+    /**
+     * For reflection-based construction only.
+     */
+    void setId(final int id)
+    {
+        fId = id;
+    }
+    
+    /**
+     * Returns the current version.
+     */
+    @Basic
+    public int getVersion()
+    {
+        return fVersion;
+    }
+    
+    /**
+     * For reflection-based construction only. Business code should use {@link
+     * #increment()}.
+     */
+    void setVersion(final int version)
+    {
+        fVersion = version;
+    }
+    
+    /**
+     * Moves to the next version.
+     * @return the new version
+     */
+    public int increment()
+    {
+        return ++fVersion;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("version", fVersion)
+                .toString();
+    }
+}
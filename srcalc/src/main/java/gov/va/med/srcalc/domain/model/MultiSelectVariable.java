@@ -8,6 +8,9 @@ import java.util.*;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * <p>A Variable that allows selection from one of multiple discrete options.</p>
  * 
@@ -88,6 +91,7 @@ public final class MultiSelectVariable extends AbstractVariable implements Discr
      * @return a modifiable list
      */
     @ElementCollection(fetch = FetchType.EAGER)  // eager load due to close association
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OrderColumn(name = "option_index")
     // Override strange defaults
     @CollectionTable(
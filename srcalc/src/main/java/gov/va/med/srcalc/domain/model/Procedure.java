@@ -6,6 +6,8 @@ import java.util.Objects;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Immutable;
 
 /**
@@ -18,6 +20,7 @@ import org.hibernate.annotations.Immutable;
 @Entity
 @Table(name="CPT")   // call it CPT because "PROCEDURE" is a SQL reserved word
 @Immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 public final class Procedure
 {
     /**
@@ -0,0 +1,96 @@
+package gov.va.med.srcalc.domain.model;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>A snapshot of all available {@link Procedure}s, indexed by CPT code. Since the
+ * procedure list is large and changes rarely, one catalog is shared by all users and
+ * replaced with a new version when the procedures change.</p>
+ *
+ * <p>Immutable.</p>
+ */
+public final class ProcedureCatalog
+{
+    private final long fVersion;
+    private final ImmutableList<Procedure> fProcedures;
+    private final ImmutableMap<String, Procedure> fProceduresByCpt;
+    private final ImmutableList<Procedure> fEligibleProcedures;
+
+    /**
+     * Constructs an instance.
+     * @param version identifies this version of the catalog
+     * @param procedures all available procedures, in the order to present them. If a
+     * CPT code appears more than once, the first Procedure is indexed.
+     */
+    public ProcedureCatalog(final long version, final List<Procedure> procedures)
+    {
+        fVersion = version;
+        fProcedures = ImmutableList.copyOf(procedures);
+
+        final ImmutableList.Builder<Procedure> eligible = ImmutableList.builder();
+        // ImmutableMap.Builder does not permit duplicate keys, so track them ourselves.
+        final LinkedHashMap<String, Procedure> byCpt =
+                new LinkedHashMap<>(fProcedures.size() * 2);
+        for (final Procedure p : fProcedures)
+        {
+            if (!byCpt.containsKey(p.getCptCode()))
+            {
+                byCpt.put(p.getCptCode(), p);
+            }
+            if (p.isEligible())
+            {
+                eligible.add(p);
+            }
+        }
+        fProceduresByCpt = ImmutableMap.copyOf(byCpt);
+        fEligibleProcedures = eligible.build();
+    }
+
+    /**
+     * Returns the version of this catalog. Versions increase as the catalog is
+     * replaced.
+     */
+    public long getVersion()
+    {
+        return fVersion;
+    }
+
+    /**
+     * Returns all available Procedures.
+     */
+    public ImmutableList<Procedure> getProcedures()
+    {
+        return fProcedures;
+    }
+
+    /**
+     * Returns all available Procedures, keyed by CPT code.
+     */
+    public ImmutableMap<String, Procedure> getProceduresByCpt()
+    {
+        return fProceduresByCpt;
+    }
+
+    /**
+     * Returns the risk calculation-eligible Procedures, in the same order as {@link
+     * #getProcedures()}.
+     */
+    public ImmutableList<Procedure> getEligibleProcedures()
+    {
+        return fEligibleProcedures;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("version", fVersion)
+                .add("size", fProcedures.size())
+                .toString();
+    }
+}
@@ -19,8 +19,7 @@ import javax.persistence.Transient;
 @Entity
 public final class ProcedureVariable extends AbstractVariable
 {
-    private List<Procedure> fProcedures;
-    private HashMap<String, Procedure> fProcedureMap;
+    private ProcedureCatalog fCatalog;
     
     /**
      * For reflections-based construction only. Business code should use
@@ -28,10 +27,9 @@ public final class ProcedureVariable extends AbstractVariable
      */
     ProcedureVariable()
     {
-        // Sentinel values to detect if procedures have not been loaded. See
+        // Sentinel value to detect if procedures have not been loaded. See
         // getProcedures().
-        fProcedures = null;
-        fProcedureMap = null;
+        fCatalog = null;
     }
     
     /**
@@ -47,39 +45,53 @@ public final class ProcedureVariable extends AbstractVariable
     }
     
     /**
-     * <p>Returns the List of all active Procedures. Note that this is not a member
+     * <p>Returns the catalog of all active Procedures. Note that this is not a member
      * collection of the ProcedureVariable, it is just for navigability.</p>
      * 
-     * <p><strong>Warning:</strong> this collection is not automatically loaded
-     * when the ProcedureVariable is loaded from the Database. It must be set
-     * via {@link #setProcedures(List)} after loading.</p>
-     * @return an unmodifiable list
-     * @throws IllegalStateException if the procedure list has not been set
+     * <p><strong>Warning:</strong> the catalog is not automatically loaded when the
+     * ProcedureVariable is loaded from the Database. It must be set via {@link
+     * #setProcedureCatalog(ProcedureCatalog)} after loading.</p>
+     * @throws IllegalStateException if the catalog has not been set
      */
     @Transient // see method Javadocs
-    public List<Procedure> getProcedures()
+    public ProcedureCatalog getProcedureCatalog()
     {
-        if (fProcedures == null)
+        if (fCatalog == null)
         {
             throw new IllegalStateException("Procedure list not set!");
         }
-        return Collections.unmodifiableList(fProcedures);
+        return fCatalog;
     }
     
     /**
-     * Set the possible procedures for this procedure variable.
+     * Sets the possible procedures for this procedure variable. The catalog is shared,
+     * not copied.
+     */
+    public void setProcedureCatalog(final ProcedureCatalog catalog)
+    {
+        fCatalog = Objects.requireNonNull(catalog, "catalog must not be null");
+    }
+    
+    /**
+     * Returns the List of all active Procedures. Equivalent to {@code
+     * getProcedureCatalog().getProcedures()}.
+     * @return an unmodifiable list
+     * @throws IllegalStateException if the procedure list has not been set
+     */
+    @Transient // see getProcedureCatalog()
+    public List<Procedure> getProcedures()
+    {
+        return getProcedureCatalog().getProcedures();
+    }
+    
+    /**
+     * Sets the possible procedures for this procedure variable, in a new
+     * (unversioned) catalog.
      * @param procedures
      */
     public void setProcedures(final List<Procedure> procedures)
     {
-        fProcedures = procedures;
-        
-        // Create the procedure map.
-        fProcedureMap = new HashMap<>();
-        for (Procedure p : fProcedures)
-        {
-            fProcedureMap.put(p.getCptCode(), p);
-        }
+        setProcedureCatalog(new ProcedureCatalog(0L, procedures));
     }
     
     /**
@@ -89,11 +101,7 @@ public final class ProcedureVariable extends AbstractVariable
     @Transient // this is generated, not persistent
     public Map<String, Procedure> getProcedureMap()
     {
-        if (fProcedureMap == null)
-        {
-            throw new IllegalStateException("Procedure list not set!");
-        }
-        return Collections.unmodifiableMap(fProcedureMap);
+        return getProcedureCatalog().getProceduresByCpt();
     }
     
     /**
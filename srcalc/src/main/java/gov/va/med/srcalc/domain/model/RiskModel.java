@@ -9,6 +9,8 @@ import java.util.regex.Pattern;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +20,7 @@ import com.google.common.collect.ImmutableSet;
  * A risk model definition.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class RiskModel implements Comparable<RiskModel>
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(RiskModel.class);
@@ -140,6 +143,7 @@ public class RiskModel implements Comparable<RiskModel>
      * <p>The boolean terms in the model's sum. Mutable.</p>
      */
     @ElementCollection(fetch = FetchType.EAGER) // eager-load due to close association
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     // Override strange defaults.
     @CollectionTable(
             name = "risk_model_boolean_term",
@@ -164,6 +168,7 @@ public class RiskModel implements Comparable<RiskModel>
      * <p>See {@link #getTerms()} for a read-only view of all of the terms.</p>
      */
     @ElementCollection(fetch = FetchType.EAGER) // eager-load due to close association
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     // Override strange defaults.
     @CollectionTable(
             name = "risk_model_discrete_term",
@@ -188,6 +193,7 @@ public class RiskModel implements Comparable<RiskModel>
      * <p>See {@link #getTerms()} for a read-only view of all of the terms.</p>
      */
     @ElementCollection(fetch = FetchType.EAGER) // eager-load due to close association
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     // Override strange defaults.
     @CollectionTable(
             name = "risk_model_numerical_term",
@@ -212,6 +218,7 @@ public class RiskModel implements Comparable<RiskModel>
      * <p>See {@link #getTerms()} for a read-only view of all of the terms.</p>
      */
     @ElementCollection(fetch = FetchType.EAGER) // eager-load due to close association
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     // Override strange defaults.
     @CollectionTable(
             name = "risk_model_procedure_term",
@@ -236,6 +243,7 @@ public class RiskModel implements Comparable<RiskModel>
      * <p>See {@link #getTerms()} for a read-only view of all of the terms.</p>
      */
     @ElementCollection(fetch = FetchType.EAGER) // eager-load due to close association
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     // Override strange defaults.
     @CollectionTable(
             name = "risk_model_derived_term",
@@ -354,6 +362,17 @@ public class RiskModel implements Comparable<RiskModel>
                 getTerms().size() - 1);
     }
     
+    /**
+     * Compiles this model into a {@link CompiledRiskModel} for repeated evaluation.
+     * The returned plan is a snapshot of the current terms.
+     * @throws IndexOutOfBoundsException if a {@link DiscreteTerm} refers to an option
+     * that does not exist
+     */
+    public CompiledRiskModel compile()
+    {
+        return new CompiledRiskModel(this);
+    }
+    
     /**
      * Calculates the result of this model.
      * @param inputValues the input values. There must be exactly one input value
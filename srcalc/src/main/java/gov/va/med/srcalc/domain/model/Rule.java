@@ -8,11 +8,11 @@ import java.util.*;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.expression.Expression;
-import org.springframework.expression.ParseException;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import com.google.common.base.MoreObjects;
@@ -32,6 +32,7 @@ import com.google.common.collect.ImmutableSet;
  */
 @Entity
 @Table(name = "rule")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public final class Rule
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(Rule.class);
@@ -94,6 +95,7 @@ public final class Rule
      * previously-matched values.
      */
     @ElementCollection(fetch = FetchType.EAGER) // eager-load due to close association
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     // Override strange defaults.
     @CollectionTable(
             name = "rule_value_matcher",
@@ -183,19 +185,13 @@ public final class Rule
      * 
      * @param summandExpression
      *            The expression to be parsed into a summand expression.
-     * @return A valid, parsed SPEL Expression
+     * @return A valid, parsed SPEL Expression, shared with any other Rules which use
+     * the same expression
+     * @see SpelExpressions#parse(String)
      */
     private Expression parseSummandExpression(final String summandExpression)
     {
-        final SpelExpressionParser parser = new SpelExpressionParser();
-        try
-        {
-            return parser.parseExpression(Objects.requireNonNull(summandExpression));
-        }
-        catch (final ParseException ex)
-        {
-            throw new IllegalArgumentException("Could not parse given expression.", ex);
-        }
+        return SpelExpressions.parse(summandExpression);
     }
     
     /**
@@ -242,7 +238,6 @@ public final class Rule
         LOGGER.debug("Evaluating {}", this);
 
         /* Match all the values */
-        final StandardEvaluationContext ec = new StandardEvaluationContext();
         // Pass over the matcher list twice. Once to ensure all values are present.
         // Twice to actually evaluate the value matchers.
         final HashSet<Variable> missingVariables = new HashSet<>();
@@ -269,13 +264,12 @@ public final class Rule
         {
             throw new MissingValuesException(missingVariables);
         }
-        final HashMap<String, Object> matchedValues = new HashMap<>();
+        final StandardEvaluationContext ec = SpelExpressions.newEvaluationContext();
         for (final ValueMatcher condition : fMatchers)
         {
             final Value matchedValue = context.getValues().get(condition.getVariable());
-            matchedValues.put(matchedValue.getVariable().getKey(), matchedValue.getValue());
-            // Update the Spel evaluation context with the previous and current values
-            ec.setVariables(matchedValues);
+            // Add the current value to the previously-matched values in the context.
+            ec.setVariable(matchedValue.getVariable().getKey(), matchedValue.getValue());
             if (!condition.evaluate(ec, matchedValue))
             {
                 LOGGER.debug("{} evaluated false. Rule not firing.", condition);
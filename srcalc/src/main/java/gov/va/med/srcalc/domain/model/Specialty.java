@@ -7,6 +7,9 @@ import java.util.*;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.google.common.collect.ImmutableSet;
 
 /**
@@ -16,6 +19,7 @@ import com.google.common.collect.ImmutableSet;
  * designed for inheritance.</p>
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public final class Specialty implements Serializable
 {
     /**
@@ -123,6 +127,7 @@ public final class Specialty implements Serializable
      * Returns all {@link RiskModel}s associated with the Specialty. Caution: lazy-loaded.
      */
     @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     // Override strange defaults. See
     // <https://forum.hibernate.org/viewtopic.php?f=1&t=1037190>.
     @JoinTable(
@@ -0,0 +1,93 @@
+package gov.va.med.srcalc.domain.model;
+
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * <p>A fully-resolved {@link Specialty} for running calculations: its {@link
+ * RiskModel}s, their required {@link Variable}s and their compiled forms. Shared by all
+ * calculations using the same version of the model (see {@link ModelSnapshot}).</p>
+ *
+ * <p>Immutable, provided the wrapped Specialty is not modified.</p>
+ */
+public final class SpecialtySnapshot
+{
+    private final int fModelVersion;
+    private final Specialty fSpecialty;
+    private final ImmutableSet<Variable> fVariables;
+    private final ImmutableList<CompiledRiskModel> fCompiledModels;
+
+    /**
+     * Constructs an instance, compiling the Specialty's RiskModels.
+     * @param modelVersion see {@link #getModelVersion()}
+     * @param specialty the specialty, with its RiskModels and their Variables (including
+     * procedures) fully loaded. Must not be modified afterward.
+     */
+    public SpecialtySnapshot(final int modelVersion, final Specialty specialty)
+    {
+        fModelVersion = modelVersion;
+        fSpecialty = Objects.requireNonNull(specialty);
+        fVariables = specialty.getModelVariables();
+        final ImmutableList.Builder<CompiledRiskModel> compiled = ImmutableList.builder();
+        for (final RiskModel model : specialty.getRiskModels())
+        {
+            compiled.add(model.compile());
+        }
+        fCompiledModels = compiled.build();
+    }
+
+    /**
+     * Returns the version of the model from which this snapshot was taken.
+     * @see ModelSnapshot#getVersion()
+     */
+    public int getModelVersion()
+    {
+        return fModelVersion;
+    }
+
+    /**
+     * Returns the Specialty. Callers must not modify it.
+     */
+    public Specialty getSpecialty()
+    {
+        return fSpecialty;
+    }
+
+    /**
+     * Returns the Specialty's name.
+     */
+    public String getName()
+    {
+        return fSpecialty.getName();
+    }
+
+    /**
+     * Returns the Variables required by the Specialty's RiskModels.
+     * @see Specialty#getModelVariables()
+     */
+    public ImmutableSet<Variable> getVariables()
+    {
+        return fVariables;
+    }
+
+    /**
+     * Returns the compiled form of each of the Specialty's RiskModels.
+     */
+    public ImmutableList<CompiledRiskModel> getCompiledModels()
+    {
+        return fCompiledModels;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("modelVersion", fModelVersion)
+                .add("specialty", fSpecialty.getName())
+                .add("riskModelCount", fCompiledModels.size())
+                .toString();
+    }
+}
@@ -0,0 +1,122 @@
+package gov.va.med.srcalc.domain.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * <p>Shared infrastructure for the Spring Expression Language (SpEL) expressions used
+ * by {@link Rule}s and {@link ValueMatcher}s.</p>
+ *
+ * <p>Parsed SpEL {@link Expression}s are immutable and thread-safe, so this class
+ * keeps a single, process-wide cache of them keyed by expression string. This means
+ * Hibernate hydration of many rows with the same expression only parses it once. It
+ * also provides a lightweight evaluation context for {@link
+ * Rule#apply(Rule.EvaluationContext)}.</p>
+ */
+public final class SpelExpressions
+{
+    /**
+     * The maximum number of distinct parsed expressions to keep. There are far fewer
+     * expressions than this in any real configuration; the bound only protects against
+     * unbounded growth from many successive admin edits.
+     */
+    public static final int MAX_CACHED_EXPRESSIONS = 2000;
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+
+    private static final LoadingCache<String, Expression> EXPRESSION_CACHE =
+            CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_EXPRESSIONS)
+            .build(new CacheLoader<String, Expression>()
+            {
+                @Override
+                public Expression load(final String expressionString)
+                {
+                    return PARSER.parseExpression(expressionString);
+                }
+            });
+
+    /**
+     * Static utility class: do not instantiate.
+     */
+    private SpelExpressions()
+    {
+    }
+
+    /**
+     * Returns the parsed form of the given expression string, parsing it only if it
+     * has not been seen before.
+     * @param expressionString the SpEL expression to parse
+     * @return a shared, thread-safe Expression
+     * @throws NullPointerException if the given string is null
+     * @throws IllegalArgumentException if the given expression is not parsable
+     */
+    public static Expression parse(final String expressionString)
+    {
+        Objects.requireNonNull(expressionString);
+        try
+        {
+            return EXPRESSION_CACHE.getUnchecked(expressionString);
+        }
+        catch (final UncheckedExecutionException ex)
+        {
+            if (ex.getCause() instanceof ParseException)
+            {
+                throw new IllegalArgumentException(
+                        "Could not parse given expression.", ex.getCause());
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * <p>Returns a new evaluation context for a single evaluation. Its variables are kept
+     * in a plain HashMap instead of the superclass's concurrent map, which is all a
+     * single evaluation needs.</p>
+     *
+     * <p>The returned context is not thread-safe and must not escape the calling
+     * method. (In particular, since it holds patient values, it must not be cached.)</p>
+     */
+    static StandardEvaluationContext newEvaluationContext()
+    {
+        return new LocalEvaluationContext();
+    }
+
+    /**
+     * A StandardEvaluationContext whose variables are kept in a HashMap. Not
+     * thread-safe.
+     */
+    private static final class LocalEvaluationContext extends StandardEvaluationContext
+    {
+        private final HashMap<String, Object> fVariables = new HashMap<>();
+
+        @Override
+        public void setVariable(final String name, final Object value)
+        {
+            fVariables.put(name, value);
+        }
+
+        @Override
+        public void setVariables(final Map<String, Object> variables)
+        {
+            fVariables.putAll(variables);
+        }
+
+        @Override
+        public Object lookupVariable(final String name)
+        {
+            return fVariables.get(name);
+        }
+    }
+}
@@ -11,7 +11,6 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Transient;
 
 import org.springframework.expression.*;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
 
 /**
  * An object which evaluates a {@link Value} to true or false using a Spring
@@ -51,21 +50,15 @@ public final class ValueMatcher
     /**
      * Parse the designated expression into a SPEL Expression.
      * 
-     * @param summandExpression
+     * @param booleanExpression
      *            The expression to be parsed into a boolean expression.
-     * @return A valid, parsed SPEL Expression
+     * @return A valid, parsed SPEL Expression, shared with any other matchers which
+     * use the same expression
+     * @see SpelExpressions#parse(String)
      */
     private Expression parseBooleanExpression(final String booleanExpression)
     {
-        final SpelExpressionParser parser = new SpelExpressionParser();
-        try
-        {
-            return parser.parseExpression(Objects.requireNonNull(booleanExpression));
-        }
-        catch (final ParseException ex)
-        {
-            throw new IllegalArgumentException("Could not parse given expression.", ex);
-        }
+        return SpelExpressions.parse(booleanExpression);
     }
 
     /**
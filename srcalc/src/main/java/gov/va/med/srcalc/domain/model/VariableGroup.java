@@ -4,6 +4,9 @@ import java.util.Objects;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * <p>Represents a group of {@link Variable}s, usually for display grouping.</p>
  * 
@@ -11,6 +14,7 @@ import javax.persistence.*;
  * designed for inheritance.</p>
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public final class VariableGroup implements Comparable<VariableGroup>
 {
     /**
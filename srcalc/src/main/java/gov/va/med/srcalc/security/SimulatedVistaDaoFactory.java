@@ -0,0 +1,214 @@
+package gov.va.med.srcalc.security;
+
+import java.util.Collection;
+
+import gov.va.med.srcalc.vista.*;
+import gov.va.med.srcalc.vista.simulated.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>A VistaDaoFactory that constructs DAOs which call a simulated VistA instead of
+ * VistALink, for load testing the whole application without a real VistA. Each
+ * simulated division has its own {@link SyntheticPatients} and connection limit. The
+ * DAOs are otherwise configured exactly like {@link VistaLinkVistaDaoFactory}'s, so the
+ * load test exercises the same patient data loading, caching and parsing.</p>
+ *
+ * <p>Enabled by the "simulated-vista" Spring profile. See applicationContext.xml.</p>
+ */
+public class SimulatedVistaDaoFactory implements VistaDaoFactory
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulatedVistaDaoFactory.class);
+
+    private final RpcMetrics fRpcMetrics = new RpcMetrics();
+
+    private final ImmutableMap<String, SimulatedVistaProcedureCaller> fCallers;
+
+    private final DivisionGuards fDivisionGuards;
+
+    private final DivisionExecutors fDivisionExecutors;
+
+    private final long fRetrievalTimeoutMillis;
+
+    private final PatientCache fPatientCache;
+
+    private final PatientLoadCoalescer fPatientLoadCoalescer = new PatientLoadCoalescer();
+
+    private final VistaClientMetrics fClientMetrics =
+            new VistaClientMetrics(fPatientLoadCoalescer);
+
+    /**
+     * Constructs an instance using {@link RpcTimeouts#DEFAULT} and the default {@link
+     * DivisionGuards}.
+     * @param divisions the station numbers of the simulated divisions
+     * @param settings configures the simulated VistA's latency, errors, connection limit
+     * and patient population
+     * @param threadsPerDivision the maximum number of concurrent calls to each
+     * division when loading patient data
+     * @param retrievalTimeoutMillis the deadline for loading a patient's data
+     * @param patientCacheTtlMillis how long retrieved patient data may be reused
+     * @param patientCacheSize the maximum number of cached patients
+     * @throws IllegalArgumentException if no divisions are given
+     */
+    public SimulatedVistaDaoFactory(
+            final Collection<String> divisions,
+            final SimulationSettings settings,
+            final int threadsPerDivision,
+            final long retrievalTimeoutMillis,
+            final long patientCacheTtlMillis,
+            final long patientCacheSize)
+    {
+        this(
+                divisions,
+                settings,
+                threadsPerDivision,
+                retrievalTimeoutMillis,
+                new PatientCacheTtls(patientCacheTtlMillis),
+                patientCacheSize,
+                RpcTimeouts.DEFAULT,
+                new DivisionGuards());
+    }
+
+    /**
+     * Constructs an instance.
+     * @param divisions the station numbers of the simulated divisions
+     * @param settings configures the simulated VistA's latency, errors, connection limit
+     * and patient population
+     * @param threadsPerDivision the maximum number of concurrent calls to each
+     * division when loading patient data
+     * @param retrievalTimeoutMillis the deadline for loading a patient's data
+     * @param patientCacheTtls how long each kind of retrieved patient data may be reused
+     * @param patientCacheSize the maximum number of cached patients
+     * @param rpcTimeouts bounds the simulated latency of each call
+     * @param divisionGuards isolates the simulated divisions from each other
+     * @throws IllegalArgumentException if no divisions are given
+     */
+    public SimulatedVistaDaoFactory(
+            final Collection<String> divisions,
+            final SimulationSettings settings,
+            final int threadsPerDivision,
+            final long retrievalTimeoutMillis,
+            final PatientCacheTtls patientCacheTtls,
+            final long patientCacheSize,
+            final RpcTimeouts rpcTimeouts,
+            final DivisionGuards divisionGuards)
+    {
+        Preconditions.checkArgument(!divisions.isEmpty(), "must simulate at least 1 division");
+        final ImmutableMap.Builder<String, SimulatedVistaProcedureCaller> callers =
+                ImmutableMap.builder();
+        for (final String division : divisions)
+        {
+            callers.put(division, new SimulatedVistaProcedureCaller(
+                    division,
+                    settings,
+                    // Give each division different patients.
+                    new SyntheticPatients(division.hashCode(), settings.getPopulationSize()),
+                    fRpcMetrics,
+                    rpcTimeouts));
+        }
+        fCallers = callers.build();
+        fDivisionGuards = divisionGuards;
+        fDivisionExecutors = new DivisionExecutors(threadsPerDivision);
+        fRetrievalTimeoutMillis = retrievalTimeoutMillis;
+        fPatientCache = new PatientCache(patientCacheTtls, patientCacheSize);
+        LOGGER.warn("Using a simulated VistA for divisions {}: {}", fCallers.keySet(), settings);
+    }
+
+    /**
+     * Returns the simulated caller of the given division.
+     * @throws IllegalArgumentException if the division is unknown
+     */
+    public SimulatedVistaProcedureCaller getCaller(final String division)
+    {
+        final SimulatedVistaProcedureCaller caller = fCallers.get(division);
+        Preconditions.checkArgument(caller != null, "unknown division %s", division);
+        return caller;
+    }
+
+    /**
+     * Returns the cache of recently-retrieved patients.
+     */
+    public PatientCache getPatientCache()
+    {
+        return fPatientCache;
+    }
+
+    /**
+     * Returns the metrics of the remote procedure calls made by this factory's DAOs.
+     */
+    public RpcMetrics getRpcMetrics()
+    {
+        return fRpcMetrics;
+    }
+
+    /**
+     * Returns the bulkheads and circuit breakers of the divisions, for monitoring.
+     */
+    public DivisionGuards getDivisionGuards()
+    {
+        return fDivisionGuards;
+    }
+
+    /**
+     * Returns the coalescer of concurrent patient loads, for monitoring.
+     */
+    public PatientLoadCoalescer getPatientLoadCoalescer()
+    {
+        return fPatientLoadCoalescer;
+    }
+
+    /**
+     * Returns the counters of the resources shared by this factory's DAOs, for
+     * monitoring.
+     */
+    public VistaClientMetrics getClientMetrics()
+    {
+        return fClientMetrics;
+    }
+
+    /**
+     * Shuts down the threads used for loading patient data.
+     */
+    public void shutdown()
+    {
+        fDivisionExecutors.shutdown();
+    }
+
+    @Override
+    public boolean isDivisionKnown(final String division)
+    {
+        return fCallers.containsKey(division);
+    }
+
+    @Override
+    public VistaAuthenticator getAuthenticator(final String division)
+    {
+        return new SimulatedVistaAuthenticator(getCaller(division));
+    }
+
+    @Override
+    public VistaPatientDao getVistaPatientDao()
+    {
+        final VistaUserDetails principal = SecurityUtil.getCurrentPrincipal();
+
+        final RpcVistaPatientDao rpcDao = new RpcVistaPatientDao(
+                fDivisionGuards.guard(getCaller(principal.getDivision())),
+                principal.getDuz(),
+                fDivisionExecutors.forDivision(principal.getDivision()),
+                fRetrievalTimeoutMillis);
+        final CachingVistaPatientDao cachingDao = new CachingVistaPatientDao(
+                rpcDao, fPatientCache, principal.getDivision(), principal.getDuz());
+        return new CoalescingVistaPatientDao(
+                cachingDao, fPatientLoadCoalescer, principal.getDivision(), principal.getDuz());
+    }
+
+    @Override
+    public VistaSurgeryDao getVistaSurgeryDao(final String division, final String duz)
+    {
+        return new RpcVistaSurgeryDao(fDivisionGuards.guard(getCaller(division)), duz);
+    }
+}
@@ -2,14 +2,191 @@ package gov.va.med.srcalc.security;
 
 import gov.va.med.srcalc.vista.*;
 import gov.va.med.srcalc.vista.vistalink.VistaLinkAuthenticator;
-import gov.va.med.srcalc.vista.vistalink.VistaLinkProcedureCaller;
+import gov.va.med.srcalc.vista.vistalink.VistaLinkCallerRegistry;
 import gov.va.med.srcalc.vista.vistalink.VistaLinkUtil;
 
+import com.google.common.base.Optional;
+
 /**
  * A VistaDaoFactory that constructs VistALink-implemented DAOs.
  */
 public class VistaLinkVistaDaoFactory implements VistaDaoFactory
 {
+    /**
+     * The default maximum number of concurrent patient data calls per division.
+     */
+    public static final int DEFAULT_THREADS_PER_DIVISION = 8;
+    
+    /**
+     * The default deadline for loading a patient's data, in milliseconds.
+     */
+    public static final long DEFAULT_RETRIEVAL_TIMEOUT_MILLIS = 15000L;
+    
+    /**
+     * The default time that retrieved patient data may be reused, in milliseconds.
+     */
+    public static final long DEFAULT_PATIENT_CACHE_TTL_MILLIS = 5L * 60L * 1000L;
+    
+    /**
+     * The default maximum number of cached patients.
+     */
+    public static final long DEFAULT_PATIENT_CACHE_SIZE = 1000L;
+    
+    private final DivisionExecutors fDivisionExecutors;
+    
+    private final long fRetrievalTimeoutMillis;
+    
+    private final RpcMetrics fRpcMetrics = new RpcMetrics();
+    
+    private final VistaLinkCallerRegistry fCallerRegistry;
+    
+    private final DivisionGuards fDivisionGuards;
+    
+    private final PatientCache fPatientCache;
+    
+    private final PatientLoadCoalescer fPatientLoadCoalescer = new PatientLoadCoalescer();
+    
+    private final VistaClientMetrics fClientMetrics;
+    
+    /**
+     * Constructs an instance using {@link #DEFAULT_THREADS_PER_DIVISION} and {@link
+     * #DEFAULT_RETRIEVAL_TIMEOUT_MILLIS}.
+     */
+    public VistaLinkVistaDaoFactory()
+    {
+        this(DEFAULT_THREADS_PER_DIVISION, DEFAULT_RETRIEVAL_TIMEOUT_MILLIS);
+    }
+    
+    /**
+     * Constructs an instance using {@link #DEFAULT_PATIENT_CACHE_TTL_MILLIS} and
+     * {@link #DEFAULT_PATIENT_CACHE_SIZE}.
+     * @param threadsPerDivision the maximum number of concurrent calls to each
+     * division when loading patient data
+     * @param retrievalTimeoutMillis the deadline for loading a patient's data
+     */
+    public VistaLinkVistaDaoFactory(
+            final int threadsPerDivision, final long retrievalTimeoutMillis)
+    {
+        this(
+                threadsPerDivision,
+                retrievalTimeoutMillis,
+                DEFAULT_PATIENT_CACHE_TTL_MILLIS,
+                DEFAULT_PATIENT_CACHE_SIZE);
+    }
+    
+    /**
+     * Constructs an instance using {@link RpcTimeouts#DEFAULT} and the default {@link
+     * DivisionGuards}.
+     * @param threadsPerDivision the maximum number of concurrent calls to each
+     * division when loading patient data
+     * @param retrievalTimeoutMillis the deadline for loading a patient's data
+     * @param patientCacheTtlMillis how long retrieved patient data may be reused
+     * @param patientCacheSize the maximum number of cached patients
+     */
+    public VistaLinkVistaDaoFactory(
+            final int threadsPerDivision,
+            final long retrievalTimeoutMillis,
+            final long patientCacheTtlMillis,
+            final long patientCacheSize)
+    {
+        this(
+                threadsPerDivision,
+                retrievalTimeoutMillis,
+                new PatientCacheTtls(patientCacheTtlMillis),
+                patientCacheSize,
+                RpcTimeouts.DEFAULT,
+                new DivisionGuards());
+    }
+    
+    /**
+     * Constructs an instance.
+     * @param threadsPerDivision the maximum number of concurrent calls to each
+     * division when loading patient data
+     * @param retrievalTimeoutMillis the deadline for loading a patient's data. See
+     * {@link RpcVistaPatientDao#RpcVistaPatientDao(VistaProcedureCaller, String,
+     * java.util.concurrent.ExecutorService, long)}.
+     * @param patientCacheTtls how long each kind of retrieved patient data may be
+     * reused. See {@link PatientCache}.
+     * @param patientCacheSize the maximum number of cached patients
+     * @param rpcTimeouts bounds the time each remote procedure call waits for VistA
+     * @param divisionGuards isolates the divisions from each other. The patient and
+     * surgery DAOs make their calls through them.
+     */
+    public VistaLinkVistaDaoFactory(
+            final int threadsPerDivision,
+            final long retrievalTimeoutMillis,
+            final PatientCacheTtls patientCacheTtls,
+            final long patientCacheSize,
+            final RpcTimeouts rpcTimeouts,
+            final DivisionGuards divisionGuards)
+    {
+        fCallerRegistry = new VistaLinkCallerRegistry(fRpcMetrics, rpcTimeouts);
+        fClientMetrics = new VistaClientMetrics(
+                fPatientLoadCoalescer, Optional.of(fCallerRegistry));
+        fDivisionGuards = divisionGuards;
+        fDivisionExecutors = new DivisionExecutors(threadsPerDivision);
+        fRetrievalTimeoutMillis = retrievalTimeoutMillis;
+        fPatientCache = new PatientCache(patientCacheTtls, patientCacheSize);
+    }
+    
+    /**
+     * Returns the registry of shared VistaLinkProcedureCallers, for monitoring and
+     * invalidation.
+     */
+    public VistaLinkCallerRegistry getCallerRegistry()
+    {
+        return fCallerRegistry;
+    }
+    
+    /**
+     * Returns the cache of recently-retrieved patients.
+     */
+    public PatientCache getPatientCache()
+    {
+        return fPatientCache;
+    }
+    
+    /**
+     * Returns the metrics of the remote procedure calls made by this factory's DAOs.
+     */
+    public RpcMetrics getRpcMetrics()
+    {
+        return fRpcMetrics;
+    }
+    
+    /**
+     * Returns the bulkheads and circuit breakers of the divisions, for monitoring.
+     */
+    public DivisionGuards getDivisionGuards()
+    {
+        return fDivisionGuards;
+    }
+    
+    /**
+     * Returns the coalescer of concurrent patient loads, for monitoring.
+     */
+    public PatientLoadCoalescer getPatientLoadCoalescer()
+    {
+        return fPatientLoadCoalescer;
+    }
+    
+    /**
+     * Returns the counters of the resources shared by this factory's DAOs, for
+     * monitoring.
+     */
+    public VistaClientMetrics getClientMetrics()
+    {
+        return fClientMetrics;
+    }
+    
+    /**
+     * Shuts down the threads used for loading patient data.
+     */
+    public void shutdown()
+    {
+        fDivisionExecutors.shutdown();
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -24,7 +201,7 @@ public class VistaLinkVistaDaoFactory implements VistaDaoFactory
     @Override
     public VistaAuthenticator getAuthenticator(final String division)
     {
-        return new VistaLinkAuthenticator(division);
+        return new VistaLinkAuthenticator(fCallerRegistry.getCaller(division));
     }
     
     @Override
@@ -32,18 +209,21 @@ public class VistaLinkVistaDaoFactory implements VistaDaoFactory
     {
         final VistaUserDetails principal = SecurityUtil.getCurrentPrincipal();
 
-        return new RpcVistaPatientDao(
-                new VistaLinkProcedureCaller(principal.getDivision()),
-                principal.getDuz());
+        final RpcVistaPatientDao rpcDao = new RpcVistaPatientDao(
+                fDivisionGuards.guard(fCallerRegistry.getCaller(principal.getDivision())),
+                principal.getDuz(),
+                fDivisionExecutors.forDivision(principal.getDivision()),
+                fRetrievalTimeoutMillis);
+        final CachingVistaPatientDao cachingDao = new CachingVistaPatientDao(
+                rpcDao, fPatientCache, principal.getDivision(), principal.getDuz());
+        return new CoalescingVistaPatientDao(
+                cachingDao, fPatientLoadCoalescer, principal.getDivision(), principal.getDuz());
     }
     
     @Override
-    public VistaSurgeryDao getVistaSurgeryDao()
+    public VistaSurgeryDao getVistaSurgeryDao(final String division, final String duz)
     {
-        final VistaUserDetails principal = SecurityUtil.getCurrentPrincipal();
-        
         return new RpcVistaSurgeryDao(
-                new VistaLinkProcedureCaller(principal.getDivision()),
-                principal.getDuz());
+                fDivisionGuards.guard(fCallerRegistry.getCaller(division)), duz);
     }
 }
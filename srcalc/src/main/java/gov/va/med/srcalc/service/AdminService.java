@@ -4,7 +4,10 @@ import java.util.Set;
 
 import org.springframework.dao.DataAccessException;
 
+import gov.va.med.srcalc.db.CacheStatistics;
+import gov.va.med.srcalc.db.ProcedureChangeSummary;
 import gov.va.med.srcalc.domain.model.*;
+import gov.va.med.srcalc.util.csv.TabularUploadException;
 
 /**
  * Service Layer facade for administering risk model definitions (including specialties).
@@ -69,13 +72,36 @@ public interface AdminService extends ModelInspectionService
     
     /**
      * Completely replaces all Procedures in the persistent store with the given set.
+     * Only the differences from the existing set are written, atomically.
      * @param newProcedures the new procedure set
+     * @return the counts of each type of change
      */
-    public void replaceAllProcedures(final Set<Procedure> newProcedures);
+    public ProcedureChangeSummary replaceAllProcedures(final Set<Procedure> newProcedures);
+    
+    /**
+     * <p>Completely replaces all Procedures in the persistent store with those read from
+     * the given source. Procedures are written in bounded chunks as they are read, so
+     * memory use does not depend on the size of the source. Only the differences from
+     * the existing set are written.</p>
+     * 
+     * <p>The replacement is atomic: if the source throws an exception, no change is
+     * made.</p>
+     * @param source supplies the new procedure set. If a CPT code appears more than
+     * once, only the first Procedure is kept.
+     * @return the counts of each type of change
+     * @throws TabularUploadException if the source finds the procedures invalid
+     */
+    public ProcedureChangeSummary replaceAllProcedures(final ProcedureSource source)
+            throws TabularUploadException;
 
     /**
      * Saves the given {@link RiskModel} to the persistent store.
      * @param model the model to save
      */
     public void saveRiskModel( final RiskModel model );
+    
+    /**
+     * Returns the current statistics of the cache holding the model definitions.
+     */
+    public CacheStatistics getCacheStatistics();
 }
@@ -0,0 +1,84 @@
+package gov.va.med.srcalc.service;
+
+import java.util.Objects;
+
+/**
+ * <p>A single patient to score in a batch calculation: the patient's DFN, the name of
+ * the specialty to calculate and the CPT code of the planned procedure.</p>
+ *
+ * <p>Immutable.</p>
+ */
+public final class BatchCalculationItem
+{
+    private final int fPatientDfn;
+    private final String fSpecialtyName;
+    private final String fCptCode;
+
+    /**
+     * Constructs an instance.
+     * @param patientDfn the patient's DFN
+     * @param specialtyName the name of the specialty to calculate
+     * @param cptCode the CPT code of the planned procedure. May be empty if the
+     * specialty does not use a procedure.
+     * @throws NullPointerException if any argument is null
+     */
+    public BatchCalculationItem(
+            final int patientDfn, final String specialtyName, final String cptCode)
+    {
+        fPatientDfn = patientDfn;
+        fSpecialtyName = Objects.requireNonNull(specialtyName);
+        fCptCode = Objects.requireNonNull(cptCode);
+    }
+
+    /**
+     * Returns the patient's DFN.
+     */
+    public int getPatientDfn()
+    {
+        return fPatientDfn;
+    }
+
+    /**
+     * Returns the name of the specialty to calculate.
+     */
+    public String getSpecialtyName()
+    {
+        return fSpecialtyName;
+    }
+
+    /**
+     * Returns the CPT code of the planned procedure. May be empty.
+     */
+    public String getCptCode()
+    {
+        return fCptCode;
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (o instanceof BatchCalculationItem)
+        {
+            final BatchCalculationItem other = (BatchCalculationItem)o;
+            return this.fPatientDfn == other.fPatientDfn &&
+                    this.fSpecialtyName.equals(other.fSpecialtyName) &&
+                    this.fCptCode.equals(other.fCptCode);
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(fPatientDfn, fSpecialtyName, fCptCode);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("DFN %d, %s, CPT %s", fPatientDfn, fSpecialtyName, fCptCode);
+    }
+}
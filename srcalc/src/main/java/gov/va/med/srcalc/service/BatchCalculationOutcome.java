@@ -0,0 +1,97 @@
+package gov.va.med.srcalc.service;
+
+import gov.va.med.srcalc.domain.calculation.CalculationResult;
+
+import java.util.Objects;
+
+import com.google.common.base.Optional;
+
+/**
+ * <p>The outcome of calculating a single {@link BatchCalculationItem}: either a
+ * {@link CalculationResult} or an error message describing why the item could not be
+ * calculated.</p>
+ *
+ * <p>Immutable.</p>
+ */
+public final class BatchCalculationOutcome
+{
+    private final BatchCalculationItem fItem;
+    private final Optional<CalculationResult> fResult;
+    private final String fErrorMessage;
+
+    private BatchCalculationOutcome(
+            final BatchCalculationItem item,
+            final Optional<CalculationResult> result,
+            final String errorMessage)
+    {
+        fItem = Objects.requireNonNull(item);
+        fResult = result;
+        fErrorMessage = errorMessage;
+    }
+
+    /**
+     * Returns a successful outcome.
+     * @throws NullPointerException if any argument is null
+     */
+    public static BatchCalculationOutcome success(
+            final BatchCalculationItem item, final CalculationResult result)
+    {
+        return new BatchCalculationOutcome(item, Optional.of(result), "");
+    }
+
+    /**
+     * Returns a failed outcome.
+     * @param item the item that could not be calculated
+     * @param errorMessage a description of the problem. Must not contain PHI.
+     * @throws NullPointerException if any argument is null
+     */
+    public static BatchCalculationOutcome failure(
+            final BatchCalculationItem item, final String errorMessage)
+    {
+        return new BatchCalculationOutcome(
+                item,
+                Optional.<CalculationResult>absent(),
+                Objects.requireNonNull(errorMessage));
+    }
+
+    /**
+     * Returns the item that was calculated.
+     */
+    public BatchCalculationItem getItem()
+    {
+        return fItem;
+    }
+
+    /**
+     * Returns the result of the calculation, if successful.
+     */
+    public Optional<CalculationResult> getResult()
+    {
+        return fResult;
+    }
+
+    /**
+     * Returns true if the calculation was successful, false otherwise.
+     */
+    public boolean isSuccessful()
+    {
+        return fResult.isPresent();
+    }
+
+    /**
+     * Returns a description of why the calculation failed, or an empty string if it was
+     * successful.
+     */
+    public String getErrorMessage()
+    {
+        return fErrorMessage;
+    }
+
+    @Override
+    public String toString()
+    {
+        return isSuccessful() ?
+                String.format("%s: %s", fItem, fResult.get().getOutcomes()) :
+                String.format("%s: failed (%s)", fItem, fErrorMessage);
+    }
+}
@@ -0,0 +1,53 @@
+package gov.va.med.srcalc.service;
+
+import java.util.List;
+
+/**
+ * <p>Service Layer facade for scoring many patients at once, such as an entire
+ * operating room schedule.</p>
+ *
+ * <p>Unlike {@link CalculationService}, which supports the interactive flow, batch
+ * calculations are not tied to the HTTP session and do not record {@link
+ * gov.va.med.srcalc.domain.calculation.HistoricalCalculation}s, since there is no user
+ * interaction to measure.</p>
+ * @see gov.va.med.srcalc.service
+ */
+public interface BatchCalculationService
+{
+    /**
+     * The maximum number of items accepted in one batch.
+     */
+    public static final int MAX_BATCH_SIZE = 500;
+
+    /**
+     * Receives each {@link BatchCalculationOutcome} as soon as it is available.
+     */
+    public interface OutcomeHandler
+    {
+        /**
+         * Handles a single outcome. Called on the thread that called {@link
+         * BatchCalculationService#calculateAll(List, OutcomeHandler)}.
+         * @throws RuntimeException to abort the rest of the batch
+         */
+        public void handle(BatchCalculationOutcome outcome);
+    }
+
+    /**
+     * <p>Loads the patient data for each item from VistA (as the current user),
+     * automatically fills in values and runs every risk model of the item's
+     * specialty.</p>
+     *
+     * <p>Items are processed concurrently and their outcomes are passed to the given
+     * handler in order of completion, not in the order given. A failure of one item
+     * (unknown specialty, VistA error, missing values, etc.) results in a failed
+     * outcome for that item and does not abort the batch.</p>
+     *
+     * <p>This method blocks until every outcome has been handled.</p>
+     *
+     * @param items the items to calculate
+     * @param handler receives each outcome
+     * @throws IllegalArgumentException if there are more than {@link #MAX_BATCH_SIZE}
+     * items
+     */
+    public void calculateAll(List<BatchCalculationItem> items, OutcomeHandler handler);
+}
@@ -23,7 +23,9 @@ public interface CalculationService
     public List<Specialty> getValidSpecialties();
     
     /**
-     * Initiates a new calculation for a particular patient.
+     * Initiates a new calculation for a particular patient. The patient data used by any
+     * specialty is loaded up-front, but not the rest: {@link #setSpecialty(Calculation,
+     * String)} loads anything the chosen specialty uses which is still missing.
      * @param patientId the patient identifier (DFN)
      * @return the newly-started calculation object
      */
@@ -31,10 +33,13 @@ public interface CalculationService
 
     /**
      * Sets the specialty for the Calculation, moving the Calculation into the
-     * next step of the workflow.
+     * next step of the workflow. If the Calculation has a patient, also loads the
+     * patient data which the specialty's variables use.
      * @param calculation
      * @param specialtyName
      * @throws InvalidIdentifierException if the specialty name is invalid
+     * @throws org.springframework.dao.DataAccessException if the patient data could not
+     * be loaded from VistA
      */
     public void setSpecialty(Calculation calculation, String specialtyName)
         throws InvalidIdentifierException;
@@ -50,7 +55,9 @@ public interface CalculationService
             throws MissingValuesException;
 
     /**
-     * Saves the given calculation result to VistA and the database.
+     * Saves the given calculation result as a progress note in VistA and in the
+     * database. If the note was saved, also queues the result to be saved in VistA
+     * Surgery in the background.
      * @param result the result to save
      * @param electronicSignature the electronic signature code of the signing
      * user
@@ -7,6 +7,7 @@ import java.util.concurrent.TimeUnit;
 
 import gov.va.med.srcalc.db.*;
 import gov.va.med.srcalc.domain.model.*;
+import gov.va.med.srcalc.util.csv.RowHandler;
 
 import javax.inject.Inject;
 
@@ -25,11 +26,18 @@ public class DefaultAdminService implements AdminService
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultAdminService.class);
     
+    /**
+     * The number of streamed Procedures to hold in memory before saving them.
+     */
+    private static final int CHUNK_SIZE = 500;
+    
     private final VariableDao fVariableDao;
     private final RiskModelDao fRiskModelDao;
     private final SpecialtyDao fSpecialtyDao;
     private final RuleDao fRuleDao;
     private final ProcedureDao fProcedureDao;
+    private final ModelRegistry fModelRegistry;
+    private final CacheDao fCacheDao;
     
     /**
      * Constructs an instance that will use the given DAOs to query and update the database.
@@ -38,6 +46,8 @@ public class DefaultAdminService implements AdminService
      * @param specialtyDao
      * @param ruleDao
      * @param procedureDao
+     * @param modelRegistry notified of each change to the model
+     * @param cacheDao provides the model cache statistics
      */
     @Inject
     public DefaultAdminService(
@@ -45,13 +55,17 @@ public class DefaultAdminService implements AdminService
             final RiskModelDao riskModelDao,
             SpecialtyDao specialtyDao,
             final RuleDao ruleDao,
-            final ProcedureDao procedureDao)
+            final ProcedureDao procedureDao,
+            final ModelRegistry modelRegistry,
+            final CacheDao cacheDao)
     {
         fVariableDao = variableDao;
         fRiskModelDao = riskModelDao;
         fSpecialtyDao = specialtyDao;
         fRuleDao = ruleDao;
         fProcedureDao = procedureDao;
+        fModelRegistry = modelRegistry;
+        fCacheDao = cacheDao;
     }
     
     @Override
@@ -120,6 +134,7 @@ public class DefaultAdminService implements AdminService
         }
 
         fVariableDao.mergeVariable(variable);
+        fModelRegistry.modelChanged();
         // This is a significant (and infrequent) transaction: log it at INFO
         // level.
         LOGGER.info("Saved variable {}.", variable.getKey());
@@ -206,6 +221,7 @@ public class DefaultAdminService implements AdminService
         }
 
         fRuleDao.mergeRule(rule);
+        fModelRegistry.modelChanged();
         // This is a significant (and infrequent) transaction: log it at INFO
         // level.
         LOGGER.info("Saved rule {}.", rule.getDisplayName());
@@ -213,46 +229,66 @@ public class DefaultAdminService implements AdminService
     
     @Override
     @Transactional
-    public void replaceAllProcedures(final Set<Procedure> newProcedures)
+    public ProcedureChangeSummary replaceAllProcedures(final Set<Procedure> newProcedures)
     {
         final Stopwatch stopwatch = Stopwatch.createStarted();
-        final int deleteCount = fProcedureDao.replaceAllProcedures(newProcedures);
+        final ProcedureChangeSummary summary =
+                fProcedureDao.replaceAllProcedures(newProcedures);
+        fModelRegistry.modelChanged();
         stopwatch.stop();
         
+        logReplacement(summary, stopwatch);
+        return summary;
+    }
+    
+    @Override
+    @Transactional
+    public ProcedureChangeSummary replaceAllProcedures(final ProcedureSource source)
+    {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final ChunkingProcedureHandler handler =
+                new ChunkingProcedureHandler(fProcedureDao.beginReplacement());
+        // If the source throws, it propagates out and rolls back the transaction,
+        // including any chunks already written.
+        source.readProcedures(handler);
+        final ProcedureChangeSummary summary = handler.finish();
+        fModelRegistry.modelChanged();
+        stopwatch.stop();
+        
+        logReplacement(summary, stopwatch);
+        return summary;
+    }
+    
+    private static void logReplacement(
+            final ProcedureChangeSummary summary, final Stopwatch stopwatch)
+    {
+        // This is a significant (and infrequent) transaction: log it at INFO level.
         LOGGER.info(
-                "Replaced all {} Procedures in the DB with a new set of {} in {}ms.",
-                deleteCount,
-                newProcedures.size(),
-                stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                "Replaced the Procedure set with {} Procedures in {}ms: {}.",
+                summary.getTotalCount(),
+                stopwatch.elapsed(TimeUnit.MILLISECONDS),
+                summary);
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Procedure> getAllProcedures()
     {
-        return fProcedureDao.getAllProcedures();
+        return fProcedureDao.getCatalog().getProcedures();
     }
     
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Procedure> getEligibleProcedures()
     {
-        // Just load all the Procedures from the DB and keep the ones we want. This is a
-        // candidate for optimization if we find it has a performance impact.
-        final ImmutableList<Procedure> allProcedures = getAllProcedures();
-        
-        final ArrayList<Procedure> eligibleProcedures = new ArrayList<>(
-                // Avoid any reallocation and copying during this operation.
-                allProcedures.size());
-
-        for (final Procedure p : allProcedures)
-        {
-            if (p.isEligible())
-            {
-                eligibleProcedures.add(p);
-            }
-        }
-        return ImmutableList.copyOf(eligibleProcedures);
+        return fProcedureDao.getCatalog().getEligibleProcedures();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public ProcedureCatalog getProcedureCatalog()
+    {
+        return fProcedureDao.getCatalog();
     }
 
     @Override
@@ -274,7 +310,55 @@ public class DefaultAdminService implements AdminService
         }
         
         final RiskModel persistentModel = fRiskModelDao.saveRiskModel( model );
+        fModelRegistry.modelChanged();
         LOGGER.info("Saved Risk Model {}.", model.getDisplayName() );
         LOGGER.debug("Persistent state is now: {}", persistentModel);
     }
+    
+    @Override
+    public CacheStatistics getCacheStatistics()
+    {
+        return fCacheDao.getStatistics();
+    }
+    
+    /**
+     * Applies Procedures to a {@link ProcedureReplacement} in chunks of {@link
+     * #CHUNK_SIZE} as they are received.
+     */
+    private static final class ChunkingProcedureHandler implements RowHandler<Procedure>
+    {
+        private final ProcedureReplacement fReplacement;
+        
+        private final ArrayList<Procedure> fChunk = new ArrayList<>(CHUNK_SIZE);
+        
+        public ChunkingProcedureHandler(final ProcedureReplacement replacement)
+        {
+            fReplacement = replacement;
+        }
+        
+        @Override
+        public void handleRow(final Procedure procedure)
+        {
+            fChunk.add(procedure);
+            if (fChunk.size() >= CHUNK_SIZE)
+            {
+                applyChunk();
+            }
+        }
+        
+        private void applyChunk()
+        {
+            fReplacement.apply(fChunk);
+            fChunk.clear();
+        }
+        
+        /**
+         * Applies any pending Procedures and finishes the replacement.
+         */
+        public ProcedureChangeSummary finish()
+        {
+            applyChunk();
+            return fReplacement.finish();
+        }
+    }
 }
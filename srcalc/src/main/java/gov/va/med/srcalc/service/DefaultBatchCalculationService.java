@@ -0,0 +1,274 @@
+package gov.va.med.srcalc.service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.VistaPerson;
+import gov.va.med.srcalc.domain.calculation.Calculation;
+import gov.va.med.srcalc.domain.calculation.CalculationResult;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+import gov.va.med.srcalc.domain.model.*;
+import gov.va.med.srcalc.security.SecurityUtil;
+import gov.va.med.srcalc.vista.VistaDaoFactory;
+import gov.va.med.srcalc.vista.VistaPatientDao;
+import gov.va.med.srcalc.web.view.InputParserVisitor;
+import gov.va.med.srcalc.web.view.VariableEntry;
+
+/**
+ * <p>The canonical implementation of {@link BatchCalculationService}.</p>
+ *
+ * <p>Items are calculated on a fixed-size pool of worker threads shared by all
+ * batches, which bounds the number of concurrent VistA connections this service can
+ * use no matter how many batches are running. Call {@link #shutdown()} to release the
+ * threads.</p>
+ */
+public class DefaultBatchCalculationService implements BatchCalculationService
+{
+    /**
+     * The number of worker threads used when no executor is given.
+     */
+    public static final int DEFAULT_THREAD_COUNT = 8;
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(DefaultBatchCalculationService.class);
+
+    private final CalculationService fCalculationService;
+    private final VistaDaoFactory fVistaDaoFactory;
+    private final ExecutorService fExecutor;
+
+    /**
+     * Constructs an instance using a new pool of {@link #DEFAULT_THREAD_COUNT} worker
+     * threads.
+     * @param calculationService used to load specialties
+     * @param vistaDaoFactory used to obtain a VistaPatientDao for the current user
+     */
+    @Inject
+    public DefaultBatchCalculationService(
+            final CalculationService calculationService,
+            final VistaDaoFactory vistaDaoFactory)
+    {
+        this(
+                calculationService,
+                vistaDaoFactory,
+                Executors.newFixedThreadPool(
+                        DEFAULT_THREAD_COUNT,
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("srcalc-batch-%d")
+                                .setDaemon(true)
+                                .build()));
+    }
+
+    /**
+     * Constructs an instance using the given executor to calculate items.
+     * @param calculationService used to load specialties
+     * @param vistaDaoFactory used to obtain a VistaPatientDao for the current user
+     * @param executor runs the calculation of each item. {@link #shutdown()} will shut
+     * it down.
+     */
+    public DefaultBatchCalculationService(
+            final CalculationService calculationService,
+            final VistaDaoFactory vistaDaoFactory,
+            final ExecutorService executor)
+    {
+        fCalculationService = calculationService;
+        fVistaDaoFactory = vistaDaoFactory;
+        fExecutor = executor;
+    }
+
+    /**
+     * Shuts down the worker threads, interrupting any running calculations.
+     */
+    public void shutdown()
+    {
+        fExecutor.shutdownNow();
+    }
+
+    @Override
+    public void calculateAll(
+            final List<BatchCalculationItem> items, final OutcomeHandler handler)
+    {
+        if (items.size() > MAX_BATCH_SIZE)
+        {
+            throw new IllegalArgumentException(String.format(
+                    "At most %d items may be calculated at once.", MAX_BATCH_SIZE));
+        }
+
+        LOGGER.info("Starting a batch calculation of {} items.", items.size());
+
+        // The worker threads have neither the request scope nor the security context,
+        // so obtain everything which depends on the current user here.
+        final VistaPatientDao patientDao = fVistaDaoFactory.getVistaPatientDao();
+        final VistaPerson user = SecurityUtil.getCurrentPrincipal().getVistaPerson();
+        final Map<String, Optional<Specialty>> specialties = loadSpecialties(items);
+
+        final CompletionService<BatchCalculationOutcome> completionService =
+                new ExecutorCompletionService<>(fExecutor);
+        final List<Future<BatchCalculationOutcome>> futures = new ArrayList<>(items.size());
+        try
+        {
+            for (final BatchCalculationItem item : items)
+            {
+                futures.add(completionService.submit(new ItemCalculation(
+                        item, specialties.get(item.getSpecialtyName()), patientDao, user)));
+            }
+            for (int i = 0; i < futures.size(); ++i)
+            {
+                handler.handle(Futures.getUnchecked(completionService.take()));
+            }
+        }
+        catch (final InterruptedException ex)
+        {
+            LOGGER.warn("Interrupted while waiting for a batch calculation.");
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            // If the handler threw an exception (e.g., the client disconnected) or we
+            // were interrupted, there is no point in finishing the rest of the batch.
+            // This has no effect on completed items.
+            for (final Future<BatchCalculationOutcome> future : futures)
+            {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Loads each distinct specialty named by the given items once.
+     * @return a map from specialty name to the loaded Specialty, or absent if there
+     * is no such specialty
+     */
+    private Map<String, Optional<Specialty>> loadSpecialties(
+            final List<BatchCalculationItem> items)
+    {
+        final HashMap<String, Optional<Specialty>> specialties = new HashMap<>();
+        for (final BatchCalculationItem item : items)
+        {
+            final String name = item.getSpecialtyName();
+            if (specialties.containsKey(name))
+            {
+                continue;
+            }
+            try
+            {
+                // Use the CalculationService's transactional method instead of
+                // SpecialtyDao directly to avoid holding a transaction open for the
+                // duration of the batch.
+                final Calculation template = new Calculation();
+                fCalculationService.setSpecialty(template, name);
+                specialties.put(name, Optional.of(template.getSpecialty()));
+            }
+            catch (final InvalidIdentifierException ex)
+            {
+                specialties.put(name, Optional.<Specialty>absent());
+            }
+        }
+        return specialties;
+    }
+
+    /**
+     * Calculates a single item, converting any problem into a failed outcome.
+     */
+    private static final class ItemCalculation implements Callable<BatchCalculationOutcome>
+    {
+        private final BatchCalculationItem fItem;
+        private final Optional<Specialty> fSpecialty;
+        private final VistaPatientDao fPatientDao;
+        private final VistaPerson fUser;
+
+        public ItemCalculation(
+                final BatchCalculationItem item,
+                final Optional<Specialty> specialty,
+                final VistaPatientDao patientDao,
+                final VistaPerson user)
+        {
+            fItem = item;
+            fSpecialty = specialty;
+            fPatientDao = patientDao;
+            fUser = user;
+        }
+
+        @Override
+        public BatchCalculationOutcome call()
+        {
+            if (!fSpecialty.isPresent())
+            {
+                return BatchCalculationOutcome.failure(fItem, "Unknown specialty.");
+            }
+            try
+            {
+                return BatchCalculationOutcome.success(fItem, calculate());
+            }
+            catch (final MissingValuesException ex)
+            {
+                final ArrayList<String> names = new ArrayList<>();
+                for (final Variable variable : ex.getMissingVariables())
+                {
+                    names.add(variable.getDisplayName());
+                }
+                Collections.sort(names);
+                return BatchCalculationOutcome.failure(
+                        fItem, "Missing values: " + Joiner.on(", ").join(names));
+            }
+            catch (final DataAccessException ex)
+            {
+                LOGGER.warn("Could not load patient data from VistA.", ex);
+                return BatchCalculationOutcome.failure(
+                        fItem, "Could not load patient data from VistA.");
+            }
+            catch (final RuntimeException ex)
+            {
+                LOGGER.error("Unexpected error calculating a batch item.", ex);
+                return BatchCalculationOutcome.failure(fItem, "Unexpected error.");
+            }
+        }
+
+        /**
+         * Loads the patient, fills in the automatically-retrieved values and the
+         * procedure and runs the calculation.
+         */
+        private CalculationResult calculate() throws MissingValuesException
+        {
+            // Only retrieve the data the specialty can use.
+            final Patient patient = fPatientDao.getPatient(
+                    fItem.getPatientDfn(),
+                    RetrievalPlan.forVariables(fSpecialty.get().getModelVariables()));
+            final Calculation calculation = Calculation.forPatient(patient);
+            calculation.setSpecialty(fSpecialty.get());
+
+            final VariableEntry entry = VariableEntry.withRetrievedValues(
+                    calculation.getVariables(), patient);
+            for (final Variable variable : calculation.getVariables())
+            {
+                if (variable instanceof ProcedureVariable)
+                {
+                    entry.putDynamicValue(variable.getKey(), fItem.getCptCode());
+                }
+            }
+
+            // Any invalid input (e.g. an unknown CPT code) results in a missing value
+            // below, so we do not need to inspect the errors.
+            final InputParserVisitor parser = new InputParserVisitor(
+                    entry, new BeanPropertyBindingResult(entry, "variableEntry"));
+            for (final Variable variable : calculation.getVariables())
+            {
+                parser.visit(variable);
+            }
+
+            return calculation.calculate(parser.getValues(), fUser);
+        }
+    }
+}
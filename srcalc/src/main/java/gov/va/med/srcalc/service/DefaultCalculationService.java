@@ -9,13 +9,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.base.Optional;
+
+import gov.va.med.srcalc.db.ModelRegistry;
 import gov.va.med.srcalc.db.ResultsDao;
-import gov.va.med.srcalc.db.SpecialtyDao;
+import gov.va.med.srcalc.db.RiskSaveOutboxDao;
 import gov.va.med.srcalc.domain.Patient;
 import gov.va.med.srcalc.domain.VistaPerson;
 import gov.va.med.srcalc.domain.calculation.*;
 import gov.va.med.srcalc.domain.model.MissingValuesException;
 import gov.va.med.srcalc.domain.model.Specialty;
+import gov.va.med.srcalc.domain.model.SpecialtySnapshot;
 import gov.va.med.srcalc.vista.*;
 import gov.va.med.srcalc.vista.VistaPatientDao.SaveNoteCode;
 import gov.va.med.srcalc.security.SecurityUtil;
@@ -27,49 +31,66 @@ public class DefaultCalculationService implements CalculationService
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCalculationService.class);
     
-    private final SpecialtyDao fSpecialtyDao;
-    private final VistaPatientDao fPatientDao;
-    private final VistaSurgeryDao fSurgeryDao;
+    private final ModelRegistry fModelRegistry;
+    private final VistaDaoFactory fVistaDaoFactory;
     private final ResultsDao fResultsDao;
+    private final RiskSaveOutboxDao fOutboxDao;
     
     /**
      * Constructs an instance.
-     * @param specialtyDao DAO to access specialties
-     * @param patientDao DAO to access patient information
-     * @param surgeryDao DAO to save VistA Surgery information
+     * @param modelRegistry provides the shared snapshot of specialties
+     * @param vistaDaoFactory used to obtain a VistaPatientDao for the current user
      * @param resultsDao DAO to save calculation results
+     * @param outboxDao DAO to queue signed results for saving in VistA Surgery
      */
     @Inject
     public DefaultCalculationService(
-            final SpecialtyDao specialtyDao,
-            final VistaPatientDao patientDao,
-            final VistaSurgeryDao surgeryDao,
-            final ResultsDao resultsDao)
+            final ModelRegistry modelRegistry,
+            final VistaDaoFactory vistaDaoFactory,
+            final ResultsDao resultsDao,
+            final RiskSaveOutboxDao outboxDao)
     {
-        fSpecialtyDao = specialtyDao;
-        fPatientDao = patientDao;
-        fSurgeryDao = surgeryDao;
+        fModelRegistry = modelRegistry;
+        fVistaDaoFactory = vistaDaoFactory;
         fResultsDao = resultsDao;
+        fOutboxDao = outboxDao;
     }
     
     @Override
     @Transactional
     public List<Specialty> getValidSpecialties()
     {
-        return fSpecialtyDao.getAllSpecialties();
+        return fModelRegistry.getSnapshot().getSpecialties();
     }
 
     @Override
     @Transactional
     public Calculation startNewCalculation(final int patientId)
     {
-        final Patient patient = fPatientDao.getPatient(patientId);
+        // Start loading the data of every specialty now, so that it does not wait for
+        // the specialty selection. setSpecialty() retrieves anything still missing.
+        final Patient patient = fVistaDaoFactory.getVistaPatientDao()
+                .getPatient(patientId, planForAllSpecialties());
 
         LOGGER.debug("Starting calculation for patient {}.", patient);
 
         return Calculation.forPatient(patient);
     }
     
+    /**
+     * Returns the plan to retrieve the patient data used by any specialty in the current
+     * model. This is usually still much less than {@link RetrievalPlan#ALL}.
+     */
+    private RetrievalPlan planForAllSpecialties()
+    {
+        RetrievalPlan plan = RetrievalPlan.REFERENCE_INFO;
+        for (final Specialty specialty : fModelRegistry.getSnapshot().getSpecialties())
+        {
+            plan = plan.union(RetrievalPlan.forVariables(specialty.getModelVariables()));
+        }
+        return plan;
+    }
+    
     @Override
     @Transactional
     public void setSpecialty(final Calculation calculation, final String specialtyName)
@@ -77,13 +98,22 @@ public class DefaultCalculationService implements CalculationService
     {
         LOGGER.debug("Setting specialty to {}.", specialtyName);
         
-        final Specialty specialty = fSpecialtyDao.getByName(specialtyName);
-        if (specialty == null)
+        // Use the shared snapshot: no need to load the model from the database.
+        final Optional<SpecialtySnapshot> specialty =
+                fModelRegistry.getSpecialty(specialtyName);
+        if (!specialty.isPresent())
         {
             throw new InvalidIdentifierException(
                     specialtyName + " is not a valid specialty name.");
         }
-        calculation.setSpecialty(specialty);
+        calculation.setSpecialty(specialty.get());
+        
+        final Patient patient = calculation.getPatient();
+        if (patient != null)
+        {
+            fVistaDaoFactory.getVistaPatientDao().retrievePatientData(
+                    patient, RetrievalPlan.forVariables(specialty.get().getVariables()));
+        }
     }
     
     @Override
@@ -121,16 +151,18 @@ public class DefaultCalculationService implements CalculationService
         // Note: we must save the note first because this is how we check the given
         // signature code.
         final VistaPatientDao.SaveNoteCode returnCode = 
-            fPatientDao.saveRiskCalculationNote(
+            fVistaDaoFactory.getVistaPatientDao().saveRiskCalculationNote(
                 result.getPatientDfn(), electronicSignature, result.buildNoteBody());
 
         if (returnCode == SaveNoteCode.SUCCESS)
         {
             final SignedResult signedResult = result.signed();
-            // Save to the DB first because the DB can rollback if VistA fails. (VistA
-            // can't rollback if DB fails.)
             fResultsDao.persistSignedResult(signedResult);
-            fSurgeryDao.saveCalculationResult(signedResult);
+            // Save the result in VistA Surgery in the background (see
+            // RiskSaveDeliveryJob) so the user need not wait for it. Queueing it in the
+            // same transaction guarantees that it is saved eventually.
+            final String duz = SecurityUtil.getCurrentPrincipal().getDuz();
+            fOutboxDao.enqueue(new RiskSaveDelivery(signedResult, duz));
             
             // Log something at INFO level for signing a calculation, but don't log
             // too much to avoid PHI in the log file.
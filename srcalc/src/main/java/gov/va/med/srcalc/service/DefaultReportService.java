@@ -1,17 +1,30 @@
 package gov.va.med.srcalc.service;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+
 import javax.inject.Inject;
 
+import org.joda.time.LocalDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
 import gov.va.med.srcalc.db.HistoricalSearchParameters;
 import gov.va.med.srcalc.db.ResultSearchParameters;
 import gov.va.med.srcalc.db.ResultsDao;
+import gov.va.med.srcalc.db.RollupDao;
+import gov.va.med.srcalc.db.UtilizationAggregate;
+import gov.va.med.srcalc.db.UtilizationGrouping;
+import gov.va.med.srcalc.domain.calculation.DailyOutcome;
+import gov.va.med.srcalc.domain.calculation.DailyUtilization;
 import gov.va.med.srcalc.domain.calculation.HistoricalRunInfo;
 import gov.va.med.srcalc.domain.calculation.SignedResult;
 import gov.va.med.srcalc.util.SearchResults;
+import gov.va.med.srcalc.util.csv.RowHandler;
 
 /**
  * Canonical implementation of {@link ReportService}.
@@ -20,15 +33,23 @@ public class DefaultReportService implements ReportService
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultReportService.class);
     
+    /**
+     * The transaction timeout for streaming results, which takes as long as the client
+     * takes to receive them. Overrides the (much shorter) default.
+     */
+    private static final int STREAM_TIMEOUT_SECONDS = 1800;
+    
     private final ResultsDao fResultsDao;
+    private final RollupDao fRollupDao;
     
     /**
      * Constructs an instance with the given dependencies.
      */
     @Inject
-    public DefaultReportService(final ResultsDao resultsDao)
+    public DefaultReportService(final ResultsDao resultsDao, final RollupDao rollupDao)
     {
         fResultsDao = resultsDao;
+        fRollupDao = rollupDao;
     }
     
     @Override
@@ -43,6 +64,18 @@ public class DefaultReportService implements ReportService
         return results;
     }
     
+    @Override
+    @Transactional(readOnly = true, timeout = STREAM_TIMEOUT_SECONDS)
+    public int streamSignedResults(
+            final ResultSearchParameters parameters, final RowHandler<SignedResult> handler)
+    {
+        final int count = fResultsDao.streamSignedResults(parameters, handler);
+        
+        LOGGER.debug("SignedResult stream returned {} results.", count);
+        
+        return count;
+    }
+    
     @Override
     @Transactional
     public SearchResults<HistoricalRunInfo> getHistoricalRunInfos(
@@ -57,4 +90,109 @@ public class DefaultReportService implements ReportService
         return results;
     }
     
+    @Override
+    @Transactional
+    public List<UtilizationAggregate> getUtilizationAggregates(
+            final HistoricalSearchParameters parameters,
+            final List<UtilizationGrouping> groupings)
+    {
+        final Optional<LocalDate> coveredFrom = fRollupDao.getCoveredFrom();
+        final Optional<LocalDate> minDate = Optional.fromNullable(parameters.getMinDate());
+        final Optional<LocalDate> maxDate = Optional.fromNullable(parameters.getMaxDate());
+        if (!coveredFrom.isPresent() ||
+                (maxDate.isPresent() && maxDate.get().isBefore(coveredFrom.get())))
+        {
+            LOGGER.debug("Rollups do not cover {}: aggregating raw data.", parameters);
+            return fResultsDao.getUtilizationAggregates(parameters, groupings);
+        }
+        
+        // The parameters are whole days, so split them at the start of the coverage.
+        final LinkedHashMap<List<String>, UtilizationAggregate> merged =
+                new LinkedHashMap<>();
+        LocalDate rollupFrom = coveredFrom.get();
+        if (minDate.isPresent() && !minDate.get().isBefore(rollupFrom))
+        {
+            rollupFrom = minDate.get();
+        }
+        else
+        {
+            final HistoricalSearchParameters rawParameters =
+                    new HistoricalSearchParameters();
+            rawParameters.setMinDate(minDate.orNull());
+            rawParameters.setMaxDate(rollupFrom.minusDays(1));
+            addAll(merged, fResultsDao.getUtilizationAggregates(rawParameters, groupings));
+        }
+        addAll(merged, fRollupDao.getUtilizationAggregates(rollupFrom, maxDate, groupings));
+        
+        LOGGER.debug(
+                "Utilization aggregation from rollups (from {}) returned {} groups.",
+                rollupFrom,
+                merged.size());
+        
+        return ImmutableList.copyOf(merged.values());
+    }
+    
+    /**
+     * Adds the given aggregates into the given map, keyed by group values.
+     */
+    private static void addAll(
+            final LinkedHashMap<List<String>, UtilizationAggregate> merged,
+            final List<UtilizationAggregate> aggregates)
+    {
+        for (final UtilizationAggregate aggregate : aggregates)
+        {
+            final UtilizationAggregate existing = merged.get(aggregate.getGroupValues());
+            merged.put(
+                    aggregate.getGroupValues(),
+                    existing == null ? aggregate : existing.plus(aggregate));
+        }
+    }
+    
+    @Override
+    @Transactional
+    public Optional<LocalDate> getRollupsCoveredFrom()
+    {
+        return fRollupDao.getCoveredFrom();
+    }
+    
+    @Override
+    @Transactional
+    public Optional<LocalDate> getFirstCalculationDate()
+    {
+        return fResultsDao.getFirstCalculationDate();
+    }
+    
+    @Override
+    @Transactional
+    public void rebuildRollups(final LocalDate day)
+    {
+        // Keep the increments of other transactions out until this one commits, so that
+        // none lands between reading the raw data and inserting the rollups computed
+        // from it.
+        final Optional<LocalDate> coveredFrom = fRollupDao.lockForRebuild();
+        final int deleted = fRollupDao.deleteDay(day);
+        final List<DailyUtilization> utilizations = fResultsDao.computeUtilizationRollups(day);
+        for (final DailyUtilization utilization : utilizations)
+        {
+            fRollupDao.saveUtilization(utilization);
+        }
+        final List<DailyOutcome> outcomes = fResultsDao.computeOutcomeRollups(day);
+        for (final DailyOutcome outcome : outcomes)
+        {
+            fRollupDao.saveOutcome(outcome);
+        }
+        
+        if (!coveredFrom.isPresent() || coveredFrom.get().minusDays(1).equals(day))
+        {
+            fRollupDao.setCoveredFrom(day);
+        }
+        
+        LOGGER.debug(
+                "Rebuilt rollups of {}: replaced {} with {} utilization and {} outcome rows.",
+                day,
+                deleted,
+                utilizations.size(),
+                outcomes.size());
+    }
+    
 }
@@ -0,0 +1,113 @@
+package gov.va.med.srcalc.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.base.Optional;
+
+import gov.va.med.srcalc.db.RiskSaveOutboxDao;
+import gov.va.med.srcalc.domain.calculation.RiskSaveDelivery;
+
+/**
+ * The canonical implementation of {@link RiskSaveOutboxService}.
+ */
+public class DefaultRiskSaveOutboxService implements RiskSaveOutboxService
+{
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(DefaultRiskSaveOutboxService.class);
+
+    /**
+     * How long a claimed delivery is reserved for its attempt. Much longer than a VistA
+     * call may take.
+     */
+    public static final Duration CLAIM_LEASE = Duration.standardMinutes(5);
+
+    private final RiskSaveOutboxDao fOutboxDao;
+
+    /**
+     * Constructs an instance with the given dependencies.
+     */
+    @Inject
+    public DefaultRiskSaveOutboxService(final RiskSaveOutboxDao outboxDao)
+    {
+        fOutboxDao = outboxDao;
+    }
+
+    @Override
+    @Transactional
+    public List<RiskSaveDelivery> claimDueDeliveries(final int maxCount)
+    {
+        final DateTime now = new DateTime();
+        final List<RiskSaveDelivery> due = fOutboxDao.getDueDeliveries(now, maxCount);
+        final ArrayList<RiskSaveDelivery> claimed = new ArrayList<>(due.size());
+        for (final RiskSaveDelivery delivery : due)
+        {
+            if (fOutboxDao.claim(delivery, now.plus(CLAIM_LEASE)))
+            {
+                claimed.add(delivery);
+            }
+            else
+            {
+                LOGGER.debug("Delivery {} was claimed by another node.", delivery.getId());
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    @Transactional
+    public void recordDelivered(final int deliveryId)
+    {
+        final Optional<RiskSaveDelivery> delivery = fOutboxDao.getDelivery(deliveryId);
+        if (delivery.isPresent())
+        {
+            delivery.get().recordDelivered(new DateTime());
+        }
+    }
+
+    @Override
+    @Transactional
+    public void recordFailure(final int deliveryId, final String error, final boolean permanent)
+    {
+        final Optional<RiskSaveDelivery> delivery = fOutboxDao.getDelivery(deliveryId);
+        if (delivery.isPresent())
+        {
+            delivery.get().recordFailure(new DateTime(), error, permanent);
+            if (delivery.get().getStatus() == RiskSaveDelivery.Status.FAILED)
+            {
+                // Requires administrator attention.
+                LOGGER.error(
+                        "Gave up saving signed result {} in VistA after {} attempts: {}",
+                        deliveryId, delivery.get().getAttemptCount(), error);
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RiskSaveDelivery> getUndeliveredDeliveries()
+    {
+        return fOutboxDao.getUndeliveredDeliveries();
+    }
+
+    @Override
+    @Transactional
+    public void retryDelivery(final int deliveryId) throws InvalidIdentifierException
+    {
+        final Optional<RiskSaveDelivery> delivery = fOutboxDao.getDelivery(deliveryId);
+        if (!delivery.isPresent())
+        {
+            throw new InvalidIdentifierException("No delivery with ID " + deliveryId);
+        }
+        LOGGER.info("Retrying delivery {} on request.", deliveryId);
+        delivery.get().retry(new DateTime());
+    }
+}
@@ -69,6 +69,12 @@ public interface ModelInspectionService
      */
     public ImmutableList<Procedure> getEligibleProcedures();
     
+    /**
+     * Returns the current catalog of all available Procedures. The catalog is shared and
+     * replaced with a new version when the Procedures change.
+     */
+    public ProcedureCatalog getProcedureCatalog();
+    
     /**
      * Returns the {@link RiskModel} with the given ID.
      * @return RiskModelS
@@ -0,0 +1,20 @@
+package gov.va.med.srcalc.service;
+
+import gov.va.med.srcalc.domain.model.Procedure;
+import gov.va.med.srcalc.util.csv.RowHandler;
+import gov.va.med.srcalc.util.csv.TabularUploadException;
+
+/**
+ * Supplies a (possibly very large) set of Procedures one at a time, so that they need
+ * not all be held in memory. See {@link AdminService#replaceAllProcedures(ProcedureSource)}.
+ */
+public interface ProcedureSource
+{
+    /**
+     * Reads all of the Procedures, passing each to the given handler.
+     * @param handler receives each Procedure
+     * @throws TabularUploadException if the Procedures are found to be invalid
+     */
+    public void readProcedures(final RowHandler<Procedure> handler)
+            throws TabularUploadException;
+}
@@ -1,12 +1,20 @@
 package gov.va.med.srcalc.service;
 
+import java.util.List;
+
+import org.joda.time.LocalDate;
 import org.springframework.dao.DataAccessException;
 
+import com.google.common.base.Optional;
+
 import gov.va.med.srcalc.db.HistoricalSearchParameters;
 import gov.va.med.srcalc.db.ResultSearchParameters;
+import gov.va.med.srcalc.db.UtilizationAggregate;
+import gov.va.med.srcalc.db.UtilizationGrouping;
 import gov.va.med.srcalc.domain.calculation.HistoricalRunInfo;
 import gov.va.med.srcalc.domain.calculation.SignedResult;
 import gov.va.med.srcalc.util.SearchResults;
+import gov.va.med.srcalc.util.csv.RowHandler;
 
 /**
  * Service Layer facade for generating reports.
@@ -22,6 +30,20 @@ public interface ReportService
     public SearchResults<SignedResult> getSignedResults(
             final ResultSearchParameters parameters);
     
+    /**
+     * Passes every SignedResult matching the given search parameters to the given
+     * handler, without any maximum. Memory use does not depend on the number of
+     * results, so this is suitable for large extracts.
+     * @param parameters the search parameters
+     * @param handler receives each SignedResult (without inputs), in descending
+     * signature timestamp order
+     * @return the number of SignedResults passed to the handler
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     */
+    public int streamSignedResults(
+            final ResultSearchParameters parameters, final RowHandler<SignedResult> handler);
+    
     /**
      * Generates {@link HistoricalRunInfo}s from historical calculation data.
      * @param parameters specifies which calculations to consider
@@ -31,4 +53,45 @@ public interface ReportService
      */
     public SearchResults<HistoricalRunInfo> getHistoricalRunInfos(
             final HistoricalSearchParameters parameters);
+    
+    /**
+     * Computes utilization statistics from historical calculation data. This is much
+     * cheaper than {@link #getHistoricalRunInfos(HistoricalSearchParameters)} for large
+     * numbers of calculations. Days covered by the daily rollups are answered from the
+     * rollups; earlier days from the raw data.
+     * @param parameters specifies which calculations to consider
+     * @param groupings the attributes by which to group the statistics, in order
+     * @return one aggregate per group, in no particular order
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     */
+    public List<UtilizationAggregate> getUtilizationAggregates(
+            final HistoricalSearchParameters parameters,
+            final List<UtilizationGrouping> groupings);
+    
+    /**
+     * Returns the first day from which the daily rollups are complete, if any.
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     */
+    public Optional<LocalDate> getRollupsCoveredFrom();
+    
+    /**
+     * Returns the start day of the earliest historical calculation, if there are any.
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     */
+    public Optional<LocalDate> getFirstCalculationDate();
+    
+    /**
+     * Recomputes the daily rollups of the given day from the raw data. If the day
+     * immediately precedes the rollup coverage (or there is no coverage yet), extends
+     * the coverage to include the day. Thus rebuilding days backwards from today
+     * backfills the rollups.
+     * @param day the day to rebuild
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     * @see #getRollupsCoveredFrom()
+     */
+    public void rebuildRollups(final LocalDate day);
 }
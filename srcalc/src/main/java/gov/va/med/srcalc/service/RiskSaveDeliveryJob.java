@@ -0,0 +1,105 @@
+package gov.va.med.srcalc.service;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.NonTransientDataAccessException;
+
+import gov.va.med.srcalc.domain.calculation.RiskSaveDelivery;
+import gov.va.med.srcalc.domain.calculation.SignedResult;
+import gov.va.med.srcalc.vista.VistaDaoFactory;
+
+/**
+ * <p>Delivers the due {@link RiskSaveDelivery}s to VistA Surgery. Intended to run every
+ * few seconds.</p>
+ *
+ * <p>Each delivery is claimed, saved in VistA as its signing user and then recorded, in
+ * that order, so no database transaction is open during the VistA call. Failures which
+ * VistA reports as non-transient (such as rejected data) are not retried.</p>
+ */
+public class RiskSaveDeliveryJob implements Runnable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(RiskSaveDeliveryJob.class);
+
+    /**
+     * The maximum number of deliveries to claim at once.
+     */
+    public static final int BATCH_SIZE = 20;
+
+    private final RiskSaveOutboxService fOutboxService;
+    private final VistaDaoFactory fVistaDaoFactory;
+
+    /**
+     * Constructs an instance with the given dependencies.
+     */
+    @Inject
+    public RiskSaveDeliveryJob(
+            final RiskSaveOutboxService outboxService, final VistaDaoFactory vistaDaoFactory)
+    {
+        fOutboxService = outboxService;
+        fVistaDaoFactory = vistaDaoFactory;
+    }
+
+    @Override
+    public void run()
+    {
+        int delivered = 0;
+        List<RiskSaveDelivery> batch;
+        do
+        {
+            batch = fOutboxService.claimDueDeliveries(BATCH_SIZE);
+            for (final RiskSaveDelivery delivery : batch)
+            {
+                if (deliver(delivery))
+                {
+                    ++delivered;
+                }
+            }
+        }
+        while (batch.size() == BATCH_SIZE);
+
+        if (delivered > 0)
+        {
+            LOGGER.info("Saved {} signed results in VistA.", delivered);
+        }
+    }
+
+    /**
+     * Attempts the given claimed delivery and records the outcome.
+     * @return true if delivered, false otherwise
+     */
+    private boolean deliver(final RiskSaveDelivery delivery)
+    {
+        final SignedResult result = delivery.getSignedResult();
+        try
+        {
+            fVistaDaoFactory
+                    .getVistaSurgeryDao(
+                            result.getHistoricalCalculation().getUserStation(),
+                            delivery.getDuz())
+                    .saveCalculationResult(result);
+        }
+        catch (final DataAccessException ex)
+        {
+            LOGGER.warn("Could not save signed result {} in VistA.", delivery.getId(), ex);
+            fOutboxService.recordFailure(
+                    delivery.getId(),
+                    String.valueOf(ex.getMessage()),
+                    ex instanceof NonTransientDataAccessException);
+            return false;
+        }
+        catch (final RuntimeException ex)
+        {
+            // E.g., a misconfigured division. Retry in case it is fixed.
+            LOGGER.warn("Could not save signed result {} in VistA.", delivery.getId(), ex);
+            fOutboxService.recordFailure(delivery.getId(), ex.toString(), false);
+            return false;
+        }
+        fOutboxService.recordDelivered(delivery.getId());
+        return true;
+    }
+}
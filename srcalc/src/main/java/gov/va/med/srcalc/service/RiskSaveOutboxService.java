@@ -0,0 +1,63 @@
+package gov.va.med.srcalc.service;
+
+import java.util.List;
+
+import org.springframework.dao.DataAccessException;
+
+import gov.va.med.srcalc.domain.calculation.RiskSaveDelivery;
+
+/**
+ * <p>Manages the outbox of {@link RiskSaveDelivery}s: the signed results waiting to be
+ * saved in VistA Surgery. Each method is a separate transaction, so that no transaction is
+ * open while calling VistA. See {@link RiskSaveDeliveryJob}.</p>
+ */
+public interface RiskSaveOutboxService
+{
+    /**
+     * Claims up to the given number of due deliveries for an attempt by this node. A
+     * claimed delivery is not claimed again until its attempt is recorded or a lease of
+     * several minutes expires.
+     * @param maxCount the maximum number of deliveries to claim
+     * @return the claimed deliveries, earliest first, with their SignedResults fully
+     * loaded
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     */
+    public List<RiskSaveDelivery> claimDueDeliveries(final int maxCount);
+
+    /**
+     * Records that the given delivery succeeded.
+     * @param deliveryId the ID of a claimed delivery
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     */
+    public void recordDelivered(final int deliveryId);
+
+    /**
+     * Records that the given delivery failed, scheduling a retry if appropriate. See
+     * {@link RiskSaveDelivery#recordFailure(org.joda.time.DateTime, String, boolean)}.
+     * @param deliveryId the ID of a claimed delivery
+     * @param error describes the failure
+     * @param permanent true if retrying cannot succeed
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     */
+    public void recordFailure(final int deliveryId, final String error, final boolean permanent);
+
+    /**
+     * Returns the deliveries which are pending or failed, failed first.
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     */
+    public List<RiskSaveDelivery> getUndeliveredDeliveries();
+
+    /**
+     * Makes the given pending or failed delivery due immediately.
+     * @param deliveryId the delivery's ID
+     * @throws InvalidIdentifierException if there is no such delivery
+     * @throws IllegalStateException if the delivery already succeeded
+     * @throws DataAccessException if any error occurs interacting with the persistent
+     * store
+     */
+    public void retryDelivery(final int deliveryId) throws InvalidIdentifierException;
+}
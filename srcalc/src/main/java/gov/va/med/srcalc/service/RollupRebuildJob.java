@@ -0,0 +1,73 @@
+package gov.va.med.srcalc.service;
+
+import javax.inject.Inject;
+
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+/**
+ * <p>Rebuilds the daily rollups of historical calculation data. Intended to run
+ * nightly.</p>
+ * 
+ * <p>Each run first rebuilds the last {@link #REPAIR_DAYS} days, as a safeguard against
+ * rollups that drifted from the raw data (e.g. through manual database changes), and
+ * then backfills the days before the rollup coverage back to the first calculation. Each day
+ * is rebuilt in its own transaction, so an interrupted backfill resumes where it
+ * stopped. Rebuilding a day locks out the increments of concurrent transactions, so it
+ * is safe while calculations are being recorded.</p>
+ */
+public class RollupRebuildJob implements Runnable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(RollupRebuildJob.class);
+    
+    /**
+     * The number of recent days (including today) to rebuild on each run.
+     */
+    public static final int REPAIR_DAYS = 2;
+    
+    private final ReportService fReportService;
+    
+    /**
+     * Constructs an instance with the given dependencies.
+     */
+    @Inject
+    public RollupRebuildJob(final ReportService reportService)
+    {
+        fReportService = reportService;
+    }
+    
+    @Override
+    public void run()
+    {
+        final Optional<LocalDate> firstDate = fReportService.getFirstCalculationDate();
+        if (!firstDate.isPresent())
+        {
+            LOGGER.debug("No calculations yet: nothing to roll up.");
+            return;
+        }
+        
+        // Rebuild backwards so that the coverage extends one day at a time.
+        LocalDate day = new LocalDate();
+        for (int i = 0; i < REPAIR_DAYS && !day.isBefore(firstDate.get()); ++i)
+        {
+            fReportService.rebuildRollups(day);
+            day = day.minusDays(1);
+        }
+        
+        day = fReportService.getRollupsCoveredFrom().or(firstDate.get()).minusDays(1);
+        int backfilled = 0;
+        while (!day.isBefore(firstDate.get()))
+        {
+            fReportService.rebuildRollups(day);
+            day = day.minusDays(1);
+            ++backfilled;
+        }
+        
+        LOGGER.info(
+                "Rebuilt daily rollups: repaired recent days and backfilled {} days.",
+                backfilled);
+    }
+}
@@ -0,0 +1,169 @@
+package gov.va.med.srcalc.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>Records the distribution of non-negative long values (e.g., latencies in
+ * milliseconds) in power-of-two buckets, so that recording takes constant time and
+ * space no matter how many values are recorded. Percentiles are therefore estimates:
+ * they are never less than the true percentile and at most about double it.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class Histogram
+{
+    /**
+     * Bucket 0 holds 0, bucket 1 holds 1, bucket 2 holds 2-3, bucket 3 holds 4-7, etc.
+     */
+    private static final int BUCKET_COUNT = Long.SIZE;
+
+    private final AtomicLongArray fBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong fSum = new AtomicLong();
+    private final AtomicLong fMax = new AtomicLong();
+
+    /**
+     * Records the given value. Negative values are recorded as 0.
+     */
+    public void record(final long value)
+    {
+        final long clamped = Math.max(value, 0L);
+        fBuckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(clamped));
+        fSum.addAndGet(clamped);
+        long max = fMax.get();
+        while (clamped > max && !fMax.compareAndSet(max, clamped))
+        {
+            max = fMax.get();
+        }
+    }
+
+    /**
+     * Returns a summary of the values recorded so far. Values recorded concurrently may
+     * or may not be included.
+     */
+    public Snapshot snapshot()
+    {
+        final long[] buckets = new long[BUCKET_COUNT];
+        long count = 0L;
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+        {
+            buckets[i] = fBuckets.get(i);
+            count += buckets[i];
+        }
+        return new Snapshot(buckets, count, fSum.get(), fMax.get());
+    }
+
+    @Override
+    public String toString()
+    {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable summary of a Histogram's values.
+     */
+    public static final class Snapshot
+    {
+        private final long[] fBuckets;
+        private final long fCount;
+        private final long fSum;
+        private final long fMax;
+
+        private Snapshot(final long[] buckets, final long count, final long sum, final long max)
+        {
+            fBuckets = buckets;
+            fCount = count;
+            fSum = sum;
+            fMax = max;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         */
+        public long getCount()
+        {
+            return fCount;
+        }
+
+        /**
+         * Returns the mean of the recorded values, or 0 if there are none.
+         */
+        public double getMean()
+        {
+            return (fCount == 0L) ? 0.0 : ((double)fSum / fCount);
+        }
+
+        /**
+         * Returns the largest recorded value, or 0 if there are none.
+         */
+        public long getMax()
+        {
+            return fMax;
+        }
+
+        /**
+         * Returns the estimated median of the recorded values.
+         */
+        public long getMedian()
+        {
+            return getPercentile(50.0);
+        }
+
+        /**
+         * Returns the estimated 95th percentile of the recorded values.
+         */
+        public long get95thPercentile()
+        {
+            return getPercentile(95.0);
+        }
+
+        /**
+         * Returns the estimated 99th percentile of the recorded values.
+         */
+        public long get99thPercentile()
+        {
+            return getPercentile(99.0);
+        }
+
+        /**
+         * Returns the estimated given percentile of the recorded values: the upper bound
+         * of the bucket containing it, but no more than the largest recorded value.
+         * @param percentile the percentile, from 0 to 100
+         * @return the estimate, or 0 if there are no recorded values
+         * @throws IllegalArgumentException if the percentile is out of range
+         */
+        public long getPercentile(final double percentile)
+        {
+            Preconditions.checkArgument(
+                    percentile >= 0.0 && percentile <= 100.0,
+                    "percentile %s is not between 0 and 100", percentile);
+            final double rank = Math.ceil(fCount * percentile / 100.0);
+            long seen = 0L;
+            for (int i = 0; i < fBuckets.length; ++i)
+            {
+                seen += fBuckets[i];
+                if (seen > 0L && seen >= rank)
+                {
+                    final long upperBound = (1L << i) - 1L;
+                    return Math.min(upperBound, fMax);
+                }
+            }
+            return fMax;
+        }
+
+        @Override
+        public String toString()
+        {
+            return MoreObjects.toStringHelper(this)
+                    .add("count", fCount)
+                    .add("mean", getMean())
+                    .add("median", getMedian())
+                    .add("95th", get95thPercentile())
+                    .add("max", fMax)
+                    .toString();
+        }
+    }
+}
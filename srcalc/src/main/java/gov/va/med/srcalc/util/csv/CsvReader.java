@@ -5,9 +5,6 @@ import gov.va.med.srcalc.util.ValidationCodes;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
@@ -22,10 +19,16 @@ import com.google.common.base.Optional;
  */
 public class CsvReader<T>
 {
+    /**
+     * The default maximum number of validation errors to collect before giving up on
+     * an upload.
+     */
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(CsvReader.class);
-    
+
     private final RowTranslator<T> fRowTranslator;
-    
+
     /**
      * Constructs an instance.
      * @param rowTranslator
@@ -36,78 +39,73 @@ public class CsvReader<T>
     }
 
     /**
-     * Parses the given CSVRecords from a CSV file into a List of objects.
-     * @param records must be non-empty
-     * @param errors for recording validation errors
+     * Parses the given CSV content one record at a time, passing each translation to
+     * the given handler.
+     * @param csvReader provides the CSV content. Will be closed when done.
+     * @param maxErrors the number of errors after which to stop reading
+     * @param rowHandler receives each row's translation (absent if the row is invalid)
      */
-    private TabularParseResult<T> readProcedures(
-            final List<CSVRecord> records, final Collection<TabularUploadError> errors)
-    {
-        int firstRow = 0;
-        
-        // Detect if the first row is a header and strip if so.
-        if (fRowTranslator.isHeaderRow(records.get(0)))
-        {
-            LOGGER.debug("Ignoring a header row in the CSV.");
-            firstRow = 1;
-        }
-
-        LOGGER.trace(
-                "About to translate {} records from CSV into Procedure objects.",
-                records.size() - firstRow);
-
-        // Parse each line and record errors.
-        final ArrayList<T> procedures = new ArrayList<>(records.size());
-        for (int i = firstRow; i < records.size(); ++i)
-        {
-            final CSVRecord row = records.get(i);
-            final Optional<T> rowObject = fRowTranslator.translateRow(row, errors, i + 1);
-            // Per TabularParseResult, represent invalid objects as nulls.
-            procedures.add(rowObject.orNull());
-        }
-
-        return new TabularParseResult<>(procedures, errors);
-    }
-    
-    /**
-     * <p>Translates the given CSV content into a List of objects.</p>
-     * 
-     * <p>Translation of each row into its representative object is handled by the
-     * {@link RowTranslator} provided during construction. This class only handles the
-     * generic iteration logic and global error handling.</p>
-     * 
-     * <p><strong>Warning:</strong> the given CSV content is read completely into memory
-     * while parsing. This method does not therefore support very large CSV files (i.e.,
-     * 50MB+).</p>
-     * 
-     * @param csvReader a Reader providing the CSV content. This method will close the
-     * reader when done.
-     */
-    public TabularParseResult<T> readObjects(final Reader csvReader)
+    private TabularStreamResult readRows(
+            final Reader csvReader,
+            final int maxErrors,
+            final RowHandler<Optional<T>> rowHandler)
     {
         final ArrayList<TabularUploadError> errors = new ArrayList<>();
+        int rowCount = 0;
+        boolean errorLimitReached = false;
 
         try
         {
-            final List<CSVRecord> records = CSVFormat.EXCEL.parse(csvReader).getRecords();
-            LOGGER.debug("The CSV file has {} rows.", records.size());
+            boolean firstRecord = true;
+            for (final CSVRecord row : CSVFormat.EXCEL.parse(csvReader))
+            {
+                // Detect if the first row is a header and skip it if so.
+                if (firstRecord)
+                {
+                    firstRecord = false;
+                    if (fRowTranslator.isHeaderRow(row))
+                    {
+                        LOGGER.debug("Ignoring a header row in the CSV.");
+                        continue;
+                    }
+                }
+
+                ++rowCount;
+                rowHandler.handleRow(fRowTranslator.translateRow(
+                        row, errors, (int)row.getRecordNumber()));
+
+                if (errors.size() > maxErrors)
+                {
+                    // Nobody will read thousands of errors: stop here.
+                    errors.subList(maxErrors, errors.size()).clear();
+                    errors.add(TabularUploadError.global(
+                            ValidationCodes.TOO_LONG,
+                            new Object[] { maxErrors },
+                            "Stopped after " + maxErrors + " errors."));
+                    errorLimitReached = true;
+                    break;
+                }
+            }
 
-            if (records.isEmpty())
+            if (firstRecord)
             {
                 errors.add(TabularUploadError.global(
                         ValidationCodes.NO_VALUE, null, "no records"));
             }
-            else
-            {
-                return readProcedures(records, errors);
-            }
+            LOGGER.debug("Read {} rows from the CSV file.", rowCount);
         }
         catch (final IOException ex)
         {
-            errors.add(TabularUploadError.global(
-                    ValidationCodes.INVALID_CONTENTS,
-                    null,
-                    "Could not parse the CSV content."));
+            errors.add(parseError());
+        }
+        catch (final RuntimeException ex)
+        {
+            // CSVParser's iterator wraps IOExceptions in RuntimeExceptions.
+            if (!(ex.getCause() instanceof IOException))
+            {
+                throw ex;
+            }
+            errors.add(parseError());
         }
         finally
         {
@@ -121,7 +119,96 @@ public class CsvReader<T>
             }
         }
 
-        return new TabularParseResult<>(Collections.<T>emptyList(), errors);
+        return new TabularStreamResult(rowCount, errors, errorLimitReached);
+    }
+
+    private static TabularUploadError parseError()
+    {
+        return TabularUploadError.global(
+                ValidationCodes.INVALID_CONTENTS,
+                null,
+                "Could not parse the CSV content.");
+    }
+
+    /**
+     * <p>Translates the given CSV content into a List of objects.</p>
+     *
+     * <p>Translation of each row into its representative object is handled by the
+     * {@link RowTranslator} provided during construction. This class only handles the
+     * generic iteration logic and global error handling.</p>
+     *
+     * <p>Reading stops after {@link #DEFAULT_MAX_ERRORS} errors, so an invalid result
+     * may not represent the whole CSV content.</p>
+     *
+     * <p><strong>Warning:</strong> all of the translated objects are held in memory.
+     * Use {@link #streamObjects(Reader, RowHandler, int)} for large CSV files.</p>
+     *
+     * @param csvReader a Reader providing the CSV content. This method will close the
+     * reader when done.
+     */
+    public TabularParseResult<T> readObjects(final Reader csvReader)
+    {
+        final ArrayList<T> rowObjects = new ArrayList<>();
+        final TabularStreamResult result = readRows(
+                csvReader,
+                DEFAULT_MAX_ERRORS,
+                new RowHandler<Optional<T>>()
+                {
+                    @Override
+                    public void handleRow(final Optional<T> rowObject)
+                    {
+                        // Per TabularParseResult, represent invalid objects as nulls.
+                        rowObjects.add(rowObject.orNull());
+                    }
+                });
+
+        return new TabularParseResult<>(rowObjects, result.getErrors());
+    }
+
+    /**
+     * <p>Translates the given CSV content into objects, passing each to the given
+     * handler as soon as its row is parsed. Neither the CSV records nor the objects are
+     * held in memory, so this method supports arbitrarily large CSV files.</p>
+     *
+     * <p>Once any row is found to be invalid, no further objects are passed to the
+     * handler (since the content as a whole is invalid), but reading continues to
+     * collect up to maxErrors errors.</p>
+     *
+     * @param csvReader a Reader providing the CSV content. This method will close the
+     * reader when done.
+     * @param rowHandler receives each valid object, in CSV order
+     * @param maxErrors the maximum number of errors to collect before giving up
+     * @return the row count and any errors
+     */
+    public TabularStreamResult streamObjects(
+            final Reader csvReader, final RowHandler<T> rowHandler, final int maxErrors)
+    {
+        final ErrorTrackingHandler trackingHandler = new ErrorTrackingHandler(rowHandler);
+        return readRows(csvReader, maxErrors, trackingHandler);
+    }
+
+    /**
+     * Forwards valid objects to a target handler until the first invalid row.
+     */
+    private final class ErrorTrackingHandler implements RowHandler<Optional<T>>
+    {
+        private final RowHandler<T> fTarget;
+
+        private boolean fValid = true;
+
+        public ErrorTrackingHandler(final RowHandler<T> target)
+        {
+            fTarget = target;
+        }
+
+        @Override
+        public void handleRow(final Optional<T> rowObject)
+        {
+            fValid = fValid && rowObject.isPresent();
+            if (fValid)
+            {
+                fTarget.handleRow(rowObject.get());
+            }
+        }
     }
-    
 }
@@ -0,0 +1,15 @@
+package gov.va.med.srcalc.util.csv;
+
+/**
+ * Receives the objects translated from a tabular upload, one row at a time. See {@link
+ * CsvReader#streamObjects(java.io.Reader, RowHandler, int)}.
+ * @param <T> the type of object representing each row
+ */
+public interface RowHandler<T>
+{
+    /**
+     * Handles a single valid row object.
+     * @param rowObject the translated object, never null
+     */
+    public void handleRow(final T rowObject);
+}
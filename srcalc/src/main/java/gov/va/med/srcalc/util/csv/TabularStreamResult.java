@@ -0,0 +1,68 @@
+package gov.va.med.srcalc.util.csv;
+
+import java.util.Collection;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Represents the result, including validation errors, of streaming a tabular upload to a
+ * {@link RowHandler}. Unlike {@link TabularParseResult}, it does not hold the row
+ * objects themselves.
+ */
+public final class TabularStreamResult
+{
+    private final int fRowCount;
+    private final ImmutableCollection<TabularUploadError> fErrors;
+    private final boolean fErrorLimitReached;
+    
+    /**
+     * Constructs an instance.
+     * @param rowCount the number of (non-header) rows read
+     * @param errors any validation errors (must not contain nulls)
+     * @param errorLimitReached true if reading stopped due to too many errors
+     */
+    public TabularStreamResult(
+            final int rowCount,
+            final Collection<TabularUploadError> errors,
+            final boolean errorLimitReached)
+    {
+        fRowCount = rowCount;
+        fErrors = ImmutableList.copyOf(errors);
+        fErrorLimitReached = errorLimitReached;
+    }
+    
+    /**
+     * Returns the number of (non-header) rows read. If reading stopped early, this will
+     * be less than the number of rows in the upload.
+     */
+    public int getRowCount()
+    {
+        return fRowCount;
+    }
+    
+    /**
+     * Contains the validation errors, if any.
+     */
+    public ImmutableCollection<TabularUploadError> getErrors()
+    {
+        return fErrors;
+    }
+    
+    /**
+     * Returns true if this result has any errors. Equivalent to
+     * {@code !getErrors.isEmpty()}.
+     */
+    public boolean hasErrors()
+    {
+        return !fErrors.isEmpty();
+    }
+    
+    /**
+     * Returns true if reading stopped early because the error limit was reached.
+     */
+    public boolean isErrorLimitReached()
+    {
+        return fErrorLimitReached;
+    }
+}
@@ -0,0 +1,44 @@
+package gov.va.med.srcalc.util.csv;
+
+import java.util.Collection;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Indicates that a tabular upload was found to be invalid while it was being processed.
+ * Since this is an unchecked exception, throwing it rolls back any transaction in
+ * progress.
+ */
+public class TabularUploadException extends RuntimeException
+{
+    /**
+     * Change this when changing the class!
+     */
+    private static final long serialVersionUID = 1L;
+    
+    private final ImmutableCollection<TabularUploadError> fErrors;
+    
+    /**
+     * Constructs an instance.
+     * @param errors the validation errors. Must be non-empty and contain no nulls.
+     * @throws IllegalArgumentException if errors is empty
+     */
+    public TabularUploadException(final Collection<TabularUploadError> errors)
+    {
+        super(errors.size() + " validation error(s) in tabular upload");
+        if (errors.isEmpty())
+        {
+            throw new IllegalArgumentException("must specify at least one error");
+        }
+        fErrors = ImmutableList.copyOf(errors);
+    }
+    
+    /**
+     * Returns the validation errors.
+     */
+    public ImmutableCollection<TabularUploadError> getErrors()
+    {
+        return fErrors;
+    }
+}
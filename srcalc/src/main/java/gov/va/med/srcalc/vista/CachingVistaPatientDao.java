@@ -0,0 +1,123 @@
+package gov.va.med.srcalc.vista;
+
+import com.google.common.base.Optional;
+
+import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+
+/**
+ * <p>A VistaPatientDao decorator which serves recently-retrieved Patients from a
+ * {@link PatientCache} instead of repeating the VistA calls.</p>
+ *
+ * <p>A cached Patient is only served for the data it has retrieved (see {@link
+ * Patient#getRetrievedData()}) which is still fresh. Missing data is retrieved and added
+ * to the cached Patient. Loads which come back incomplete (e.g., because VistA was too
+ * slow) are not cached, so the next request retries them.</p>
+ *
+ * <p>Saving a risk calculation note invalidates the cached patient, since the note
+ * changes the patient's record.</p>
+ */
+public class CachingVistaPatientDao implements VistaPatientDao
+{
+    private final VistaPatientDao fTarget;
+    private final PatientCache fCache;
+    private final String fDivision;
+    private final String fDuz;
+
+    /**
+     * Constructs an instance.
+     * @param target the DAO to actually load the patient data
+     * @param cache the (shared) cache
+     * @param division the division of the current user
+     * @param duz the DUZ of the current user
+     */
+    public CachingVistaPatientDao(
+            final VistaPatientDao target,
+            final PatientCache cache,
+            final String division,
+            final String duz)
+    {
+        fTarget = target;
+        fCache = cache;
+        fDivision = division;
+        fDuz = duz;
+    }
+
+    @Override
+    public Patient getPatient(final int dfn)
+    {
+        return getPatient(dfn, RetrievalPlan.ALL);
+    }
+
+    @Override
+    public Patient getPatient(final int dfn, final RetrievalPlan plan)
+    {
+        final Optional<Patient> cached = fCache.get(fDivision, fDuz, dfn);
+        if (cached.isPresent())
+        {
+            final Patient patient = cached.get();
+            final RetrievalPlan missing = plan.minus(patient.getRetrievedData());
+            if (!missing.isEmpty())
+            {
+                fTarget.retrievePatientData(patient, missing);
+                cacheIfComplete(patient, plan, missing);
+            }
+            return patient;
+        }
+        final Patient patient = fTarget.getPatient(dfn, plan);
+        if (patient.getRetrievedData().covers(plan))
+        {
+            fCache.put(fDivision, fDuz, patient);
+        }
+        return patient;
+    }
+
+    @Override
+    public void retrievePatientData(final Patient patient, final RetrievalPlan plan)
+    {
+        final RetrievalPlan missing = plan.minus(patient.getRetrievedData());
+        if (missing.isEmpty())
+        {
+            return;
+        }
+        final Optional<Patient> cached = fCache.get(fDivision, fDuz, patient.getDfn());
+        if (cached.isPresent() && cached.get().getRetrievedData().covers(missing))
+        {
+            patient.copyRetrievedData(cached.get(), missing);
+            return;
+        }
+        fTarget.retrievePatientData(patient, missing);
+        cacheIfComplete(patient, plan, missing);
+    }
+
+    /**
+     * Adds the retrieved data to the cached patient, unless not all of it could be
+     * retrieved.
+     * @param patient the patient to which the data was retrieved
+     * @param plan the data requested
+     * @param retrieved the data retrieved from VistA for the request
+     */
+    private void cacheIfComplete(
+            final Patient patient, final RetrievalPlan plan, final RetrievalPlan retrieved)
+    {
+        if (patient.getRetrievedData().covers(plan))
+        {
+            fCache.addRetrievedData(fDivision, fDuz, patient, retrieved);
+        }
+    }
+
+    @Override
+    public SaveNoteCode saveRiskCalculationNote(
+            final int patientDfn, final String electronicSignature, final String noteBody)
+    {
+        try
+        {
+            return fTarget.saveRiskCalculationNote(patientDfn, electronicSignature, noteBody);
+        }
+        finally
+        {
+            // Invalidate even on failure: we do not know whether VistA saved the note.
+            fCache.invalidatePatient(fDivision, patientDfn);
+        }
+    }
+}
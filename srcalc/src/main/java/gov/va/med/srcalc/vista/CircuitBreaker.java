@@ -0,0 +1,178 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+/**
+ * <p>Stops calls to a failing resource (e.g., one VistA division) so that callers fail
+ * fast instead of each waiting for a timeout. The breaker opens after a number of
+ * consecutive failures. After staying open for a while it lets a single probe call
+ * through: if the probe succeeds, the breaker closes again; if it fails, the breaker
+ * stays open for another period.</p>
+ *
+ * <p>Callers must ask for permission with {@link #tryAcquirePermission()} before each
+ * call and then report its outcome with exactly one of {@link #recordSuccess()}, {@link
+ * #recordFailure()} or {@link #releasePermission()}.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class CircuitBreaker
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State
+    {
+        /**
+         * Calls are permitted.
+         */
+        CLOSED,
+        /**
+         * Calls fail fast.
+         */
+        OPEN,
+        /**
+         * A single probe call is in progress; other calls fail fast.
+         */
+        HALF_OPEN;
+    }
+
+    private final String fName;
+    private final int fFailureThreshold;
+    private final long fOpenNanos;
+    private final Ticker fTicker;
+
+    // The mutable state is guarded by this.
+    private State fState = State.CLOSED;
+    private int fConsecutiveFailures = 0;
+    private long fOpenedNanos = 0L;
+
+    /**
+     * Constructs an instance using the system ticker.
+     * @param name identifies the protected resource in log messages
+     * @param failureThreshold the number of consecutive failures which opens the breaker
+     * @param openMillis how long the breaker stays open before probing
+     * @throws IllegalArgumentException if failureThreshold or openMillis is not positive
+     */
+    public CircuitBreaker(final String name, final int failureThreshold, final long openMillis)
+    {
+        this(name, failureThreshold, openMillis, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs an instance using the given ticker, for testing.
+     * @param name identifies the protected resource in log messages
+     * @param failureThreshold the number of consecutive failures which opens the breaker
+     * @param openMillis how long the breaker stays open before probing
+     * @param ticker measures how long the breaker has been open
+     * @throws IllegalArgumentException if failureThreshold or openMillis is not positive
+     */
+    CircuitBreaker(
+            final String name,
+            final int failureThreshold,
+            final long openMillis,
+            final Ticker ticker)
+    {
+        Preconditions.checkArgument(failureThreshold > 0, "threshold must be positive");
+        Preconditions.checkArgument(openMillis > 0L, "open time must be positive");
+        fName = name;
+        fFailureThreshold = failureThreshold;
+        fOpenNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        fTicker = ticker;
+    }
+
+    /**
+     * Returns the current state. Note that an open breaker whose open period has
+     * elapsed remains {@link State#OPEN} until the next call probes.
+     */
+    public synchronized State getState()
+    {
+        return fState;
+    }
+
+    /**
+     * Asks for permission to make a call.
+     * @return true if the call may proceed, false if it should fail fast
+     */
+    public synchronized boolean tryAcquirePermission()
+    {
+        switch (fState)
+        {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (fTicker.read() - fOpenedNanos < fOpenNanos)
+                {
+                    return false;
+                }
+                LOGGER.info("Probing whether {} has recovered.", fName);
+                fState = State.HALF_OPEN;
+                return true;
+            default:
+                // Only one probe at a time.
+                return false;
+        }
+    }
+
+    /**
+     * Records that a permitted call succeeded, closing the breaker.
+     */
+    public synchronized void recordSuccess()
+    {
+        fConsecutiveFailures = 0;
+        if (fState != State.CLOSED)
+        {
+            LOGGER.warn("{} has recovered. Closing its circuit breaker.", fName);
+            fState = State.CLOSED;
+        }
+    }
+
+    /**
+     * Records that a permitted call failed, opening the breaker if this was the probe
+     * or the threshold has been reached.
+     */
+    public synchronized void recordFailure()
+    {
+        ++fConsecutiveFailures;
+        if (fState == State.HALF_OPEN ||
+                (fState == State.CLOSED && fConsecutiveFailures >= fFailureThreshold))
+        {
+            LOGGER.warn(
+                    "{} failed {} consecutive calls. Failing fast for {}ms.",
+                    fName, fConsecutiveFailures, TimeUnit.NANOSECONDS.toMillis(fOpenNanos));
+            fState = State.OPEN;
+            fOpenedNanos = fTicker.read();
+        }
+    }
+
+    /**
+     * Records that a permitted call was not made or its outcome says nothing about the
+     * resource's health (e.g., it was interrupted). If it was the probe, the next call
+     * probes instead.
+     */
+    public synchronized void releasePermission()
+    {
+        if (fState == State.HALF_OPEN)
+        {
+            fState = State.OPEN;
+        }
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("name", fName)
+                .add("state", fState)
+                .add("consecutiveFailures", fConsecutiveFailures)
+                .toString();
+    }
+}
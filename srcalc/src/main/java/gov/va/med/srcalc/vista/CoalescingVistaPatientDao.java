@@ -0,0 +1,75 @@
+package gov.va.med.srcalc.vista;
+
+import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+
+/**
+ * <p>A VistaPatientDao decorator which shares concurrent loads of the same patient by the
+ * same user through a {@link PatientLoadCoalescer}.</p>
+ *
+ * <p>Decorate the {@link CachingVistaPatientDao} with this class rather than the other
+ * way around: a load then completes only after its Patient is cached, so a caller
+ * arriving just after the load finds it in the cache.</p>
+ */
+public class CoalescingVistaPatientDao implements VistaPatientDao
+{
+    private final VistaPatientDao fTarget;
+    private final PatientLoadCoalescer fCoalescer;
+    private final String fDivision;
+    private final String fDuz;
+
+    /**
+     * Constructs an instance.
+     * @param target the DAO to actually load the patient data
+     * @param coalescer the (shared) coalescer
+     * @param division the division of the current user
+     * @param duz the DUZ of the current user
+     */
+    public CoalescingVistaPatientDao(
+            final VistaPatientDao target,
+            final PatientLoadCoalescer coalescer,
+            final String division,
+            final String duz)
+    {
+        fTarget = target;
+        fCoalescer = coalescer;
+        fDivision = division;
+        fDuz = duz;
+    }
+
+    @Override
+    public Patient getPatient(final int dfn)
+    {
+        return getPatient(dfn, RetrievalPlan.ALL);
+    }
+
+    @Override
+    public Patient getPatient(final int dfn, final RetrievalPlan plan)
+    {
+        return fCoalescer.getPatient(fDivision, fDuz, dfn, plan, fTarget);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Retrievals into the same Patient, which is not thread-safe, are serialized. A
+     * concurrent caller (e.g., a double-clicked specialty selection) therefore waits for
+     * the retrieval in progress and then only retrieves what that one did not. Since the
+     * given Patient belongs to a single calculation, retrievals into other Patients are
+     * not shared.</p>
+     */
+    @Override
+    public void retrievePatientData(final Patient patient, final RetrievalPlan plan)
+    {
+        synchronized (patient)
+        {
+            fTarget.retrievePatientData(patient, plan);
+        }
+    }
+
+    @Override
+    public SaveNoteCode saveRiskCalculationNote(
+            final int patientDfn, final String electronicSignature, final String noteBody)
+    {
+        return fTarget.saveRiskCalculationNote(patientDfn, electronicSignature, noteBody);
+    }
+}
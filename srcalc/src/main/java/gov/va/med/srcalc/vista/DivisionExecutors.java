@@ -0,0 +1,114 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.concurrent.*;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>Provides a bounded pool of threads per VistA division for making concurrent remote
+ * procedure calls. Since each executing call holds a VistA connection, sharing one pool
+ * among all users of a division bounds the load we place on that division's VistA no
+ * matter how many requests are in progress.</p>
+ *
+ * <p>Pools are created on first use. Idle threads time out so that infrequently-used
+ * divisions do not hold threads. Each pool's queue is bounded as well: once a division
+ * has that many calls waiting, further submissions fail fast with a {@link
+ * RejectedExecutionException} rather than piling up behind a degraded VistA.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class DivisionExecutors
+{
+    /**
+     * The default maximum number of calls waiting for a thread per division.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final long IDLE_TIMEOUT_SECONDS = 60L;
+
+    private final int fThreadsPerDivision;
+    private final int fQueueCapacity;
+
+    private final ConcurrentHashMap<String, ExecutorService> fExecutors =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an instance using the {@link #DEFAULT_QUEUE_CAPACITY}.
+     * @param threadsPerDivision the maximum number of concurrent calls per division
+     * @throws IllegalArgumentException if threadsPerDivision is not positive
+     */
+    public DivisionExecutors(final int threadsPerDivision)
+    {
+        this(threadsPerDivision, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructs an instance.
+     * @param threadsPerDivision the maximum number of concurrent calls per division
+     * @param queueCapacity the maximum number of calls waiting for a thread per
+     * division
+     * @throws IllegalArgumentException if either argument is not positive
+     */
+    public DivisionExecutors(final int threadsPerDivision, final int queueCapacity)
+    {
+        Preconditions.checkArgument(threadsPerDivision > 0, "must have at least 1 thread");
+        Preconditions.checkArgument(queueCapacity > 0, "queue capacity must be positive");
+        fThreadsPerDivision = threadsPerDivision;
+        fQueueCapacity = queueCapacity;
+    }
+
+    /**
+     * Returns the maximum number of concurrent calls per division.
+     */
+    public int getThreadsPerDivision()
+    {
+        return fThreadsPerDivision;
+    }
+
+    /**
+     * Returns the executor for the given division, creating it if necessary. Tasks
+     * submitted beyond the thread limit are queued up to the queue capacity. Beyond
+     * that, {@code submit} throws a {@link RejectedExecutionException}.
+     * @param division the division's station number, e.g. "500"
+     */
+    public ExecutorService forDivision(final String division)
+    {
+        final ExecutorService existing = fExecutors.get(division);
+        if (existing != null)
+        {
+            return existing;
+        }
+        final ThreadPoolExecutor created = new ThreadPoolExecutor(
+                fThreadsPerDivision,
+                fThreadsPerDivision,
+                IDLE_TIMEOUT_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(fQueueCapacity),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("vista-" + division + "-%d")
+                        .setDaemon(true)
+                        .build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        created.allowCoreThreadTimeOut(true);
+        final ExecutorService raced = fExecutors.putIfAbsent(division, created);
+        if (raced != null)
+        {
+            // Another thread created one first: use that one instead.
+            created.shutdown();
+            return raced;
+        }
+        return created;
+    }
+
+    /**
+     * Shuts down all executors, interrupting any running calls.
+     */
+    public void shutdown()
+    {
+        for (final ExecutorService executor : fExecutors.values())
+        {
+            executor.shutdownNow();
+        }
+    }
+}
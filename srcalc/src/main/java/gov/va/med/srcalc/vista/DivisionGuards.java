@@ -0,0 +1,144 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * <p>Isolates the VistA divisions from each other, so that one degraded division cannot
+ * starve the requests for healthy ones. Each division has a bulkhead, which bounds the
+ * number of concurrent calls to it, and a {@link CircuitBreaker}, which makes calls to
+ * it fail fast after repeated transient failures.</p>
+ *
+ * <p>Apply them to a division's {@link VistaProcedureCaller} with {@link
+ * #guard(VistaProcedureCaller)}. A rejected call throws a {@link
+ * org.springframework.dao.RecoverableDataAccessException} like any other transient
+ * failure, so the optional patient data of {@link RpcVistaPatientDao} is simply
+ * omitted.</p>
+ *
+ * <p>Each division's guards are created on first use. Thread-safe.</p>
+ */
+public final class DivisionGuards
+{
+    /**
+     * The default maximum number of concurrent calls per division.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+
+    /**
+     * The default time a call waits for the bulkhead, in milliseconds.
+     */
+    public static final long DEFAULT_BULKHEAD_WAIT_MILLIS = 2000L;
+
+    /**
+     * The default number of consecutive failures which opens a division's breaker.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * The default time a division's breaker stays open before probing, in milliseconds.
+     */
+    public static final long DEFAULT_OPEN_MILLIS = 30000L;
+
+    private final int fMaxConcurrentCalls;
+    private final long fBulkheadWaitMillis;
+    private final int fFailureThreshold;
+    private final long fOpenMillis;
+
+    private final ConcurrentHashMap<String, Guard> fGuards = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an instance using the default settings.
+     */
+    public DivisionGuards()
+    {
+        this(
+                DEFAULT_MAX_CONCURRENT_CALLS,
+                DEFAULT_BULKHEAD_WAIT_MILLIS,
+                DEFAULT_FAILURE_THRESHOLD,
+                DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * Constructs an instance.
+     * @param maxConcurrentCalls the maximum number of concurrent calls per division
+     * @param bulkheadWaitMillis how long a call waits for one of the concurrent calls to
+     * finish before failing
+     * @param failureThreshold the number of consecutive transient failures which opens
+     * a division's breaker
+     * @param openMillis how long a division's breaker stays open before probing
+     * @throws IllegalArgumentException if any argument is out of range
+     */
+    public DivisionGuards(
+            final int maxConcurrentCalls,
+            final long bulkheadWaitMillis,
+            final int failureThreshold,
+            final long openMillis)
+    {
+        Preconditions.checkArgument(maxConcurrentCalls > 0, "must allow at least 1 call");
+        Preconditions.checkArgument(
+                bulkheadWaitMillis >= 0L, "bulkhead wait must be non-negative");
+        Preconditions.checkArgument(failureThreshold > 0, "threshold must be positive");
+        Preconditions.checkArgument(openMillis > 0L, "open time must be positive");
+        fMaxConcurrentCalls = maxConcurrentCalls;
+        fBulkheadWaitMillis = bulkheadWaitMillis;
+        fFailureThreshold = failureThreshold;
+        fOpenMillis = openMillis;
+    }
+
+    /**
+     * Returns a caller which makes the given caller's calls through its division's
+     * bulkhead and circuit breaker.
+     */
+    public VistaProcedureCaller guard(final VistaProcedureCaller caller)
+    {
+        final Guard guard = forDivision(caller.getDivision());
+        return new GuardedVistaProcedureCaller(
+                caller, guard.fBulkhead, fBulkheadWaitMillis, guard.fBreaker);
+    }
+
+    /**
+     * Returns the state of each division's circuit breaker, for monitoring.
+     * @return a map from division to state, sorted by division
+     */
+    public ImmutableSortedMap<String, CircuitBreaker.State> getCircuitStates()
+    {
+        final ImmutableSortedMap.Builder<String, CircuitBreaker.State> states =
+                ImmutableSortedMap.naturalOrder();
+        for (final Map.Entry<String, Guard> entry : fGuards.entrySet())
+        {
+            states.put(entry.getKey(), entry.getValue().fBreaker.getState());
+        }
+        return states.build();
+    }
+
+    private Guard forDivision(final String division)
+    {
+        final Guard existing = fGuards.get(division);
+        if (existing != null)
+        {
+            return existing;
+        }
+        final Guard created = new Guard(division);
+        final Guard raced = fGuards.putIfAbsent(division, created);
+        return (raced != null) ? raced : created;
+    }
+
+    /**
+     * The bulkhead and circuit breaker of one division.
+     */
+    private final class Guard
+    {
+        private final Semaphore fBulkhead = new Semaphore(fMaxConcurrentCalls, true);
+        private final CircuitBreaker fBreaker;
+
+        public Guard(final String division)
+        {
+            fBreaker = new CircuitBreaker(
+                    "VistA division " + division, fFailureThreshold, fOpenMillis);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.login.LoginException;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+
+/**
+ * A {@link VistaProcedureCaller} decorator which makes each call through a division's
+ * bulkhead and circuit breaker. See {@link DivisionGuards}.
+ */
+final class GuardedVistaProcedureCaller implements VistaProcedureCaller
+{
+    private final VistaProcedureCaller fTarget;
+    private final Semaphore fBulkhead;
+    private final long fBulkheadWaitMillis;
+    private final CircuitBreaker fBreaker;
+
+    /**
+     * Constructs an instance.
+     * @param target makes the actual calls
+     * @param bulkhead the permits for concurrent calls to the target's division
+     * @param bulkheadWaitMillis how long a call waits for a permit before failing
+     * @param breaker the circuit breaker of the target's division
+     */
+    public GuardedVistaProcedureCaller(
+            final VistaProcedureCaller target,
+            final Semaphore bulkhead,
+            final long bulkheadWaitMillis,
+            final CircuitBreaker breaker)
+    {
+        fTarget = Objects.requireNonNull(target);
+        fBulkhead = Objects.requireNonNull(bulkhead);
+        fBulkheadWaitMillis = bulkheadWaitMillis;
+        fBreaker = Objects.requireNonNull(breaker);
+    }
+
+    @Override
+    public List<String> doRpc(
+            final String duz, final RemoteProcedure procedure, final String... args)
+            throws LoginException, DataAccessException
+    {
+        return guard(procedure, new Call<List<String>>()
+        {
+            @Override
+            public List<String> call() throws LoginException
+            {
+                return fTarget.doRpc(duz, procedure, args);
+            }
+        });
+    }
+
+    @Override
+    public String doSaveProgressNoteCall(
+            final String duz,
+            final String encryptedSignature,
+            final String patientDfn,
+            final List<String> noteLines)
+            throws LoginException, DataAccessException
+    {
+        return guard(RemoteProcedure.SAVE_PROGRESS_NOTE, new Call<String>()
+        {
+            @Override
+            public String call() throws LoginException
+            {
+                return fTarget.doSaveProgressNoteCall(
+                        duz, encryptedSignature, patientDfn, noteLines);
+            }
+        });
+    }
+
+    @Override
+    public String doSaveRiskCalculationCall(
+            final String duz,
+            final String patientDfn,
+            final String cptCode,
+            final String dateTime,
+            final List<String> outcomes)
+            throws LoginException, DataAccessException
+    {
+        return guard(RemoteProcedure.SAVE_RISK, new Call<String>()
+        {
+            @Override
+            public String call() throws LoginException
+            {
+                return fTarget.doSaveRiskCalculationCall(
+                        duz, patientDfn, cptCode, dateTime, outcomes);
+            }
+        });
+    }
+
+    @Override
+    public String doRetrieveLabsCall(
+            final String duz,
+            final String patientDfn,
+            final List<String> labNames)
+            throws LoginException, DataAccessException
+    {
+        return guard(RemoteProcedure.GET_LABS, new Call<String>()
+        {
+            @Override
+            public String call() throws LoginException
+            {
+                return fTarget.doRetrieveLabsCall(duz, patientDfn, labNames);
+            }
+        });
+    }
+
+    @Override
+    public List<String> doRetrieveMultipleLabsCall(
+            final String duz,
+            final String patientDfn,
+            final List<List<String>> labNameLists)
+            throws LoginException, DataAccessException
+    {
+        return guard(RemoteProcedure.GET_LABS, new Call<List<String>>()
+        {
+            @Override
+            public List<String> call() throws LoginException
+            {
+                return fTarget.doRetrieveMultipleLabsCall(duz, patientDfn, labNameLists);
+            }
+        });
+    }
+
+    @Override
+    public String getDivision()
+    {
+        return fTarget.getDivision();
+    }
+
+    /**
+     * Makes the given call if the breaker permits it and a bulkhead permit becomes
+     * available in time, recording its outcome in the breaker.
+     * @param procedure the procedure called, for error messages
+     * @throws RecoverableDataAccessException if the call was rejected or failed
+     * transiently
+     */
+    private <T> T guard(final RemoteProcedure procedure, final Call<T> call)
+            throws LoginException
+    {
+        if (!fBreaker.tryAcquirePermission())
+        {
+            throw new RecoverableDataAccessException(String.format(
+                    "VistA division %s is failing. Not calling %s until it recovers.",
+                    getDivision(), procedure.getProcedureName()));
+        }
+        try
+        {
+            if (!fBulkhead.tryAcquire(fBulkheadWaitMillis, TimeUnit.MILLISECONDS))
+            {
+                fBreaker.releasePermission();
+                throw new RecoverableDataAccessException(String.format(
+                        "Too many concurrent calls to VistA division %s. Not calling %s.",
+                        getDivision(), procedure.getProcedureName()));
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            fBreaker.releasePermission();
+            Thread.currentThread().interrupt();
+            throw new RecoverableDataAccessException("Interrupted while waiting to call VistA", e);
+        }
+        try
+        {
+            final T result = call.call();
+            fBreaker.recordSuccess();
+            return result;
+        }
+        catch (final LoginException e)
+        {
+            // VistA answered, so it is healthy.
+            fBreaker.recordSuccess();
+            throw e;
+        }
+        catch (final RecoverableDataAccessException e)
+        {
+            // A call abandoned by its caller says nothing about VistA's health.
+            if (Thread.currentThread().isInterrupted())
+            {
+                fBreaker.releasePermission();
+            }
+            else
+            {
+                fBreaker.recordFailure();
+            }
+            throw e;
+        }
+        catch (final RuntimeException e)
+        {
+            fBreaker.releasePermission();
+            throw e;
+        }
+        finally
+        {
+            fBulkhead.release();
+        }
+    }
+
+    /**
+     * A call to the target.
+     */
+    private interface Call<T>
+    {
+        T call() throws LoginException;
+    }
+}
@@ -0,0 +1,335 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.VistaLabs;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan.Section;
+
+/**
+ * <p>A short-lived, size-bounded cache of Patients loaded from VistA, so that starting
+ * several calculations for the same patient does not repeat all of the patient data
+ * calls. See {@link CachingVistaPatientDao}.</p>
+ *
+ * <p>Entries are keyed by division, user DUZ and patient DFN (see {@link PatientKey}),
+ * so one user's retrieval is never served to another.
+ * Since Patients are PHI, the cache is held in memory only and is never persisted.</p>
+ *
+ * <p>The cache records when each section and lab of a Patient was retrieved, and only
+ * serves each one for its own time to live (see {@link PatientCacheTtls}). A section
+ * which has outlived it is simply not marked as retrieved in the served Patient, so it
+ * is retrieved again. Extending a cached Patient does not refresh the data it already
+ * had.</p>
+ *
+ * <p>Patients are copied on the way in and out, so callers may modify what they
+ * receive.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class PatientCache
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PatientCache.class);
+
+    private final PatientCacheTtls fTtls;
+
+    private final Ticker fTicker;
+
+    private final Cache<PatientKey, Entry> fPatients;
+
+    private final AtomicLong fHitCount = new AtomicLong();
+
+    private final AtomicLong fMissCount = new AtomicLong();
+
+    /**
+     * Constructs an instance which uses the same time to live for all data.
+     * @param timeToLiveMillis how long retrieved data may be served from the cache.
+     * Zero disables caching.
+     * @param maximumSize the maximum number of Patients to cache
+     * @throws IllegalArgumentException if either argument is negative
+     */
+    public PatientCache(final long timeToLiveMillis, final long maximumSize)
+    {
+        this(new PatientCacheTtls(timeToLiveMillis), maximumSize);
+    }
+
+    /**
+     * Constructs an instance.
+     * @param ttls how long each kind of retrieved data may be served from the cache
+     * @param maximumSize the maximum number of Patients to cache
+     * @throws IllegalArgumentException if maximumSize is negative
+     */
+    public PatientCache(final PatientCacheTtls ttls, final long maximumSize)
+    {
+        this(ttls, maximumSize, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs an instance using the given ticker, for testing.
+     * @param ttls how long each kind of retrieved data may be served from the cache
+     * @param maximumSize the maximum number of Patients to cache
+     * @param ticker measures the age of the cached data
+     * @throws IllegalArgumentException if maximumSize is negative
+     */
+    PatientCache(final PatientCacheTtls ttls, final long maximumSize, final Ticker ticker)
+    {
+        fTtls = ttls;
+        fTicker = ticker;
+        fPatients = CacheBuilder.newBuilder()
+                // Only an upper bound to release memory: get() checks the actual age.
+                .expireAfterWrite(ttls.getDemographicsTtlMillis(), TimeUnit.MILLISECONDS)
+                .maximumSize(maximumSize)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Returns how long the retrieved data may be served from the cache.
+     */
+    public PatientCacheTtls getTtls()
+    {
+        return fTtls;
+    }
+
+    /**
+     * Returns a copy of the cached Patient, if present and its demographics are fresh.
+     * Only the data which is still fresh is copied and marked as retrieved.
+     * @param division the division the patient was retrieved from
+     * @param duz the DUZ of the user who retrieved the patient
+     * @param dfn the patient's DFN
+     */
+    public Optional<Patient> get(final String division, final String duz, final int dfn)
+    {
+        final PatientKey key = new PatientKey(division, duz, dfn);
+        final Entry entry = fPatients.getIfPresent(key);
+        final long now = fTicker.read();
+        if (entry == null ||
+                isExpired(entry.fDemographicsNanos, now, fTtls.getDemographicsTtlMillis()))
+        {
+            if (entry != null)
+            {
+                fPatients.asMap().remove(key, entry);
+            }
+            fMissCount.incrementAndGet();
+            return Optional.absent();
+        }
+        fHitCount.incrementAndGet();
+        final Patient cached = entry.fPatient;
+        final Patient copy = new Patient(
+                cached.getDfn(), cached.getName(), cached.getGender(), cached.getAge());
+        copy.copyRetrievedData(cached, entry.getFreshData(now));
+        return Optional.of(copy);
+    }
+
+    /**
+     * Caches a copy of the given Patient, which was just loaded from VistA, replacing
+     * any cached Patient. Its demographics and all of its retrieved data are recorded as
+     * retrieved now.
+     * @param division the division the patient was retrieved from
+     * @param duz the DUZ of the user who retrieved the patient
+     * @param patient the retrieved patient
+     */
+    public void put(final String division, final String duz, final Patient patient)
+    {
+        final long now = fTicker.read();
+        final Entry entry = new Entry(new Patient(patient), now).withRetrieved(
+                patient.getRetrievedData(), now);
+        fPatients.put(new PatientKey(division, duz, patient.getDfn()), entry);
+    }
+
+    /**
+     * Adds data which was just retrieved from VistA to the cached Patient, if one is
+     * still cached. The cached Patient's other data, and when it was retrieved, are
+     * unchanged. Does nothing if the Patient is no longer cached, since the age of the
+     * given Patient's demographics is not known.
+     * @param division the division the patient was retrieved from
+     * @param duz the DUZ of the user who retrieved the patient
+     * @param patient the patient containing the retrieved data
+     * @param retrieved the data just retrieved. The patient must have retrieved it.
+     * @throws IllegalArgumentException if the patient has not retrieved the given data
+     */
+    public void addRetrievedData(
+            final String division,
+            final String duz,
+            final Patient patient,
+            final RetrievalPlan retrieved)
+    {
+        final PatientKey key = new PatientKey(division, duz, patient.getDfn());
+        final ConcurrentMap<PatientKey, Entry> entries = fPatients.asMap();
+        while (true)
+        {
+            final Entry existing = entries.get(key);
+            if (existing == null)
+            {
+                return;
+            }
+            final Patient merged = new Patient(existing.fPatient);
+            merged.copyRetrievedData(patient, retrieved);
+            final Entry updated = new Entry(
+                    merged,
+                    existing.fDemographicsNanos,
+                    existing.fSectionNanos,
+                    existing.fLabNanos).withRetrieved(retrieved, fTicker.read());
+            // Retry if another thread replaced the entry meanwhile.
+            if (entries.replace(key, existing, updated))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Discards all cached data for the given patient, no matter which user retrieved
+     * it. Called when the patient's data in VistA is known to have changed.
+     * @param division the patient's division
+     * @param dfn the patient's DFN
+     */
+    public void invalidatePatient(final String division, final int dfn)
+    {
+        final Iterator<PatientKey> keys = fPatients.asMap().keySet().iterator();
+        while (keys.hasNext())
+        {
+            final PatientKey key = keys.next();
+            if (key.getDfn() == dfn && key.getDivision().equals(division))
+            {
+                keys.remove();
+            }
+        }
+        LOGGER.debug("Invalidated cached data for patient {} in division {}.", dfn, division);
+    }
+
+    /**
+     * Discards all cached data.
+     */
+    public void invalidateAll()
+    {
+        fPatients.invalidateAll();
+    }
+
+    /**
+     * Returns the number of cached Patients.
+     */
+    public long size()
+    {
+        return fPatients.size();
+    }
+
+    /**
+     * Returns the number of lookups which found a Patient with fresh demographics.
+     */
+    public long getHitCount()
+    {
+        return fHitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups which did not find a Patient with fresh
+     * demographics.
+     */
+    public long getMissCount()
+    {
+        return fMissCount.get();
+    }
+
+    private static boolean isExpired(
+            final long retrievedNanos, final long nowNanos, final long ttlMillis)
+    {
+        return nowNanos - retrievedNanos >= TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * A cached Patient along with when each part of it was retrieved, in ticker nanos.
+     * Immutable: the Patient is never modified once cached.
+     */
+    private final class Entry
+    {
+        private final Patient fPatient;
+        private final long fDemographicsNanos;
+        private final ImmutableMap<Section, Long> fSectionNanos;
+        private final ImmutableMap<VistaLabs, Long> fLabNanos;
+
+        public Entry(final Patient patient, final long demographicsNanos)
+        {
+            this(
+                    patient,
+                    demographicsNanos,
+                    ImmutableMap.<Section, Long>of(),
+                    ImmutableMap.<VistaLabs, Long>of());
+        }
+
+        public Entry(
+                final Patient patient,
+                final long demographicsNanos,
+                final ImmutableMap<Section, Long> sectionNanos,
+                final ImmutableMap<VistaLabs, Long> labNanos)
+        {
+            fPatient = patient;
+            fDemographicsNanos = demographicsNanos;
+            fSectionNanos = sectionNanos;
+            fLabNanos = labNanos;
+        }
+
+        /**
+         * Returns a copy of this entry which records the given data as retrieved at the
+         * given time.
+         */
+        public Entry withRetrieved(final RetrievalPlan retrieved, final long nowNanos)
+        {
+            return new Entry(
+                    fPatient,
+                    fDemographicsNanos,
+                    withTime(fSectionNanos, retrieved.getSections(), nowNanos),
+                    withTime(fLabNanos, retrieved.getLabs(), nowNanos));
+        }
+
+        /**
+         * Returns the data which is still fresh at the given time.
+         */
+        public RetrievalPlan getFreshData(final long nowNanos)
+        {
+            final EnumSet<Section> sections = EnumSet.noneOf(Section.class);
+            for (final Map.Entry<Section, Long> time : fSectionNanos.entrySet())
+            {
+                if (!isExpired(time.getValue(), nowNanos, fTtls.getTtlMillis(time.getKey())))
+                {
+                    sections.add(time.getKey());
+                }
+            }
+            final EnumSet<VistaLabs> labs = EnumSet.noneOf(VistaLabs.class);
+            for (final Map.Entry<VistaLabs, Long> time : fLabNanos.entrySet())
+            {
+                if (!isExpired(time.getValue(), nowNanos, fTtls.getLabsTtlMillis()))
+                {
+                    labs.add(time.getKey());
+                }
+            }
+            return RetrievalPlan.of(sections, labs);
+        }
+    }
+
+    private static <K> ImmutableMap<K, Long> withTime(
+            final ImmutableMap<K, Long> times, final Iterable<K> keys, final long nowNanos)
+    {
+        final HashMap<K, Long> updated = new HashMap<>(times);
+        for (final K key : keys)
+        {
+            updated.put(key, nowNanos);
+        }
+        return ImmutableMap.copyOf(updated);
+    }
+}
@@ -0,0 +1,99 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.Map;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan.Section;
+
+/**
+ * <p>Configures how long each kind of patient data may be served from the {@link
+ * PatientCache} after it was retrieved from VistA. Volatile data such as vitals and labs
+ * should only be reused for a few minutes, while the demographics may be reused for
+ * longer.</p>
+ *
+ * <p>The default time to live applies to the demographics and to every section without
+ * its own. Since a cached patient expires with its demographics, no data is served for
+ * longer than the default.</p>
+ *
+ * <p>Immutable. Per Effective Java Item 17, this class is marked final because it was
+ * not designed for inheritance.</p>
+ */
+public final class PatientCacheTtls
+{
+    private final long fDefaultTtlMillis;
+    private final ImmutableMap<Section, Long> fSectionTtlMillis;
+    private final long fLabsTtlMillis;
+
+    /**
+     * Constructs an instance which uses the same time to live for all data.
+     * @param ttlMillis the time to live, in milliseconds. Zero disables caching.
+     * @throws IllegalArgumentException if ttlMillis is negative
+     */
+    public PatientCacheTtls(final long ttlMillis)
+    {
+        this(ttlMillis, ImmutableMap.<Section, Long>of(), ttlMillis);
+    }
+
+    /**
+     * Constructs an instance.
+     * @param defaultTtlMillis the time to live of the demographics and of sections not
+     * in the sectionTtlMillis map, in milliseconds. Zero disables caching.
+     * @param sectionTtlMillis the time to live of specific sections, in milliseconds
+     * @param labsTtlMillis the time to live of each lab, in milliseconds
+     * @throws IllegalArgumentException if any time to live is negative
+     */
+    public PatientCacheTtls(
+            final long defaultTtlMillis,
+            final Map<Section, Long> sectionTtlMillis,
+            final long labsTtlMillis)
+    {
+        Preconditions.checkArgument(defaultTtlMillis >= 0L, "TTL must be non-negative");
+        for (final Long ttl : sectionTtlMillis.values())
+        {
+            Preconditions.checkArgument(ttl >= 0L, "TTL must be non-negative");
+        }
+        Preconditions.checkArgument(labsTtlMillis >= 0L, "TTL must be non-negative");
+        fDefaultTtlMillis = defaultTtlMillis;
+        fSectionTtlMillis = ImmutableMap.copyOf(sectionTtlMillis);
+        fLabsTtlMillis = labsTtlMillis;
+    }
+
+    /**
+     * Returns the time to live of the demographics, which bounds how long a patient
+     * stays cached at all, in milliseconds.
+     */
+    public long getDemographicsTtlMillis()
+    {
+        return fDefaultTtlMillis;
+    }
+
+    /**
+     * Returns the time to live of the given section, in milliseconds.
+     */
+    public long getTtlMillis(final Section section)
+    {
+        final Long ttl = fSectionTtlMillis.get(section);
+        return (ttl == null) ? fDefaultTtlMillis : ttl;
+    }
+
+    /**
+     * Returns the time to live of each lab, in milliseconds.
+     */
+    public long getLabsTtlMillis()
+    {
+        return fLabsTtlMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("defaultTtlMillis", fDefaultTtlMillis)
+                .add("sectionTtlMillis", fSectionTtlMillis)
+                .add("labsTtlMillis", fLabsTtlMillis)
+                .toString();
+    }
+}
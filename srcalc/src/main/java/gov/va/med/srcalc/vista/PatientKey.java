@@ -0,0 +1,80 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.Objects;
+
+/**
+ * <p>Identifies a patient as retrieved by a particular user: VistA decides which patients
+ * each user may see, so one user's retrieval must never be shared with another. Used by
+ * {@link PatientCache} and {@link PatientLoadCoalescer}.</p>
+ *
+ * <p>Immutable.</p>
+ */
+final class PatientKey
+{
+    private final String fDivision;
+    private final String fDuz;
+    private final int fDfn;
+
+    /**
+     * Constructs an instance.
+     * @param division the division the patient is retrieved from
+     * @param duz the DUZ of the user retrieving the patient
+     * @param dfn the patient's DFN
+     * @throws NullPointerException if division or duz is null
+     */
+    public PatientKey(final String division, final String duz, final int dfn)
+    {
+        fDivision = Objects.requireNonNull(division);
+        fDuz = Objects.requireNonNull(duz);
+        fDfn = dfn;
+    }
+
+    /**
+     * Returns the division the patient is retrieved from.
+     */
+    public String getDivision()
+    {
+        return fDivision;
+    }
+
+    /**
+     * Returns the DUZ of the user retrieving the patient.
+     */
+    public String getDuz()
+    {
+        return fDuz;
+    }
+
+    /**
+     * Returns the patient's DFN.
+     */
+    public int getDfn()
+    {
+        return fDfn;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("patient %d for user %s in division %s", fDfn, fDuz, fDivision);
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (o instanceof PatientKey)
+        {
+            final PatientKey other = (PatientKey)o;
+            return fDfn == other.fDfn &&
+                    fDivision.equals(other.fDivision) &&
+                    fDuz.equals(other.fDuz);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(fDivision, fDuz, fDfn);
+    }
+}
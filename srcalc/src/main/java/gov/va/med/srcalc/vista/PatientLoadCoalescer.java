@@ -0,0 +1,193 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.RecoverableDataAccessException;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.SettableFuture;
+
+import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+
+/**
+ * <p>Shares one in-progress patient load among concurrent callers for the same patient
+ * and user, so that double-clicks, multiple browser tabs and CPRS re-launching the
+ * application do not repeat all of the patient data calls. See {@link
+ * CoalescingVistaPatientDao}.</p>
+ *
+ * <p>Loads are keyed like the {@link PatientCache}: by division, user DUZ and patient
+ * DFN. A caller only waits for a load in progress if that load retrieves everything the
+ * caller needs. Otherwise the caller starts its own load, which later callers may then
+ * share.</p>
+ *
+ * <p>Waiting callers receive their own copy of the loaded Patient, or the exception the
+ * load failed with. If the caller performing a load is interrupted (e.g., because its
+ * calculation was abandoned), the waiting callers are not: they start another load
+ * instead.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class PatientLoadCoalescer
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PatientLoadCoalescer.class);
+
+    private final ConcurrentHashMap<PatientKey, Load> fLoads = new ConcurrentHashMap<>();
+
+    private final AtomicLong fLoadCount = new AtomicLong();
+
+    private final AtomicLong fDeduplicatedCount = new AtomicLong();
+
+    /**
+     * Loads the given patient using the given DAO, unless a load in progress for the same
+     * patient and user already retrieves the given plan, in which case waits for that
+     * load instead.
+     * @param division the division the patient is retrieved from
+     * @param duz the DUZ of the user retrieving the patient
+     * @param dfn the patient's DFN
+     * @param plan the data to retrieve besides the demographics
+     * @param target the DAO to load the patient with, if necessary
+     * @return the loaded Patient, which is not shared with any other caller
+     * @throws org.springframework.dao.DataAccessException if the load failed or the
+     * calling thread was interrupted while waiting
+     */
+    public Patient getPatient(
+            final String division,
+            final String duz,
+            final int dfn,
+            final RetrievalPlan plan,
+            final VistaPatientDao target)
+    {
+        final PatientKey key = new PatientKey(division, duz, dfn);
+        while (true)
+        {
+            final Load existing = fLoads.get(key);
+            if (existing == null)
+            {
+                final Load load = new Load(plan);
+                if (fLoads.putIfAbsent(key, load) == null)
+                {
+                    return load(key, load, target);
+                }
+            }
+            else if (!existing.fPlan.covers(plan))
+            {
+                // Make ours the load for later callers to share. The existing load
+                // still completes for its own callers.
+                final Load load = new Load(plan);
+                if (fLoads.replace(key, existing, load))
+                {
+                    return load(key, load, target);
+                }
+            }
+            else
+            {
+                final Optional<Patient> shared = await(key, existing);
+                if (shared.isPresent())
+                {
+                    return shared.get();
+                }
+            }
+            // Either we raced with another caller or the load we waited for was
+            // abandoned: try again.
+        }
+    }
+
+    /**
+     * Performs the given load, which this caller has registered, and publishes the result
+     * to any waiting callers.
+     */
+    private Patient load(final PatientKey key, final Load load, final VistaPatientDao target)
+    {
+        fLoadCount.incrementAndGet();
+        try
+        {
+            final Patient patient = target.getPatient(key.getDfn(), load.fPlan);
+            // Waiting callers copy a snapshot that nothing else can modify.
+            load.fResult.set(new Patient(patient));
+            return patient;
+        }
+        catch (final RuntimeException ex)
+        {
+            // If we were interrupted, the failure only applies to us: see below.
+            if (!Thread.currentThread().isInterrupted())
+            {
+                load.fResult.setException(ex);
+            }
+            throw ex;
+        }
+        finally
+        {
+            fLoads.remove(key, load);
+            // Has no effect if the result was set above. Otherwise, waiting callers will
+            // retry.
+            load.fResult.cancel(false);
+        }
+    }
+
+    /**
+     * Waits for another caller's load.
+     * @return a copy of the loaded Patient, or absent if the load was abandoned
+     */
+    private Optional<Patient> await(final PatientKey key, final Load load)
+    {
+        LOGGER.debug("Waiting for a load in progress of {}.", key);
+        fDeduplicatedCount.incrementAndGet();
+        try
+        {
+            return Optional.of(new Patient(load.fResult.get()));
+        }
+        catch (final CancellationException ex)
+        {
+            // The load did not happen, so nothing was deduplicated.
+            fDeduplicatedCount.decrementAndGet();
+            LOGGER.debug("The load of {} was abandoned.", key);
+            return Optional.absent();
+        }
+        catch (final ExecutionException ex)
+        {
+            throw Throwables.propagate(ex.getCause());
+        }
+        catch (final InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new RecoverableDataAccessException("Interrupted while loading patient.", ex);
+        }
+    }
+
+    /**
+     * Returns the number of patient loads performed.
+     */
+    public long getLoadCount()
+    {
+        return fLoadCount.get();
+    }
+
+    /**
+     * Returns the number of patient loads avoided by waiting for a load in progress.
+     */
+    public long getDeduplicatedCount()
+    {
+        return fDeduplicatedCount.get();
+    }
+
+    /**
+     * A load in progress.
+     */
+    private static final class Load
+    {
+        private final RetrievalPlan fPlan;
+        private final SettableFuture<Patient> fResult = SettableFuture.create();
+
+        public Load(final RetrievalPlan plan)
+        {
+            fPlan = plan;
+        }
+    }
+}
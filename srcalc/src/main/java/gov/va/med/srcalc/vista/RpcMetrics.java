@@ -0,0 +1,183 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import gov.va.med.srcalc.util.Histogram;
+
+/**
+ * <p>Collects the latency, response sizes and failures of remote procedure calls for
+ * each remote procedure at each division, to find out which calls dominate page latency
+ * at each site. {@link VistaProcedureCaller} implementations record their calls here;
+ * the statistics are shown on an administration page and exported via JMX (see
+ * {@link RpcMetricsMXBean}).</p>
+ *
+ * <p>Recording takes constant time and space: see {@link Histogram}.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class RpcMetrics implements RpcMetricsMXBean
+{
+    private static final Comparator<RpcStatistics> DIVISION_THEN_PROCEDURE =
+            new Comparator<RpcStatistics>()
+            {
+                @Override
+                public int compare(final RpcStatistics a, final RpcStatistics b)
+                {
+                    return ComparisonChain.start()
+                            .compare(a.getDivision(), b.getDivision())
+                            .compare(a.getProcedure(), b.getProcedure())
+                            .result();
+                }
+            };
+
+    private final ConcurrentHashMap<Map.Entry<String, RemoteProcedure>, ProcedureMetrics>
+            fProcedures = new ConcurrentHashMap<>();
+
+    private volatile long fCollectedSince = System.currentTimeMillis();
+
+    /**
+     * Records that a connection for calling the given procedure was obtained.
+     * @param division the division connected to
+     * @param procedure the (first) procedure to be called on the connection
+     * @param millis the time it took to obtain the connection
+     */
+    public void recordConnection(
+            final String division, final RemoteProcedure procedure, final long millis)
+    {
+        getProcedureMetrics(division, procedure).fConnectionMillis.record(millis);
+    }
+
+    /**
+     * Records a successful call.
+     * @param division the division called
+     * @param procedure the procedure called
+     * @param millis the time it took to execute the call once connected
+     * @param responseCharacters the number of characters in the response
+     * @param responseLines the number of lines in the response
+     */
+    public void recordCall(
+            final String division,
+            final RemoteProcedure procedure,
+            final long millis,
+            final long responseCharacters,
+            final long responseLines)
+    {
+        final ProcedureMetrics metrics = getProcedureMetrics(division, procedure);
+        metrics.fCallMillis.record(millis);
+        metrics.fResponseCharacters.record(responseCharacters);
+        metrics.fResponseLines.record(responseLines);
+    }
+
+    /**
+     * Records a failed call, including a failure to obtain a connection.
+     * @param division the division called
+     * @param procedure the procedure called
+     * @param failure the exception thrown
+     */
+    public void recordFailure(
+            final String division, final RemoteProcedure procedure, final Throwable failure)
+    {
+        getProcedureMetrics(division, procedure).recordFailure(failure.getClass().getName());
+    }
+
+    @Override
+    public Date getCollectedSince()
+    {
+        return new Date(fCollectedSince);
+    }
+
+    @Override
+    public List<RpcStatistics> getStatistics()
+    {
+        final ArrayList<RpcStatistics> statistics = new ArrayList<>(fProcedures.size());
+        for (final Map.Entry<Map.Entry<String, RemoteProcedure>, ProcedureMetrics> entry :
+                fProcedures.entrySet())
+        {
+            statistics.add(entry.getValue().snapshot(
+                    entry.getKey().getKey(), entry.getKey().getValue()));
+        }
+        Collections.sort(statistics, DIVISION_THEN_PROCEDURE);
+        return ImmutableList.copyOf(statistics);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Calls in progress may still be recorded afterward.</p>
+     */
+    @Override
+    public void reset()
+    {
+        fProcedures.clear();
+        fCollectedSince = System.currentTimeMillis();
+    }
+
+    private ProcedureMetrics getProcedureMetrics(
+            final String division, final RemoteProcedure procedure)
+    {
+        final Map.Entry<String, RemoteProcedure> key = Maps.immutableEntry(division, procedure);
+        final ProcedureMetrics existing = fProcedures.get(key);
+        if (existing != null)
+        {
+            return existing;
+        }
+        final ProcedureMetrics created = new ProcedureMetrics();
+        final ProcedureMetrics raced = fProcedures.putIfAbsent(key, created);
+        return (raced != null) ? raced : created;
+    }
+
+    /**
+     * The metrics of one procedure at one division.
+     */
+    private static final class ProcedureMetrics
+    {
+        private final Histogram fConnectionMillis = new Histogram();
+        private final Histogram fCallMillis = new Histogram();
+        private final Histogram fResponseCharacters = new Histogram();
+        private final Histogram fResponseLines = new Histogram();
+        private final ConcurrentHashMap<String, AtomicLong> fFailuresByClass =
+                new ConcurrentHashMap<>();
+
+        public void recordFailure(final String className)
+        {
+            AtomicLong count = fFailuresByClass.get(className);
+            if (count == null)
+            {
+                final AtomicLong created = new AtomicLong();
+                count = fFailuresByClass.putIfAbsent(className, created);
+                if (count == null)
+                {
+                    count = created;
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        public RpcStatistics snapshot(final String division, final RemoteProcedure procedure)
+        {
+            final Map<String, Long> failuresByClass = Maps.newHashMap();
+            for (final Map.Entry<String, AtomicLong> entry : fFailuresByClass.entrySet())
+            {
+                failuresByClass.put(entry.getKey(), entry.getValue().get());
+            }
+            return new RpcStatistics(
+                    division,
+                    procedure,
+                    failuresByClass,
+                    fConnectionMillis.snapshot(),
+                    fCallMillis.snapshot(),
+                    fResponseCharacters.snapshot(),
+                    fResponseLines.snapshot());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The JMX management interface of {@link RpcMetrics}. Exported in applicationContext.xml.
+ */
+public interface RpcMetricsMXBean
+{
+    /**
+     * Returns when statistics collection started: application startup or the last
+     * {@link #reset()}.
+     */
+    Date getCollectedSince();
+
+    /**
+     * Returns the statistics of each remote procedure at each division called since
+     * {@link #getCollectedSince()}.
+     * @return a list ordered by division, then procedure
+     */
+    List<RpcStatistics> getStatistics();
+
+    /**
+     * Discards all statistics collected so far.
+     */
+    void reset();
+}
@@ -0,0 +1,153 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+
+import gov.va.med.srcalc.util.Histogram;
+
+/**
+ * <p>An immutable summary of the calls of one remote procedure at one division. See
+ * {@link RpcMetrics#getStatistics()}.</p>
+ *
+ * <p>Per Effective Java Item 17, this class is marked final because it was not designed
+ * for inheritance.</p>
+ */
+public final class RpcStatistics
+{
+    private final String fDivision;
+    private final RemoteProcedure fProcedure;
+    private final long fFailureCount;
+    private final ImmutableMap<String, Long> fFailuresByClass;
+    private final Histogram.Snapshot fConnectionMillis;
+    private final Histogram.Snapshot fCallMillis;
+    private final Histogram.Snapshot fResponseCharacters;
+    private final Histogram.Snapshot fResponseLines;
+
+    /**
+     * Constructs an instance with the given properties.
+     * @param division the division called
+     * @param procedure the procedure called
+     * @param failuresByClass the number of failures by exception class name
+     * @param connectionMillis the time to obtain each connection
+     * @param callMillis the time to execute each successful call
+     * @param responseCharacters the size of each successful call's response
+     * @param responseLines the number of lines in each successful call's response
+     */
+    public RpcStatistics(
+            final String division,
+            final RemoteProcedure procedure,
+            final Map<String, Long> failuresByClass,
+            final Histogram.Snapshot connectionMillis,
+            final Histogram.Snapshot callMillis,
+            final Histogram.Snapshot responseCharacters,
+            final Histogram.Snapshot responseLines)
+    {
+        fDivision = Objects.requireNonNull(division);
+        fProcedure = Objects.requireNonNull(procedure);
+        // Not an ImmutableSortedMap: JMX cannot convert a SortedMap with a comparator.
+        fFailuresByClass = ImmutableMap.copyOf(new TreeMap<>(failuresByClass));
+        long failureCount = 0L;
+        for (final long count : fFailuresByClass.values())
+        {
+            failureCount += count;
+        }
+        fFailureCount = failureCount;
+        fConnectionMillis = Objects.requireNonNull(connectionMillis);
+        fCallMillis = Objects.requireNonNull(callMillis);
+        fResponseCharacters = Objects.requireNonNull(responseCharacters);
+        fResponseLines = Objects.requireNonNull(responseLines);
+    }
+
+    /**
+     * Returns the division's station number.
+     */
+    public String getDivision()
+    {
+        return fDivision;
+    }
+
+    /**
+     * Returns the remote procedure.
+     */
+    public RemoteProcedure getProcedure()
+    {
+        return fProcedure;
+    }
+
+    /**
+     * Returns the number of successful calls.
+     */
+    public long getSuccessCount()
+    {
+        return fCallMillis.getCount();
+    }
+
+    /**
+     * Returns the number of failed calls, including failures to obtain a connection.
+     */
+    public long getFailureCount()
+    {
+        return fFailureCount;
+    }
+
+    /**
+     * Returns the number of failed calls by the class name of the exception thrown
+     * (before translation to a DataAccessException or LoginException).
+     * @return a map sorted by class name
+     */
+    public Map<String, Long> getFailuresByClass()
+    {
+        return fFailuresByClass;
+    }
+
+    /**
+     * Returns the time to obtain a connection for these calls, in milliseconds. Calls
+     * made together on one connection only count one connection.
+     */
+    public Histogram.Snapshot getConnectionMillis()
+    {
+        return fConnectionMillis;
+    }
+
+    /**
+     * Returns the time to execute each successful call once connected, in milliseconds.
+     */
+    public Histogram.Snapshot getCallMillis()
+    {
+        return fCallMillis;
+    }
+
+    /**
+     * Returns the number of characters in each successful call's response.
+     */
+    public Histogram.Snapshot getResponseCharacters()
+    {
+        return fResponseCharacters;
+    }
+
+    /**
+     * Returns the number of lines in each successful call's response.
+     */
+    public Histogram.Snapshot getResponseLines()
+    {
+        return fResponseLines;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("division", fDivision)
+                .add("procedure", fProcedure)
+                .add("failuresByClass", fFailuresByClass)
+                .add("connectionMillis", fConnectionMillis)
+                .add("callMillis", fCallMillis)
+                .add("responseCharacters", fResponseCharacters)
+                .add("responseLines", fResponseLines)
+                .toString();
+    }
+}
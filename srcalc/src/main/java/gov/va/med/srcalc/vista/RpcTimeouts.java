@@ -0,0 +1,69 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.Map;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>Configures how long each remote procedure call may wait for VistA's response
+ * before failing with a transient error. Bounding each call keeps a degraded VistA from
+ * holding our threads and connections until the socket eventually gives up.</p>
+ *
+ * <p>Immutable. Per Effective Java Item 17, this class is marked final because it was
+ * not designed for inheritance.</p>
+ */
+public final class RpcTimeouts
+{
+    /**
+     * The default timeout, in milliseconds.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30000L;
+
+    /**
+     * Uses {@link #DEFAULT_TIMEOUT_MILLIS} for every procedure.
+     */
+    public static final RpcTimeouts DEFAULT = new RpcTimeouts(
+            DEFAULT_TIMEOUT_MILLIS, ImmutableMap.<RemoteProcedure, Long>of());
+
+    private final long fDefaultTimeoutMillis;
+    private final ImmutableMap<RemoteProcedure, Long> fTimeoutMillis;
+
+    /**
+     * Constructs an instance.
+     * @param defaultTimeoutMillis the timeout of remote procedures not in the
+     * timeoutMillis map
+     * @param timeoutMillis the timeout of specific remote procedures
+     * @throws IllegalArgumentException if any timeout is not positive
+     */
+    public RpcTimeouts(
+            final long defaultTimeoutMillis, final Map<RemoteProcedure, Long> timeoutMillis)
+    {
+        Preconditions.checkArgument(defaultTimeoutMillis > 0L, "timeout must be positive");
+        for (final Long timeout : timeoutMillis.values())
+        {
+            Preconditions.checkArgument(timeout > 0L, "timeout must be positive");
+        }
+        fDefaultTimeoutMillis = defaultTimeoutMillis;
+        fTimeoutMillis = ImmutableMap.copyOf(timeoutMillis);
+    }
+
+    /**
+     * Returns the timeout of the given remote procedure, in milliseconds.
+     */
+    public long getTimeoutMillis(final RemoteProcedure procedure)
+    {
+        final Long timeout = fTimeoutMillis.get(procedure);
+        return (timeout == null) ? fDefaultTimeoutMillis : timeout;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("defaultTimeoutMillis", fDefaultTimeoutMillis)
+                .add("timeoutMillis", fTimeoutMillis)
+                .toString();
+    }
+}
@@ -6,16 +6,22 @@ import gov.va.med.srcalc.domain.HealthFactor;
 import gov.va.med.srcalc.domain.Patient;
 import gov.va.med.srcalc.domain.ReferenceNotes;
 import gov.va.med.srcalc.domain.VistaLabs;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan.Section;
 import gov.va.med.srcalc.domain.calculation.RetrievedValue;
 import gov.va.med.srcalc.vista.vistalink.VistaLinkUtil;
 
 import java.security.GeneralSecurityException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
 import java.util.regex.Pattern;
 
 import javax.xml.bind.JAXBContext;
@@ -27,14 +33,18 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.NonTransientDataAccessResourceException;
 import org.springframework.dao.PermissionDeniedDataAccessException;
 import org.springframework.dao.RecoverableDataAccessException;
 import org.xml.sax.InputSource;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * Implementation of {@link VistaPatientDao} using remote procedures. Each
@@ -51,9 +61,23 @@ public class RpcVistaPatientDao implements VistaPatientDao
     private static final String ADL_ENTERPRISE_TITLE = "NURSING ADMISSION EVALUATION NOTE";
     
     /**
-     * The expected date format for information received from VistA.
+     * The expected date format pattern for information received from VistA. (A pattern
+     * rather than a shared {@link SimpleDateFormat} because SimpleDateFormat is not
+     * thread-safe.)
      */
-    public static final SimpleDateFormat VISTA_DATE_OUTPUT_FORMAT = new SimpleDateFormat("MM/dd/yy@HH:mm");
+    public static final String VISTA_DATE_OUTPUT_PATTERN = "MM/dd/yy@HH:mm";
+    
+    /**
+     * Indicates no timeout for retrieving patient data.
+     */
+    public static final long NO_TIMEOUT = 0L;
+    
+    /**
+     * The maximum number of labs retrieved by each batched lab call. Each batch runs
+     * sequentially on its own VistA connection, so this bounds the labs' share of the
+     * retrieval time while still saving most of the per-lab connection overhead.
+     */
+    static final int LAB_BATCH_SIZE = 4;
     
     private static final ImmutableMap<String, Patient.Gender> TRANSLATION_MAP = ImmutableMap.of(
                     "M", Patient.Gender.Male,
@@ -63,8 +87,13 @@ public class RpcVistaPatientDao implements VistaPatientDao
     
     private final String fDuz;
     
+    private final ExecutorService fExecutor;
+    
+    private final long fRetrievalTimeoutMillis;
+    
     /**
-     * Constructs an instance.
+     * Constructs an instance which performs all procedure calls sequentially on the
+     * calling thread.
      * 
      * @param procedureCaller for making the procedure calls
      * @param duz the user DUZ under which to perform the procedure calls. Must identify a
@@ -72,27 +101,77 @@ public class RpcVistaPatientDao implements VistaPatientDao
      */
     public RpcVistaPatientDao(
             final VistaProcedureCaller procedureCaller, final String duz)
+    {
+        this(procedureCaller, duz, MoreExecutors.newDirectExecutorService(), NO_TIMEOUT);
+    }
+    
+    /**
+     * Constructs an instance which performs the independent procedure calls for
+     * patient data concurrently using the given executor.
+     * 
+     * @param procedureCaller for making the procedure calls. Must be thread-safe.
+     * @param duz the user DUZ under which to perform the procedure calls. Must identify a
+     * valid VistA user.
+     * @param executor runs the procedure calls. Since each executing call holds a VistA
+     * connection, this executor should be bounded and shared by all DAOs for the same
+     * division.
+     * @param retrievalTimeoutMillis the maximum time each retrieval waits for the
+     * patient's data, or {@link #NO_TIMEOUT}. Any data not retrieved by then is omitted
+     * from the Patient.
+     */
+    public RpcVistaPatientDao(
+            final VistaProcedureCaller procedureCaller,
+            final String duz,
+            final ExecutorService executor,
+            final long retrievalTimeoutMillis)
     {
         fProcedureCaller = procedureCaller;
         fDuz = duz;
+        fExecutor = Objects.requireNonNull(executor);
+        fRetrievalTimeoutMillis = retrievalTimeoutMillis;
     }
     
     /**
      * {@inheritDoc}
-     * <p>This method will eager load all available information about the patient including vitals,
-     * basic information, and lab results. Eager loading is done to sacrifice efficiency for
-     * simplicity. The number of eager remote procedure calls is comparable to VistA CPRS.</p>
-     * @param dfn the dfn identifying the specified patient
+     * <p>The number of remote procedure calls is comparable to VistA CPRS.</p>
      */
     @Override
     public Patient getPatient(final int dfn)
     {
+        return getPatient(dfn, RetrievalPlan.ALL);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>The remote procedure calls are submitted to this DAO's executor, so
+     * independent calls may run concurrently. If the configured timeout elapses, any
+     * data besides the basic demographics which has not yet been retrieved is logged
+     * and omitted. Such data, and optional data which fails transiently (e.g., because
+     * the division's circuit breaker is open), is not marked as retrieved, so a later
+     * {@link #retrievePatientData(Patient, RetrievalPlan)} tries again.</p>
+     */
+    @Override
+    public Patient getPatient(final int dfn, final RetrievalPlan plan)
+    {
+        final RetrievalDeadline deadline = new RetrievalDeadline(fRetrievalTimeoutMillis);
+        Future<List<String>> basicFuture = null;
+        PlannedRetrieval retrieval = null;
         try
         {
-            final List<String> basicResults = fProcedureCaller.doRpc(
-                    fDuz, RemoteProcedure.GET_PATIENT, String.valueOf(dfn));
-            final List<String> vitalResults = fProcedureCaller.doRpc(
-                    fDuz, RemoteProcedure.GET_RECENT_VITALS, String.valueOf(dfn));
+            // Submit all calls up-front in the same order they were historically made
+            // sequentially.
+            basicFuture = submitRpc(RemoteProcedure.GET_PATIENT, String.valueOf(dfn));
+            retrieval = new PlannedRetrieval(dfn, plan);
+            
+            // The basic demographics are required, so fail if they are not available.
+            final Optional<List<String>> basicOptional =
+                    deadline.get(basicFuture, "demographics");
+            if (!basicOptional.isPresent())
+            {
+                throw new RecoverableDataAccessException(
+                        "Timed out loading patient demographics.");
+            }
+            final List<String> basicResults = basicOptional.get();
             // Fields are separated by '^'
             // Basic patient demographics (age, gender)
             final List<String> basicArray = Splitter.on('^').splitToList(basicResults.get(0));
@@ -100,62 +179,176 @@ public class RpcVistaPatientDao implements VistaPatientDao
             final int patientAge = Integer.parseInt(basicArray.get(1));
             final Patient.Gender patientGender = translateFromVista(basicArray.get(2));
             final Patient patient = new Patient(dfn, patientName, patientGender, patientAge);
-            // Patient vitals information (including but not limited to BMI, height,
-            // weight, weight 6 months ago). If there are no results, a single line with
-            // an error message is returned.
-            LOGGER.debug("Patient Vital Results: {}", vitalResults);
-            if (vitalResults.size() > 1)
-            {
-                // Parse the returned data and put it into the patient data
-                // This will include the most recent height, current weight, and BMI
-                parseRecentVitalResults(patient, vitalResults);
-            }
-            
-            // We have to get the current weight before we do this
-            // If there was no current weight, no need to retrieve other weight
-            if (patient.getWeight() != null)
-            {
-                final List<String> weightResults = retrieveWeight6MonthsAgo(patient);
-                LOGGER.debug("Weight Results: {}", weightResults);
-                // A line begging with "0^NO" means that no results were retrieved
-                // The actual line varies depending on the vital requested.
-                if (weightResults.size() > 0 && !weightResults.get(0).equals(NO_WEIGHT))
-                {
-                    LOGGER.debug("Patient Vital Results: {}", weightResults);
-                    // Parse the returned data and put it into the patient data
-                    // This includes weight and BMI currently.
-                    parseWeightResults(patient, weightResults);
-                }
-            }
             
-            // Retrieve all labs from VistA
-            retrieveLabs(dfn, patient);
-            // Retrieve all health factors in the last year from VistA and filter
-            // by the list given to us by the NSO.
-            retrieveHealthFactors(dfn, patient);
-            // Retrieve only medications with the "Active" status and not "Pending"
-            retrieveActiveMedications(dfn, patient);
-            // Retrieve the patient's nursing notes from VistA
-            retrieveAdlNotes(dfn, patient);
-            // Retrieve any notes with DNR in the title.
-            retrieveDnrNotes(dfn, patient);
+            retrieval.parseInto(patient, deadline);
             
-            LOGGER.debug("Loaded {} from VistA.", patient);
+            LOGGER.debug("Loaded {} from VistA with {}.", patient, plan);
             return patient;
         }
-        catch (final GeneralSecurityException e)
+        catch (final ExecutionException e)
+        {
+            throw translateException(e.getCause());
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RecoverableDataAccessException("Interrupted while loading patient.", e);
+        }
+        catch (final RecoverableDataAccessException e)
+        {
+            // Thrown above.
+            throw e;
+        }
+        catch (final RejectedExecutionException e)
+        {
+            throw translateRejection(e);
+        }
+        catch (final Exception e)
+        {
+            throw translateException(e);
+        }
+        finally
+        {
+            // Don't leave abandoned calls holding VistA connections. This has no effect
+            // on completed calls.
+            if (basicFuture != null)
+            {
+                basicFuture.cancel(true);
+            }
+            if (retrieval != null)
+            {
+                retrieval.cancel();
+            }
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>As with {@link #getPatient(int, RetrievalPlan)}, the calls run on this DAO's
+     * executor and data not retrieved by the timeout is omitted.</p>
+     */
+    @Override
+    public void retrievePatientData(final Patient patient, final RetrievalPlan plan)
+    {
+        final RetrievalPlan missing = plan.minus(patient.getRetrievedData());
+        if (missing.isEmpty())
+        {
+            return;
+        }
+        final RetrievalDeadline deadline = new RetrievalDeadline(fRetrievalTimeoutMillis);
+        PlannedRetrieval retrieval = null;
+        try
+        {
+            retrieval = new PlannedRetrieval(patient.getDfn(), missing);
+            retrieval.parseInto(patient, deadline);
+            LOGGER.debug("Retrieved {} for {} from VistA.", missing, patient);
+        }
+        catch (final ExecutionException e)
         {
-            // Translate Exception per method contract. The below block could handle this,
-            // but is clearer.
-            throw new PermissionDeniedDataAccessException("VistA security error", e);
+            throw translateException(e.getCause());
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RecoverableDataAccessException(
+                    "Interrupted while loading patient data.", e);
+        }
+        catch (final RejectedExecutionException e)
+        {
+            throw translateRejection(e);
         }
         catch (final Exception e)
         {
-            // There are many DataAccessExceptions, but this seems like the most
-            // appropriate exception to throw here.
-            throw new NonTransientDataAccessResourceException(e.getMessage(), e);
+            throw translateException(e);
+        }
+        finally
+        {
+            if (retrieval != null)
+            {
+                retrieval.cancel();
+            }
         }
     }
+    
+    /**
+     * Translates an Exception thrown while loading the basic patient information or
+     * vitals into a DataAccessException.
+     */
+    private static DataAccessException translateException(final Throwable e)
+    {
+        if (e instanceof GeneralSecurityException)
+        {
+            return new PermissionDeniedDataAccessException("VistA security error", e);
+        }
+        // There are many DataAccessExceptions, but this seems like the most
+        // appropriate exception to throw here.
+        return new NonTransientDataAccessResourceException(e.getMessage(), e);
+    }
+    
+    /**
+     * Translates the executor's rejection of a call, which means the division already has
+     * too many calls waiting, into a transient DataAccessException.
+     */
+    private static DataAccessException translateRejection(final RejectedExecutionException e)
+    {
+        return new RecoverableDataAccessException(
+                "Too many VistA calls waiting for this division. Try again later.", e);
+    }
+    
+    /**
+     * Submits the given remote procedure call to this DAO's executor.
+     * @throws RejectedExecutionException if the executor is saturated
+     */
+    private Future<List<String>> submitRpc(
+            final RemoteProcedure procedure, final String... args)
+    {
+        return fExecutor.submit(new Callable<List<String>>()
+        {
+            @Override
+            public List<String> call() throws Exception
+            {
+                return fProcedureCaller.doRpc(fDuz, procedure, args);
+            }
+        });
+    }
+    
+    /**
+     * Retrieves the patient's recent vitals and, if there is a current weight, the
+     * weight 6 months ago, which depends on it.
+     * @return a scratch Patient containing only the vitals
+     */
+    private Patient retrieveVitals(final int dfn) throws GeneralSecurityException, ParseException
+    {
+        final Patient vitals = new Patient(dfn, "", Patient.Gender.Unknown, 0);
+        final List<String> vitalResults = fProcedureCaller.doRpc(
+                fDuz, RemoteProcedure.GET_RECENT_VITALS, String.valueOf(dfn));
+        // If there are no results, a single line with an error message is returned.
+        LOGGER.debug("Patient Vital Results: {}", vitalResults);
+        if (vitalResults.size() > 1)
+        {
+            // Parse the returned data and put it into the patient data
+            // This will include the most recent height, current weight, and BMI
+            parseRecentVitalResults(vitals, vitalResults);
+        }
+        
+        // We have to get the current weight before we do this
+        // If there was no current weight, no need to retrieve other weight
+        if (vitals.getWeight() != null)
+        {
+            final List<String> weightResults = retrieveWeight6MonthsAgo(vitals);
+            LOGGER.debug("Weight Results: {}", weightResults);
+            // A line begging with "0^NO" means that no results were retrieved
+            // The actual line varies depending on the vital requested.
+            if (weightResults.size() > 0 && !weightResults.get(0).equals(NO_WEIGHT))
+            {
+                LOGGER.debug("Patient Vital Results: {}", weightResults);
+                // Parse the returned data and put it into the patient data
+                // This includes weight and BMI currently.
+                parseWeightResults(vitals, weightResults);
+            }
+        }
+        return vitals;
+    }
 
     private static Patient.Gender translateFromVista(final String vistaField)
     {
@@ -210,7 +403,8 @@ public class RpcVistaPatientDao implements VistaPatientDao
                 .splitToList(weightResults.get(weightResults.size()-2));
         // Get the date of the measurement
         LOGGER.debug("weight line tokens: {}", weightResults);
-        final Date measurementDate = VISTA_DATE_OUTPUT_FORMAT.parse(weightLineTokens.get(1));
+        final Date measurementDate = new SimpleDateFormat(VISTA_DATE_OUTPUT_PATTERN)
+                .parse(weightLineTokens.get(1));
         patient.setWeight6MonthsAgo(new RetrievedValue(
                 Double.parseDouble(weightLineTokens.get(3)), measurementDate, WEIGHT_UNITS));
         LOGGER.debug("Weight 6 months ago: {}", patient.getWeight6MonthsAgo());
@@ -222,7 +416,7 @@ public class RpcVistaPatientDao implements VistaPatientDao
         // The date inside of returned vitals is inside of parentheses.
         // For example, pulse is returned as: "Pulse:       (03/05/10@09:00)  74  _NURSE,ONE_Vitals"
         final SimpleDateFormat dateFormat = new SimpleDateFormat(
-                "(" + VISTA_DATE_OUTPUT_FORMAT.toPattern() + ")");
+                "(" + VISTA_DATE_OUTPUT_PATTERN + ")");
         final Pattern compliedPattern = Pattern.compile(VITALS_SPLIT_REGEX);
         // Each entry comes with an accompanying date and time.
         final List<String> heightLineTokens = Splitter.on(compliedPattern).splitToList(vitalResults.get(5));
@@ -244,24 +438,57 @@ public class RpcVistaPatientDao implements VistaPatientDao
             ""));
     }
     
-    private void retrieveLabs(final int dfn, final Patient patient) throws ParseException
+    /**
+     * Returns true if the given failure to retrieve optional data is transient, so the
+     * data should be retrieved again next time instead of being considered retrieved.
+     */
+    private static boolean isTransient(final Exception e)
     {
-        final VistaLabs[] enumValues = VistaLabs.values();
-        for(final VistaLabs labRetrievalEnum: enumValues)
+        final Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+        return cause instanceof RecoverableDataAccessException;
+    }
+    
+    /**
+     * Parses the results of one batch of labs.
+     * @return false if the batch's labs were omitted due to a transient failure or the
+     * deadline, true otherwise
+     */
+    private boolean parseLabs(
+            final Patient patient,
+            final List<VistaLabs> labs,
+            final Future<List<String>> future,
+            final RetrievalDeadline deadline) throws InterruptedException
+    {
+        final Optional<List<String>> rpcResults;
+        try
         {
+            rpcResults = deadline.get(future, "labs");
+        }
+        catch (final ExecutionException e)
+        {
+            LOGGER.warn("Unable to retrieve labs. {}", e.getCause().toString());
+            return !isTransient(e);
+        }
+        if (!rpcResults.isPresent())
+        {
+            // Timed out: try again next time.
+            return false;
+        }
+        
+        // The results are in the same order as the requested labs.
+        final SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy@HH:mm:ss");
+        for (int i = 0; i < labs.size(); ++i)
+        {
+            final VistaLabs labRetrievalEnum = labs.get(i);
             try
             {
-                final String rpcResultString = fProcedureCaller.doRetrieveLabsCall(
-                        fDuz,
-                        String.valueOf(dfn),
-                        labRetrievalEnum.getPossibleLabNames());
+                final String rpcResultString = rpcResults.get().get(i);
                 // If the resultString is a success, add it to the patient's lab data.
                 // Else, we don't need to do anything.
                 if(!rpcResultString.isEmpty())
                 {
                     List<String> rpcSplit = Splitter.on('^').splitToList(rpcResultString);
                     final double labValue = Double.parseDouble(rpcSplit.get(1));
-                    final SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy@HH:mm:ss");
                     patient.getLabs().put(labRetrievalEnum,
                             new RetrievedValue(labValue, format.parse(rpcSplit.get(2)), rpcSplit.get(3)));
                 }
@@ -273,18 +500,29 @@ public class RpcVistaPatientDao implements VistaPatientDao
                 LOGGER.warn("Unable to retrieve lab {}. {}", labRetrievalEnum.name(), e.toString());
             }
         }
+        return true;
     }
 
-    private void retrieveHealthFactors(final int dfn, final Patient patient)
+    /**
+     * @return false if the health factors were omitted due to a transient failure or the
+     * deadline, true otherwise
+     */
+    private boolean parseHealthFactors(
+            final Patient patient,
+            final Future<List<String>> future,
+            final RetrievalDeadline deadline) throws InterruptedException
     {
         try
         {
             patient.getHealthFactors().clear();
-            final List<String> rpcResults = fProcedureCaller.doRpc(
-                    fDuz, RemoteProcedure.GET_HEALTH_FACTORS, String.valueOf(dfn));
+            final Optional<List<String>> rpcResults = deadline.get(future, "health factors");
+            if (!rpcResults.isPresent())
+            {
+                return false;
+            }
             // Now that we have all of the health factors, filter out any that are not present
             // in the list provided by the NSO.
-            final Iterator<String> iter = rpcResults.iterator();
+            final Iterator<String> iter = rpcResults.get().iterator();
             final DateTimeFormatter format = DateTimeFormat.forPattern("MM/dd/yy");
             while(iter.hasNext())
             {
@@ -299,20 +537,37 @@ public class RpcVistaPatientDao implements VistaPatientDao
             }
             LOGGER.debug("Retrieved Health factors: {} ", patient.getHealthFactors());
         }
+        catch (final InterruptedException e)
+        {
+            throw e;
+        }
         catch(final Exception e)
         {
             LOGGER.warn("Unable to retrieve health factors. {}", e);
+            return !isTransient(e);
         }
+        return true;
     }
     
-    private void retrieveActiveMedications(final int dfn, final Patient patient)
+    /**
+     * @return false if the active medications were omitted due to a transient failure or the
+     * deadline, true otherwise
+     */
+    private boolean parseActiveMedications(
+            final Patient patient,
+            final Future<List<String>> future,
+            final RetrievalDeadline deadline) throws InterruptedException
     {
         try
         {
             patient.getActiveMedications().clear();
-            final List<String> rpcResults = fProcedureCaller.doRpc(
-                    fDuz, RemoteProcedure.GET_ACTIVE_MEDICATIONS, String.valueOf(dfn));
-            for(final String medResult: rpcResults)
+            final Optional<List<String>> rpcResults =
+                    deadline.get(future, "active medications");
+            if (!rpcResults.isPresent())
+            {
+                return false;
+            }
+            for(final String medResult: rpcResults.get())
             {
                 // The expected format is "<identifier>^<medication name>^<date>^^^<dose per day>"
                 // for example, "403962R;O^METOPROLOL TARTRATE 50MG TAB^3110228^^^3"
@@ -321,62 +576,94 @@ public class RpcVistaPatientDao implements VistaPatientDao
             }
             LOGGER.debug("Retrieved Active Medications: {} ", patient.getActiveMedications());
         }
+        catch (final InterruptedException e)
+        {
+            throw e;
+        }
         catch(final Exception e)
         {
             LOGGER.warn("Unable to retrieve active medications. {}", e);
+            return !isTransient(e);
         }
+        return true;
     }
     
-    private void retrieveAdlNotes(final int dfn, final Patient patient)
+    /**
+     * @return false if the ADL notes were omitted due to a transient failure or the
+     * deadline, true otherwise
+     */
+    private boolean parseAdlNotes(
+            final Patient patient,
+            final Future<List<String>> future,
+            final RetrievalDeadline deadline) throws InterruptedException
     {
         try
         {
-            final List<String> rpcResults = fProcedureCaller.doRpc(
-                    fDuz,
-                    RemoteProcedure.GET_ADL_STATUS,
-                    String.valueOf(dfn),
-                    ADL_ENTERPRISE_TITLE);
+            final Optional<List<String>> rpcResults = deadline.get(future, "ADL status");
+            if (!rpcResults.isPresent())
+            {
+                return false;
+            }
             // If the resultString is a success, add it to the patient's adl notes.
             // Else, we don't need to do anything.
-            if(!rpcResults.isEmpty())
+            if(!rpcResults.get().isEmpty())
             {
-                final ReferenceNotes adlNotes = getReferenceNotes(rpcResults);
+                final ReferenceNotes adlNotes = getReferenceNotes(rpcResults.get());
                 patient.getAdlNotes().clear();
                 patient.getAdlNotes().addAll(adlNotes.getAllNotes());
             }
         }
+        catch (final InterruptedException e)
+        {
+            throw e;
+        }
         catch(final Exception e)
         {
             // If an exception occurs for any reason, log a warning but allow the application
             // to continue without failure.
             LOGGER.warn("Unable to retrieve patient's ADL status. {}", e);
+            return !isTransient(e);
         }
+        return true;
     }
     
-    private void retrieveDnrNotes(final int dfn, final Patient patient)
+    /**
+     * @return false if the DNR notes were omitted due to a transient failure or the
+     * deadline, true otherwise
+     */
+    private boolean parseDnrNotes(
+            final Patient patient,
+            final Future<List<String>> future,
+            final RetrievalDeadline deadline) throws InterruptedException
     {
         try
         {
-            final List<String> rpcResults = fProcedureCaller.doRpc(
-                    fDuz,
-                    RemoteProcedure.GET_NOTES_WITH_SUBSTRING,
-                    String.valueOf(dfn),
-                    "DNR");
+            final Optional<List<String>> rpcResults = deadline.get(future, "DNR notes");
+            if (!rpcResults.isPresent())
+            {
+                return false;
+            }
             // If the resultString is a success, add it to the patient's dnr notes.
             // Else, we don't need to do anything.
-            if(!rpcResults.isEmpty())
+            if(!rpcResults.get().isEmpty())
             {
-                final ReferenceNotes dnrNotes = getReferenceNotes(rpcResults);
+                final ReferenceNotes dnrNotes = getReferenceNotes(rpcResults.get());
                 patient.getDnrNotes().clear();
                 patient.getDnrNotes().addAll(dnrNotes.getAllNotes());
             }
         }
+        catch (final InterruptedException e)
+        {
+            throw e;
+        }
         catch(final Exception e)
         {
             // If an exception occurs for any reason, log a warning but allow the application
             // to continue without failure.
             LOGGER.warn("Unable to retrieve patient's DNR notes. {}", e);
+            return !isTransient(e);
         }
+        return true;
     }
     
     /**
@@ -433,4 +720,213 @@ public class RpcVistaPatientDao implements VistaPatientDao
             throw new RecoverableDataAccessException(e.getMessage(), e);
         }
     }
+    
+    /**
+     * The submitted procedure calls for the data in a {@link RetrievalPlan}. The futures
+     * for data outside of the plan are null.
+     */
+    private final class PlannedRetrieval
+    {
+        private final RetrievalPlan fPlan;
+        private final List<List<VistaLabs>> fLabBatches;
+        // Only assigned while submitting, so that a rejected submission can cancel the
+        // calls submitted before it.
+        private Future<Patient> fVitalsFuture;
+        // One per lab batch, in the same order.
+        private final List<Future<List<String>>> fLabsFutures = new ArrayList<>();
+        private Future<List<String>> fHealthFactorsFuture;
+        private Future<List<String>> fMedicationsFuture;
+        private Future<List<String>> fAdlFuture;
+        private Future<List<String>> fDnrFuture;
+        
+        /**
+         * Submits the calls for the given plan.
+         * @throws RejectedExecutionException if the executor is saturated. Any calls
+         * already submitted are cancelled.
+         */
+        public PlannedRetrieval(final int dfn, final RetrievalPlan plan)
+        {
+            fPlan = plan;
+            fLabBatches = Lists.partition(plan.getLabs().asList(), LAB_BATCH_SIZE);
+            try
+            {
+                submitAll(dfn);
+            }
+            catch (final RuntimeException e)
+            {
+                cancel();
+                throw e;
+            }
+        }
+        
+        private void submitAll(final int dfn)
+        {
+            final String dfnString = String.valueOf(dfn);
+            fVitalsFuture = !fPlan.includes(Section.VITALS) ? null :
+                fExecutor.submit(new Callable<Patient>()
+                {
+                    @Override
+                    public Patient call() throws Exception
+                    {
+                        return retrieveVitals(dfn);
+                    }
+                });
+            for (final List<VistaLabs> batch : fLabBatches)
+            {
+                fLabsFutures.add(fExecutor.submit(new Callable<List<String>>()
+                {
+                    @Override
+                    public List<String> call() throws Exception
+                    {
+                        final ArrayList<List<String>> labNameLists = new ArrayList<>();
+                        for (final VistaLabs lab : batch)
+                        {
+                            labNameLists.add(lab.getPossibleLabNames());
+                        }
+                        return fProcedureCaller.doRetrieveMultipleLabsCall(
+                                fDuz, dfnString, labNameLists);
+                    }
+                }));
+            }
+            fHealthFactorsFuture = !fPlan.includes(Section.HEALTH_FACTORS) ? null :
+                submitRpc(RemoteProcedure.GET_HEALTH_FACTORS, dfnString);
+            fMedicationsFuture = !fPlan.includes(Section.ACTIVE_MEDICATIONS) ? null :
+                submitRpc(RemoteProcedure.GET_ACTIVE_MEDICATIONS, dfnString);
+            fAdlFuture = !fPlan.includes(Section.ADL_NOTES) ? null :
+                submitRpc(RemoteProcedure.GET_ADL_STATUS, dfnString, ADL_ENTERPRISE_TITLE);
+            fDnrFuture = !fPlan.includes(Section.DNR_NOTES) ? null :
+                submitRpc(RemoteProcedure.GET_NOTES_WITH_SUBSTRING, dfnString, "DNR");
+        }
+        
+        /**
+         * Waits for the planned data and adds it to the given patient.
+         * @throws ExecutionException if the vitals could not be retrieved. Other data
+         * which could not be retrieved is logged and omitted. Data omitted due to a
+         * transient failure or the deadline is not marked as retrieved.
+         */
+        public void parseInto(final Patient patient, final RetrievalDeadline deadline)
+                throws ExecutionException, InterruptedException
+        {
+            // Patient vitals information (including but not limited to BMI, height,
+            // weight, weight 6 months ago).
+            // Data omitted due to transient failures or the deadline is retrieved again
+            // next time.
+            RetrievalPlan retrieved = fPlan;
+            if (fVitalsFuture != null)
+            {
+                final Optional<Patient> vitals = deadline.get(fVitalsFuture, "vitals");
+                if (vitals.isPresent())
+                {
+                    patient.setHeight(vitals.get().getHeight());
+                    patient.setWeight(vitals.get().getWeight());
+                    patient.setBmi(vitals.get().getBmi());
+                    patient.setWeight6MonthsAgo(vitals.get().getWeight6MonthsAgo());
+                }
+                else
+                {
+                    retrieved = retrieved.without(Section.VITALS);
+                }
+            }
+            // Each batch completes independently, so keep the batches retrieved by the
+            // deadline even if others are still outstanding.
+            for (int i = 0; i < fLabsFutures.size(); ++i)
+            {
+                final List<VistaLabs> batch = fLabBatches.get(i);
+                if (!parseLabs(patient, batch, fLabsFutures.get(i), deadline))
+                {
+                    retrieved = retrieved.withoutLabs(batch);
+                }
+            }
+            // Retrieve all health factors in the last year from VistA and filter
+            // by the list given to us by the NSO.
+            if (fHealthFactorsFuture != null &&
+                    !parseHealthFactors(patient, fHealthFactorsFuture, deadline))
+            {
+                retrieved = retrieved.without(Section.HEALTH_FACTORS);
+            }
+            // Retrieve only medications with the "Active" status and not "Pending"
+            if (fMedicationsFuture != null &&
+                    !parseActiveMedications(patient, fMedicationsFuture, deadline))
+            {
+                retrieved = retrieved.without(Section.ACTIVE_MEDICATIONS);
+            }
+            // Retrieve the patient's nursing notes from VistA
+            if (fAdlFuture != null && !parseAdlNotes(patient, fAdlFuture, deadline))
+            {
+                retrieved = retrieved.without(Section.ADL_NOTES);
+            }
+            // Retrieve any notes with DNR in the title.
+            if (fDnrFuture != null && !parseDnrNotes(patient, fDnrFuture, deadline))
+            {
+                retrieved = retrieved.without(Section.DNR_NOTES);
+            }
+            patient.addRetrievedData(retrieved);
+        }
+        
+        /**
+         * Cancels any calls which have not completed.
+         */
+        public void cancel()
+        {
+            for (final Future<?> future : Arrays.asList(
+                    fVitalsFuture, fHealthFactorsFuture, fMedicationsFuture,
+                    fAdlFuture, fDnrFuture))
+            {
+                if (future != null)
+                {
+                    future.cancel(true);
+                }
+            }
+            for (final Future<?> future : fLabsFutures)
+            {
+                future.cancel(true);
+            }
+        }
+    }
+    
+    /**
+     * Tracks the overall deadline for a single retrieval from VistA.
+     */
+    private static final class RetrievalDeadline
+    {
+        private final long fTimeoutMillis;
+        private final long fDeadlineNanos;
+        
+        public RetrievalDeadline(final long timeoutMillis)
+        {
+            fTimeoutMillis = timeoutMillis;
+            fDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+        
+        /**
+         * Waits until the given future completes or the deadline passes, whichever is
+         * first.
+         * @param future the future to wait for
+         * @param description describes the data for logging
+         * @return the future's result, or absent if the deadline passed first
+         * @throws ExecutionException if the computation threw an exception
+         * @throws InterruptedException if the current thread was interrupted
+         */
+        public <T> Optional<T> get(final Future<T> future, final String description)
+                throws ExecutionException, InterruptedException
+        {
+            if (fTimeoutMillis == NO_TIMEOUT)
+            {
+                return Optional.fromNullable(future.get());
+            }
+            try
+            {
+                return Optional.fromNullable(future.get(
+                        fDeadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS));
+            }
+            catch (final TimeoutException ex)
+            {
+                future.cancel(true);
+                LOGGER.warn(
+                        "Timed out after {}ms retrieving patient's {}. Omitting it.",
+                        fTimeoutMillis, description);
+                return Optional.absent();
+            }
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.Objects;
+
+import com.google.common.base.Optional;
+
+import gov.va.med.srcalc.vista.vistalink.VistaLinkCallerRegistry;
+
+/**
+ * <p>Presents the counters of the resources the VistA DAOs share between requests, such
+ * as the {@link PatientLoadCoalescer} and the {@link VistaLinkCallerRegistry}, to show
+ * how much work the sharing saves. The counters are shown on an administration page and
+ * exported via JMX (see {@link VistaClientMetricsMXBean}).</p>
+ *
+ * <p>Unlike {@link RpcMetrics}, the counters are read from the shared resources on
+ * demand and cover the time since startup.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class VistaClientMetrics implements VistaClientMetricsMXBean
+{
+    private final PatientLoadCoalescer fPatientLoadCoalescer;
+
+    private final Optional<VistaLinkCallerRegistry> fCallerRegistry;
+
+    /**
+     * Constructs an instance presenting the counters of the given coalescer, for DAOs
+     * which do not use VistALink.
+     * @param patientLoadCoalescer the coalescer of concurrent patient loads
+     */
+    public VistaClientMetrics(final PatientLoadCoalescer patientLoadCoalescer)
+    {
+        this(patientLoadCoalescer, Optional.<VistaLinkCallerRegistry>absent());
+    }
+
+    /**
+     * Constructs an instance presenting the counters of the given resources.
+     * @param patientLoadCoalescer the coalescer of concurrent patient loads
+     * @param callerRegistry the registry of shared VistALink procedure callers, if the
+     * DAOs use VistALink
+     */
+    public VistaClientMetrics(
+            final PatientLoadCoalescer patientLoadCoalescer,
+            final Optional<VistaLinkCallerRegistry> callerRegistry)
+    {
+        fPatientLoadCoalescer = Objects.requireNonNull(patientLoadCoalescer);
+        fCallerRegistry = Objects.requireNonNull(callerRegistry);
+    }
+
+    @Override
+    public long getPatientLoadCount()
+    {
+        return fPatientLoadCoalescer.getLoadCount();
+    }
+
+    @Override
+    public long getDeduplicatedPatientLoadCount()
+    {
+        return fPatientLoadCoalescer.getDeduplicatedCount();
+    }
+
+    @Override
+    public long getCachedCallerDivisionCount()
+    {
+        return fCallerRegistry.isPresent() ? fCallerRegistry.get().getCachedDivisionCount() : 0L;
+    }
+
+    @Override
+    public long getCallerHitCount()
+    {
+        return fCallerRegistry.isPresent() ? fCallerRegistry.get().getHitCount() : 0L;
+    }
+
+    @Override
+    public long getCallerMissCount()
+    {
+        return fCallerRegistry.isPresent() ? fCallerRegistry.get().getMissCount() : 0L;
+    }
+
+    @Override
+    public long getCallerInvalidationCount()
+    {
+        return fCallerRegistry.isPresent() ? fCallerRegistry.get().getInvalidationCount() : 0L;
+    }
+}
@@ -0,0 +1,49 @@
+package gov.va.med.srcalc.vista;
+
+/**
+ * The JMX management interface of {@link VistaClientMetrics}. Exported in
+ * applicationContext.xml.
+ */
+public interface VistaClientMetricsMXBean
+{
+    /**
+     * Returns the number of patient loads performed since startup.
+     * @see PatientLoadCoalescer#getLoadCount()
+     */
+    long getPatientLoadCount();
+
+    /**
+     * Returns the number of patient loads avoided since startup by waiting for a load in
+     * progress.
+     * @see PatientLoadCoalescer#getDeduplicatedCount()
+     */
+    long getDeduplicatedPatientLoadCount();
+
+    /**
+     * Returns the number of VistA divisions with a cached VistALink procedure caller.
+     * Zero without VistALink.
+     * @see gov.va.med.srcalc.vista.vistalink.VistaLinkCallerRegistry#getCachedDivisionCount()
+     */
+    long getCachedCallerDivisionCount();
+
+    /**
+     * Returns the number of VistALink procedure caller lookups since startup which found
+     * a cached caller. Zero without VistALink.
+     * @see gov.va.med.srcalc.vista.vistalink.VistaLinkCallerRegistry#getHitCount()
+     */
+    long getCallerHitCount();
+
+    /**
+     * Returns the number of VistALink procedure caller lookups since startup which
+     * created a caller. Zero without VistALink.
+     * @see gov.va.med.srcalc.vista.vistalink.VistaLinkCallerRegistry#getMissCount()
+     */
+    long getCallerMissCount();
+
+    /**
+     * Returns the number of VistALink procedure callers invalidated since startup. Zero
+     * without VistALink.
+     * @see gov.va.med.srcalc.vista.vistalink.VistaLinkCallerRegistry#getInvalidationCount()
+     */
+    long getCallerInvalidationCount();
+}
@@ -37,12 +37,14 @@ public interface VistaDaoFactory
 
     /**
      * <p>Returns a {@link VistaSurgeryDao} that will execute under the context of
-     * the current user.</p>
-     * 
-     * <p>Note that the division is implied in the current user context.</p>
+     * the given user. Unlike {@link #getVistaPatientDao()}, this does not require a
+     * current user, so that results can be saved in the background.</p>
      * 
+     * @param division the user's VistA division
+     * @param duz the user's DUZ
+     * @throws IllegalArgumentException if the division is unknown
      * @throws ConfigurationException if the VistA communication is somehow
      * misconfigured
      */
-    public VistaSurgeryDao getVistaSurgeryDao();
+    public VistaSurgeryDao getVistaSurgeryDao(final String division, final String duz);
 }
@@ -5,6 +5,7 @@ import java.util.Set;
 import com.google.common.collect.ImmutableSet;
 
 import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
 
 /**
  * <p>Data Access Object for VistA Patients.</p>
@@ -83,12 +84,31 @@ public interface VistaPatientDao
     public static final int MAX_LINE_LENGTH = 80;
     
     /**
-     * Loads a Patient from VistA given his/her DFN. This includes the patient's
-     * vitals and available lab measurements.
+     * Loads a Patient from VistA given his/her DFN. This includes all of the patient's
+     * data: equivalent to {@link #getPatient(int, RetrievalPlan)} with {@link
+     * RetrievalPlan#ALL}.
      * @throws DataAccessException if any error occurs communicating with VistA
      */
     public Patient getPatient(final int dfn);
     
+    /**
+     * Loads a Patient from VistA given his/her DFN, including the demographics and the
+     * data in the given plan.
+     * @param dfn the patient's DFN
+     * @param plan the data to retrieve besides the demographics
+     * @throws DataAccessException if any error occurs communicating with VistA
+     */
+    public Patient getPatient(final int dfn, final RetrievalPlan plan);
+    
+    /**
+     * Retrieves the data in the given plan which has not already been retrieved for the
+     * given Patient (see {@link Patient#getRetrievedData()}) into the Patient.
+     * @param patient the patient to complete
+     * @param plan the data required
+     * @throws DataAccessException if any error occurs communicating with VistA
+     */
+    public void retrievePatientData(final Patient patient, final RetrievalPlan plan);
+    
     /**
      * Saves the finished calculation to VistA, given the patient, electronic signature, 
      * and the note body. Each line of the noteBody is wrapped at {@link VistaPatientDao#MAX_LINE_LENGTH}
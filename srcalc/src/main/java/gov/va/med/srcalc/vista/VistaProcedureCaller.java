@@ -82,6 +82,25 @@ public interface VistaProcedureCaller
             final List<String> labNames)
             throws LoginException, DataAccessException;
     
+    /**
+     * Like {@link #doRetrieveLabsCall(String, String, List)}, but retrieves the results
+     * for several labs over one held connection to VistA. A lab whose retrieval fails
+     * is returned as an empty string, like a lab without results.
+     * @param duz the calling user's DUZ
+     * @param patientDfn the associated patient's DFN
+     * @param labNameLists for each lab, the list of potential lab names to retrieve
+     * results for
+     * @return the VistA response for each lab, in the same order as labNameLists
+     * @throws LoginException if no VistA user could be matched to the given DUZ
+     * @throws DataAccessException if some error occurred communicating with VistA for
+     * every lab
+     */
+    public List<String> doRetrieveMultipleLabsCall(
+            final String duz,
+            final String patientDfn,
+            final List<List<String>> labNameLists)
+            throws LoginException, DataAccessException;
+    
     /**
      * Returns the division identifier (including any suffix) for the target
      * VistA.
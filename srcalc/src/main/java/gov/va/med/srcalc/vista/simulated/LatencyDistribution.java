@@ -0,0 +1,79 @@
+package gov.va.med.srcalc.vista.simulated;
+
+import java.util.Random;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>A log-normal distribution of remote procedure call latencies, specified by its
+ * median and 95th percentile. Real VistA latencies are strongly right-skewed, which a
+ * log-normal distribution approximates well.</p>
+ *
+ * <p>Immutable. Per Effective Java Item 17, this class is marked final because it was
+ * not designed for inheritance.</p>
+ */
+public final class LatencyDistribution
+{
+    /**
+     * The standard normal quantile of the 95th percentile.
+     */
+    private static final double Z_95 = 1.6449;
+    
+    private final long fMedianMillis;
+    private final long fP95Millis;
+    private final double fSigma;
+    
+    /**
+     * Constructs an instance.
+     * @param medianMillis the median latency in milliseconds
+     * @param p95Millis the 95th percentile latency in milliseconds. Pass the median for
+     * a constant latency.
+     * @throws IllegalArgumentException if the median is negative or the 95th
+     * percentile is less than the median
+     */
+    public LatencyDistribution(final long medianMillis, final long p95Millis)
+    {
+        Preconditions.checkArgument(medianMillis >= 0, "median must be non-negative");
+        Preconditions.checkArgument(
+                p95Millis >= medianMillis, "95th percentile must be at least the median");
+        fMedianMillis = medianMillis;
+        fP95Millis = p95Millis;
+        fSigma = (medianMillis == 0) ? 0.0 : Math.log((double)p95Millis / medianMillis) / Z_95;
+    }
+    
+    /**
+     * Returns the median latency in milliseconds.
+     */
+    public long getMedianMillis()
+    {
+        return fMedianMillis;
+    }
+    
+    /**
+     * Returns the 95th percentile latency in milliseconds.
+     */
+    public long getP95Millis()
+    {
+        return fP95Millis;
+    }
+    
+    /**
+     * Returns a random latency from this distribution.
+     * @param random the source of randomness
+     * @return the latency in milliseconds, never negative
+     */
+    public long sample(final Random random)
+    {
+        return Math.round(fMedianMillis * Math.exp(fSigma * random.nextGaussian()));
+    }
+    
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("medianMillis", fMedianMillis)
+                .add("p95Millis", fP95Millis)
+                .toString();
+    }
+}
@@ -0,0 +1,104 @@
+package gov.va.med.srcalc.vista.simulated;
+
+import java.util.List;
+import java.util.Objects;
+
+import javax.security.auth.login.FailedLoginException;
+import javax.security.auth.login.LoginException;
+
+import gov.va.med.srcalc.domain.VistaPerson;
+import gov.va.med.srcalc.vista.RemoteProcedure;
+import gov.va.med.srcalc.vista.VistaAuthenticator;
+
+import org.springframework.dao.DataAccessException;
+
+import com.google.common.base.Optional;
+
+/**
+ * <p>A VistaAuthenticator for a simulated VistA division. It accepts any non-empty
+ * credentials, so load tests can log in as many distinct users. The same credentials
+ * always yield the same DUZ.</p>
+ *
+ * <p>Authentication makes the same remote procedure calls as a real login, so it has the
+ * simulated latency and errors.</p>
+ *
+ * <p>Per Effective Java Item 17, this class is marked final because it was not
+ * designed for inheritance.</p>
+ */
+public final class SimulatedVistaAuthenticator implements VistaAuthenticator
+{
+    private final SimulatedVistaProcedureCaller fProcedureCaller;
+
+    /**
+     * Constructs an instance that will authenticate with the given caller's division.
+     */
+    public SimulatedVistaAuthenticator(final SimulatedVistaProcedureCaller procedureCaller)
+    {
+        fProcedureCaller = Objects.requireNonNull(procedureCaller);
+    }
+
+    @Override
+    public String getDivision()
+    {
+        return fProcedureCaller.getDivision();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws FailedLoginException if either code is empty
+     */
+    @Override
+    public VistaPerson authenticateViaAccessVerify(
+            final String accessCode, final String verifyCode, final String clientIp)
+            throws FailedLoginException, LoginException, DataAccessException
+    {
+        if (accessCode.isEmpty() || verifyCode.isEmpty())
+        {
+            throw new FailedLoginException("Bad access or verify code.");
+        }
+        return loadPerson(RemoteProcedure.GET_USER_INFO, accessCode);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws FailedLoginException if the token is empty
+     */
+    @Override
+    public VistaPerson authenticateViaCcowToken(
+            final String ccowToken, final String clientIp)
+            throws FailedLoginException, LoginException, DataAccessException
+    {
+        if (ccowToken.isEmpty())
+        {
+            throw new FailedLoginException("VistA rejected the CCOW token");
+        }
+        return loadPerson(RemoteProcedure.GET_USER_FROM_CCOW, ccowToken);
+    }
+
+    /**
+     * Loads the person identified by the given credential.
+     */
+    private VistaPerson loadPerson(final RemoteProcedure procedure, final String credential)
+            throws LoginException
+    {
+        final List<String> userResults = fProcedureCaller.doRpc(
+                makeDuz(credential), procedure);
+        final String duz = userResults.get(0);
+        final List<String> personClassResults = fProcedureCaller.doRpc(
+                duz, RemoteProcedure.GET_USER_PERSON_CLASSES);
+        return new VistaPerson(
+                getDivision(),
+                duz,
+                userResults.get(1),
+                Optional.of(personClassResults.get(0)));
+    }
+
+    /**
+     * Derives a DUZ from the given credential.
+     */
+    static String makeDuz(final String credential)
+    {
+        // Real DUZs are positive and usually 4 to 7 digits.
+        return String.valueOf(10000 + (credential.hashCode() & Integer.MAX_VALUE) % 990000);
+    }
+}
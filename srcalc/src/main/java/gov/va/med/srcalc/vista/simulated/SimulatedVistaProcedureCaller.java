@@ -0,0 +1,371 @@
+package gov.va.med.srcalc.vista.simulated;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.login.AccountNotFoundException;
+import javax.security.auth.login.LoginException;
+
+import gov.va.med.srcalc.vista.RemoteProcedure;
+import gov.va.med.srcalc.vista.RpcMetrics;
+import gov.va.med.srcalc.vista.RpcTimeouts;
+import gov.va.med.srcalc.vista.VistaProcedureCaller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * <p>A VistaProcedureCaller which simulates a VistA division for load testing. It
+ * answers every {@link RemoteProcedure} from a {@link SyntheticPatients} population and
+ * simulates the latency, transient errors and connection limit configured in its
+ * {@link SimulationSettings}.</p>
+ *
+ * <p>Like VistA, patients outside of the population have no data: such calls return an
+ * empty response. Every DUZ is a valid user.</p>
+ *
+ * <p>Like the VistaLinkProcedureCaller, records its calls in an {@link RpcMetrics} and
+ * fails calls which take longer than their {@link RpcTimeouts timeout}.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class SimulatedVistaProcedureCaller implements VistaProcedureCaller
+{
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(SimulatedVistaProcedureCaller.class);
+
+    /**
+     * The person class which {@link RemoteProcedure#GET_USER_PERSON_CLASSES} returns.
+     */
+    static final String PERSON_CLASS = "Physician";
+
+    private final String fDivision;
+    private final SimulationSettings fSettings;
+    private final SyntheticPatients fPatients;
+    private final Semaphore fConnections;
+    private final RpcMetrics fMetrics;
+    private final RpcTimeouts fTimeouts;
+
+    /**
+     * Constructs an instance which records its calls in its own, unshared RpcMetrics.
+     * @param division the simulated division's station number
+     * @param settings configures the latency, errors and connection limit
+     * @param patients the division's patients
+     */
+    public SimulatedVistaProcedureCaller(
+            final String division,
+            final SimulationSettings settings,
+            final SyntheticPatients patients)
+    {
+        this(division, settings, patients, new RpcMetrics());
+    }
+
+    /**
+     * Constructs an instance which uses {@link RpcTimeouts#DEFAULT}.
+     * @param division the simulated division's station number
+     * @param settings configures the latency, errors and connection limit
+     * @param patients the division's patients
+     * @param metrics records the calls
+     */
+    public SimulatedVistaProcedureCaller(
+            final String division,
+            final SimulationSettings settings,
+            final SyntheticPatients patients,
+            final RpcMetrics metrics)
+    {
+        this(division, settings, patients, metrics, RpcTimeouts.DEFAULT);
+    }
+
+    /**
+     * Constructs an instance.
+     * @param division the simulated division's station number
+     * @param settings configures the latency, errors and connection limit
+     * @param patients the division's patients
+     * @param metrics records the calls
+     * @param timeouts bounds the simulated latency: slower calls fail
+     */
+    public SimulatedVistaProcedureCaller(
+            final String division,
+            final SimulationSettings settings,
+            final SyntheticPatients patients,
+            final RpcMetrics metrics,
+            final RpcTimeouts timeouts)
+    {
+        fDivision = Objects.requireNonNull(division);
+        fSettings = Objects.requireNonNull(settings);
+        fPatients = Objects.requireNonNull(patients);
+        fConnections = new Semaphore(settings.getConnectionsPerDivision(), true);
+        fMetrics = Objects.requireNonNull(metrics);
+        fTimeouts = Objects.requireNonNull(timeouts);
+    }
+
+    /**
+     * Returns the synthetic patients of this division.
+     */
+    public SyntheticPatients getPatients()
+    {
+        return fPatients;
+    }
+
+    /**
+     * Returns the number of connections not currently in use.
+     */
+    public int getAvailableConnections()
+    {
+        return fConnections.availablePermits();
+    }
+
+    @Override
+    public List<String> doRpc(
+            final String duz, final RemoteProcedure procedure, final String... args)
+            throws LoginException, DataAccessException
+    {
+        final long millis = simulateCall(duz, procedure);
+        final List<String> response;
+        switch (procedure)
+        {
+            case GET_USER_INFO:
+            case GET_USER_FROM_CCOW:
+                response = ImmutableList.of(duz, userName(duz));
+                break;
+            case GET_USER_PERSON_CLASSES:
+                response = ImmutableList.of(PERSON_CLASS);
+                break;
+            default:
+                response = doPatientRpc(procedure, args);
+                break;
+        }
+        return recordCall(procedure, millis, response);
+    }
+
+    @Override
+    public String doSaveProgressNoteCall(
+            final String duz,
+            final String encryptedSignature,
+            final String patientDfn,
+            final List<String> noteLines)
+            throws LoginException, DataAccessException
+    {
+        final long millis = simulateCall(duz, RemoteProcedure.SAVE_PROGRESS_NOTE);
+        // Accept any signature: load tests cannot know the real ones.
+        return recordCall(
+                RemoteProcedure.SAVE_PROGRESS_NOTE, millis, RemoteProcedure.VALID_SIGNATURE_RETURN);
+    }
+
+    @Override
+    public String doSaveRiskCalculationCall(
+            final String duz,
+            final String patientDfn,
+            final String cptCode,
+            final String dateTime,
+            final List<String> outcomes)
+            throws LoginException, DataAccessException
+    {
+        final long millis = simulateCall(duz, RemoteProcedure.SAVE_RISK);
+        return recordCall(
+                RemoteProcedure.SAVE_RISK, millis, RemoteProcedure.RISK_SAVED_RETURN);
+    }
+
+    @Override
+    public String doRetrieveLabsCall(
+            final String duz,
+            final String patientDfn,
+            final List<String> labNames)
+            throws LoginException, DataAccessException
+    {
+        final long millis = simulateCall(duz, RemoteProcedure.GET_LABS);
+        return recordCall(
+                RemoteProcedure.GET_LABS, millis, labResult(patientDfn, labNames));
+    }
+
+    @Override
+    public List<String> doRetrieveMultipleLabsCall(
+            final String duz,
+            final String patientDfn,
+            final List<List<String>> labNameLists)
+            throws LoginException, DataAccessException
+    {
+        // Simulated as a single call on one held connection.
+        final long millis = simulateCall(duz, RemoteProcedure.GET_LABS);
+        final ArrayList<String> results = new ArrayList<>(labNameLists.size());
+        for (final List<String> labNames : labNameLists)
+        {
+            results.add(labResult(patientDfn, labNames));
+        }
+        return recordCall(RemoteProcedure.GET_LABS, millis, results);
+    }
+
+    @Override
+    public String getDivision()
+    {
+        return fDivision;
+    }
+
+    /**
+     * Simulates the connection, latency and possible failure of a call, recording the
+     * connection time or the failure.
+     * @return the simulated call time, in milliseconds
+     * @throws AccountNotFoundException if the DUZ is not a number
+     * @throws RecoverableDataAccessException if no connection became available in time,
+     * the thread was interrupted, the call timed out or the call failed randomly
+     */
+    private long simulateCall(final String duz, final RemoteProcedure procedure)
+            throws LoginException
+    {
+        try
+        {
+            return simulateConnectedCall(duz, procedure);
+        }
+        catch (final LoginException | RuntimeException e)
+        {
+            fMetrics.recordFailure(fDivision, procedure, e);
+            throw e;
+        }
+    }
+
+    private long simulateConnectedCall(final String duz, final RemoteProcedure procedure)
+            throws LoginException
+    {
+        if (!duz.matches("\\d+"))
+        {
+            throw new AccountNotFoundException(
+                    "Could not find a VistA user with that identifier.");
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        try
+        {
+            if (!fConnections.tryAcquire(
+                    fSettings.getConnectionWaitMillis(), TimeUnit.MILLISECONDS))
+            {
+                throw new RecoverableDataAccessException(
+                        "Could not obtain connection to simulated VistA " + fDivision);
+            }
+            fMetrics.recordConnection(
+                    fDivision, procedure, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            stopwatch.reset().start();
+            final long latency = fSettings.getLatency(procedure).sample(random);
+            final long timeout = fTimeouts.getTimeoutMillis(procedure);
+            try
+            {
+                Thread.sleep(Math.min(latency, timeout));
+            }
+            finally
+            {
+                fConnections.release();
+            }
+            if (latency > timeout)
+            {
+                throw new RecoverableDataAccessException(String.format(
+                        "Timed out after %sms calling %s on simulated VistA %s",
+                        timeout, procedure.getProcedureName(), fDivision));
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RecoverableDataAccessException("Interrupted while calling VistA", e);
+        }
+        if (random.nextDouble() < fSettings.getErrorRate())
+        {
+            LOGGER.debug("Simulating a failure of {} at {}.", procedure, fDivision);
+            throw new RecoverableDataAccessException(
+                    "Simulated VistA error calling " + procedure.getProcedureName());
+        }
+        return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a successful call with the given response.
+     * @return the response, for convenience
+     */
+    private List<String> recordCall(
+            final RemoteProcedure procedure, final long millis, final List<String> response)
+    {
+        long characters = 0L;
+        for (final String line : response)
+        {
+            characters += line.length();
+        }
+        fMetrics.recordCall(fDivision, procedure, millis, characters, response.size());
+        return response;
+    }
+
+    /**
+     * Records a successful call with the given single-line response.
+     * @return the response, for convenience
+     */
+    private String recordCall(
+            final RemoteProcedure procedure, final long millis, final String response)
+    {
+        fMetrics.recordCall(fDivision, procedure, millis, response.length(), 1L);
+        return response;
+    }
+
+    /**
+     * Answers a remote procedure which retrieves patient data.
+     */
+    private List<String> doPatientRpc(final RemoteProcedure procedure, final String[] args)
+    {
+        // GET_VITAL's argument is "DFN^END DATE^WT^START DATE". The others' first
+        // argument is the DFN.
+        final int dfn = parseDfn(args[0].split("\\^")[0]);
+        final boolean known = fPatients.contains(dfn);
+        final List<String> none = ImmutableList.of();
+        switch (procedure)
+        {
+            case GET_PATIENT:
+                return known ? fPatients.getPatient(dfn) : none;
+            case GET_RECENT_VITALS:
+                return known ? fPatients.getRecentVitals(dfn) : none;
+            case GET_VITAL:
+                return known ? fPatients.getPastWeights(dfn) : none;
+            case GET_HEALTH_FACTORS:
+                return known ? fPatients.getHealthFactors(dfn) : none;
+            case GET_ACTIVE_MEDICATIONS:
+                return known ? fPatients.getActiveMedications(dfn) : none;
+            case GET_ADL_STATUS:
+            case GET_NOTES_WITH_SUBSTRING:
+                return known ? fPatients.getNotes(dfn, args[1]) : none;
+            default:
+                // The remaining procedures have special-purpose methods.
+                throw new IllegalArgumentException(
+                        procedure + " must be called with its special-purpose method");
+        }
+    }
+
+    private String labResult(final String patientDfn, final List<String> labNames)
+    {
+        final int dfn = parseDfn(patientDfn);
+        return fPatients.contains(dfn) ? fPatients.getLab(dfn, labNames) : "";
+    }
+
+    /**
+     * Parses the given DFN, returning 0 (which identifies no patient) if it is not a
+     * number.
+     */
+    private static int parseDfn(final String dfnString)
+    {
+        try
+        {
+            return Integer.parseInt(dfnString);
+        }
+        catch (final NumberFormatException ex)
+        {
+            return 0;
+        }
+    }
+
+    private static String userName(final String duz)
+    {
+        return "USER,SIMULATED" + duz;
+    }
+}
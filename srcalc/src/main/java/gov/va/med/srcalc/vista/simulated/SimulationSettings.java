@@ -0,0 +1,120 @@
+package gov.va.med.srcalc.vista.simulated;
+
+import java.util.Map;
+import java.util.Objects;
+
+import gov.va.med.srcalc.vista.RemoteProcedure;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>Configures how a simulated VistA behaves: the latency of each remote procedure,
+ * how often calls fail, the connection limit of each division and the size of the
+ * synthetic patient population.</p>
+ *
+ * <p>Immutable. Per Effective Java Item 17, this class is marked final because it was
+ * not designed for inheritance.</p>
+ */
+public final class SimulationSettings
+{
+    private final LatencyDistribution fDefaultLatency;
+    private final ImmutableMap<RemoteProcedure, LatencyDistribution> fLatencies;
+    private final double fErrorRate;
+    private final int fConnectionsPerDivision;
+    private final long fConnectionWaitMillis;
+    private final int fPopulationSize;
+    
+    /**
+     * Constructs an instance.
+     * @param defaultLatency the latency of remote procedures not in the latencies map
+     * @param latencies the latency of specific remote procedures
+     * @param errorRate the fraction of calls, between 0.0 and 1.0, which fail with a
+     * transient error after their latency
+     * @param connectionsPerDivision the maximum number of concurrent calls to each
+     * division, like the VistALink connection pool size
+     * @param connectionWaitMillis how long a call waits for a free connection before
+     * failing
+     * @param populationSize the number of synthetic patients in each division. Their
+     * DFNs are 1 through populationSize.
+     * @throws IllegalArgumentException if any argument is out of range
+     */
+    public SimulationSettings(
+            final LatencyDistribution defaultLatency,
+            final Map<RemoteProcedure, LatencyDistribution> latencies,
+            final double errorRate,
+            final int connectionsPerDivision,
+            final long connectionWaitMillis,
+            final int populationSize)
+    {
+        Preconditions.checkArgument(
+                errorRate >= 0.0 && errorRate <= 1.0, "error rate must be in [0, 1]");
+        Preconditions.checkArgument(
+                connectionsPerDivision > 0, "must have at least 1 connection");
+        Preconditions.checkArgument(
+                connectionWaitMillis >= 0, "connection wait must be non-negative");
+        Preconditions.checkArgument(populationSize > 0, "must have at least 1 patient");
+        fDefaultLatency = Objects.requireNonNull(defaultLatency);
+        fLatencies = ImmutableMap.copyOf(latencies);
+        fErrorRate = errorRate;
+        fConnectionsPerDivision = connectionsPerDivision;
+        fConnectionWaitMillis = connectionWaitMillis;
+        fPopulationSize = populationSize;
+    }
+    
+    /**
+     * Returns the latency distribution of the given remote procedure.
+     */
+    public LatencyDistribution getLatency(final RemoteProcedure procedure)
+    {
+        final LatencyDistribution latency = fLatencies.get(procedure);
+        return (latency == null) ? fDefaultLatency : latency;
+    }
+    
+    /**
+     * Returns the fraction of calls which fail with a transient error.
+     */
+    public double getErrorRate()
+    {
+        return fErrorRate;
+    }
+    
+    /**
+     * Returns the maximum number of concurrent calls to each division.
+     */
+    public int getConnectionsPerDivision()
+    {
+        return fConnectionsPerDivision;
+    }
+    
+    /**
+     * Returns how long a call waits for a free connection before failing, in
+     * milliseconds.
+     */
+    public long getConnectionWaitMillis()
+    {
+        return fConnectionWaitMillis;
+    }
+    
+    /**
+     * Returns the number of synthetic patients in each division.
+     */
+    public int getPopulationSize()
+    {
+        return fPopulationSize;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("defaultLatency", fDefaultLatency)
+                .add("latencies", fLatencies)
+                .add("errorRate", fErrorRate)
+                .add("connectionsPerDivision", fConnectionsPerDivision)
+                .add("connectionWaitMillis", fConnectionWaitMillis)
+                .add("populationSize", fPopulationSize)
+                .toString();
+    }
+}
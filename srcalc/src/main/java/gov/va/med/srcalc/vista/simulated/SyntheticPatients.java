@@ -0,0 +1,374 @@
+package gov.va.med.srcalc.vista.simulated;
+
+import java.util.*;
+
+import gov.va.med.srcalc.domain.VistaLabs;
+import gov.va.med.srcalc.vista.VistaPatientDao;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>A synthetic patient population which produces VistA remote procedure responses,
+ * in VistA's formats, for each patient. Patients are generated from their DFN, so each
+ * call for the same patient returns consistent data without storing the population.
+ * Like real patients, some patients lack vitals, labs or notes.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class SyntheticPatients
+{
+    /**
+     * What GET_VITAL returns if there is no weight in the requested period.
+     */
+    static final String NO_WEIGHT = "0^NO WEIGHT ENTERED WITHIN THIS PERIOD";
+
+    /**
+     * What GET_RECENT_VITALS returns if the patient has no vitals.
+     */
+    static final String NO_VITALS = "0^NO VITALS ENTERED";
+
+    private static final List<String> LAST_NAMES = ImmutableList.of(
+            "ANDERSON", "BROWN", "CLARK", "DAVIS", "EVANS", "GARCIA", "HARRIS",
+            "JOHNSON", "LEWIS", "MARTIN", "MILLER", "NELSON", "SMITH", "TAYLOR", "WILSON");
+
+    private static final List<String> FIRST_NAMES = ImmutableList.of(
+            "ALICE", "BETTY", "CAROL", "DONNA", "EMMA", "ANDREW", "BRIAN", "CHARLES",
+            "DAVID", "EDWARD", "FRANK", "GEORGE", "HENRY", "JAMES", "ROBERT");
+
+    private static final List<String> MEDICATIONS = ImmutableList.of(
+            "METOPROLOL TARTRATE 50MG TAB",
+            "SIMVASTATIN 40MG TAB",
+            "LISINOPRIL 10MG TAB",
+            "METFORMIN HCL 500MG TAB",
+            "ASPIRIN 81MG EC TAB",
+            "WARFARIN NA 5MG TAB",
+            "PREDNISONE 10MG TAB",
+            "FUROSEMIDE 40MG TAB");
+
+    /**
+     * Health factors which are displayed plus one which is not, to exercise the
+     * filtering.
+     */
+    private static final List<String> HEALTH_FACTORS = ImmutableList.<String>builder()
+            .addAll(VistaPatientDao.HEALTH_FACTORS_SET)
+            .add("REFUSED INFLUENZA IMMUNIZATION")
+            .build();
+
+    /**
+     * The plausible range and units of each lab, by the lab's first possible name.
+     */
+    private static final Map<String, LabRange> LAB_RANGES = ImmutableMap.<String, LabRange>builder()
+            .put(firstName(VistaLabs.ALBUMIN), new LabRange(2.0, 5.5, "g/dL"))
+            .put(firstName(VistaLabs.CREATININE), new LabRange(0.5, 3.0, "mg/dL"))
+            .put(firstName(VistaLabs.ALKALINE_PHOSPHATASE), new LabRange(40.0, 200.0, "U/L"))
+            .put(firstName(VistaLabs.BUN), new LabRange(5.0, 50.0, "mg/dL"))
+            .put(firstName(VistaLabs.SGOT), new LabRange(10.0, 100.0, "U/L"))
+            .put(firstName(VistaLabs.WBC), new LabRange(3.0, 18.0, "K/cmm"))
+            .put(firstName(VistaLabs.PLATELETS), new LabRange(100.0, 450.0, "K/cmm"))
+            .put(firstName(VistaLabs.HEMATOCRIT), new LabRange(28.0, 52.0, "%"))
+            .put(firstName(VistaLabs.SODIUM), new LabRange(128.0, 150.0, "mmol/L"))
+            .put(firstName(VistaLabs.INR), new LabRange(0.8, 3.5, ""))
+            .put(firstName(VistaLabs.BILIRUBIN), new LabRange(0.2, 3.0, "mg/dL"))
+            .put(firstName(VistaLabs.PTT), new LabRange(20.0, 60.0, "sec"))
+            .put(firstName(VistaLabs.POTASSIUM), new LabRange(3.0, 5.8, "mmol/L"))
+            .put(firstName(VistaLabs.HGA1C), new LabRange(4.5, 11.0, "%"))
+            .put(firstName(VistaLabs.GLUCOSE), new LabRange(65.0, 300.0, "mg/dL"))
+            .build();
+
+    private static final DateTimeFormatter VITALS_FORMAT =
+            DateTimeFormat.forPattern("MM/dd/yy@HH:mm");
+    private static final DateTimeFormatter LAB_FORMAT =
+            DateTimeFormat.forPattern("MM/dd/yyyy@HH:mm:ss");
+    private static final DateTimeFormatter HEALTH_FACTOR_FORMAT =
+            DateTimeFormat.forPattern("MM/dd/yyyy");
+    private static final DateTimeFormatter NOTE_FORMAT =
+            DateTimeFormat.forPattern("MM/dd/yyyy HH:mm");
+
+    /*
+     * Distinguishes the random streams for each kind of data, so that adding data of one
+     * kind does not change the others.
+     */
+    private static final int DEMOGRAPHICS = 0;
+    private static final int LABS = 1;
+    private static final int HEALTH = 2;
+    private static final int MEDS = 3;
+    private static final int NOTES = 4;
+
+    private final long fSeed;
+    private final int fSize;
+
+    /**
+     * Constructs an instance.
+     * @param seed distinguishes this population from others of the same size
+     * @param size the number of patients. Their DFNs are 1 through size.
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public SyntheticPatients(final long seed, final int size)
+    {
+        Preconditions.checkArgument(size > 0, "must have at least 1 patient");
+        fSeed = seed;
+        fSize = size;
+    }
+
+    private static String firstName(final VistaLabs lab)
+    {
+        return lab.getPossibleLabNames().get(0);
+    }
+
+    /**
+     * Returns the number of patients.
+     */
+    public int getSize()
+    {
+        return fSize;
+    }
+
+    /**
+     * Returns true if the given DFN identifies a patient in this population.
+     */
+    public boolean contains(final int dfn)
+    {
+        return dfn >= 1 && dfn <= fSize;
+    }
+
+    /**
+     * Returns the given patient's response to GET_PATIENT: "NAME^AGE^GENDER".
+     * @throws IllegalArgumentException if the patient is not in the population
+     */
+    public List<String> getPatient(final int dfn)
+    {
+        final Demographics d = demographics(dfn);
+        return ImmutableList.of(String.format("%s^%d^%s", d.fName, d.fAge, d.fGender));
+    }
+
+    /**
+     * Returns the given patient's response to GET_RECENT_VITALS.
+     * @throws IllegalArgumentException if the patient is not in the population
+     */
+    public List<String> getRecentVitals(final int dfn)
+    {
+        final Demographics d = demographics(dfn);
+        if (!d.fHasVitals)
+        {
+            return ImmutableList.of(NO_VITALS);
+        }
+        final String date = "(" + VITALS_FORMAT.print(d.fVitalsDate) + ")";
+        final double bmi = 703.0 * d.fWeightPounds / (d.fHeightInches * d.fHeightInches);
+        return ImmutableList.of(
+                String.format("Temperature:  %s  98.4 F  (36.9 C)  _NURSE,ONE_Vitals", date),
+                String.format("Pulse:  %s  %d  _NURSE,ONE_Vitals", date, 60 + d.fAge % 30),
+                String.format("Respiration:  %s  16  _NURSE,ONE_Vitals", date),
+                String.format("Blood Pressure:  %s  128/82  _NURSE,ONE_Vitals", date),
+                String.format("Pain:  %s  0  _NURSE,ONE_Vitals", date),
+                String.format(
+                        "Height:  %s  %d ft %d in (%.2f cm)  _NURSE,ONE_Vitals",
+                        date, d.fHeightInches / 12, d.fHeightInches % 12,
+                        d.fHeightInches * 2.54),
+                String.format(
+                        "Weight:  %s  %.2f lb (%.2f kg)  _NURSE,ONE_Vitals",
+                        date, d.fWeightPounds, d.fWeightPounds / 2.2046),
+                String.format("Body Mass Index:  %s  %.2f  _NURSE,ONE_Vitals", date, bmi));
+    }
+
+    /**
+     * Returns the given patient's response to GET_VITAL for weight 3 to 12 months before
+     * the most recent vitals: two measurements of two lines each.
+     * @throws IllegalArgumentException if the patient is not in the population
+     */
+    public List<String> getPastWeights(final int dfn)
+    {
+        final Demographics d = demographics(dfn);
+        if (!d.fHasVitals || !d.fHasPastWeight)
+        {
+            return ImmutableList.of(NO_WEIGHT);
+        }
+        final ImmutableList.Builder<String> lines = ImmutableList.builder();
+        for (int i = 0; i < 2; ++i)
+        {
+            final DateTime date = d.fVitalsDate.minusMonths(9 - 3 * i);
+            final double pounds = d.fWeightPounds + d.fPastWeightChange * (2 - i) / 2.0;
+            lines.add(String.format(
+                    "%d^%s Wt: %.2f lb (%.2f kg) _NURSE,ONE",
+                    20000 + dfn % 10000 + i,
+                    VITALS_FORMAT.print(date),
+                    pounds,
+                    pounds / 2.2046));
+            lines.add(String.format(
+                    "       @%s Body Mass Index: %.2f",
+                    DateTimeFormat.forPattern("HH:mm").print(date),
+                    703.0 * pounds / (d.fHeightInches * d.fHeightInches)));
+        }
+        return lines.build();
+    }
+
+    /**
+     * Returns the given patient's response to GET_LABS for the given lab: either
+     * "NAME^VALUE^DATE^UNITS" or an empty string if the patient has no result.
+     * @param labNames the possible names of the lab
+     * @throws IllegalArgumentException if the patient is not in the population
+     */
+    public String getLab(final int dfn, final List<String> labNames)
+    {
+        checkDfn(dfn);
+        final String name = labNames.isEmpty() ? "" : labNames.get(0);
+        final Random random = randomFor(dfn, LABS * 1000 + name.hashCode());
+        final LabRange range = LAB_RANGES.get(name);
+        // About 1 in 6 results are missing.
+        if (range == null || random.nextInt(6) == 0)
+        {
+            return "";
+        }
+        final double value = range.fLow + random.nextDouble() * (range.fHigh - range.fLow);
+        return String.format(
+                "%s^%.1f^%s^%s",
+                name,
+                value,
+                LAB_FORMAT.print(DateTime.now().minusDays(1 + random.nextInt(60))),
+                range.fUnits);
+    }
+
+    /**
+     * Returns the given patient's response to GET_HEALTH_FACTORS.
+     * @throws IllegalArgumentException if the patient is not in the population
+     */
+    public List<String> getHealthFactors(final int dfn)
+    {
+        checkDfn(dfn);
+        final Random random = randomFor(dfn, HEALTH);
+        final ImmutableList.Builder<String> lines = ImmutableList.builder();
+        final int count = random.nextInt(4);
+        for (int i = 0; i < count; ++i)
+        {
+            lines.add(String.format(
+                    "%s^%s",
+                    HEALTH_FACTOR_FORMAT.print(DateTime.now().minusDays(random.nextInt(365))),
+                    HEALTH_FACTORS.get(random.nextInt(HEALTH_FACTORS.size()))));
+        }
+        return lines.build();
+    }
+
+    /**
+     * Returns the given patient's response to GET_ACTIVE_MEDICATIONS.
+     * @throws IllegalArgumentException if the patient is not in the population
+     */
+    public List<String> getActiveMedications(final int dfn)
+    {
+        checkDfn(dfn);
+        final Random random = randomFor(dfn, MEDS);
+        final ImmutableList.Builder<String> lines = ImmutableList.builder();
+        final int count = random.nextInt(5);
+        for (int i = 0; i < count; ++i)
+        {
+            lines.add(String.format(
+                    "%dR;O^%s^3110228^^^%d",
+                    400000 + random.nextInt(10000),
+                    MEDICATIONS.get(random.nextInt(MEDICATIONS.size())),
+                    1 + random.nextInt(3)));
+        }
+        return lines.build();
+    }
+
+    /**
+     * Returns the given patient's notes with the given title as the XML response to
+     * GET_ADL_STATUS or GET_NOTES_WITH_SUBSTRING, or an empty list if the patient has
+     * none.
+     * @throws IllegalArgumentException if the patient is not in the population
+     */
+    public List<String> getNotes(final int dfn, final String title)
+    {
+        checkDfn(dfn);
+        final Random random = randomFor(dfn, NOTES * 1000 + title.hashCode());
+        // About half of the patients have a note.
+        if (random.nextBoolean())
+        {
+            return ImmutableList.of();
+        }
+        return ImmutableList.of(
+                "<notes>",
+                String.format(
+                        "<note localTitle='%s' signDate='%s'>",
+                        title,
+                        NOTE_FORMAT.print(DateTime.now().minusDays(random.nextInt(365)))),
+                "<body>",
+                "<![CDATA[Synthetic note for a simulated patient.]]>",
+                String.format("<![CDATA[%s was discussed with the patient.]]>", title),
+                "</body>",
+                "</note>",
+                "</notes>");
+    }
+
+    private void checkDfn(final int dfn)
+    {
+        Preconditions.checkArgument(contains(dfn), "no patient with DFN %s", dfn);
+    }
+
+    private Random randomFor(final int dfn, final int kind)
+    {
+        return new Random(fSeed * 1000003L + dfn * 31L + kind);
+    }
+
+    private Demographics demographics(final int dfn)
+    {
+        checkDfn(dfn);
+        return new Demographics(randomFor(dfn, DEMOGRAPHICS));
+    }
+
+    /**
+     * The attributes of a patient which several responses depend on.
+     */
+    private static final class Demographics
+    {
+        final String fName;
+        final int fAge;
+        final String fGender;
+        final boolean fHasVitals;
+        final DateTime fVitalsDate;
+        final int fHeightInches;
+        final double fWeightPounds;
+        final boolean fHasPastWeight;
+        final double fPastWeightChange;
+
+        public Demographics(final Random random)
+        {
+            fName = String.format(
+                    "ZZ%s,%s",
+                    LAST_NAMES.get(random.nextInt(LAST_NAMES.size())),
+                    FIRST_NAMES.get(random.nextInt(FIRST_NAMES.size())));
+            fAge = 25 + random.nextInt(66);
+            // Most veterans are male.
+            fGender = (random.nextInt(10) < 9) ? "M" : "F";
+            // About 1 in 10 patients have no vitals.
+            fHasVitals = random.nextInt(10) != 0;
+            fVitalsDate = DateTime.now()
+                    .minusDays(1 + random.nextInt(90))
+                    .withTime(8 + random.nextInt(10), 0, 0, 0);
+            fHeightInches = 60 + random.nextInt(17);
+            fWeightPounds = 110.0 + random.nextInt(180);
+            fHasPastWeight = random.nextInt(5) != 0;
+            fPastWeightChange = random.nextInt(31) - 15;
+        }
+    }
+
+    /**
+     * The plausible values of a lab.
+     */
+    private static final class LabRange
+    {
+        final double fLow;
+        final double fHigh;
+        final String fUnits;
+
+        public LabRange(final double low, final double high, final String units)
+        {
+            fLow = low;
+            fHigh = high;
+            fUnits = units;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * A simulated VistA which answers remote procedure calls from a synthetic patient
+ * population, for load testing without a real VistA. See {@link
+ * gov.va.med.srcalc.security.SimulatedVistaDaoFactory}.
+ */
+package gov.va.med.srcalc.vista.simulated;
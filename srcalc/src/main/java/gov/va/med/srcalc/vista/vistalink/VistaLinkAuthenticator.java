@@ -41,7 +41,16 @@ public final class VistaLinkAuthenticator implements VistaAuthenticator
      */
     public VistaLinkAuthenticator(final String division)
     {
-        fProcedureCaller = new VistaLinkProcedureCaller(division);
+        this(new VistaLinkProcedureCaller(division));
+    }
+    
+    /**
+     * Constructs an instance that will authenticate using the given (possibly shared)
+     * VistaLinkProcedureCaller.
+     */
+    public VistaLinkAuthenticator(final VistaLinkProcedureCaller procedureCaller)
+    {
+        fProcedureCaller = procedureCaller;
     }
     
     @Override
@@ -0,0 +1,187 @@
+package gov.va.med.srcalc.vista.vistalink;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.va.med.srcalc.vista.RpcMetrics;
+import gov.va.med.srcalc.vista.RpcTimeouts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * <p>Keeps one shared {@link VistaLinkProcedureCaller} per VistA division, so the JNDI
+ * lookup of the division's VistaLinkConnectionFactory is only performed once instead
+ * of on every request. VistaLinkProcedureCallers take the DUZ on each call, so one
+ * instance safely serves every user of a division.</p>
+ *
+ * <p>If a caller cannot obtain a connection from its factory (e.g., because the
+ * VistALink connector was redeployed and the cached factory is stale), the caller is
+ * automatically invalidated so the next {@link #getCaller(String)} performs a fresh
+ * lookup. Callers may also be invalidated explicitly.</p>
+ *
+ * <p>All of the callers record their calls in the registry's {@link RpcMetrics} and
+ * apply the registry's {@link RpcTimeouts}.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public final class VistaLinkCallerRegistry
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(VistaLinkCallerRegistry.class);
+
+    private final AtomicLong fInvalidationCount = new AtomicLong();
+
+    private final RpcMetrics fRpcMetrics;
+
+    private final RpcTimeouts fRpcTimeouts;
+
+    private final LoadingCache<String, VistaLinkProcedureCaller> fCallers =
+            CacheBuilder.newBuilder()
+            .recordStats()
+            .build(new CacheLoader<String, VistaLinkProcedureCaller>()
+            {
+                @Override
+                public VistaLinkProcedureCaller load(final String division)
+                {
+                    LOGGER.info("Looking up VistaLinkConnectionFactory for division {}.", division);
+                    return new VistaLinkProcedureCaller(division, VistaLinkCallerRegistry.this);
+                }
+            });
+
+    /**
+     * Constructs an instance whose callers record their calls in a new RpcMetrics and
+     * use {@link RpcTimeouts#DEFAULT}.
+     */
+    public VistaLinkCallerRegistry()
+    {
+        this(new RpcMetrics(), RpcTimeouts.DEFAULT);
+    }
+
+    /**
+     * Constructs an instance whose callers record their calls in the given RpcMetrics
+     * and time out according to the given RpcTimeouts.
+     */
+    public VistaLinkCallerRegistry(final RpcMetrics rpcMetrics, final RpcTimeouts rpcTimeouts)
+    {
+        fRpcMetrics = rpcMetrics;
+        fRpcTimeouts = rpcTimeouts;
+    }
+
+    /**
+     * Returns the metrics in which the callers record their calls.
+     */
+    public RpcMetrics getRpcMetrics()
+    {
+        return fRpcMetrics;
+    }
+
+    /**
+     * Returns the timeouts which the callers apply.
+     */
+    public RpcTimeouts getRpcTimeouts()
+    {
+        return fRpcTimeouts;
+    }
+
+    /**
+     * Returns the shared caller for the given division, looking up its
+     * VistaLinkConnectionFactory if necessary.
+     * @param division the division's station number, e.g. "500"
+     * @throws IllegalArgumentException if the given division is not known
+     * @throws gov.va.med.srcalc.ConfigurationException if VistALink is not configured
+     * properly
+     */
+    public VistaLinkProcedureCaller getCaller(final String division)
+    {
+        try
+        {
+            return fCallers.getUnchecked(division);
+        }
+        catch (final UncheckedExecutionException ex)
+        {
+            // Unwrap the original (unchecked) exception per the method contract.
+            if (ex.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException)ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Discards the cached caller for the given division, if any, so that the next
+     * {@link #getCaller(String)} looks up the VistaLinkConnectionFactory again.
+     */
+    public void invalidate(final String division)
+    {
+        if (fCallers.asMap().remove(division) != null)
+        {
+            fInvalidationCount.incrementAndGet();
+            LOGGER.info("Invalidated VistALink caller for division {}.", division);
+        }
+    }
+
+    /**
+     * Discards the given caller if it is still the cached caller for its division.
+     * Called by a caller that failed to obtain a connection.
+     */
+    void invalidate(final VistaLinkProcedureCaller caller)
+    {
+        if (fCallers.asMap().remove(caller.getDivision(), caller))
+        {
+            fInvalidationCount.incrementAndGet();
+            LOGGER.warn(
+                    "Invalidated VistALink caller for division {} after a connection failure.",
+                    caller.getDivision());
+        }
+    }
+
+    /**
+     * Discards all cached callers.
+     */
+    public void invalidateAll()
+    {
+        final long size = fCallers.size();
+        fCallers.invalidateAll();
+        fInvalidationCount.addAndGet(size);
+        LOGGER.info("Invalidated all {} VistALink callers.", size);
+    }
+
+    /**
+     * Returns the number of divisions with a cached caller.
+     */
+    public long getCachedDivisionCount()
+    {
+        return fCallers.size();
+    }
+
+    /**
+     * Returns the number of {@link #getCaller(String)} calls served by a cached caller.
+     */
+    public long getHitCount()
+    {
+        return fCallers.stats().hitCount();
+    }
+
+    /**
+     * Returns the number of {@link #getCaller(String)} calls which required a JNDI
+     * lookup, whether successful or not.
+     */
+    public long getMissCount()
+    {
+        return fCallers.stats().missCount();
+    }
+
+    /**
+     * Returns the number of cached callers discarded so far, whether explicitly or due to
+     * connection failures.
+     */
+    public long getInvalidationCount()
+    {
+        return fInvalidationCount.get();
+    }
+}
@@ -1,8 +1,10 @@
 package gov.va.med.srcalc.vista.vistalink;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.naming.*;
 import javax.resource.ResourceException;
@@ -13,6 +15,8 @@ import javax.security.auth.login.LoginException;
 import gov.va.med.exception.FoundationsException;
 import gov.va.med.srcalc.ConfigurationException;
 import gov.va.med.srcalc.vista.RemoteProcedure;
+import gov.va.med.srcalc.vista.RpcMetrics;
+import gov.va.med.srcalc.vista.RpcTimeouts;
 import gov.va.med.srcalc.vista.VistaProcedureCaller;
 import gov.va.med.vistalink.adapter.cci.*;
 import gov.va.med.vistalink.rpc.*;
@@ -25,11 +29,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.dao.*;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
 
 /**
  * <p>Provides a simple interface to call VistA Remote Procedures. Uses VistALink.</p>
  * 
+ * <p>Thread-safe: since the DUZ is given on each call, one instance may be shared by
+ * all users of a division. See {@link VistaLinkCallerRegistry}.</p>
+ * 
+ * <p>Records the connection time, call time, response size and failures of every call
+ * in an {@link RpcMetrics}. Each call fails with a RecoverableDataAccessException if
+ * VistA does not respond within its {@link RpcTimeouts timeout}.</p>
+ * 
  * <p>Per Effective Java Item 17, this class is marked final because it was not
  * designed for inheritance.</p>
  */
@@ -63,14 +76,64 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
     private final VistaLinkConnectionFactory fVlcf;
     
     /**
-     * Constructs an instance for the given VistA division (e.g., 500).
+     * The registry which shares this caller, if any.
+     */
+    private final Optional<VistaLinkCallerRegistry> fRegistry;
+    
+    /**
+     * Records every call.
+     */
+    private final RpcMetrics fMetrics;
+    
+    /**
+     * Bounds the time each call waits for VistA.
+     */
+    private final RpcTimeouts fTimeouts;
+    
+    /**
+     * <p>Constructs an instance for the given VistA division (e.g., 500).</p>
+     * 
+     * <p>Note that this constructor performs a JNDI lookup. Prefer sharing instances
+     * via {@link VistaLinkCallerRegistry}.</p>
+     * 
+     * <p>The instance records its calls in its own, unshared RpcMetrics and uses
+     * {@link RpcTimeouts#DEFAULT}.</p>
      * @throws ConfigurationException if VistALink is not configured properly
      * @throws IllegalArgumentException if the given division is not known. (Call
      * {@link VistaLinkUtil#isDivisionKnown(String)} first if unsure.)
      */
     public VistaLinkProcedureCaller(final String division)
+    {
+        this(
+                division,
+                Optional.<VistaLinkCallerRegistry>absent(),
+                new RpcMetrics(),
+                RpcTimeouts.DEFAULT);
+    }
+    
+    /**
+     * Constructs an instance for the given VistA division which is shared by the given
+     * registry. The instance will invalidate itself in the registry if it fails to
+     * obtain a connection, records its calls in the registry's RpcMetrics and uses the
+     * registry's RpcTimeouts.
+     * @throws ConfigurationException if VistALink is not configured properly
+     * @throws IllegalArgumentException if the given division is not known
+     */
+    VistaLinkProcedureCaller(final String division, final VistaLinkCallerRegistry registry)
+    {
+        this(division, Optional.of(registry), registry.getRpcMetrics(), registry.getRpcTimeouts());
+    }
+    
+    private VistaLinkProcedureCaller(
+            final String division,
+            final Optional<VistaLinkCallerRegistry> registry,
+            final RpcMetrics metrics,
+            final RpcTimeouts timeouts)
     {
         fDivision = division;
+        fRegistry = registry;
+        fMetrics = metrics;
+        fTimeouts = timeouts;
         
         try
         {
@@ -106,7 +169,7 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
     {
         final RpcRequest req = makeRequestObject(procedure, args);
         
-        return doRpc(duz, req);
+        return doRpc(duz, procedure, req);
     }
     
     /**
@@ -132,7 +195,11 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
             throws DataAccessException, FailedLoginException, AccountNotFoundException,
                     LoginException
     {
-        return doRpc(connectionSpec, makeRequestObject(procedure, args));
+        return doRpcs(
+                connectionSpec,
+                procedure,
+                ImmutableList.of(makeRequestObject(procedure, args)),
+                false).get(0).get();
     }
     
     @Override
@@ -163,7 +230,7 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
         setArrayParam(req.getParams(), 4, noteMap);
         
         // We assume only one line in this response.
-        return doRpc(duz, req).get(0);
+        return doRpc(duz, RemoteProcedure.SAVE_PROGRESS_NOTE, req).get(0);
     }
     
     @Override
@@ -183,7 +250,7 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
         setArrayParam(req.getParams(), 4, outcomes);
         
         // We assume only one line in this response.
-        return doRpc(duz, req).get(0);
+        return doRpc(duz, RemoteProcedure.SAVE_RISK, req).get(0);
     }
     
     @Override
@@ -199,7 +266,47 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
         setArrayParam(req.getParams(), 2, labNames);
         
         // We assume only one line in this response.
-        return doRpc(duz, req).get(0);
+        return doRpc(duz, RemoteProcedure.GET_LABS, req).get(0);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>The labs are still retrieved by one remote procedure call each, but the calls
+     * are made one after another on one held VistALink connection, so we only pay for
+     * connection allocation and re-authentication once. A lab whose call fails is
+     * logged and returned as an empty string, like a lab without results, so that it
+     * does not cost the other labs. If every call fails, the last failure is
+     * thrown.</p>
+     * 
+     * <p>Since the calls are sequential, their latencies add up. Callers retrieving
+     * many labs should split them into a few batches on separate connections.</p>
+     */
+    @Override
+    public List<String> doRetrieveMultipleLabsCall(
+            final String duz,
+            final String patientDfn,
+            final List<List<String>> labNameLists)
+            throws LoginException
+    {
+        final ArrayList<RpcRequest> requests = new ArrayList<>(labNameLists.size());
+        for (final List<String> labNames : labNameLists)
+        {
+            final RpcRequest req = makeRequestObject(RemoteProcedure.GET_LABS);
+            setStringParam(req.getParams(), 1, patientDfn);
+            setArrayParam(req.getParams(), 2, labNames);
+            requests.add(req);
+        }
+        
+        final ImmutableList.Builder<String> results = ImmutableList.builder();
+        for (final Optional<ImmutableList<String>> response :
+                doRpcs(duz, RemoteProcedure.GET_LABS, requests, true))
+        {
+            // We assume only one line in each response.
+            results.add((response.isPresent() && !response.get().isEmpty()) ?
+                    response.get().get(0) : "");
+        }
+        return results.build();
     }
     
     /**
@@ -281,6 +388,7 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
     /**
      * Performs the given {@link RpcRequest} under the given DUZ.
      * @param duz the calling user's DUZ
+     * @param procedure the procedure the request calls
      * @param request the RpcRequest to execute
      * @return an unmodifiable list of String lines from the reponse
      * @throws AccountNotFoundException if VistALink could not find a user with the given
@@ -289,19 +397,41 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
      * @throws RecoverableDataAccessException if a VistALink connection could
      * not be obtained or any other VistALink error occurs
      */
-    private List<String> doRpc(final String duz, final RpcRequest request)
+    private List<String> doRpc(
+            final String duz, final RemoteProcedure procedure, final RpcRequest request)
+            throws AccountNotFoundException, LoginException
+    {
+        return doRpcs(duz, procedure, ImmutableList.of(request), false).get(0).get();
+    }
+    
+    /**
+     * Performs the given {@link RpcRequest}s in order under the given DUZ, using a
+     * single connection.
+     * @param duz the calling user's DUZ
+     * @param procedure the procedure the requests call
+     * @param requests the RpcRequests to execute
+     * @param isolateFailures see {@link #doRpcs(VistaLinkConnectionSpec, RemoteProcedure,
+     * List, boolean)}
+     * @return the response lines for each request, in the same order as the requests
+     * @throws AccountNotFoundException if VistALink could not find a user with the given
+     * DUZ
+     * @throws LoginException if any other issue occurred reauthenticating in VistA
+     * @throws RecoverableDataAccessException if a VistALink connection could
+     * not be obtained or any other VistALink error occurs
+     */
+    private ImmutableList<Optional<ImmutableList<String>>> doRpcs(
+            final String duz,
+            final RemoteProcedure procedure,
+            final List<RpcRequest> requests,
+            final boolean isolateFailures)
             throws AccountNotFoundException, LoginException
     {
-        LOGGER.debug(
-                "About to call remote procedure \"{}\"",
-                request.getRpcName());
-
         final VistaLinkDuzConnectionSpec cs =
                 new VistaLinkDuzConnectionSpec(fDivision, duz);
 
         try
         {
-            return doRpc(cs, request);
+            return doRpcs(cs, procedure, requests, isolateFailures);
         }
         catch (final AccountNotFoundException e)
         {
@@ -312,11 +442,18 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
     }
 
     /**
-     * Makes the specified remote procedure call. Translates all VistALink exceptions to
-     * either standard Java or Spring exceptions.
+     * Makes the specified remote procedure calls in order using a single connection.
+     * Translates all VistALink exceptions to either standard Java or Spring exceptions.
      * @param connectionSpec specifies connection parameters (e.g., division, user)
-     * @param request specifies the remote procedure call to make
-     * @return an immutable list of String lines from the response
+     * @param procedure the procedure the requests call, for {@link RpcMetrics}
+     * @param requests specifies the remote procedure calls to make
+     * @param isolateFailures if true, a request which fails with a VistALink error
+     * (other than a security fault) is logged and its response is absent, so that the
+     * remaining requests are still made. The last failure is only thrown if every
+     * request fails. If false, the first failure is thrown and all responses are
+     * present.
+     * @return an immutable list of String lines from each response, in the same order
+     * as the requests
      * @throws DataAccessException if there was an error communicating with VistA
      * @throws AccountNotFoundException if the given ConnectionSpec specified a user
      * identifier (e.g., DUZ) that could not be matched to a VistA user
@@ -324,30 +461,52 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
      * code pair but it was not correct
      * @throws LoginException if any other issue occurred reauthenticating in VistA
      */
-    private ImmutableList<String> doRpc(
-            final VistaLinkConnectionSpec connectionSpec, final RpcRequest request)
+    private ImmutableList<Optional<ImmutableList<String>>> doRpcs(
+            final VistaLinkConnectionSpec connectionSpec,
+            final RemoteProcedure procedure,
+            final List<RpcRequest> requests,
+            final boolean isolateFailures)
             throws DataAccessException, FailedLoginException, AccountNotFoundException,
                     LoginException
     {
         try
         {
-            final VistaLinkConnection conn = (VistaLinkConnection)fVlcf.getConnection(connectionSpec);
+            final VistaLinkConnection conn = getConnection(connectionSpec, procedure);
             try
             {
-                final RpcResponse response = conn.executeRPC(request);
-                LOGGER.debug(
-                        "Got {} response: {}",
-                        response.getResultsType(), response.getResults());
-                // The only current possible types are "string" and "array"
-                // VistALink represents arrays as newline-delimited strings.
-                if(VlType.array.name().equals(response.getResultsType()))
+                final ImmutableList.Builder<Optional<ImmutableList<String>>> responses =
+                        ImmutableList.builder();
+                FoundationsException lastFailure = null;
+                int successes = 0;
+                for (final RpcRequest request : requests)
                 {
-                    // String.split() is used here instead of Guava's Splitter 
-                    // because it eliminates an empty string at the end of the 
-                    // response result, which is the desired behavior.
-                    return ImmutableList.copyOf(response.getResults().split("\n"));
+                    try
+                    {
+                        responses.add(Optional.of(executeRpc(conn, procedure, request)));
+                        ++successes;
+                    }
+                    catch (final SecurityFaultException e)
+                    {
+                        throw e;
+                    }
+                    catch (final FoundationsException e)
+                    {
+                        if (!isolateFailures)
+                        {
+                            throw e;
+                        }
+                        LOGGER.warn(
+                                "{} failed for one request. Continuing with the others. {}",
+                                procedure.getProcedureName(), e.toString());
+                        responses.add(Optional.<ImmutableList<String>>absent());
+                        lastFailure = e;
+                    }
                 }
-                return ImmutableList.of(response.getResults());
+                if (successes == 0 && lastFailure != null)
+                {
+                    throw lastFailure;
+                }
+                return responses.build();
             }
             finally
             {
@@ -359,6 +518,12 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
             // Per the docs, ResourceException can be thrown for anything from a 
             // configuration issue to a failure to allocate resources.
             // RecoverableDataAccessException is our best guess here.
+            // Our connection factory may be stale (e.g., the connector was redeployed),
+            // so make sure the next caller looks it up again.
+            if (fRegistry.isPresent())
+            {
+                fRegistry.get().invalidate(this);
+            }
             throw new RecoverableDataAccessException(
                     "Could not obtain connection to VistA", e);
         }
@@ -401,4 +566,84 @@ public final class VistaLinkProcedureCaller implements VistaProcedureCaller
                     "VistALink error: " + e.getMessage(), e);
         }
     }
+    
+    /**
+     * Obtains a connection from the VistaLinkConnectionFactory, recording the time taken
+     * or the failure.
+     */
+    private VistaLinkConnection getConnection(
+            final VistaLinkConnectionSpec connectionSpec, final RemoteProcedure procedure)
+            throws ResourceException
+    {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        try
+        {
+            final VistaLinkConnection conn =
+                    (VistaLinkConnection)fVlcf.getConnection(connectionSpec);
+            fMetrics.recordConnection(
+                    fDivision, procedure, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            return conn;
+        }
+        catch (final Exception e)
+        {
+            fMetrics.recordFailure(fDivision, procedure, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Executes the given request on the given connection within the procedure's
+     * timeout, recording the time taken and the response size or the failure.
+     * @return the response lines
+     */
+    private ImmutableList<String> executeRpc(
+            final VistaLinkConnection conn,
+            final RemoteProcedure procedure,
+            final RpcRequest request)
+            throws FoundationsException
+    {
+        // The connection may have been used with another timeout: set it on every call.
+        conn.setTimeOut(Ints.saturatedCast(fTimeouts.getTimeoutMillis(procedure)));
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final RpcResponse response;
+        try
+        {
+            response = conn.executeRPC(request);
+        }
+        catch (final Exception e)
+        {
+            fMetrics.recordFailure(fDivision, procedure, e);
+            throw e;
+        }
+        final long millis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        LOGGER.debug(
+                "Got {} response in {} ms: {}",
+                response.getResultsType(), millis, response.getResults());
+        final ImmutableList<String> lines = translateResponse(response);
+        final String results = response.getResults();
+        fMetrics.recordCall(
+                fDivision,
+                procedure,
+                millis,
+                (results == null) ? 0 : results.length(),
+                lines.size());
+        return lines;
+    }
+    
+    /**
+     * Translates the given response into a list of lines.
+     */
+    private static ImmutableList<String> translateResponse(final RpcResponse response)
+    {
+        // The only current possible types are "string" and "array"
+        // VistALink represents arrays as newline-delimited strings.
+        if(VlType.array.name().equals(response.getResultsType()))
+        {
+            // String.split() is used here instead of Guava's Splitter 
+            // because it eliminates an empty string at the end of the 
+            // response result, which is the desired behavior.
+            return ImmutableList.copyOf(response.getResults().split("\n"));
+        }
+        return ImmutableList.of(response.getResults());
+    }
 }
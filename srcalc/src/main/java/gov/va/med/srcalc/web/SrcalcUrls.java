@@ -149,6 +149,19 @@ public class SrcalcUrls
         return SUMMARY_REPORT;
     }
     
+    /**
+     * The URL of the Summary Report CSV export.
+     */
+    public static final String SUMMARY_REPORT_EXPORT = SUMMARY_REPORT + "/export";
+    
+    /**
+     * Returns {@link #SUMMARY_REPORT_EXPORT}.
+     */
+    public String getSummaryReportExport()
+    {
+        return SUMMARY_REPORT_EXPORT;
+    }
+    
     /**
      * The URL of the Utilization Report.
      */
@@ -161,4 +174,58 @@ public class SrcalcUrls
     {
         return UTILIZATION_REPORT;
     }
+    
+    /**
+     * The suffix to append to {@link #ADMIN_BASE} to make {@link #CACHE_STATISTICS}.
+     */
+    public static final String CACHE_STATISTICS_SUFFIX = "cacheStatistics";
+    
+    /**
+     * The URL of the Cache Statistics page.
+     */
+    public static final String CACHE_STATISTICS = ADMIN_BASE + CACHE_STATISTICS_SUFFIX;
+    
+    /**
+     * Returns {@link #CACHE_STATISTICS}.
+     */
+    public String getCacheStatistics()
+    {
+        return CACHE_STATISTICS;
+    }
+    
+    /**
+     * The suffix to append to {@link #ADMIN_BASE} to make {@link #RISK_SAVE_OUTBOX}.
+     */
+    public static final String RISK_SAVE_OUTBOX_SUFFIX = "riskSaveOutbox";
+    
+    /**
+     * The URL of the VistA Surgery Outbox page.
+     */
+    public static final String RISK_SAVE_OUTBOX = ADMIN_BASE + RISK_SAVE_OUTBOX_SUFFIX;
+    
+    /**
+     * Returns {@link #RISK_SAVE_OUTBOX}.
+     */
+    public String getRiskSaveOutbox()
+    {
+        return RISK_SAVE_OUTBOX;
+    }
+    
+    /**
+     * The suffix to append to {@link #ADMIN_BASE} to make {@link #VISTA_CALL_METRICS}.
+     */
+    public static final String VISTA_CALL_METRICS_SUFFIX = "vistaCallMetrics";
+    
+    /**
+     * The URL of the VistA Call Metrics page.
+     */
+    public static final String VISTA_CALL_METRICS = ADMIN_BASE + VISTA_CALL_METRICS_SUFFIX;
+    
+    /**
+     * Returns {@link #VISTA_CALL_METRICS}.
+     */
+    public String getVistaCallMetrics()
+    {
+        return VISTA_CALL_METRICS;
+    }
 }
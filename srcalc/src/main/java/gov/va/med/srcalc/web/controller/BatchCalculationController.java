@@ -0,0 +1,148 @@
+package gov.va.med.srcalc.web.controller;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+import gov.va.med.srcalc.service.*;
+import gov.va.med.srcalc.util.csv.CsvReader;
+import gov.va.med.srcalc.util.csv.TabularParseResult;
+import gov.va.med.srcalc.util.csv.TabularUploadError;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * <p>Scores many patients at once via {@link BatchCalculationService}.</p>
+ *
+ * <p>The request body is a CSV file with the columns DFN, specialty name and CPT code
+ * (with an optional header row). The response is a CSV file with one row per outcome
+ * of each successful calculation or one row with an error message per failed
+ * calculation. Rows are written as calculations complete, so they are not in the order
+ * given.</p>
+ */
+@Controller
+public class BatchCalculationController
+{
+    /**
+     * The header row of the response.
+     */
+    public static final String[] RESULT_HEADER =
+        { "DFN", "Specialty", "CPT", "Outcome", "Risk", "Error" };
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchCalculationController.class);
+
+    private final BatchCalculationService fBatchService;
+
+    /**
+     * Constructs an instance.
+     * @param batchService the service to perform the calculations
+     */
+    @Inject
+    public BatchCalculationController(final BatchCalculationService batchService)
+    {
+        fBatchService = batchService;
+    }
+
+    /**
+     * Calculates each item in the given CSV content, streaming the results to the
+     * response. If the content is invalid or has too many rows, responds with HTTP 400
+     * and a plain-text list of the errors instead.
+     * @param requestBody the CSV content
+     * @param response the response to write to
+     * @throws IOException if the response could not be written
+     */
+    @RequestMapping(value = "/batchCalc", method = RequestMethod.POST)
+    public void calculateBatch(final Reader requestBody, final HttpServletResponse response)
+            throws IOException
+    {
+        final TabularParseResult<BatchCalculationItem> parseResult =
+                new CsvReader<>(new BatchItemRowTranslator()).readObjects(requestBody);
+        if (parseResult.hasErrors())
+        {
+            LOGGER.debug("Rejecting batch calculation due to errors: {}", parseResult.getErrors());
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("text/plain");
+            for (final TabularUploadError error : parseResult.getErrors())
+            {
+                response.getWriter().println(
+                        error.getLocationPrefix() + error.getDefaultMessage());
+            }
+            return;
+        }
+        final List<BatchCalculationItem> items = parseResult.getRowObjects();
+        if (items.size() > BatchCalculationService.MAX_BATCH_SIZE)
+        {
+            response.sendError(
+                    HttpServletResponse.SC_BAD_REQUEST,
+                    String.format(
+                            "At most %d rows are allowed.",
+                            BatchCalculationService.MAX_BATCH_SIZE));
+            return;
+        }
+
+        response.setContentType("text/csv");
+        final CSVPrinter printer = new CSVPrinter(response.getWriter(), CSVFormat.EXCEL);
+        printer.printRecord((Object[])RESULT_HEADER);
+        fBatchService.calculateAll(items, new BatchCalculationService.OutcomeHandler()
+        {
+            @Override
+            public void handle(final BatchCalculationOutcome outcome)
+            {
+                try
+                {
+                    printOutcome(printer, outcome);
+                    // Flush each outcome so the client sees results as they arrive.
+                    printer.flush();
+                }
+                catch (final IOException ex)
+                {
+                    // Most likely the client disconnected: abort the rest of the batch.
+                    throw new IllegalStateException("Could not write batch outcome.", ex);
+                }
+            }
+        });
+        printer.flush();
+    }
+
+    /**
+     * Prints the row(s) for the given outcome.
+     */
+    private static void printOutcome(
+            final CSVPrinter printer, final BatchCalculationOutcome outcome)
+            throws IOException
+    {
+        final BatchCalculationItem item = outcome.getItem();
+        if (!outcome.isSuccessful())
+        {
+            printer.printRecord(
+                    item.getPatientDfn(),
+                    item.getSpecialtyName(),
+                    item.getCptCode(),
+                    "",
+                    "",
+                    outcome.getErrorMessage());
+            return;
+        }
+        for (final Map.Entry<String, Float> entry :
+            outcome.getResult().get().getOutcomes().entrySet())
+        {
+            printer.printRecord(
+                    item.getPatientDfn(),
+                    item.getSpecialtyName(),
+                    item.getCptCode(),
+                    entry.getKey(),
+                    entry.getValue(),
+                    "");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package gov.va.med.srcalc.web.controller;
+
+import gov.va.med.srcalc.service.BatchCalculationItem;
+import gov.va.med.srcalc.util.ValidationCodes;
+import gov.va.med.srcalc.util.csv.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.apache.commons.csv.CSVRecord;
+
+import com.google.common.base.Optional;
+
+/**
+ * Reads {@link BatchCalculationItem}s from a Comma-Separated Value (CSV) file with the
+ * columns DFN, specialty name and CPT code.
+ */
+class BatchItemRowTranslator implements RowTranslator<BatchCalculationItem>
+{
+    private static final String FIRST_HEADER_CELL = "DFN";
+
+    @Override
+    public boolean isHeaderRow(final CSVRecord record)
+    {
+        return record.get(0).equalsIgnoreCase(FIRST_HEADER_CELL);
+    }
+
+    @Override
+    public Optional<BatchCalculationItem> translateRow(
+            final CSVRecord record,
+            final Collection<TabularUploadError> errors,
+            final int rowNumber)
+    {
+        // Construct our own error list to detect if we added any errors.
+        final ArrayList<TabularUploadError> rowErrors = new ArrayList<>();
+
+        final String dfnString = ParseUtils.tryGetValue(record, 0);
+        int dfn = -1;
+        try
+        {
+            dfn = Integer.parseInt(dfnString);
+        }
+        catch (final NumberFormatException ex)
+        {
+            rowErrors.add(TabularUploadError.forField(
+                    rowNumber,
+                    "dfn",
+                    int.class,
+                    ValidationCodes.TYPE_MISMATCH,
+                    null,
+                    ex.getMessage()));
+        }
+
+        final String specialtyName = ParseUtils.tryGetValue(record, 1);
+        if (specialtyName.isEmpty())
+        {
+            rowErrors.add(TabularUploadError.forField(
+                    rowNumber,
+                    "specialty",
+                    String.class,
+                    ValidationCodes.NO_VALUE,
+                    null,
+                    "no value"));
+        }
+
+        // The CPT code is optional since not all specialties use a procedure. It is
+        // validated during the calculation.
+        final String cptCode = ParseUtils.tryGetValue(record, 2);
+
+        if (rowErrors.isEmpty())
+        {
+            return Optional.of(new BatchCalculationItem(dfn, specialtyName, cptCode));
+        }
+
+        errors.addAll(rowErrors);
+
+        return Optional.absent();
+    }
+}
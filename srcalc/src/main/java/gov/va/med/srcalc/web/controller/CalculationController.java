@@ -1,38 +1,63 @@
 package gov.va.med.srcalc.web.controller;
 
+import java.util.concurrent.Callable;
+
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.servlet.http.HttpSession;
 
 import gov.va.med.srcalc.domain.calculation.Calculation;
 import gov.va.med.srcalc.service.*;
 import gov.va.med.srcalc.web.view.*;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.ModelAndView;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
 /**
- * Controller for creating a new Calculation.
+ * <p>Controller for creating a new Calculation.</p>
+ *
+ * <p>Starting a calculation loads the patient from VistA in the background (on the
+ * asynchronous request executor, see srcalc-controller.xml) while the user selects a
+ * specialty. Handlers which need the Calculation return a {@link DeferredResult} which
+ * completes when the patient is loaded, so no request thread waits for VistA.</p>
  */
 @Controller
 public class CalculationController
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CalculationController.class);
+
     private final CalculationService fCalculationService;
+    private final TaskExecutor fVistaRequestExecutor;
     
     /**
      * Constructs an instance.
      * @param calculationService the service to use for various operations when
      *          performing a calculation
+     * @param vistaRequestExecutor runs the VistA calls of requests under the requesting
+     *          user's security context
      */
     @Inject
-    public CalculationController(final CalculationService calculationService)
+    public CalculationController(
+            final CalculationService calculationService,
+            @Named("vistaRequestExecutor") final TaskExecutor vistaRequestExecutor)
     {
         fCalculationService = calculationService;
+        fVistaRequestExecutor = vistaRequestExecutor;
     }
     
     /**
      * Creates a brand new calculation with the specified dfn. Any existing calculation is
-     * lost.
+     * lost. Presents the specialty selection immediately while the patient is loaded from
+     * VistA in the background.
      * @param patientDfn the desired patient's dfn
      * @param session the current session
      */
@@ -41,15 +66,30 @@ public class CalculationController
             @RequestParam(value = "patientDfn") final int patientDfn,
             final HttpSession session)
     {
-        // Start the calculation. A Calculation object must be created here to
-        // store the start time for reporting.
-        final Calculation calc = fCalculationService.startNewCalculation(patientDfn);
-        // Store the calculation in the HTTP Session.
-        SrcalcSession.setCalculationSession(session, new CalculationSession(calc));
+        // Start the calculation now: the Calculation object stores the start time for
+        // reporting.
+        final ListenableFutureTask<Calculation> pendingCalc =
+                ListenableFutureTask.create(new Callable<Calculation>()
+                {
+                    @Override
+                    public Calculation call()
+                    {
+                        return fCalculationService.startNewCalculation(patientDfn);
+                    }
+                });
+        fVistaRequestExecutor.execute(pendingCalc);
+        // Store the calculation in the HTTP Session. This replaces (and cancels) any
+        // previous calculation.
+        final CalculationSession calcSession = new CalculationSession(pendingCalc);
+        SrcalcSession.setCalculationSession(session, calcSession);
         
         // Present the view.
         final ModelAndView mav = new ModelAndView(Views.SELECT_SPECIALTY);
-        mav.addObject("calculation", calc);
+        // Show the patient if already loaded (e.g., from the cache).
+        if (calcSession.isCalculationReady())
+        {
+            mav.addObject("calculation", calcSession.getCalculation());
+        }
         // Also add the valid specialties for user selection.
         mav.addObject("specialties", fCalculationService.getValidSpecialties());
         return mav;
@@ -63,43 +103,88 @@ public class CalculationController
      * @param session the current session
      */
     @RequestMapping(value = "/newCalc", method = RequestMethod.GET)
-    public ModelAndView startNewCalculation(
+    public DeferredResult<ModelAndView> startNewCalculation(
             @RequestParam(value = "patientDfn") final int patientDfn,
             final HttpSession session)
     {
+        final DeferredResult<ModelAndView> deferredMav = new DeferredResult<>();
         // If there is a calculation already in the session, ask the user
         // if they wish to override the in-progress calculation.
         if(SrcalcSession.hasCalculationSession(session))
         {
             final CalculationSession calcSession = SrcalcSession.getCalculationSession(session);
-            final Calculation calc = calcSession.getCalculation();
-            final ModelAndView mav = new ModelAndView(Views.CONFIRM_NEW_CALC);
-            mav.addObject("calculation", calc);
-            mav.addObject("newPatientDfn", patientDfn);
-            return mav;
+            Futures.addCallback(
+                    calcSession.getCalculationFuture(),
+                    new FutureCallback<Calculation>()
+                    {
+                        @Override
+                        public void onSuccess(final Calculation calc)
+                        {
+                            final ModelAndView mav = new ModelAndView(Views.CONFIRM_NEW_CALC);
+                            mav.addObject("calculation", calc);
+                            mav.addObject("newPatientDfn", patientDfn);
+                            deferredMav.setResult(mav);
+                        }
+
+                        @Override
+                        public void onFailure(final Throwable t)
+                        {
+                            // The in-progress calculation never started, so there is
+                            // nothing to lose.
+                            LOGGER.debug("Replacing a calculation which failed to start.");
+                            deferredMav.setResult(new ModelAndView(
+                                    "redirect:/newCalc?force=true&patientDfn=" + patientDfn));
+                        }
+                    });
         }
-        
-        // If there is no calculation in the session, we start a new calculation.
-        return forceStartNewCalculation(patientDfn, session);
+        else
+        {
+            // If there is no calculation in the session, we start a new calculation.
+            deferredMav.setResult(forceStartNewCalculation(patientDfn, session));
+        }
+        return deferredMav;
     }
     
     /**
-     * Sets the selected specialty for the current calculation.
+     * Sets the selected specialty for the current calculation once its patient is
+     * loaded, which loads the rest of the patient data for that specialty. Results in an
+     * {@link InvalidIdentifierException} if the specialty name is invalid.
      * @param session the current session
      * @param specialtyName the selected specialty name
-     * @throws InvalidIdentifierException if the specialty name is invalid
      */
     @RequestMapping(value = "/selectSpecialty", method = RequestMethod.POST)
-    public String setSpecialty(
+    public DeferredResult<String> setSpecialty(
             final HttpSession session,
             @RequestParam("specialty") final String specialtyName)
-                    throws InvalidIdentifierException
     {
         final CalculationSession cs = SrcalcSession.getCalculationSession(session);
-        fCalculationService.setSpecialty(cs.getCalculation(), specialtyName);
+        final DeferredResult<String> deferredView = new DeferredResult<>();
+        final FutureCallback<Calculation> callback = new FutureCallback<Calculation>()
+        {
+            @Override
+            public void onSuccess(final Calculation calc)
+            {
+                try
+                {
+                    fCalculationService.setSpecialty(calc, specialtyName);
+                    // Using the POST-redirect-GET pattern.
+                    deferredView.setResult("redirect:/enterVars");
+                }
+                catch (final InvalidIdentifierException | RuntimeException ex)
+                {
+                    deferredView.setErrorResult(ex);
+                }
+            }
 
-        // Using the POST-redirect-GET pattern.
-        return "redirect:/enterVars";
+            @Override
+            public void onFailure(final Throwable t)
+            {
+                deferredView.setErrorResult(t);
+            }
+        };
+        // Setting the specialty calls VistA, so keep it off of the request thread.
+        Futures.addCallback(cs.getCalculationFuture(), callback, fVistaRequestExecutor);
+        return deferredView;
     }
     
     // Variable entry is in EnterVariablesController.
@@ -1,27 +1,50 @@
 package gov.va.med.srcalc.web.controller;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Objects;
 
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import gov.va.med.srcalc.domain.calculation.Calculation;
 import gov.va.med.srcalc.domain.calculation.CalculationResult;
 
 /**
- * Encapsulates a session in which a user is running a calculation: both the
- * {@link Calculation} object and the latest {@link CalculationResult}.
+ * <p>Encapsulates a session in which a user is running a calculation: both the
+ * {@link Calculation} object and the latest {@link CalculationResult}.</p>
+ *
+ * <p>The Calculation may still be loading the patient from VistA when the session
+ * starts. {@link #getCalculation()} waits for it. If this object is removed from the
+ * HTTP session (because a new calculation replaced it or the session ended), any pending
+ * load is cancelled.</p>
  */
-public class CalculationSession implements Serializable
+public class CalculationSession implements Serializable, HttpSessionBindingListener
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CalculationSession.class);
+
     /**
      * Change this when changing the class!
      */
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
-    private final Calculation fCalculation;
+    /**
+     * Not serialized directly: see {@link #writeObject(ObjectOutputStream)}.
+     */
+    private transient ListenableFuture<Calculation> fCalculation;
     private Optional<CalculationResult> fLastResult = Optional.absent();
-    
+
     /**
      * Constructs an instance.
      * @param calculation the associated Calculation. Must not be null.
@@ -29,17 +52,67 @@ public class CalculationSession implements Serializable
      */
     public CalculationSession(final Calculation calculation)
     {
-        fCalculation = Objects.requireNonNull(calculation);
+        fCalculation = Futures.immediateFuture(Objects.requireNonNull(calculation));
     }
 
     /**
-     * Returns the associated Calculation.
+     * Constructs an instance whose Calculation is still being created.
+     * @param pendingCalculation the future Calculation. Must not be null.
+     * @throws NullPointerException if the given future is null.
      */
-    public Calculation getCalculation()
+    public CalculationSession(final ListenableFuture<Calculation> pendingCalculation)
+    {
+        fCalculation = Objects.requireNonNull(pendingCalculation);
+    }
+
+    /**
+     * Returns the future associated Calculation, which may not be done yet. Useful to
+     * continue processing when it is done without waiting.
+     */
+    public ListenableFuture<Calculation> getCalculationFuture()
     {
         return fCalculation;
     }
 
+    /**
+     * Returns true if the associated Calculation is available without waiting.
+     */
+    public boolean isCalculationReady()
+    {
+        if (!fCalculation.isDone())
+        {
+            return false;
+        }
+        try
+        {
+            getCalculation();
+            return true;
+        }
+        catch (final RuntimeException ex)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the associated Calculation, waiting for it to be created if necessary.
+     * @throws RuntimeException any exception thrown while creating the Calculation, such
+     * as a {@link org.springframework.dao.DataAccessException} if the patient could not
+     * be loaded
+     * @throws java.util.concurrent.CancellationException if creation was cancelled
+     */
+    public Calculation getCalculation()
+    {
+        try
+        {
+            return Futures.getUnchecked(fCalculation);
+        }
+        catch (final UncheckedExecutionException ex)
+        {
+            throw Throwables.propagate(ex.getCause());
+        }
+    }
+
     /**
      * Returns the last CalculationResult if it has been set.
      * @return an Optional containing the last CalculationResult if it has been
@@ -49,7 +122,7 @@ public class CalculationSession implements Serializable
     {
         return fLastResult;
     }
-    
+
     /**
      * Returns the last CalculationResult. Throws an exception if it has not
      * been set.
@@ -76,5 +149,46 @@ public class CalculationSession implements Serializable
     {
         fLastResult = Optional.of(lastResult);
     }
-    
+
+    @Override
+    public void valueBound(final HttpSessionBindingEvent event)
+    {
+        // Nothing to do.
+    }
+
+    /**
+     * Cancels creating the Calculation if it is not done, since nothing can use it.
+     */
+    @Override
+    public void valueUnbound(final HttpSessionBindingEvent event)
+    {
+        if (fCalculation.cancel(true))
+        {
+            LOGGER.debug("Cancelled loading the patient for an abandoned calculation.");
+        }
+    }
+
+    /**
+     * Writes the Calculation if it is ready, or null otherwise.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+        out.writeObject(isCalculationReady() ? getCalculation() : null);
+    }
+
+    /**
+     * Reads the Calculation. If it was not ready, {@link #getCalculation()} will throw an
+     * IllegalStateException.
+     */
+    private void readObject(final ObjectInputStream in)
+            throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        final Calculation calculation = (Calculation)in.readObject();
+        fCalculation = (calculation != null) ?
+                Futures.immediateFuture(calculation) :
+                Futures.<Calculation>immediateFailedFuture(new IllegalStateException(
+                        "The patient was still loading when the session was saved."));
+    }
 }
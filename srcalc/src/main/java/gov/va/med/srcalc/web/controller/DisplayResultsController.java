@@ -1,6 +1,7 @@
 package gov.va.med.srcalc.web.controller;
 
 import java.util.HashMap;
+import java.util.concurrent.Callable;
 
 import gov.va.med.srcalc.domain.calculation.*;
 import gov.va.med.srcalc.service.CalculationService;
@@ -19,6 +20,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import com.google.common.collect.ImmutableSortedSet;
 
@@ -29,6 +31,16 @@ import com.google.common.collect.ImmutableSortedSet;
 public class DisplayResultsController
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(DisplayResultsController.class);
+    
+    /**
+     * How long (ms) to wait for signing before telling the user that VistA did not
+     * respond. Must exceed the SAVE_PROGRESS_NOTE RPC timeout (60 seconds) plus the time
+     * the call may wait for the division's bulkhead (2 seconds) and a VistA connection.
+     * Otherwise the user could be told that the note may not have been signed while it
+     * is still being saved.
+     */
+    static final long SIGN_TIMEOUT_MILLIS = 75000L;
+    
     private final CalculationService fCalculationService;
     
     /**
@@ -70,27 +82,59 @@ public class DisplayResultsController
     
     /**
      * Attempts to sign the current calculation and returns the status of that attempt in
-     * a json format.
+     * a json format. Signs asynchronously because signing calls VistA.
      * @param session the current session
      * @param electronicSignature the electronic signature to sign the calculation with
      * @param model the current model
-     * @return a map that contains the result status message to be converted to json
+     * @return a task returning a map that contains the result status message to be
+     * converted to json
      */
     @RequestMapping(
             value="/signCalculation",
             method = RequestMethod.POST,
             produces = "application/json")
     @ResponseBody
-    public HashMap<String, String> signCalculation(final HttpSession session, 
+    public WebAsyncTask<HashMap<String, String>> signCalculation(final HttpSession session, 
             @RequestParam(value = "eSig") final String electronicSignature,
             final Model model)
+    {
+        // Get the result while still on the request thread.
+        final CalculationResult lastResult =
+                SrcalcSession.getCalculationSession(session).getRequiredLastResult();
+        final WebAsyncTask<HashMap<String, String>> task =
+                new WebAsyncTask<>(SIGN_TIMEOUT_MILLIS, new Callable<HashMap<String, String>>()
+                {
+                    @Override
+                    public HashMap<String, String> call()
+                    {
+                        return signResult(lastResult, electronicSignature);
+                    }
+                });
+        task.onTimeout(new Callable<HashMap<String, String>>()
+        {
+            @Override
+            public HashMap<String, String> call()
+            {
+                final String msg = "VistA did not respond in time." +
+                        " The calculation may not have been signed.";
+                LOGGER.warn(msg);
+                return jsonStatus(msg);
+            }
+        });
+        return task;
+    }
+    
+    /**
+     * Submits the signature RPC and returns the status. Runs on the asynchronous request
+     * executor.
+     */
+    private HashMap<String, String> signResult(
+            final CalculationResult lastResult, final String electronicSignature)
     {
         // Build the note body and submit the RPC
         String resultString;
         try
         {
-            final CalculationResult lastResult =
-                    SrcalcSession.getCalculationSession(session).getRequiredLastResult();
             resultString = fCalculationService.signRiskCalculation(
                     lastResult, electronicSignature).getDescription();
         }
@@ -101,10 +145,17 @@ public class DisplayResultsController
             LOGGER.warn(msg, e);
             resultString = msg;
         }
+        return jsonStatus(resultString);
+    }
+    
+    /**
+     * Returns a map containing the given status message to be converted to json.
+     */
+    private static HashMap<String, String> jsonStatus(final String status)
+    {
         // The json could be expanded to return more information/fields
         final HashMap<String, String> jsonStatus = new HashMap<>();
-        jsonStatus.put("status", resultString);
-        // Return the result that will be translated to a json response
+        jsonStatus.put("status", status);
         return jsonStatus;
     }
     
@@ -1,9 +1,11 @@
 package gov.va.med.srcalc.web.controller;
 
 import gov.va.med.srcalc.domain.model.Procedure;
+import gov.va.med.srcalc.domain.model.ProcedureCatalog;
 import gov.va.med.srcalc.service.ModelInspectionService;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 
@@ -23,6 +25,12 @@ public class ReferenceDataController
 {
     private final ModelInspectionService fService;
     
+    /**
+     * The JSON-ready procedure list for the most recent catalog version.
+     */
+    private final AtomicReference<ProcedureListing> fProcedureListing =
+            new AtomicReference<>();
+    
     /**
      * Constructs an instance.
      * @param modelService the service to use for various operations when retrieving
@@ -35,7 +43,8 @@ public class ReferenceDataController
     }
 
     /**
-     * Returns a list of active procedures, sorted by CPT code.
+     * Returns a list of active procedures, sorted by CPT code. The list is only built
+     * once per version of the procedure catalog.
      * @return the list of active procedures
      */
     @RequestMapping(
@@ -45,11 +54,16 @@ public class ReferenceDataController
     @ResponseBody  // don't use a view, use the return value as the content
     public List<Object> getProcedures()
     {
-        final ImmutableList<Procedure> procedures = fService.getAllProcedures();
+        final ProcedureCatalog catalog = fService.getProcedureCatalog();
+        final ProcedureListing listing = fProcedureListing.get();
+        if (listing != null && listing.fVersion == catalog.getVersion())
+        {
+            return listing.fProcedures;
+        }
         
         // Transform each procedure into just what we want in the JSON.
-        final List<Object> returnList = new ArrayList<>(procedures.size());
-        for (final Procedure p : procedures)
+        final ImmutableList.Builder<Object> returnList = ImmutableList.builder();
+        for (final Procedure p : catalog.getProcedures())
         {
             final HashMap<String, String> jsonProcedure = new HashMap<>();
             jsonProcedure.put("cptCode", p.getCptCode());
@@ -58,10 +72,28 @@ public class ReferenceDataController
             // Use Float.toString() to send RVU as a string.
             jsonProcedure.put("rvu", Float.toString(p.getRvu()));
             jsonProcedure.put("eligible", Boolean.toString(p.isEligible()));
-            returnList.add(jsonProcedure);
+            returnList.add(Collections.unmodifiableMap(jsonProcedure));
         }
         
-        return returnList;
+        final ProcedureListing newListing =
+                new ProcedureListing(catalog.getVersion(), returnList.build());
+        fProcedureListing.set(newListing);
+        return newListing.fProcedures;
+    }
+    
+    /**
+     * The transformed procedure list for a given catalog version.
+     */
+    private static final class ProcedureListing
+    {
+        private final long fVersion;
+        private final ImmutableList<Object> fProcedures;
+        
+        public ProcedureListing(final long version, final ImmutableList<Object> procedures)
+        {
+            fVersion = version;
+            fProcedures = procedures;
+        }
     }
     
 }
@@ -81,5 +81,15 @@ public class AdminHomeController
                 .addObject("rules", fAdminService.getAllRules())
                 .addObject("riskModels", riskModels );
     }
+    
+    /**
+     * Presents the statistics of the model cache.
+     */
+    @RequestMapping(value = SrcalcUrls.CACHE_STATISTICS_SUFFIX, method = RequestMethod.GET)
+    public ModelAndView cacheStatistics()
+    {
+        return new ModelAndView(Views.CACHE_STATISTICS)
+                .addObject("statistics", fAdminService.getCacheStatistics());
+    }
 
 }
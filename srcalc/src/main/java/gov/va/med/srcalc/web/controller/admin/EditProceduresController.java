@@ -5,10 +5,11 @@ import java.io.InputStreamReader;
 
 import javax.inject.Inject;
 
+import gov.va.med.srcalc.db.ProcedureChangeSummary;
 import gov.va.med.srcalc.domain.model.Procedure;
 import gov.va.med.srcalc.service.AdminService;
-import gov.va.med.srcalc.util.csv.CsvReader;
-import gov.va.med.srcalc.util.csv.TabularParseResult;
+import gov.va.med.srcalc.service.ProcedureSource;
+import gov.va.med.srcalc.util.csv.*;
 import gov.va.med.srcalc.web.view.Views;
 
 import org.slf4j.Logger;
@@ -19,8 +20,6 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import com.google.common.collect.ImmutableSet;
-
 /**
  * Web MVC controller for displaying and updating the set of clinical procedures.
  */
@@ -33,6 +32,12 @@ public class EditProceduresController
      */
     public static final String FLASH_ATTR_SUCCESS = "uploadSuccess";
     
+    /**
+     * Upon success, this controller will add a flash attribute with this name containing
+     * the {@link gov.va.med.srcalc.db.ProcedureChangeSummary}.
+     */
+    public static final String FLASH_ATTR_CHANGES = "uploadChanges";
+    
     /**
      * The model attribute containing the current procedure list.
      */
@@ -68,8 +73,10 @@ public class EditProceduresController
     
     /**
      * Parses the given uploaded CSV into a collection of Procedures and, if it is valid,
-     * immediately replaces all defined Procedures with the new list. If it is not valid,
-     * presents the validation errors.
+     * immediately replaces all defined Procedures with the new list, writing only the
+     * differences. If it is not valid, presents the validation errors. The upload is
+     * streamed into the persistent store as it is parsed, so it may be arbitrarily
+     * large.
      * @param newProceduresFile the uploaded CSV file
      * @param redirectAttributes for adding flash attributes
      * @throws IOException if an I/O error occurs reading the provided upload
@@ -88,27 +95,39 @@ public class EditProceduresController
                 newProceduresFile.getInputStream());
         final CsvReader<Procedure> csvReader = new CsvReader<>(
                 new ProcedureRowTranslator());
-        final TabularParseResult<Procedure> result = csvReader.readObjects(input);
         
-        // If there were errors, display them to the user.
-        if (result.hasErrors())
+        final ProcedureChangeSummary changes;
+        try
         {
-            LOGGER.debug("There were errors: {}", result.getErrors());
+            changes = fAdminService.replaceAllProcedures(new ProcedureSource()
+            {
+                @Override
+                public void readProcedures(final RowHandler<Procedure> handler)
+                {
+                    final TabularStreamResult result = csvReader.streamObjects(
+                            input, handler, CsvReader.DEFAULT_MAX_ERRORS);
+                    if (result.hasErrors())
+                    {
+                        throw new TabularUploadException(result.getErrors());
+                    }
+                }
+            });
+        }
+        // If there were errors, display them to the user. The service will not have
+        // changed anything.
+        catch (final TabularUploadException ex)
+        {
+            LOGGER.debug("There were errors: {}", ex.getErrors());
             final ModelAndView mav = displayCurrentProcedures();
-            mav.addObject("validationErrors", result.getErrors());
+            mav.addObject("validationErrors", ex.getErrors());
             return mav;
         }
-        // Otherwise, it's valid: update the persistent store.
-        else
-        {
-            fAdminService.replaceAllProcedures(
-                    ImmutableSet.copyOf(result.getRowObjects()));
 
-            // Return to the procedures page so that the user can inspect and verify the
-            // new procedure set.
-            redirectAttributes.addFlashAttribute(FLASH_ATTR_SUCCESS, true);
-            return new ModelAndView("redirect:" + BASE_URL);
-        }
+        // Return to the procedures page so that the user can inspect and verify the
+        // new procedure set.
+        redirectAttributes.addFlashAttribute(FLASH_ATTR_SUCCESS, true);
+        redirectAttributes.addFlashAttribute(FLASH_ATTR_CHANGES, changes);
+        return new ModelAndView("redirect:" + BASE_URL);
     }
     
 }
@@ -0,0 +1,57 @@
+package gov.va.med.srcalc.web.controller.admin;
+
+import gov.va.med.srcalc.service.InvalidIdentifierException;
+import gov.va.med.srcalc.service.RiskSaveOutboxService;
+import gov.va.med.srcalc.web.SrcalcUrls;
+import gov.va.med.srcalc.web.view.Views;
+
+import javax.inject.Inject;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Web MVC controller for inspecting the signed results waiting to be saved in VistA
+ * Surgery and retrying failed ones.
+ */
+@Controller
+@RequestMapping(SrcalcUrls.RISK_SAVE_OUTBOX)
+public class RiskSaveOutboxController
+{
+    private final RiskSaveOutboxService fOutboxService;
+
+    /**
+     * Constructs an instance that will use the provided service(s) for operations.
+     */
+    @Inject
+    public RiskSaveOutboxController(final RiskSaveOutboxService outboxService)
+    {
+        fOutboxService = outboxService;
+    }
+
+    /**
+     * Presents the pending and failed deliveries.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public ModelAndView displayOutbox()
+    {
+        return new ModelAndView(Views.RISK_SAVE_OUTBOX)
+                .addObject("deliveries", fOutboxService.getUndeliveredDeliveries());
+    }
+
+    /**
+     * Retries the given delivery immediately and returns to the outbox page.
+     * @param deliveryId the ID of the delivery to retry
+     * @throws InvalidIdentifierException if there is no such delivery
+     */
+    @RequestMapping(method = RequestMethod.POST)
+    public ModelAndView retryDelivery(@RequestParam("deliveryId") final int deliveryId)
+            throws InvalidIdentifierException
+    {
+        fOutboxService.retryDelivery(deliveryId);
+        return new ModelAndView("redirect:" + SrcalcUrls.RISK_SAVE_OUTBOX);
+    }
+}
@@ -1,19 +1,27 @@
 package gov.va.med.srcalc.web.controller.admin;
 
+import java.io.IOException;
+import java.text.NumberFormat;
 import java.util.ArrayList;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
 
 import gov.va.med.srcalc.db.ResultSearchParameters;
 import gov.va.med.srcalc.domain.calculation.SignedResult;
 import gov.va.med.srcalc.service.ModelInspectionService;
 import gov.va.med.srcalc.service.ReportService;
 import gov.va.med.srcalc.util.SearchResults;
+import gov.va.med.srcalc.util.csv.RowHandler;
 import gov.va.med.srcalc.web.SrcalcUrls;
 import gov.va.med.srcalc.web.view.Views;
 import gov.va.med.srcalc.web.view.admin.SummaryReport;
 import gov.va.med.srcalc.web.view.admin.SummaryReportRow;
 
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
@@ -50,8 +58,24 @@ public class SummaryReportController
      */
     public static final String ATTRIBUTE_REPORT = "report";
     
+    /**
+     * The header row of the CSV export, matching the columns of the report table.
+     */
+    public static final String[] EXPORT_HEADER = {
+        "CPT Code",
+        "Surgical Specialty",
+        "Facility",
+        "Provider Type",
+        "Signed",
+        "Risk Model",
+        "Outcome"
+    };
+    
     private static final Logger LOGGER = LoggerFactory.getLogger(SummaryReportController.class);
     
+    private static final DateTimeFormatter SIGNED_FORMAT =
+            DateTimeFormat.forPattern("yyyy-MM-dd HH:mm");
+    
     private final ReportService fReportService;
     private final ModelInspectionService fModelService;
     
@@ -122,4 +146,87 @@ public class SummaryReportController
         }
     }
     
+    /**
+     * Prints the given row of the CSV export.
+     */
+    private static void printExportRow(
+            final CSVPrinter printer,
+            final NumberFormat outcomeFormat,
+            final SummaryReportRow row)
+            throws IOException
+    {
+        printer.printRecord(
+                row.getCptCode(),
+                row.getSpecialtyName(),
+                row.getUserStation(),
+                row.getProviderType(),
+                SIGNED_FORMAT.print(row.getSignatureTimestamp()),
+                row.getRiskModelName(),
+                outcomeFormat.format(row.getOutcome()));
+    }
+    
+    /**
+     * <p>Writes the full report for the given parameters to the response as a CSV
+     * file. Unlike {@link #displayReport(ResultSearchParameters, BindingResult)}, there
+     * is no maximum number of results: rows are written as they are read from the
+     * database, so this supports extracts of any size.</p>
+     * 
+     * <p>If the parameters are invalid, responds with HTTP 400 instead.</p>
+     * 
+     * @param params the report parameters
+     * @param bindingResult the BindingResult for the report parameters
+     * @param response the response to write to
+     * @throws IOException if the response could not be written
+     * @see SrcalcUrls#SUMMARY_REPORT_EXPORT
+     */
+    @RequestMapping(value = "/export", method = {RequestMethod.GET, RequestMethod.POST})
+    public void exportReport(
+            @ModelAttribute(ATTRIBUTE_REPORT_PARAMETERS) final ResultSearchParameters params,
+            final BindingResult bindingResult,
+            final HttpServletResponse response)
+            throws IOException
+    {
+        if (bindingResult.hasErrors())
+        {
+            LOGGER.debug("Rejecting export due to errors: {}", bindingResult);
+            response.sendError(
+                    HttpServletResponse.SC_BAD_REQUEST, "Invalid report parameters.");
+            return;
+        }
+
+        response.setContentType("text/csv");
+        response.setHeader(
+                "Content-Disposition", "attachment; filename=\"summaryReport.csv\"");
+        final CSVPrinter printer = new CSVPrinter(response.getWriter(), CSVFormat.EXCEL);
+        printer.printRecord((Object[])EXPORT_HEADER);
+        // Format outcomes like the report table does.
+        final NumberFormat outcomeFormat = NumberFormat.getPercentInstance();
+        outcomeFormat.setMinimumFractionDigits(1);
+        outcomeFormat.setMaximumFractionDigits(1);
+        final int count = fReportService.streamSignedResults(
+                params,
+                new RowHandler<SignedResult>()
+                {
+                    @Override
+                    public void handleRow(final SignedResult result)
+                    {
+                        try
+                        {
+                            for (final SummaryReportRow row :
+                                SummaryReportRow.fromSignedResult(result))
+                            {
+                                printExportRow(printer, outcomeFormat, row);
+                            }
+                        }
+                        catch (final IOException ex)
+                        {
+                            // Most likely the client disconnected: abort the export.
+                            throw new IllegalStateException(
+                                    "Could not write summary report row.", ex);
+                        }
+                    }
+                });
+        printer.flush();
+        LOGGER.info("Exported {} signed results with parameters {}.", count, params);
+    }
 }
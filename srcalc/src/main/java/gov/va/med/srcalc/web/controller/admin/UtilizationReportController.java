@@ -1,8 +1,11 @@
 package gov.va.med.srcalc.web.controller.admin;
 
+import java.util.List;
+
 import javax.inject.Inject;
 
 import gov.va.med.srcalc.db.HistoricalSearchParameters;
+import gov.va.med.srcalc.db.UtilizationGrouping;
 import gov.va.med.srcalc.service.ReportService;
 import gov.va.med.srcalc.web.SrcalcUrls;
 import gov.va.med.srcalc.web.view.Views;
@@ -15,8 +18,12 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
 /**
  * Controller for generating a Utilization Report.
  */
@@ -34,6 +41,27 @@ public class UtilizationReportController
      */
     public static final String ATTRIBUTE_REPORT = "report";
     
+    /**
+     * The attribute name of all available {@link UtilizationGrouping}s.
+     */
+    public static final String ATTRIBUTE_ALL_GROUPINGS = "allGroupings";
+    
+    /**
+     * The attribute name of the {@link UtilizationGrouping}s selected for the report.
+     */
+    public static final String ATTRIBUTE_GROUPINGS = "selectedGroupings";
+    
+    /**
+     * The request parameter specifying the {@link UtilizationGrouping}s, in order.
+     */
+    public static final String PARAM_GROUP_BY = "groupBy";
+    
+    /**
+     * The groupings to use if none are specified.
+     */
+    private static final ImmutableList<UtilizationGrouping> DEFAULT_GROUPINGS =
+            ImmutableList.of(UtilizationGrouping.SPECIALTY);
+    
     private static final Logger LOGGER =
             LoggerFactory.getLogger(UtilizationReportController.class);
 
@@ -56,14 +84,28 @@ public class UtilizationReportController
     @RequestMapping(method = RequestMethod.GET)
     public ModelAndView displayForm(
             @ModelAttribute(ATTRIBUTE_REPORT_PARAMETERS) final HistoricalSearchParameters params)
+    {
+        return displayForm(params, DEFAULT_GROUPINGS);
+    }
+    
+    private ModelAndView displayForm(
+            final HistoricalSearchParameters params,
+            final List<UtilizationGrouping> groupings)
     {
         // Note: params is already in the Model via @ModelAttribute.
-        return new ModelAndView(Views.UTILIZATION_REPORT_FORM);
+        return new ModelAndView(Views.UTILIZATION_REPORT_FORM)
+            .addObject(ATTRIBUTE_ALL_GROUPINGS, UtilizationGrouping.values())
+            .addObject(ATTRIBUTE_GROUPINGS, groupings);
     }
     
-    private UtilizationReport makeReport(final HistoricalSearchParameters params)
+    private UtilizationReport makeReport(
+            final HistoricalSearchParameters params,
+            final List<UtilizationGrouping> groupings)
     {
-        return new UtilizationReport(params, fReportService.getHistoricalRunInfos(params));
+        return new UtilizationReport(
+                params,
+                groupings,
+                fReportService.getUtilizationAggregates(params, groupings));
     }
     
     /**
@@ -71,21 +113,28 @@ public class UtilizationReportController
      * presents the validation errors.
      * @param params the report parameters
      * @param bindingResult the BindingResult for the report parameters
+     * @param groupBy the attributes by which to group the statistics, in order. Defaults
+     * to the specialty.
      */
     @RequestMapping(method = RequestMethod.POST)
     public ModelAndView displayReport(
             @ModelAttribute(ATTRIBUTE_REPORT_PARAMETERS) final HistoricalSearchParameters params,
-            final BindingResult bindingResult)
+            final BindingResult bindingResult,
+            @RequestParam(value = PARAM_GROUP_BY, required = false)
+            final List<UtilizationGrouping> groupBy)
     {
+        // Ignore any repeated groupings.
+        final List<UtilizationGrouping> groupings = (groupBy == null || groupBy.isEmpty())
+                ? DEFAULT_GROUPINGS : ImmutableSet.copyOf(groupBy).asList();
         if (bindingResult.hasErrors())
         {
             LOGGER.debug("Re-showing form due to errors: {}", bindingResult);
-            return displayForm(params);
+            return displayForm(params, groupings);
         }
         else
         {
             return new ModelAndView(Views.UTILIZATION_REPORT_RESULTS)
-                .addObject(ATTRIBUTE_REPORT, makeReport(params));
+                .addObject(ATTRIBUTE_REPORT, makeReport(params, groupings));
         }
     }
 }
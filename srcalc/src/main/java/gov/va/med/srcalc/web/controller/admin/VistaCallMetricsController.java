@@ -0,0 +1,51 @@
+package gov.va.med.srcalc.web.controller.admin;
+
+import gov.va.med.srcalc.vista.RpcMetrics;
+import gov.va.med.srcalc.vista.VistaClientMetrics;
+import gov.va.med.srcalc.web.SrcalcUrls;
+import gov.va.med.srcalc.web.view.Views;
+
+import javax.inject.Inject;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Web MVC controller for inspecting the latency, response sizes and failures of the
+ * remote procedure calls to each VistA division, and how much work the resources shared
+ * between requests save.
+ */
+@Controller
+@RequestMapping(SrcalcUrls.VISTA_CALL_METRICS)
+public class VistaCallMetricsController
+{
+    private final RpcMetrics fRpcMetrics;
+
+    private final VistaClientMetrics fClientMetrics;
+
+    /**
+     * Constructs an instance presenting the given metrics.
+     */
+    @Inject
+    public VistaCallMetricsController(
+            final RpcMetrics rpcMetrics, final VistaClientMetrics clientMetrics)
+    {
+        fRpcMetrics = rpcMetrics;
+        fClientMetrics = clientMetrics;
+    }
+
+    /**
+     * Presents the metrics of each remote procedure at each division and the counters
+     * of the shared resources.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public ModelAndView displayMetrics()
+    {
+        return new ModelAndView(Views.VISTA_CALL_METRICS)
+                .addObject("collectedSince", fRpcMetrics.getCollectedSince())
+                .addObject("statistics", fRpcMetrics.getStatistics())
+                .addObject("clientMetrics", fClientMetrics);
+    }
+}
@@ -5,6 +5,7 @@ import gov.va.med.srcalc.domain.calculation.RetrievedValue;
 import gov.va.med.srcalc.domain.model.*;
 import gov.va.med.srcalc.vista.RpcVistaPatientDao;
 
+import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.HashMap;
 
@@ -214,8 +215,8 @@ public class VariableEntry
      */
     public static String makeRetrievalString(final RetrievedValue retrievedValue)
     {
-        final String dateString = RpcVistaPatientDao.VISTA_DATE_OUTPUT_FORMAT.format(
-                retrievedValue.getMeasureDate());
+        final String dateString = new SimpleDateFormat(
+                RpcVistaPatientDao.VISTA_DATE_OUTPUT_PATTERN).format(retrievedValue.getMeasureDate());
         String unitString = "";
         if(retrievedValue.getUnits().length() > 0)
         {
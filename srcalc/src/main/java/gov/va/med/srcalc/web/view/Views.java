@@ -42,4 +42,7 @@ public class Views
     public static final String SUMMARY_REPORT_RESULTS = "admin/summaryReportResults.jsp";
     public static final String UTILIZATION_REPORT_FORM = "admin/utilizationReportForm.jsp";
     public static final String UTILIZATION_REPORT_RESULTS = "admin/utilizationReportResults.jsp";
+    public static final String CACHE_STATISTICS = "admin/cacheStatistics.jsp";
+    public static final String RISK_SAVE_OUTBOX = "admin/riskSaveOutbox.jsp";
+    public static final String VISTA_CALL_METRICS = "admin/vistaCallMetrics.jsp";
 }
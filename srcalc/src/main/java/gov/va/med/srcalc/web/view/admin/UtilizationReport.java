@@ -1,18 +1,19 @@
 package gov.va.med.srcalc.web.view.admin;
 
-import java.util.HashMap;
+import java.util.List;
 
-import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Ordering;
 
 import gov.va.med.srcalc.db.HistoricalSearchParameters;
-import gov.va.med.srcalc.domain.calculation.HistoricalRunInfo;
+import gov.va.med.srcalc.db.UtilizationAggregate;
+import gov.va.med.srcalc.db.UtilizationGrouping;
 import gov.va.med.srcalc.util.SearchResults;
 
 /**
- * <p>Encapsulates Utilization Report data. Even though we only display the summary
- * statistics on the UI, we still store the full results since they are available
- * anyway.</p>
+ * <p>Encapsulates Utilization Report data. The results are the aggregate statistics for
+ * each group, which are never truncated.</p>
  * 
  * <p>The references in this class cannot be changed, but it is not truly immutable
  * because {@link HistoricalSearchParameters} is mutable.</p>
@@ -21,48 +22,61 @@ import gov.va.med.srcalc.util.SearchResults;
  * designed for inheritance.</p>
  */
 public final class UtilizationReport
-    extends BaseReport<HistoricalSearchParameters, HistoricalRunInfo>
+    extends BaseReport<HistoricalSearchParameters, UtilizationAggregate>
 {
-    // Note that equals() does not depend on this property, but that's OK because this
-    // property is derived form the others.
-    private final ImmutableSortedMap<String, UtilizationSummary> fSpecialtySummaries;
+    /**
+     * Orders group keys case-insensitively, attribute by attribute, with missing values
+     * first.
+     */
+    private static final Ordering<Iterable<String>> GROUP_ORDERING =
+            Ordering.from(String.CASE_INSENSITIVE_ORDER).nullsFirst().lexicographical();
+    
+    // Note that equals() does not depend on these properties, but that's OK because
+    // they are derived from the others.
+    private final ImmutableList<UtilizationGrouping> fGroupings;
+    private final ImmutableSortedMap<List<String>, UtilizationSummary> fSummaries;
     
     /**
      * Constructs an instance with the given properties and a generationDate of now.
      * @param params See {@link #getParameters()}.
-     * @param results See {@link #getResults()}.
+     * @param groupings See {@link #getGroupings()}.
+     * @param aggregates the statistics for each group, as grouped by the groupings
      * @throws NullPointerException if any argument is null
      */
     public UtilizationReport(
             final HistoricalSearchParameters params,
-            final SearchResults<HistoricalRunInfo> results)
+            final List<UtilizationGrouping> groupings,
+            final List<UtilizationAggregate> aggregates)
     {
-        super(params, results);
+        super(params, new SearchResults<>(aggregates, false));
         
-        // Group the run infos by specialty and calculate statistics.
-        final ArrayListMultimap<String, HistoricalRunInfo> specialtyGroups = ArrayListMultimap.create();
-        for (final HistoricalRunInfo runInfo : results.getFoundItems())
-        {
-            specialtyGroups.put(
-                    runInfo.getHistoricalCalculation().getSpecialtyName(), runInfo);
-        }
-        final HashMap<String, UtilizationSummary> summaries = new HashMap<>();
-        for (final String specialtyName : specialtyGroups.keySet())
+        fGroupings = ImmutableList.copyOf(groupings);
+        final ImmutableSortedMap.Builder<List<String>, UtilizationSummary> summaries =
+                new ImmutableSortedMap.Builder<>(GROUP_ORDERING);
+        for (final UtilizationAggregate aggregate : aggregates)
         {
             summaries.put(
-                    specialtyName,
-                    UtilizationSummary.fromRunInfos(specialtyGroups.get(specialtyName)));
+                    aggregate.getGroupValues(),
+                    UtilizationSummary.fromAggregate(aggregate));
         }
-        fSpecialtySummaries =
-                ImmutableSortedMap.copyOf(summaries, String.CASE_INSENSITIVE_ORDER);
+        fSummaries = summaries.build();
+    }
+    
+    /**
+     * Returns the attributes by which the summaries are grouped.
+     */
+    public ImmutableList<UtilizationGrouping> getGroupings()
+    {
+        return fGroupings;
     }
     
     /**
-     * Returns {@link UtilizationSummary}s for each specialty.
-     * @return a map sorted by Specialty name (case-insensitive)
+     * Returns a {@link UtilizationSummary} for each group.
+     * @return a map from the group's attribute values (in the order of {@link
+     * #getGroupings()}) to its summary, sorted by those values (case-insensitive)
      */
-    public ImmutableSortedMap<String, UtilizationSummary> getSpecialtySummaries()
+    public ImmutableSortedMap<List<String>, UtilizationSummary> getSummaries()
     {
-        return fSpecialtySummaries;
+        return fSummaries;
     }
 }
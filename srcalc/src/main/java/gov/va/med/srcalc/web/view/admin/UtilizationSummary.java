@@ -5,6 +5,7 @@ import java.util.Objects;
 
 import com.google.common.base.MoreObjects;
 
+import gov.va.med.srcalc.db.UtilizationAggregate;
 import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
 import gov.va.med.srcalc.domain.calculation.HistoricalRunInfo;
 import gov.va.med.srcalc.domain.calculation.SignedResult;
@@ -81,6 +82,21 @@ public final class UtilizationSummary
                 (int)divideForMean(secondsToSignSum, signedCount));
     }
     
+    /**
+     * Constructs an instance from the given aggregate statistics.
+     * @return a new instance encapsulating the statistics
+     */
+    public static UtilizationSummary fromAggregate(final UtilizationAggregate aggregate)
+    {
+        return new UtilizationSummary(
+                aggregate.getTotalCount(),
+                aggregate.getSignedCount(),
+                (int)divideForMean(
+                        aggregate.getSecondsToFirstRunSum(), aggregate.getTotalCount()),
+                (int)divideForMean(
+                        aggregate.getSecondsToSignSum(), aggregate.getSignedCount()));
+    }
+    
     /**
      * Returns the total number of calculations (including unsigned).
      */
@@ -0,0 +1,92 @@
+<%@ taglib uri="/WEB-INF/srcalc.tld" prefix="srcalc" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/fmt" prefix="fmt" %>
+<%@ taglib uri="http://www.joda.org/joda/time/tags" prefix="joda" %>
+
+<srcalc:adminPage title="Cache Statistics">
+
+<section>
+    <h2>Model Cache Statistics</h2>
+    
+    <p>
+    Collected since <joda:format value="${statistics.collectedSince}" pattern="yyyy-MM-dd HH:mm"/>.
+    Refresh the page to update.
+    </p>
+    
+    <h3>Summary</h3>
+    
+    <table id="cacheSummaryTable" class="srcalcTable reportTable">
+    <thead>
+    <tr>
+        <th>Cache</th>
+        <th>Hits</th>
+        <th>Misses</th>
+        <th>Puts</th>
+        <th>Hit Percentage</th>
+    </tr>
+    </thead>
+    <tbody>
+    <tr>
+        <td>Entities and Collections</td>
+        <td class="numerical">${statistics.secondLevelCounts.hitCount}</td>
+        <td class="numerical">${statistics.secondLevelCounts.missCount}</td>
+        <td class="numerical">${statistics.secondLevelCounts.putCount}</td>
+        <td class="numerical">
+        <%-- hitPercentage is -1 if there were no lookups. --%>
+        <c:if test="${statistics.secondLevelCounts.hitPercentage >= 0}">
+        <fmt:formatNumber value="${statistics.secondLevelCounts.hitPercentage}" maxFractionDigits="1"/>%
+        </c:if>
+        </td>
+    </tr>
+    <tr>
+        <td>Queries</td>
+        <td class="numerical">${statistics.queryCounts.hitCount}</td>
+        <td class="numerical">${statistics.queryCounts.missCount}</td>
+        <td class="numerical">${statistics.queryCounts.putCount}</td>
+        <td class="numerical">
+        <%-- hitPercentage is -1 if there were no lookups. --%>
+        <c:if test="${statistics.queryCounts.hitPercentage >= 0}">
+        <fmt:formatNumber value="${statistics.queryCounts.hitPercentage}" maxFractionDigits="1"/>%
+        </c:if>
+        </td>
+    </tr>
+    </tbody>
+    </table>
+    
+    <h3>Regions</h3>
+    
+    <table id="cacheRegionTable" class="srcalcTable reportTable">
+    <thead>
+    <tr>
+        <th>Region</th>
+        <th>Hits</th>
+        <th>Misses</th>
+        <th>Puts</th>
+        <th>Hit Percentage</th>
+        <th>Elements</th>
+    </tr>
+    </thead>
+    <tbody>
+    <c:forEach var="region" items="${statistics.regions}">
+    <tr>
+        <td><c:out value="${region.name}" /></td>
+        <td class="numerical">${region.counts.hitCount}</td>
+        <td class="numerical">${region.counts.missCount}</td>
+        <td class="numerical">${region.counts.putCount}</td>
+        <td class="numerical">
+        <%-- hitPercentage is -1 if there were no lookups. --%>
+        <c:if test="${region.counts.hitPercentage >= 0}">
+        <fmt:formatNumber value="${region.counts.hitPercentage}" maxFractionDigits="1"/>%
+        </c:if>
+        </td>
+        <td class="numerical">${region.elementCount}</td>
+    </tr>
+    </c:forEach>
+    </tbody>
+    </table>
+
+    <c:url var="adminHomeUrl" value="${srcalcUrls.adminHome}" />
+    <p><a href="${adminHomeUrl}">Return to Administration Home</a></p>
+    
+</section>
+</srcalc:adminPage>
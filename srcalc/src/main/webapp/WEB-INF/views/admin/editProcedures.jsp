@@ -9,7 +9,9 @@
     
     <h3>Upload a New Procedure Set</h3>
     <c:if test="${uploadSuccess}">
-    <p class="successMessage">The new procedure set has been saved to the database.</p>
+    <p class="successMessage">The new procedure set has been saved to the database:
+    ${uploadChanges.insertedCount} added, ${uploadChanges.updatedCount} updated,
+    ${uploadChanges.removedCount} removed and ${uploadChanges.unchangedCount} unchanged.</p>
     </c:if>
     <c:if test="${!empty validationErrors}">
     <div class="error">
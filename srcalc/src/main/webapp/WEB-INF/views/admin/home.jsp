@@ -19,5 +19,16 @@
     <li><a href="${utilizationReportUrl}">Utilization Report</a></li>
     </ul>
     
+    <h3>Diagnostics</h3>
+    
+    <c:url var="cacheStatisticsUrl" value="${srcalcUrls.cacheStatistics}" />
+    <c:url var="riskSaveOutboxUrl" value="${srcalcUrls.riskSaveOutbox}" />
+    <c:url var="vistaCallMetricsUrl" value="${srcalcUrls.vistaCallMetrics}" />
+    <ul>
+    <li><a href="${cacheStatisticsUrl}">Model Cache Statistics</a></li>
+    <li><a href="${riskSaveOutboxUrl}">VistA Surgery Outbox</a></li>
+    <li><a href="${vistaCallMetricsUrl}">VistA Call Metrics</a></li>
+    </ul>
+    
 </section>
 </srcalc:adminPage>
@@ -0,0 +1,65 @@
+<%@ taglib uri="/WEB-INF/srcalc.tld" prefix="srcalc" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ taglib uri="http://www.joda.org/joda/time/tags" prefix="joda" %>
+
+<srcalc:adminPage title="VistA Surgery Outbox">
+
+<section>
+    <h2>VistA Surgery Outbox</h2>
+
+    <p>
+    Signed calculations are saved in VistA Surgery in the background, retrying if VistA
+    is unavailable. These are the calculations which have not been saved yet. Failed
+    calculations will not be retried unless you retry them here. Refresh the page to
+    update.
+    </p>
+
+    <c:choose>
+    <c:when test="${empty deliveries}">
+    <p>All signed calculations have been saved in VistA Surgery.</p>
+    </c:when>
+    <c:otherwise>
+    <c:url var="outboxUrl" value="${srcalcUrls.riskSaveOutbox}" />
+    <table id="riskSaveOutboxTable" class="srcalcTable reportTable">
+    <thead>
+    <tr>
+        <th>Calculation</th>
+        <th>Station</th>
+        <th>Signed</th>
+        <th>Status</th>
+        <th>Attempts</th>
+        <th>Last Attempt</th>
+        <th>Next Attempt</th>
+        <th>Last Error</th>
+        <th></th>
+    </tr>
+    </thead>
+    <tbody>
+    <c:forEach var="delivery" items="${deliveries}">
+    <tr>
+        <td class="numerical">${delivery.id}</td>
+        <td><c:out value="${delivery.signedResult.historicalCalculation.userStation}" /></td>
+        <td><joda:format value="${delivery.signedResult.signatureTimestamp}" pattern="yyyy-MM-dd HH:mm"/></td>
+        <td>${delivery.status}</td>
+        <td class="numerical">${delivery.attemptCount}</td>
+        <td><joda:format value="${delivery.lastAttemptTimestamp}" pattern="yyyy-MM-dd HH:mm"/></td>
+        <td><joda:format value="${delivery.nextAttemptTimestamp}" pattern="yyyy-MM-dd HH:mm"/></td>
+        <td><c:out value="${delivery.lastError}" /></td>
+        <td>
+        <form action="${outboxUrl}" method="post">
+        <input type="hidden" name="deliveryId" value="${delivery.id}">
+        <button class="btn-link" type="submit">Retry Now</button>
+        </form>
+        </td>
+    </tr>
+    </c:forEach>
+    </tbody>
+    </table>
+    </c:otherwise>
+    </c:choose>
+
+    <c:url var="adminHomeUrl" value="${srcalcUrls.adminHome}" />
+    <p><a href="${adminHomeUrl}">Return to Administration Home</a></p>
+
+</section>
+</srcalc:adminPage>
@@ -58,6 +58,9 @@
     <ol>
     <li><c:url var="cancelUrl" value="${srcalcUrls.adminHome}" />
         <a class="btn-default" href="${cancelUrl}">Cancel</a></li>
+    <li><c:url var="exportUrl" value="${srcalcUrls.summaryReportExport}" />
+        <%-- The export has no maximum number of results. --%>
+        <button class="btn-default" type="submit" formaction="${exportUrl}">Export CSV</button></li>
     <li><button class="button-em" type="submit">Generate Report</button></li>
     </ol>
     </div>
@@ -17,7 +17,8 @@
     
     <c:if test="${report.results.truncated}">
     <p class="error">
-    Your search returned more results than could be displayed. Please refine your search.
+    Your search returned more results than could be displayed. Please refine your search
+    or use Export CSV on the parameters page for the full results.
     </p>
     </c:if>
     
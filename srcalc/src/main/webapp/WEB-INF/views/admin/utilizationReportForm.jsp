@@ -23,6 +23,18 @@
             <form:errors path="maxDate" cssClass="error" />
         </td>
         </tr>
+        <tr>
+        <td class="attributeName">Group By</td>
+        <td>
+            <c:forEach var="grouping" items="${allGroupings}">
+            <label><input type="checkbox" name="groupBy" value="${grouping}"
+                <c:forEach var="selected" items="${selectedGroupings}">
+                <c:if test="${selected == grouping}">checked="checked"</c:if>
+                </c:forEach>
+                /> ${grouping.displayName}</label>
+            </c:forEach>
+        </td>
+        </tr>
     </tbody>
     </table>
    
@@ -28,18 +28,14 @@
     The below table may be copied and pasted into Excel.
     </p>
     
-    <c:if test="${report.results.truncated}">
-    <p class="error">
-    Your search returned more results than could be analyzed. Please refine your search.
-    </p>
-    </c:if>
-    
     <h3>Summary Data</h3>
     
     <table id="utilizationSummaryTable" class="srcalcTable reportTable">
     <thead>
     <tr>
-        <th>Specialty</th>
+        <c:forEach var="grouping" items="${report.groupings}">
+        <th>${grouping.displayName}</th>
+        </c:forEach>
         <th>Total</th>
         <th>Signed</th>
         <th class="longHeaderShortContent">Time to First Run Average (Minutes)</th>
@@ -47,9 +43,11 @@
     </tr>
     </thead>
     <tbody>
-    <c:forEach var="summaryEntry" items="${report.specialtySummaries}">
+    <c:forEach var="summaryEntry" items="${report.summaries}">
     <tr>
-        <td>${summaryEntry.key}</td>
+        <c:forEach var="groupValue" items="${summaryEntry.key}">
+        <td><c:out value="${groupValue}" default="(None)" /></td>
+        </c:forEach>
         <td class="numerical">${summaryEntry.value.totalCount}</td>
         <td class="numerical">${summaryEntry.value.signedCount}</td>
         <td class="numerical">
@@ -0,0 +1,118 @@
+<%@ taglib uri="/WEB-INF/srcalc.tld" prefix="srcalc" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/fmt" prefix="fmt" %>
+
+<srcalc:adminPage title="VistA Call Metrics">
+
+<section>
+    <h2>VistA Call Metrics</h2>
+
+    <p>
+    Collected since <fmt:formatDate value="${collectedSince}" pattern="yyyy-MM-dd HH:mm"/>.
+    Refresh the page to update. Times are in milliseconds. Percentiles are estimates: at
+    most about double the actual value.
+    </p>
+
+    <c:choose>
+    <c:when test="${empty statistics}">
+    <p>No remote procedures have been called.</p>
+    </c:when>
+    <c:otherwise>
+    <table id="vistaCallMetricsTable" class="srcalcTable reportTable">
+    <thead>
+    <tr>
+        <th rowspan="2">Station</th>
+        <th rowspan="2">Remote Procedure</th>
+        <th rowspan="2">Calls</th>
+        <th rowspan="2">Failures</th>
+        <th colspan="3">Connection Time</th>
+        <th colspan="4">Call Time</th>
+        <th colspan="2">Response Characters</th>
+        <th colspan="2">Response Lines</th>
+    </tr>
+    <tr>
+        <th>Median</th>
+        <th>95th</th>
+        <th>Max</th>
+        <th>Median</th>
+        <th>95th</th>
+        <th>99th</th>
+        <th>Max</th>
+        <th>Median</th>
+        <th>Max</th>
+        <th>Median</th>
+        <th>Max</th>
+    </tr>
+    </thead>
+    <tbody>
+    <c:forEach var="stat" items="${statistics}">
+    <tr>
+        <td><c:out value="${stat.division}" /></td>
+        <td><c:out value="${stat.procedure.procedureName}" /></td>
+        <td class="numerical">${stat.successCount}</td>
+        <td class="numerical">
+        ${stat.failureCount}
+        <c:forEach var="failure" items="${stat.failuresByClass}">
+        <br><c:out value="${failure.key}" />: ${failure.value}
+        </c:forEach>
+        </td>
+        <td class="numerical">${stat.connectionMillis.median}</td>
+        <td class="numerical">${stat.connectionMillis['95thPercentile']}</td>
+        <td class="numerical">${stat.connectionMillis.max}</td>
+        <td class="numerical">${stat.callMillis.median}</td>
+        <td class="numerical">${stat.callMillis['95thPercentile']}</td>
+        <td class="numerical">${stat.callMillis['99thPercentile']}</td>
+        <td class="numerical">${stat.callMillis.max}</td>
+        <td class="numerical">${stat.responseCharacters.median}</td>
+        <td class="numerical">${stat.responseCharacters.max}</td>
+        <td class="numerical">${stat.responseLines.median}</td>
+        <td class="numerical">${stat.responseLines.max}</td>
+    </tr>
+    </c:forEach>
+    </tbody>
+    </table>
+    </c:otherwise>
+    </c:choose>
+</section>
+
+<section>
+    <h2>Shared Resources</h2>
+
+    <p>
+    Counted since application startup.
+    </p>
+
+    <table id="vistaClientMetricsTable" class="srcalcTable reportTable">
+    <tbody>
+    <tr>
+        <th>Patient loads performed</th>
+        <td class="numerical">${clientMetrics.patientLoadCount}</td>
+    </tr>
+    <tr>
+        <th>Patient loads avoided by waiting for a load in progress</th>
+        <td class="numerical">${clientMetrics.deduplicatedPatientLoadCount}</td>
+    </tr>
+    <tr>
+        <th>Stations with a cached VistALink connection lookup</th>
+        <td class="numerical">${clientMetrics.cachedCallerDivisionCount}</td>
+    </tr>
+    <tr>
+        <th>VistALink connection lookups served from the cache</th>
+        <td class="numerical">${clientMetrics.callerHitCount}</td>
+    </tr>
+    <tr>
+        <th>VistALink connection lookups performed</th>
+        <td class="numerical">${clientMetrics.callerMissCount}</td>
+    </tr>
+    <tr>
+        <th>Cached VistALink connection lookups discarded</th>
+        <td class="numerical">${clientMetrics.callerInvalidationCount}</td>
+    </tr>
+    </tbody>
+    </table>
+
+    <c:url var="adminHomeUrl" value="${srcalcUrls.adminHome}" />
+    <p><a href="${adminHomeUrl}">Return to Administration Home</a></p>
+
+</section>
+</srcalc:adminPage>
@@ -0,0 +1,83 @@
+package gov.va.med.srcalc.db;
+
+import static org.junit.Assert.*;
+
+import gov.va.med.srcalc.domain.model.Specialty;
+import gov.va.med.srcalc.domain.model.VariableGroup;
+import gov.va.med.srcalc.test.util.IntegrationTest;
+
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tests {@link CacheDao} and the second-level cache configuration. Integration Testing
+ * (with an actual database) is really the only way to test this class.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration({"/srcalc-context.xml", "/test-context.xml"})
+@Transactional // run each test in its own (rolled-back) transaction
+public class CacheDaoIT extends IntegrationTest
+{
+    @Autowired
+    CacheDao fCacheDao;
+
+    @Autowired
+    SpecialtyDao fSpecialtyDao;
+
+    @Autowired
+    VariableDao fVariableDao;
+
+    @Autowired
+    SessionFactory fSessionFactory;
+
+    @Test
+    public final void testQueryCacheHit()
+    {
+        fSpecialtyDao.getAllSpecialties();
+        simulateNewSession();
+        final long hitsBefore = fCacheDao.getStatistics().getQueryCounts().getHitCount();
+
+        final int count = fSpecialtyDao.getAllSpecialties().size();
+
+        assertTrue("need sample specialties", count > 0);
+        assertEquals(
+                hitsBefore + 1,
+                fCacheDao.getStatistics().getQueryCounts().getHitCount());
+    }
+
+    @Test
+    public final void testEntitiesCached()
+    {
+        final VariableGroup group = fVariableDao.getAllVariableGroups().iterator().next();
+        final Specialty specialty = fSpecialtyDao.getAllSpecialties().get(0);
+
+        assertTrue(fSessionFactory.getCache()
+                .containsEntity(VariableGroup.class, group.getId()));
+        assertTrue(fSessionFactory.getCache()
+                .containsEntity(Specialty.class, specialty.getId()));
+    }
+
+    @Test
+    public final void testRegionStatistics()
+    {
+        fSpecialtyDao.getAllSpecialtiesWithRiskModels();
+
+        final CacheStatistics stats = fCacheDao.getStatistics();
+        boolean foundSpecialty = false;
+        for (final CacheStatistics.RegionStatistics region : stats.getRegions())
+        {
+            if (region.getName().equals(Specialty.class.getName()))
+            {
+                foundSpecialty = true;
+                assertTrue(region.getElementCount() > 0);
+            }
+        }
+        assertTrue("no Specialty region in " + stats, foundSpecialty);
+        assertTrue(stats.getSecondLevelCounts().getPutCount() > 0);
+    }
+}
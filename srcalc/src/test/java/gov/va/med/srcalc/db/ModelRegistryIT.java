@@ -0,0 +1,83 @@
+package gov.va.med.srcalc.db;
+
+import static org.junit.Assert.*;
+
+import gov.va.med.srcalc.domain.model.ModelSnapshot;
+import gov.va.med.srcalc.domain.model.SpecialtySnapshot;
+import gov.va.med.srcalc.test.util.IntegrationTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.base.Optional;
+
+/**
+ * Tests {@link ModelRegistry}. Integration Testing (with an actual database) is really
+ * the only way to test this class.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration({"/srcalc-context.xml", "/test-context.xml"})
+@Transactional // run each test in its own (rolled-back) transaction
+public class ModelRegistryIT extends IntegrationTest
+{
+    @Autowired
+    ModelRegistry fModelRegistry;
+    
+    @Autowired
+    SpecialtyDao fSpecialtyDao;
+    
+    @Test
+    public final void testSnapshotShared()
+    {
+        final ModelSnapshot snapshot = fModelRegistry.getSnapshot();
+        assertSame(snapshot, fModelRegistry.getSnapshot());
+        assertEquals(
+                fSpecialtyDao.getAllSpecialties().size(),
+                snapshot.getSpecialties().size());
+    }
+    
+    @Test
+    public final void testSpecialtySnapshot()
+    {
+        final Optional<SpecialtySnapshot> thoracic = fModelRegistry.getSpecialty("Thoracic");
+        assertTrue(thoracic.isPresent());
+        // The risk models are loaded and compiled.
+        assertEquals(
+                thoracic.get().getSpecialty().getRiskModels().size(),
+                thoracic.get().getCompiledModels().size());
+        assertFalse(thoracic.get().getCompiledModels().isEmpty());
+        assertEquals(
+                thoracic.get().getSpecialty().getModelVariables(),
+                thoracic.get().getVariables());
+        
+        assertFalse(fModelRegistry.getSpecialty("Nonexistent").isPresent());
+    }
+    
+    @Test
+    public final void testModelChanged()
+    {
+        /* Setup */
+        final ModelSnapshot original = fModelRegistry.getSnapshot();
+        
+        /* Behavior */
+        final int newVersion = fModelRegistry.modelChanged();
+        
+        /* Verification */
+        assertEquals(original.getVersion() + 1, newVersion);
+        // This transaction sees the new version...
+        final ModelSnapshot changed = fModelRegistry.getSnapshot();
+        assertEquals(newVersion, changed.getVersion());
+        assertEquals(
+                newVersion,
+                changed.getSpecialty("Thoracic").get().getModelVersion());
+        // ...but does not share it: it has not committed.
+        assertNotSame(changed, fModelRegistry.getSnapshot());
+        
+        // Changing again in the same transaction increments again.
+        assertEquals(newVersion + 1, fModelRegistry.modelChanged());
+    }
+}
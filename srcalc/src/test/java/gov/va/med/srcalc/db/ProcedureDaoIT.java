@@ -0,0 +1,211 @@
+package gov.va.med.srcalc.db;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import gov.va.med.srcalc.domain.model.Procedure;
+import gov.va.med.srcalc.domain.model.ProcedureCatalog;
+import gov.va.med.srcalc.test.util.IntegrationTest;
+
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests {@link ProcedureDao}. Integration Testing (with an actual database) is really the
+ * only way to test this class.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration({"/srcalc-context.xml", "/test-context.xml"})
+@Transactional // run each test in its own (rolled-back) transaction
+public class ProcedureDaoIT extends IntegrationTest
+{
+    @Autowired
+    ProcedureDao fProcedureDao;
+    
+    @Autowired
+    SessionFactory fSessionFactory;
+    
+    /**
+     * Returns a String describing every attribute of each given Procedure.
+     */
+    private static List<String> describeAll(final List<Procedure> procedures)
+    {
+        final ArrayList<String> descriptions = new ArrayList<>();
+        for (final Procedure p : procedures)
+        {
+            descriptions.add(String.format(
+                    "%s|%s|%s|%s",
+                    p.getLongString(), p.getShortDescription(), p.getComplexity(), p.isEligible()));
+        }
+        return descriptions;
+    }
+    
+    @Test
+    public final void testReplaceAllProceduresDiff()
+    {
+        final List<Procedure> existing = fProcedureDao.getAllProcedures();
+        assertTrue("need at least 3 sample procedures", existing.size() >= 3);
+        final Procedure unchanged = existing.get(0);
+        final Procedure toUpdate = existing.get(1);
+        
+        final Procedure updated = new Procedure(
+                toUpdate.getCptCode(),
+                toUpdate.getRvu() + 1.0f,
+                toUpdate.getShortDescription(),
+                "New long description",
+                toUpdate.getComplexity(),
+                !toUpdate.isEligible());
+        final Procedure inserted = new Procedure(
+                "99999", 1.5f, "New", "New procedure", "Standard", true);
+        final Procedure unchangedCopy = new Procedure(
+                unchanged.getCptCode(),
+                unchanged.getRvu(),
+                unchanged.getShortDescription(),
+                unchanged.getLongDescription(),
+                unchanged.getComplexity(),
+                unchanged.isEligible());
+        
+        final ProcedureChangeSummary summary = fProcedureDao.replaceAllProcedures(
+                ImmutableSet.of(unchangedCopy, updated, inserted));
+        
+        assertEquals(1, summary.getInsertedCount());
+        assertEquals(1, summary.getUpdatedCount());
+        assertEquals(existing.size() - 2, summary.getRemovedCount());
+        assertEquals(1, summary.getUnchangedCount());
+        assertEquals(3, summary.getTotalCount());
+        
+        simulateNewSession();
+        
+        final ImmutableList<Procedure> actual = fProcedureDao.getAllProcedures();
+        // Procedure.equals() does not check all attributes: check them here.
+        assertEquals(
+                describeAll(ImmutableList.of(unchangedCopy, updated, inserted)),
+                describeAll(actual));
+        // Unchanged rows must keep their identity.
+        assertEquals(unchanged.getId(), actual.get(0).getId());
+        assertEquals(toUpdate.getId(), actual.get(1).getId());
+    }
+    
+    @Test
+    public final void testReplaceAllProceduresInChunks()
+    {
+        final int existingCount = fProcedureDao.getAllProcedures().size();
+        final Procedure a = new Procedure("00001", 1.0f, "A", "Procedure A", "Standard", true);
+        final Procedure b = new Procedure("00002", 2.0f, "B", "Procedure B", "Standard", true);
+        final Procedure aDuplicate =
+                new Procedure("00001", 3.0f, "A2", "Procedure A2", "Standard", true);
+        
+        final ProcedureReplacement replacement = fProcedureDao.beginReplacement();
+        replacement.apply(ImmutableList.of(a));
+        replacement.apply(ImmutableList.of(b, aDuplicate));
+        final ProcedureChangeSummary summary = replacement.finish();
+        
+        assertEquals(2, summary.getInsertedCount());
+        assertEquals(existingCount, summary.getRemovedCount());
+        simulateNewSession();
+        // The first of the duplicate CPT codes wins.
+        assertEquals(ImmutableList.of(a, b), fProcedureDao.getAllProcedures());
+    }
+    
+    @Test
+    public final void testCatalogShared()
+    {
+        final ProcedureCatalog catalog = fProcedureDao.getCatalog();
+        assertEquals(fProcedureDao.getAllProcedures(), catalog.getProcedures());
+        // Subsequent calls must not reload the catalog.
+        assertSame(catalog, fProcedureDao.getCatalog());
+    }
+    
+    @Test
+    public final void testCatalogReplaced()
+    {
+        final ProcedureCatalog oldCatalog = fProcedureDao.getCatalog();
+        final Procedure a = new Procedure("00001", 1.0f, "A", "Procedure A", "Standard", true);
+        
+        fProcedureDao.replaceAllProcedures(ImmutableSet.of(a));
+        
+        final ProcedureCatalog newCatalog = fProcedureDao.getCatalog();
+        assertTrue(newCatalog.getVersion() > oldCatalog.getVersion());
+        assertEquals(ImmutableList.of(a), newCatalog.getProcedures());
+        assertEquals(a, newCatalog.getProceduresByCpt().get("00001"));
+        // The old catalog is a snapshot.
+        assertNotEquals(newCatalog.getProcedures(), oldCatalog.getProcedures());
+    }
+    
+    /**
+     * Tests that other threads do not see the new catalog before the replacing
+     * transaction commits.
+     */
+    @Test
+    public final void testCatalogNotPublishedBeforeCommit() throws Exception
+    {
+        final ProcedureCatalog oldCatalog = fProcedureDao.getCatalog();
+        final Procedure a = new Procedure("00001", 1.0f, "A", "Procedure A", "Standard", true);
+        
+        fProcedureDao.replaceAllProcedures(ImmutableSet.of(a));
+        
+        final ExecutorService otherThread = Executors.newSingleThreadExecutor();
+        try
+        {
+            final ProcedureCatalog seenByOthers = otherThread.submit(
+                    new Callable<ProcedureCatalog>()
+                    {
+                        @Override
+                        public ProcedureCatalog call()
+                        {
+                            return fProcedureDao.getCatalog();
+                        }
+                    }).get();
+            assertSame(oldCatalog, seenByOthers);
+        }
+        finally
+        {
+            otherThread.shutdown();
+        }
+        // This transaction sees its own changes.
+        assertEquals(ImmutableList.of(a), fProcedureDao.getCatalog().getProcedures());
+    }
+    
+    @Test
+    public final void testReplacementEvictsCachedProcedures()
+    {
+        final List<Procedure> existing = fProcedureDao.getAllProcedures();
+        final Procedure toUpdate = existing.get(0);
+        simulateNewSession();
+        getHibernateSession().get(Procedure.class, toUpdate.getId());
+        assertTrue(fSessionFactory.getCache().containsEntity(Procedure.class, toUpdate.getId()));
+        
+        // Update only, since deletes evict all cached Procedures anyway. The updates are
+        // written with SQL, bypassing the cache.
+        final ArrayList<Procedure> newProcedures = new ArrayList<>(existing);
+        newProcedures.set(0, new Procedure(
+                toUpdate.getCptCode(),
+                toUpdate.getRvu() + 1.0f,
+                toUpdate.getShortDescription(),
+                toUpdate.getLongDescription(),
+                toUpdate.getComplexity(),
+                toUpdate.isEligible()));
+        final ProcedureChangeSummary summary =
+                fProcedureDao.replaceAllProcedures(ImmutableSet.copyOf(newProcedures));
+        assertEquals(1, summary.getUpdatedCount());
+        assertEquals(0, summary.getRemovedCount());
+        
+        simulateNewSession();
+        final Procedure reloaded =
+                (Procedure)getHibernateSession().get(Procedure.class, toUpdate.getId());
+        assertEquals(toUpdate.getRvu() + 1.0f, reloaded.getRvu(), 0.0f);
+    }
+}
@@ -2,11 +2,20 @@ package gov.va.med.srcalc.db;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import gov.va.med.srcalc.domain.calculation.DailyOutcome;
+import gov.va.med.srcalc.domain.calculation.DailyUtilization;
 import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
 import gov.va.med.srcalc.domain.calculation.HistoricalRunInfo;
+import gov.va.med.srcalc.domain.calculation.RollupKey;
 import gov.va.med.srcalc.domain.calculation.SignedResult;
 import gov.va.med.srcalc.test.util.IntegrationTest;
 import gov.va.med.srcalc.util.SearchResults;
+import gov.va.med.srcalc.util.csv.RowHandler;
 
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
@@ -127,11 +136,16 @@ public class ResultsDaoIT extends IntegrationTest
             STATION_NUMBER_3,
             new DateTime(2015, 6, 6, 11, 52, 43),
             75,
-            Optional.of(PROVIDER_TYPE_1));
+            Optional.of(PROVIDER_TYPE_1),
+            // Record a model version on one calculation to test persisting it.
+            Optional.of(7));
 
     @Autowired
     ResultsDao fResultsDao;
     
+    @Autowired
+    RollupDao fRollupDao;
+    
     @Before
     public final void setup()
     {
@@ -245,4 +259,260 @@ public class ResultsDaoIT extends IntegrationTest
         params.setMaxDate(new LocalDate(2015, 6, 7));
         assertEquals(expectedRunInfos, fResultsDao.getHistoricalRunInfos(params));
     }
+    
+    @Test
+    public final void testGetUtilizationAggregates()
+    {
+        /* Setup */
+        // Calcs 1 and 2 are outside of the date range.
+        final ImmutableSet<UtilizationAggregate> expectedAggregates = ImmutableSet.of(
+                new UtilizationAggregate(
+                        ImmutableList.of(SPECIALTY_NEURO, STATION_NUMBER_3),
+                        1,
+                        fHistoricalCalc3.getSecondsToFirstRun(),
+                        1,
+                        fSampleResult3.getSecondsToSign()),
+                new UtilizationAggregate(
+                        ImmutableList.of(SPECIALTY_CARDIAC, STATION_NUMBER_2),
+                        1,
+                        fHistoricalCalc4.getSecondsToFirstRun(),
+                        1,
+                        fSampleResult4.getSecondsToSign()),
+                new UtilizationAggregate(
+                        ImmutableList.of(SPECIALTY_CARDIAC, STATION_NUMBER_3),
+                        1,
+                        fHistoricalCalc5.getSecondsToFirstRun(),
+                        0,
+                        0));
+        
+        /* Behavior */
+        final HistoricalSearchParameters params = new HistoricalSearchParameters();
+        params.setMinDate(new LocalDate(2015, 6, 1));
+        params.setMaxDate(new LocalDate(2015, 6, 8));
+        final ImmutableList<UtilizationAggregate> actualAggregates =
+                fResultsDao.getUtilizationAggregates(
+                        params,
+                        ImmutableList.of(
+                                UtilizationGrouping.SPECIALTY, UtilizationGrouping.STATION));
+        
+        /* Verification */
+        // The order is unspecified.
+        assertEquals(expectedAggregates, ImmutableSet.copyOf(actualAggregates));
+        assertEquals(expectedAggregates.size(), actualAggregates.size());
+    }
+    
+    @Test
+    public final void testGetUtilizationAggregatesByProviderType()
+    {
+        /* Setup */
+        final ImmutableSet<UtilizationAggregate> expectedAggregates = ImmutableSet.of(
+                new UtilizationAggregate(
+                        ImmutableList.of(PROVIDER_TYPE_1),
+                        3,
+                        fHistoricalCalc1.getSecondsToFirstRun() +
+                                fHistoricalCalc2.getSecondsToFirstRun() +
+                                fHistoricalCalc5.getSecondsToFirstRun(),
+                        2,
+                        fSampleResult1.getSecondsToSign() +
+                                fSampleResult2.getSecondsToSign()),
+                // Calculations without a provider type form their own group.
+                new UtilizationAggregate(
+                        Arrays.asList((String)null),
+                        2,
+                        fHistoricalCalc3.getSecondsToFirstRun() +
+                                fHistoricalCalc4.getSecondsToFirstRun(),
+                        2,
+                        fSampleResult3.getSecondsToSign() +
+                                fSampleResult4.getSecondsToSign()));
+        
+        /* Behavior & Verification */
+        assertEquals(
+                expectedAggregates,
+                ImmutableSet.copyOf(fResultsDao.getUtilizationAggregates(
+                        new HistoricalSearchParameters(),
+                        ImmutableList.of(UtilizationGrouping.PROVIDER_TYPE))));
+    }
+    
+    @Test
+    public final void testGetUtilizationAggregatesEmpty()
+    {
+        final HistoricalSearchParameters params = new HistoricalSearchParameters();
+        params.setMinDate(new LocalDate(2020, 1, 1));
+        
+        // Without groupings, the database returns a row of zeroes: make sure we skip it.
+        assertEquals(
+                ImmutableList.of(),
+                fResultsDao.getUtilizationAggregates(
+                        params, ImmutableList.<UtilizationGrouping>of()));
+    }
+    
+    @Test
+    public final void testRollupsMaintained()
+    {
+        /* Setup */
+        final ImmutableList<UtilizationGrouping> groupings = ImmutableList.of(
+                UtilizationGrouping.STATION,
+                UtilizationGrouping.SPECIALTY,
+                UtilizationGrouping.PROVIDER_TYPE);
+        final ImmutableSet<UtilizationAggregate> rawAggregates = ImmutableSet.copyOf(
+                fResultsDao.getUtilizationAggregates(
+                        new HistoricalSearchParameters(), groupings));
+        
+        /* Behavior */
+        final ImmutableList<UtilizationAggregate> rollupAggregates =
+                fRollupDao.getUtilizationAggregates(
+                        new LocalDate(2000, 1, 1), Optional.<LocalDate>absent(), groupings);
+        
+        /* Verification */
+        // populateSampleResults() maintained the rollups incrementally.
+        assertEquals(rawAggregates, ImmutableSet.copyOf(rollupAggregates));
+        assertEquals(5, rollupAggregates.size());
+    }
+    
+    @Test
+    public final void testRollupsMaintainedPerDay()
+    {
+        /* Setup */
+        final LocalDate day = fHistoricalCalc1.getStartTimestamp().toLocalDate();
+        final ImmutableList<UtilizationAggregate> expected = ImmutableList.of(
+                new UtilizationAggregate(
+                        ImmutableList.<String>of(),
+                        1,
+                        fHistoricalCalc1.getSecondsToFirstRun(),
+                        1,
+                        fSampleResult1.getSecondsToSign()));
+        
+        /* Behavior & Verification */
+        assertEquals(
+                expected,
+                fRollupDao.getUtilizationAggregates(
+                        day, Optional.of(day), ImmutableList.<UtilizationGrouping>of()));
+        assertEquals(
+                ImmutableList.of(),
+                fRollupDao.getUtilizationAggregates(
+                        day.plusDays(1),
+                        Optional.of(day.plusDays(1)),
+                        ImmutableList.<UtilizationGrouping>of()));
+    }
+    
+    @Test
+    public final void testComputeUtilizationRollups()
+    {
+        final List<DailyUtilization> rollups = fResultsDao.computeUtilizationRollups(
+                fHistoricalCalc3.getStartTimestamp().toLocalDate());
+        
+        assertEquals(1, rollups.size());
+        final DailyUtilization rollup = rollups.get(0);
+        assertEquals(
+                new RollupKey(
+                        fHistoricalCalc3.getStartTimestamp().toLocalDate(),
+                        fHistoricalCalc3),
+                rollup.getKey());
+        // The missing provider type is stored as an empty string.
+        assertEquals("", rollup.getKey().getProviderType());
+        assertEquals(1, rollup.getTotalCount());
+        assertEquals(fHistoricalCalc3.getSecondsToFirstRun(), rollup.getSecondsToFirstRunSum());
+        assertEquals(1, rollup.getSignedCount());
+        assertEquals(fSampleResult3.getSecondsToSign(), rollup.getSecondsToSignSum());
+    }
+    
+    @Test
+    public final void testComputeOutcomeRollups()
+    {
+        /* Behavior */
+        final LocalDate day = fSampleResult1.getSignatureTimestamp().toLocalDate();
+        final List<DailyOutcome> rollups = fResultsDao.computeOutcomeRollups(day);
+        
+        /* Verification */
+        final HashMap<String, Double> riskSums = new HashMap<>();
+        for (final DailyOutcome rollup : rollups)
+        {
+            assertEquals(new RollupKey(day, fHistoricalCalc1), rollup.getKey());
+            assertEquals(1, rollup.getOutcomeCount());
+            riskSums.put(rollup.getRiskModelName(), rollup.getRiskSum());
+        }
+        assertEquals(2, rollups.size());
+        assertEquals(24.4, riskSums.get("Thoracic 90-Day"), 0.001);
+        assertEquals(20.1, riskSums.get("Thoracic 30-Day"), 0.001);
+        assertEquals(
+                ImmutableList.of(),
+                fResultsDao.computeOutcomeRollups(day.plusDays(1)));
+    }
+    
+    @Test
+    public final void testGetFirstCalculationDate()
+    {
+        assertEquals(
+                Optional.of(fHistoricalCalc2.getStartTimestamp().toLocalDate()),
+                fResultsDao.getFirstCalculationDate());
+    }
+    
+    /**
+     * Returns a copy of the given SignedResult without any inputs, as {@link
+     * ResultsDao#streamSignedResults(ResultSearchParameters, RowHandler)} provides.
+     */
+    private static SignedResult withoutInputs(final SignedResult result)
+    {
+        return new SignedResult(
+                result.getHistoricalCalculation(),
+                result.getPatientDfn(),
+                result.getCptCode(),
+                result.getSignatureTimestamp(),
+                ImmutableMap.<String, String>of(),
+                result.getOutcomes());
+    }
+    
+    @Test
+    public final void testStreamSignedResults()
+    {
+        /* Setup */
+        final ImmutableList<SignedResult> expectedResults = ImmutableList.of(
+                withoutInputs(fSampleResult4),
+                withoutInputs(fSampleResult3),
+                withoutInputs(fSampleResult1),
+                withoutInputs(fSampleResult2));
+        
+        /* Behavior */
+        final ArrayList<SignedResult> actualResults = new ArrayList<>();
+        final int count = fResultsDao.streamSignedResults(
+                new ResultSearchParameters(),
+                new RowHandler<SignedResult>()
+                {
+                    @Override
+                    public void handleRow(final SignedResult result)
+                    {
+                        actualResults.add(result);
+                    }
+                });
+        
+        /* Verification */
+        assertEquals(expectedResults.size(), count);
+        assertEquals(expectedResults, actualResults);
+    }
+    
+    @Test
+    public final void testStreamSignedResultsFiltered()
+    {
+        /* Setup */
+        final ResultSearchParameters params = new ResultSearchParameters();
+        params.setSpecialtyNames(ImmutableSet.of(SPECIALTY_NEURO, SPECIALTY_THORACIC));
+        params.setCptCode(CPT_CODE_1);
+        params.setMinDate(new LocalDate(2015, 1, 1));
+        params.setMaxDate(new LocalDate(2015, 6, 7));
+        params.setStationNumber(STATION_NUMBER_3);
+        final ArrayList<SignedResult> actualResults = new ArrayList<>();
+        
+        /* Behavior */
+        fResultsDao.streamSignedResults(params, new RowHandler<SignedResult>()
+        {
+            @Override
+            public void handleRow(final SignedResult result)
+            {
+                actualResults.add(result);
+            }
+        });
+        
+        /* Verification */
+        assertEquals(ImmutableList.of(withoutInputs(fSampleResult3)), actualResults);
+    }
 }
@@ -0,0 +1,163 @@
+package gov.va.med.srcalc.db;
+
+import static org.junit.Assert.*;
+
+import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
+import gov.va.med.srcalc.domain.calculation.RiskSaveDelivery;
+import gov.va.med.srcalc.domain.calculation.SignedResult;
+import gov.va.med.srcalc.test.util.IntegrationTest;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@link RiskSaveOutboxDao}. Integration Testing (with an actual database) is
+ * really the only way to test this class.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration({"/srcalc-context.xml", "/test-context.xml"})
+@Transactional // run each test in its own (rolled-back) transaction
+public class RiskSaveOutboxDaoIT extends IntegrationTest
+{
+    private static final String DUZ = "11716";
+
+    /**
+     * The time at which the tests look for due deliveries: after the first two results
+     * were signed, before the third.
+     */
+    private static final DateTime NOW = new DateTime(2015, 3, 4, 12, 0);
+
+    @Autowired
+    ResultsDao fResultsDao;
+
+    @Autowired
+    RiskSaveOutboxDao fOutboxDao;
+
+    private SignedResult fLaterResult;
+    private SignedResult fEarlierResult;
+    private SignedResult fFutureResult;
+
+    /**
+     * Returns a new Thoracic SignedResult signed at the given time.
+     */
+    private static SignedResult signedAt(final DateTime signatureTimestamp)
+    {
+        return new SignedResult(
+                new HistoricalCalculation(
+                        "Thoracic",
+                        "500",
+                        signatureTimestamp.minusMinutes(5),
+                        50,
+                        Optional.<String>absent()),
+                1001,
+                Optional.of("47010"),
+                signatureTimestamp,
+                ImmutableMap.of("procedure", "47010 - Open drainage liver lesion (19.4)"),
+                ImmutableMap.of("Thoracic 30-Day", 20.1f));
+    }
+
+    @Before
+    public void populateOutbox()
+    {
+        // Enqueue them out of order to test the ordering.
+        fLaterResult = signedAt(new DateTime(2015, 3, 4, 10, 10));
+        fEarlierResult = signedAt(new DateTime(2015, 3, 4, 9, 30));
+        fFutureResult = signedAt(new DateTime(2015, 3, 4, 13, 0));
+        for (final SignedResult result : ImmutableList.of(
+                fLaterResult, fEarlierResult, fFutureResult))
+        {
+            fResultsDao.persistSignedResult(result);
+            fOutboxDao.enqueue(new RiskSaveDelivery(result, DUZ));
+        }
+        simulateNewSession();
+    }
+
+    @Test
+    public final void testGetDelivery()
+    {
+        final RiskSaveDelivery delivery = fOutboxDao.getDelivery(fEarlierResult.getId()).get();
+
+        assertEquals(fEarlierResult.getId(), delivery.getId());
+        assertEquals(fEarlierResult, delivery.getSignedResult());
+        assertEquals(DUZ, delivery.getDuz());
+        assertEquals(RiskSaveDelivery.Status.PENDING, delivery.getStatus());
+
+        assertFalse(fOutboxDao.getDelivery(-1).isPresent());
+    }
+
+    @Test
+    public final void testGetDueDeliveries()
+    {
+        final List<RiskSaveDelivery> due = fOutboxDao.getDueDeliveries(NOW, 10);
+
+        assertEquals(2, due.size());
+        assertEquals(fEarlierResult.getId(), due.get(0).getId());
+        assertEquals(fLaterResult.getId(), due.get(1).getId());
+
+        // Test the maximum count.
+        assertEquals(1, fOutboxDao.getDueDeliveries(NOW, 1).size());
+    }
+
+    @Test
+    public final void testGetDueDeliveriesExcludesFailed()
+    {
+        final RiskSaveDelivery delivery = fOutboxDao.getDelivery(fEarlierResult.getId()).get();
+        delivery.recordFailure(NOW.minusHours(1), "rejected", true);
+        simulateNewSession();
+
+        final List<RiskSaveDelivery> due = fOutboxDao.getDueDeliveries(NOW, 10);
+
+        assertEquals(1, due.size());
+        assertEquals(fLaterResult.getId(), due.get(0).getId());
+    }
+
+    /**
+     * Tests that only the first of two claims of the same loaded delivery succeeds, as
+     * if two nodes loaded it concurrently.
+     */
+    @Test
+    public final void testClaimExclusive()
+    {
+        final RiskSaveDelivery delivery = fOutboxDao.getDueDeliveries(NOW, 1).get(0);
+        final DateTime leaseUntil = NOW.plusMinutes(5);
+
+        assertTrue(fOutboxDao.claim(delivery, leaseUntil));
+        assertFalse(fOutboxDao.claim(delivery, leaseUntil));
+
+        simulateNewSession();
+        // The claimed delivery is no longer due.
+        final List<RiskSaveDelivery> due = fOutboxDao.getDueDeliveries(NOW, 10);
+        assertEquals(1, due.size());
+        assertEquals(fLaterResult.getId(), due.get(0).getId());
+        // But is due again when the lease expires.
+        assertEquals(3, fOutboxDao.getDueDeliveries(leaseUntil.plusHours(1), 10).size());
+    }
+
+    @Test
+    public final void testGetUndeliveredDeliveries()
+    {
+        fOutboxDao.getDelivery(fLaterResult.getId()).get().recordDelivered(NOW);
+        fOutboxDao.getDelivery(fFutureResult.getId()).get()
+            .recordFailure(NOW, "rejected", true);
+        simulateNewSession();
+
+        final List<RiskSaveDelivery> undelivered = fOutboxDao.getUndeliveredDeliveries();
+
+        // Failed first.
+        assertEquals(2, undelivered.size());
+        assertEquals(fFutureResult.getId(), undelivered.get(0).getId());
+        assertEquals(fEarlierResult.getId(), undelivered.get(1).getId());
+    }
+}
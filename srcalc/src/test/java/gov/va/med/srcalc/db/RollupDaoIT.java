@@ -0,0 +1,241 @@
+package gov.va.med.srcalc.db;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
+import gov.va.med.srcalc.test.util.IntegrationTest;
+
+import org.hibernate.Session;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.dao.DataAccessException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests {@link RollupDao}'s increments from concurrent transactions. Unlike the other
+ * Integration Tests, these tests commit their transactions, so they delete what they
+ * committed afterward.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration({"/srcalc-context.xml", "/test-context.xml"})
+public class RollupDaoIT extends IntegrationTest
+{
+    /**
+     * A station used by no other test, to identify the committed data.
+     */
+    private static final String STATION = "999";
+
+    private static final LocalDate DAY = new LocalDate(2015, 7, 1);
+
+    /**
+     * How long to give the other transaction to reach its conflicting statement.
+     */
+    private static final long CONFLICT_WAIT_MILLIS = 500L;
+
+    private static final long TIMEOUT_SECONDS = 30L;
+
+    @Inject // field-based autowiring only in tests
+    ResultsDao fResultsDao;
+
+    @Inject
+    RollupDao fRollupDao;
+
+    @Inject
+    PlatformTransactionManager fTransactionManager;
+
+    private final ExecutorService fThreads = Executors.newFixedThreadPool(2);
+
+    /**
+     * Returns a new calculation started on {@link #DAY}. All of them fall into the same
+     * rollup group.
+     */
+    private static HistoricalCalculation newCalc(final int secondsToFirstRun)
+    {
+        return new HistoricalCalculation(
+                "Thoracic",
+                STATION,
+                DAY.toDateTime(new LocalTime(10, 0)),
+                secondsToFirstRun,
+                Optional.<String>absent());
+    }
+
+    /**
+     * Persists the given calculation in its own transaction on another thread. Once it
+     * is persisted, counts down the given latch and waits for the other given latch
+     * before committing.
+     */
+    private Future<?> persistInThread(
+            final HistoricalCalculation calc,
+            final CountDownLatch persisted,
+            final CountDownLatch commit)
+    {
+        return fThreads.submit(new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                new TransactionTemplate(fTransactionManager).execute(
+                        new TransactionCallbackWithoutResult()
+                        {
+                            @Override
+                            protected void doInTransactionWithoutResult(
+                                    final TransactionStatus status)
+                            {
+                                fResultsDao.persistHistoricalCalc(calc);
+                                persisted.countDown();
+                                await(commit);
+                            }
+                        });
+                return null;
+            }
+        });
+    }
+
+    private static void await(final CountDownLatch latch)
+    {
+        try
+        {
+            assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        catch (final InterruptedException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the committed utilization rollup of {@link #DAY}.
+     */
+    private ImmutableList<UtilizationAggregate> getCommittedRollups()
+    {
+        return new TransactionTemplate(fTransactionManager).execute(
+                new TransactionCallback<ImmutableList<UtilizationAggregate>>()
+                {
+                    @Override
+                    public ImmutableList<UtilizationAggregate> doInTransaction(
+                            final TransactionStatus status)
+                    {
+                        return fRollupDao.getUtilizationAggregates(
+                                DAY,
+                                Optional.of(DAY),
+                                ImmutableList.<UtilizationGrouping>of());
+                    }
+                });
+    }
+
+    /**
+     * Tests that two transactions creating the same rollup group concurrently both
+     * commit, and that both are counted.
+     */
+    @Test
+    public final void testConcurrentFirstInserts() throws Exception
+    {
+        /* Setup */
+        final CountDownLatch firstPersisted = new CountDownLatch(1);
+        final CountDownLatch firstCommit = new CountDownLatch(1);
+        final CountDownLatch secondPersisted = new CountDownLatch(1);
+
+        /* Behavior */
+        // The first transaction inserts the group's row but does not commit yet, so the
+        // second one does not find it either and collides with it.
+        final Future<?> first = persistInThread(
+                newCalc(10), firstPersisted, firstCommit);
+        await(firstPersisted);
+        final Future<?> second = persistInThread(
+                newCalc(20), secondPersisted, new CountDownLatch(0));
+        Thread.sleep(CONFLICT_WAIT_MILLIS);
+        firstCommit.countDown();
+
+        /* Verification */
+        first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(
+                ImmutableList.of(new UtilizationAggregate(
+                        ImmutableList.<String>of(), 2, 30L, 0, 0L)),
+                getCommittedRollups());
+    }
+
+    /**
+     * Tests that an increment failure other than a collision fails the recording
+     * transaction instead of letting it commit without its rollups.
+     */
+    @Test
+    public final void testOtherFailurePropagates() throws Exception
+    {
+        // Longer than the rollups' station column.
+        final HistoricalCalculation calc = new HistoricalCalculation(
+                "Thoracic",
+                Strings.repeat("9", 1000),
+                DAY.toDateTime(new LocalTime(10, 0)),
+                10,
+                Optional.<String>absent());
+        try
+        {
+            new TransactionTemplate(fTransactionManager).execute(
+                    new TransactionCallbackWithoutResult()
+                    {
+                        @Override
+                        protected void doInTransactionWithoutResult(
+                                final TransactionStatus status)
+                        {
+                            fRollupDao.recordCalculation(calc);
+                        }
+                    });
+            fail("Expected an exception.");
+        }
+        catch (final DataAccessException e)
+        {
+            // expected
+        }
+        assertEquals(ImmutableList.of(), getCommittedRollups());
+    }
+    
+    /**
+     * Deletes the data committed by the test. Replaces the inherited method since
+     * there is no test transaction to flush.
+     */
+    @Override
+    public void after()
+    {
+        fThreads.shutdownNow();
+        new TransactionTemplate(fTransactionManager).execute(
+                new TransactionCallbackWithoutResult()
+                {
+                    @Override
+                    protected void doInTransactionWithoutResult(
+                            final TransactionStatus status)
+                    {
+                        final Session session = getHibernateSession();
+                        session.createQuery(
+                                "delete from HistoricalCalculation where userStation = :station")
+                                .setString("station", STATION)
+                                .executeUpdate();
+                        session.createQuery(
+                                "delete from DailyUtilization where key.userStation = :station")
+                                .setString("station", STATION)
+                                .executeUpdate();
+                    }
+                });
+    }
+}
@@ -2,8 +2,6 @@ package gov.va.med.srcalc.domain.calculation;
 
 import static gov.va.med.srcalc.test.util.TestHelpers.assertWithinDelta;
 import static org.junit.Assert.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 import gov.va.med.srcalc.ConfigurationException;
 import gov.va.med.srcalc.domain.Patient;
 import gov.va.med.srcalc.domain.VistaPerson;
@@ -88,13 +86,12 @@ public class CalculationTest
         // Create a dummy specialty with two risk models.
         final Specialty s = SampleModels.thoracicSpecialty();
         s.getRiskModels().clear();
-        final RiskModel dummyModel1 = mock(RiskModel.class);
-        when(dummyModel1.getDisplayName()).thenReturn("model1");
-        when(dummyModel1.calculate(values)).thenReturn(55.3f);
+        // Constant-only models require no values.
+        final RiskModel dummyModel1 = new RiskModel("model1");
+        dummyModel1.setConstantTerm(new ConstantTerm(1.5f));
         s.getRiskModels().add(dummyModel1);
-        final RiskModel dummyModel2 = mock(RiskModel.class);
-        when(dummyModel2.getDisplayName()).thenReturn("model2");
-        when(dummyModel2.calculate(values)).thenReturn(22.3f);
+        final RiskModel dummyModel2 = new RiskModel("model2");
+        dummyModel2.setConstantTerm(new ConstantTerm(-0.7f));
         s.getRiskModels().add(dummyModel2);
         final Calculation c = Calculation.forPatient(SampleCalculations.dummyPatient(1));
         c.setSpecialty(s);
@@ -108,8 +105,8 @@ public class CalculationTest
         assertEquals(s.getName(), result.getSpecialtyName());
         assertEquals(values, result.getValues());
         final TreeMap<String, Float> expectedOutcomes = new TreeMap<>();
-        expectedOutcomes.put("model1", 55.3f);
-        expectedOutcomes.put("model2", 22.3f);
+        expectedOutcomes.put("model1", dummyModel1.calculate(values));
+        expectedOutcomes.put("model2", dummyModel2.calculate(values));
         assertEquals(expectedOutcomes, result.getOutcomes());
         
         // Also verify output of getHistoricalCalculation().
@@ -0,0 +1,118 @@
+package gov.va.med.srcalc.domain.calculation;
+
+import static org.junit.Assert.*;
+
+import gov.va.med.srcalc.domain.VistaLabs;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan.Section;
+import gov.va.med.srcalc.domain.model.BooleanVariable;
+import gov.va.med.srcalc.domain.model.SampleModels;
+import gov.va.med.srcalc.domain.model.Variable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests the {@link RetrievalPlan} class.
+ */
+public class RetrievalPlanTest
+{
+    /**
+     * Returns a variable using the given retriever.
+     */
+    private static Variable retrievedVariable(final ValueRetriever retriever)
+    {
+        final BooleanVariable var = new BooleanVariable(
+                retriever.name(), SampleModels.demographicsVariableGroup(), "var");
+        var.setRetriever(retriever);
+        return var;
+    }
+
+    @Test
+    public final void testThoracic()
+    {
+        // Thoracic only retrieves the age, which is part of the demographics.
+        assertEquals(
+                RetrievalPlan.REFERENCE_INFO,
+                RetrievalPlan.forVariables(SampleModels.thoracicSpecialty().getModelVariables()));
+    }
+
+    @Test
+    public final void testForVariables()
+    {
+        final RetrievalPlan plan = RetrievalPlan.forVariables(ImmutableList.of(
+                SampleModels.wbcVariable(),
+                retrievedVariable(ValueRetriever.BMI),
+                retrievedVariable(ValueRetriever.HEIGHT),
+                retrievedVariable(ValueRetriever.DNR_NOTES),
+                retrievedVariable(ValueRetriever.ALBUMIN)));
+
+        assertEquals(
+                ImmutableSet.of(
+                        Section.VITALS,
+                        Section.HEALTH_FACTORS,
+                        Section.ACTIVE_MEDICATIONS,
+                        Section.DNR_NOTES),
+                plan.getSections());
+        // In declaration order.
+        assertEquals(
+                ImmutableList.of(VistaLabs.ALBUMIN, VistaLabs.WBC),
+                plan.getLabs().asList());
+    }
+
+    /**
+     * Tests that every retriever is planned for, including all of the labs.
+     */
+    @Test
+    public final void testAllRetrievers()
+    {
+        final List<Variable> variables = new ArrayList<>();
+        for (final ValueRetriever retriever : ValueRetriever.values())
+        {
+            variables.add(retrievedVariable(retriever));
+        }
+
+        assertEquals(RetrievalPlan.ALL, RetrievalPlan.forVariables(variables));
+    }
+
+    @Test
+    public final void testSetOperations()
+    {
+        final RetrievalPlan wbcPlan =
+                RetrievalPlan.forVariables(ImmutableList.of(SampleModels.wbcVariable()));
+        final RetrievalPlan wbcOnly = wbcPlan.minus(RetrievalPlan.REFERENCE_INFO);
+
+        assertEquals(ImmutableSet.of(VistaLabs.WBC), wbcOnly.getLabs());
+        assertTrue(wbcOnly.getSections().isEmpty());
+        assertFalse(wbcOnly.isEmpty());
+        assertTrue(RetrievalPlan.NOTHING.isEmpty());
+        assertEquals(wbcPlan, RetrievalPlan.REFERENCE_INFO.union(wbcOnly));
+
+        assertTrue(wbcPlan.covers(wbcOnly));
+        assertTrue(wbcPlan.covers(RetrievalPlan.REFERENCE_INFO));
+        assertFalse(wbcOnly.covers(wbcPlan));
+        assertTrue(RetrievalPlan.ALL.covers(wbcPlan));
+        assertTrue(wbcPlan.minus(RetrievalPlan.ALL).isEmpty());
+    }
+
+    @Test
+    public final void testWithout()
+    {
+        final RetrievalPlan wbcPlan =
+                RetrievalPlan.forVariables(ImmutableList.of(SampleModels.wbcVariable()));
+
+        assertEquals(wbcPlan.minus(RetrievalPlan.REFERENCE_INFO), wbcPlan
+                .without(Section.HEALTH_FACTORS)
+                .without(Section.ACTIVE_MEDICATIONS));
+        assertEquals(
+                RetrievalPlan.REFERENCE_INFO,
+                wbcPlan.withoutLabs(ImmutableList.of(VistaLabs.WBC)));
+        assertEquals(wbcPlan, wbcPlan.withoutLabs(ImmutableList.of(VistaLabs.ALBUMIN)));
+        // Nothing to remove.
+        assertEquals(wbcPlan, wbcPlan.without(Section.VITALS));
+    }
+}
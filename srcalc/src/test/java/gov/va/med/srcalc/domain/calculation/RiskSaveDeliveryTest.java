@@ -0,0 +1,165 @@
+package gov.va.med.srcalc.domain.calculation;
+
+import static org.junit.Assert.*;
+
+import gov.va.med.srcalc.domain.calculation.RiskSaveDelivery.Status;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+/**
+ * Tests the {@link RiskSaveDelivery} class.
+ */
+public class RiskSaveDeliveryTest
+{
+    private static final String DUZ = "11716";
+
+    @Test
+    public final void testConstruct()
+    {
+        final SignedResult result = SampleCalculations.signedThoracic();
+        final RiskSaveDelivery delivery = new RiskSaveDelivery(result, DUZ);
+
+        assertSame(result, delivery.getSignedResult());
+        assertEquals(DUZ, delivery.getDuz());
+        assertEquals(Status.PENDING, delivery.getStatus());
+        assertEquals(0, delivery.getAttemptCount());
+        assertEquals(result.getSignatureTimestamp(), delivery.getNextAttemptTimestamp());
+        assertNull(delivery.getLastAttemptTimestamp());
+        assertNull(delivery.getLastError());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testEmptyDuz()
+    {
+        new RiskSaveDelivery(SampleCalculations.signedThoracic(), "");
+    }
+
+    @Test
+    public final void testRetryDelay()
+    {
+        assertEquals(RiskSaveDelivery.INITIAL_RETRY_DELAY, RiskSaveDelivery.retryDelay(1));
+        assertEquals(Duration.standardMinutes(2), RiskSaveDelivery.retryDelay(2));
+        assertEquals(Duration.standardMinutes(32), RiskSaveDelivery.retryDelay(6));
+        assertEquals(RiskSaveDelivery.MAX_RETRY_DELAY, RiskSaveDelivery.retryDelay(7));
+        assertEquals(
+                RiskSaveDelivery.MAX_RETRY_DELAY,
+                RiskSaveDelivery.retryDelay(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public final void testRecordDelivered()
+    {
+        final RiskSaveDelivery delivery =
+                new RiskSaveDelivery(SampleCalculations.signedThoracic(), DUZ);
+        final DateTime attemptTime = new DateTime(2015, 3, 4, 10, 11);
+
+        delivery.recordDelivered(attemptTime);
+
+        assertEquals(Status.DELIVERED, delivery.getStatus());
+        assertEquals(1, delivery.getAttemptCount());
+        assertEquals(attemptTime, delivery.getLastAttemptTimestamp());
+        assertNull(delivery.getNextAttemptTimestamp());
+    }
+
+    @Test
+    public final void testRecordTransientFailure()
+    {
+        final RiskSaveDelivery delivery =
+                new RiskSaveDelivery(SampleCalculations.signedThoracic(), DUZ);
+        final DateTime firstAttempt = new DateTime(2015, 3, 4, 10, 11);
+        final DateTime secondAttempt = new DateTime(2015, 3, 4, 10, 12);
+
+        delivery.recordFailure(firstAttempt, "timed out", false);
+        assertEquals(Status.PENDING, delivery.getStatus());
+        assertEquals(1, delivery.getAttemptCount());
+        assertEquals("timed out", delivery.getLastError());
+        assertEquals(
+                firstAttempt.plus(RiskSaveDelivery.retryDelay(1)),
+                delivery.getNextAttemptTimestamp());
+
+        delivery.recordFailure(secondAttempt, "timed out again", false);
+        assertEquals(Status.PENDING, delivery.getStatus());
+        assertEquals(2, delivery.getAttemptCount());
+        assertEquals(secondAttempt, delivery.getLastAttemptTimestamp());
+        assertEquals(
+                secondAttempt.plus(RiskSaveDelivery.retryDelay(2)),
+                delivery.getNextAttemptTimestamp());
+    }
+
+    @Test
+    public final void testRecordPermanentFailure()
+    {
+        final RiskSaveDelivery delivery =
+                new RiskSaveDelivery(SampleCalculations.signedThoracic(), DUZ);
+
+        delivery.recordFailure(new DateTime(2015, 3, 4, 10, 11), "rejected", true);
+
+        assertEquals(Status.FAILED, delivery.getStatus());
+        assertEquals(1, delivery.getAttemptCount());
+        assertNull(delivery.getNextAttemptTimestamp());
+    }
+
+    @Test
+    public final void testGiveUpAfterMaxAttempts()
+    {
+        final RiskSaveDelivery delivery =
+                new RiskSaveDelivery(SampleCalculations.signedThoracic(), DUZ);
+        DateTime attemptTime = new DateTime(2015, 3, 4, 10, 11);
+        for (int i = 1; i < RiskSaveDelivery.MAX_ATTEMPTS; ++i)
+        {
+            delivery.recordFailure(attemptTime, "timed out", false);
+            assertEquals(Status.PENDING, delivery.getStatus());
+            attemptTime = delivery.getNextAttemptTimestamp();
+        }
+
+        delivery.recordFailure(attemptTime, "timed out", false);
+
+        assertEquals(Status.FAILED, delivery.getStatus());
+        assertEquals(RiskSaveDelivery.MAX_ATTEMPTS, delivery.getAttemptCount());
+    }
+
+    @Test
+    public final void testLongErrorTruncated()
+    {
+        final RiskSaveDelivery delivery =
+                new RiskSaveDelivery(SampleCalculations.signedThoracic(), DUZ);
+
+        delivery.recordFailure(
+                new DateTime(2015, 3, 4, 10, 11),
+                Strings.repeat("x", RiskSaveDelivery.LAST_ERROR_MAX + 1),
+                false);
+
+        assertEquals(RiskSaveDelivery.LAST_ERROR_MAX, delivery.getLastError().length());
+    }
+
+    @Test
+    public final void testRetry()
+    {
+        final RiskSaveDelivery delivery =
+                new RiskSaveDelivery(SampleCalculations.signedThoracic(), DUZ);
+        delivery.recordFailure(new DateTime(2015, 3, 4, 10, 11), "rejected", true);
+        final DateTime retryTime = new DateTime(2015, 3, 5, 9, 0);
+
+        delivery.retry(retryTime);
+
+        assertEquals(Status.PENDING, delivery.getStatus());
+        assertEquals(0, delivery.getAttemptCount());
+        assertEquals(retryTime, delivery.getNextAttemptTimestamp());
+        // The last error is still useful until the next attempt.
+        assertEquals("rejected", delivery.getLastError());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public final void testRetryDelivered()
+    {
+        final RiskSaveDelivery delivery =
+                new RiskSaveDelivery(SampleCalculations.signedThoracic(), DUZ);
+        delivery.recordDelivered(new DateTime(2015, 3, 4, 10, 11));
+
+        delivery.retry(new DateTime(2015, 3, 5, 9, 0));
+    }
+}
@@ -0,0 +1,197 @@
+package gov.va.med.srcalc.domain.model;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import gov.va.med.srcalc.domain.calculation.*;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests the {@link CompiledRiskModel} class, mainly by differential comparison with
+ * {@link RiskModel#calculate(Collection)}.
+ */
+public class CompiledRiskModelTest
+{
+    /**
+     * The number of random value sets to compare.
+     */
+    private static final int ITERATIONS = 500;
+
+    private final ProcedureVariable fProcedureVar = SampleModels.procedureVariable();
+    private final BooleanVariable fDnrVar = SampleModels.dnrVariable();
+    private final NumericalVariable fAgeVar = SampleModels.ageVariable();
+    private final DiscreteNumericalVariable fWbcVar = SampleModels.wbcVariable();
+    private final MultiSelectVariable fFsVar = SampleModels.functionalStatusVariable();
+
+    /**
+     * Builds a model with every type of term, including Rules that reference
+     * variables which no other term uses.
+     */
+    private RiskModel makeAllTermsModel()
+    {
+        final Set<DerivedTerm> derivedTerms = new HashSet<>();
+        // Uses only the model's own variables.
+        derivedTerms.add(new DerivedTerm(0.37f, new Rule(
+                Arrays.asList(
+                        new ValueMatcher(fProcedureVar, "#this.value.complexity == \"Standard\"", true),
+                        new ValueMatcher(fAgeVar, "", false)),
+                "#age * #coefficient",
+                false,
+                "Age for standard procedures")));
+        // Uses a variable not otherwise in the model, with bypass enabled.
+        derivedTerms.add(new DerivedTerm(-1.25f, new Rule(
+                Arrays.asList(new ValueMatcher(
+                        SampleModels.wbcIsNormalVariable(), "value == true", true)),
+                "#coefficient",
+                true,
+                "WBC is normal")));
+        final RiskModel model = SampleModels.makeSampleRiskModel(
+                "All Terms", derivedTerms, fProcedureVar, fDnrVar, fAgeVar, fWbcVar, fFsVar);
+        model.setConstantTerm(new ConstantTerm(-3.1415927f));
+        return model;
+    }
+
+    /**
+     * Returns a complete, random set of values for {@link #makeAllTermsModel()}.
+     */
+    private List<Value> makeRandomValues(final Random random) throws Exception
+    {
+        final List<Value> values = new ArrayList<>();
+        values.add(fProcedureVar.makeValue(
+                fProcedureVar.getProcedures().get(random.nextInt(2))));
+        values.add(fDnrVar.makeValue(random.nextBoolean()));
+        values.add(fAgeVar.makeValue(random.nextFloat() * 120.0f));
+        values.add(fWbcVar.makeValue(2.0f + random.nextFloat() * 48.0f));
+        values.add(fFsVar.makeValue(
+                fFsVar.getOptions().get(random.nextInt(fFsVar.getOptions().size()))));
+        // Sometimes exercise the bypass.
+        if (random.nextBoolean())
+        {
+            values.add(SampleModels.wbcIsNormalVariable().makeValue(random.nextBoolean()));
+        }
+        return values;
+    }
+
+    @Test
+    public final void testBitIdenticalToRiskModel() throws Exception
+    {
+        final RiskModel model = makeAllTermsModel();
+        final CompiledRiskModel compiled = model.compile();
+        // Fixed seed for reproducibility.
+        final Random random = new Random(824);
+
+        for (int i = 0; i < ITERATIONS; ++i)
+        {
+            final List<Value> values = makeRandomValues(random);
+            final float expected = model.calculate(values);
+            final float actual = compiled.calculate(values);
+            assertEquals(
+                    "Results differ for " + values,
+                    Float.floatToRawIntBits(expected),
+                    Float.floatToRawIntBits(actual));
+        }
+    }
+
+    @Test
+    public final void testBitIdenticalForSampleModel() throws Exception
+    {
+        final RiskModel model = SampleModels.thoracicRiskModel();
+        final List<Value> values = Arrays.<Value>asList(
+                SampleModels.procedureVariable().makeValue(SampleModels.repairLeftProcedure()),
+                SampleModels.dnrVariable().makeValue(true),
+                SampleModels.ageVariable().makeValue(71.0f),
+                SampleModels.functionalStatusVariable().makeValue(
+                        SampleModels.functionalStatusVariable().getOptions().get(1)));
+
+        assertEquals(
+                Float.floatToRawIntBits(model.calculate(values)),
+                Float.floatToRawIntBits(model.compile().calculate(values)));
+    }
+
+    @Test
+    public final void testLayout()
+    {
+        final RiskModel model = makeAllTermsModel();
+        final CompiledRiskModel compiled = model.compile();
+
+        assertEquals(model.getDisplayName(), compiled.getDisplayName());
+        assertEquals(model.getTerms().size(), compiled.getTermCount());
+        assertEquals(
+                model.getRequiredVariables(),
+                ImmutableSet.copyOf(compiled.getSlotVariables()));
+        // Each variable has exactly one slot.
+        assertEquals(
+                compiled.getSlotVariables().size(),
+                ImmutableSet.copyOf(compiled.getSlotVariables()).size());
+    }
+
+    @Test
+    public final void testMissingValues() throws Exception
+    {
+        final RiskModel model = makeAllTermsModel();
+        final List<Value> values = Arrays.<Value>asList(
+                fDnrVar.makeValue(true), fAgeVar.makeValue(12.0f));
+
+        try
+        {
+            model.compile().calculate(values);
+            fail("Expected a MissingValuesException");
+        }
+        catch (final MissingValuesException ex)
+        {
+            // The missing Variables must match the reference implementation.
+            try
+            {
+                model.calculate(values);
+                fail("Expected a MissingValuesException");
+            }
+            catch (final MissingValuesException expected)
+            {
+                assertEquals(
+                        ImmutableSet.copyOf(expected.getMissingVariables()),
+                        ImmutableSet.copyOf(ex.getMissingVariables()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testDuplicateValues() throws Exception
+    {
+        final RiskModel model = SampleModels.makeSampleRiskModel(
+                "model", new HashSet<DerivedTerm>(), fDnrVar);
+
+        model.compile().calculate(Arrays.<Value>asList(
+                fDnrVar.makeValue(true), fDnrVar.makeValue(false)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testWrongValueType() throws Exception
+    {
+        final RiskModel model = SampleModels.makeSampleRiskModel(
+                "model", new HashSet<DerivedTerm>(), fAgeVar);
+        // A BooleanVariable with the same key as the Age variable.
+        final BooleanVariable impostor = new BooleanVariable(
+                "Impostor", SampleModels.demographicsVariableGroup(), fAgeVar.getKey());
+
+        model.compile().calculate(Arrays.<Value>asList(impostor.makeValue(true)));
+    }
+
+    @Test
+    public final void testIsSnapshot() throws Exception
+    {
+        final RiskModel model = SampleModels.makeSampleRiskModel(
+                "model", new HashSet<DerivedTerm>(), fDnrVar);
+        final CompiledRiskModel compiled = model.compile();
+        final List<Value> values = Arrays.<Value>asList(fDnrVar.makeValue(true));
+        final float before = compiled.calculate(values);
+
+        model.setConstantTerm(new ConstantTerm(10.0f));
+
+        assertEquals(before, compiled.calculate(values), 0.0f);
+        assertNotEquals(before, model.compile().calculate(values), 0.0f);
+    }
+}
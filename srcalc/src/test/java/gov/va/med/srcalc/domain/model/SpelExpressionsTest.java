@@ -0,0 +1,60 @@
+package gov.va.med.srcalc.domain.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Tests the {@link SpelExpressions} class.
+ */
+public class SpelExpressionsTest
+{
+    @Test
+    public final void testParseIsCached()
+    {
+        final Expression first = SpelExpressions.parse("#coefficient * 2");
+        final Expression second = SpelExpressions.parse("#coefficient * 2");
+
+        assertSame(first, second);
+        assertEquals("#coefficient * 2", first.getExpressionString());
+        assertNotSame(first, SpelExpressions.parse("#coefficient * 3"));
+    }
+
+    @Test
+    public final void testSharedByMatchers()
+    {
+        final ValueMatcher vm1 = new ValueMatcher(
+                SampleModels.dnrVariable(), "value == true", true);
+        final ValueMatcher vm2 = new ValueMatcher(
+                SampleModels.ageVariable(), "value == true", false);
+
+        assertSame(vm1.getParsedExpression(), vm2.getParsedExpression());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testParseInvalid()
+    {
+        SpelExpressions.parse("value asdfjasdf true");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public final void testParseNull()
+    {
+        SpelExpressions.parse(null);
+    }
+
+    @Test
+    public final void testNewEvaluationContext()
+    {
+        final StandardEvaluationContext ec = SpelExpressions.newEvaluationContext();
+        ec.setVariable("age", 50);
+        assertEquals(50, SpelExpressions.parse("#age").getValue(ec));
+
+        final StandardEvaluationContext other = SpelExpressions.newEvaluationContext();
+        // No variables are left over from the previous evaluation.
+        assertNotSame(ec, other);
+        assertNull(SpelExpressions.parse("#age").getValue(other));
+    }
+}
@@ -0,0 +1,96 @@
+package gov.va.med.srcalc.security;
+
+import static org.junit.Assert.*;
+
+import javax.security.auth.login.FailedLoginException;
+
+import gov.va.med.srcalc.domain.VistaPerson;
+import gov.va.med.srcalc.vista.RemoteProcedure;
+import gov.va.med.srcalc.vista.VistaAuthenticator;
+import gov.va.med.srcalc.vista.simulated.LatencyDistribution;
+import gov.va.med.srcalc.vista.simulated.SimulationSettings;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@link SimulatedVistaDaoFactory} and the simulated authentication.
+ */
+public class SimulatedVistaDaoFactoryTest
+{
+    private static SimulatedVistaDaoFactory makeFactory()
+    {
+        final SimulationSettings settings = new SimulationSettings(
+                new LatencyDistribution(0L, 0L),
+                ImmutableMap.<RemoteProcedure, LatencyDistribution>of(),
+                0.0,
+                4,
+                0L,
+                100);
+        return new SimulatedVistaDaoFactory(
+                ImmutableList.of("500", "605"), settings, 4, 1000L, 1000L, 10L);
+    }
+    
+    @Test
+    public final void testDivisions()
+    {
+        final SimulatedVistaDaoFactory factory = makeFactory();
+        try
+        {
+            assertTrue(factory.isDivisionKnown("605"));
+            assertFalse(factory.isDivisionKnown("442"));
+            assertEquals("605", factory.getAuthenticator("605").getDivision());
+            // Each division has its own patients.
+            assertNotEquals(
+                    factory.getCaller("500").getPatients().getPatient(1),
+                    factory.getCaller("605").getPatients().getPatient(1));
+        }
+        finally
+        {
+            factory.shutdown();
+        }
+    }
+    
+    @Test
+    public final void testAuthenticate() throws Exception
+    {
+        final SimulatedVistaDaoFactory factory = makeFactory();
+        try
+        {
+            final VistaAuthenticator authenticator = factory.getAuthenticator("500");
+            final VistaPerson person =
+                    authenticator.authenticateViaAccessVerify("user1", "verify", "127.0.0.1");
+            assertEquals("500", person.getStationNumber());
+            assertTrue(person.getProviderType().isPresent());
+            // The same access code is the same user.
+            assertEquals(
+                    person.getDuz(),
+                    authenticator.authenticateViaAccessVerify("user1", "other", "127.0.0.1")
+                    .getDuz());
+            assertNotEquals(
+                    person.getDuz(),
+                    authenticator.authenticateViaAccessVerify("user2", "verify", "127.0.0.1")
+                    .getDuz());
+        }
+        finally
+        {
+            factory.shutdown();
+        }
+    }
+    
+    @Test(expected = FailedLoginException.class)
+    public final void testAuthenticateEmpty() throws Exception
+    {
+        final SimulatedVistaDaoFactory factory = makeFactory();
+        try
+        {
+            factory.getAuthenticator("500").authenticateViaAccessVerify("", "", "127.0.0.1");
+        }
+        finally
+        {
+            factory.shutdown();
+        }
+    }
+}
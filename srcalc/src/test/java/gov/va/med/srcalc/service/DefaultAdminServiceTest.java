@@ -7,6 +7,9 @@ import java.util.List;
 
 import gov.va.med.srcalc.db.*;
 import gov.va.med.srcalc.domain.model.*;
+import gov.va.med.srcalc.util.csv.RowHandler;
+import gov.va.med.srcalc.util.csv.TabularUploadError;
+import gov.va.med.srcalc.util.csv.TabularUploadException;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -24,10 +27,12 @@ public class DefaultAdminServiceTest
     private List<AbstractVariable> fSampleVariables;
     private ImmutableSortedSet<VariableGroup> fSampleGroups;
     private ImmutableList<Rule> fSampleRules;
+    private ModelRegistry fMockModelRegistry;
     
     @Before
     public final void setup()
     {
+        fMockModelRegistry = mock(ModelRegistry.class);
         fSampleVariables = SampleModels.sampleVariableList();
         fSampleGroups = SampleModels.variableGroups();
         fSampleRules = ImmutableList.of(SampleModels.ageAndFsRule());
@@ -72,9 +77,12 @@ public class DefaultAdminServiceTest
     {
         final ProcedureDao dao = mock(ProcedureDao.class);
         when(dao.getAllProcedures()).thenReturn(SampleModels.procedureList());
+        when(dao.getCatalog()).thenReturn(
+                new ProcedureCatalog(1L, SampleModels.procedureList()));
         // We don't actually simulate any database interaction, but at least return a fake
         // number of procedures deleted.
-        when(dao.replaceAllProcedures(anySetOf(Procedure.class))).thenReturn(2);
+        when(dao.replaceAllProcedures(anySetOf(Procedure.class)))
+            .thenReturn(new ProcedureChangeSummary(0, 0, 2, 0));
         return dao;
     }
     
@@ -89,7 +97,9 @@ public class DefaultAdminServiceTest
                 mockRiskModelDao(),
                 mockSpecialtyDao(),
                 mockRuleDao(),
-                mockProcedureDao());
+                mockProcedureDao(),
+                fMockModelRegistry,
+                mock(CacheDao.class));
     }
     
     @Test
@@ -148,7 +158,13 @@ public class DefaultAdminServiceTest
         // Create the class under test.
         final VariableDao mockDao = mockVariableDao();
         final DefaultAdminService s = new DefaultAdminService(
-                mockDao, mockRiskModelDao(), mockSpecialtyDao(), mockRuleDao(), mockProcedureDao());
+                mockDao,
+                mockRiskModelDao(),
+                mockSpecialtyDao(),
+                mockRuleDao(),
+                mockProcedureDao(),
+                fMockModelRegistry,
+                mock(CacheDao.class));
         
         // Setup
         final AbstractVariable var = s.getVariable(key);
@@ -163,6 +179,8 @@ public class DefaultAdminServiceTest
         // implementation, but without Hibernate it is impossible to verify
         // the contract here. Just verify that the service called update().
         verify(mockDao).mergeVariable(var);
+        // The shared model snapshot must be replaced.
+        verify(fMockModelRegistry).modelChanged();
     }
     
     @Test
@@ -174,6 +192,16 @@ public class DefaultAdminServiceTest
         assertEquals(fSampleRules, s.getAllRules());
     }
     
+    @Test
+    public final void testGetProceduresFromCatalog()
+    {
+        // Create the class under test.
+        final DefaultAdminService s = createWithMocks();
+        // Behavior verification.
+        assertEquals(SampleModels.procedureList(), s.getAllProcedures());
+        assertEquals(s.getProcedureCatalog().getEligibleProcedures(), s.getEligibleProcedures());
+    }
+    
     @Test
     public final void testGetRule() throws Exception
     {
@@ -196,4 +224,78 @@ public class DefaultAdminServiceTest
         // Behavior verification.
         s.getRule("Does not exist");
     }
+    
+    @Test
+    public final void testReplaceAllProceduresFromSource()
+    {
+        final ProcedureDao procedureDao = mockProcedureDao();
+        final ProcedureReplacement replacement = mock(ProcedureReplacement.class);
+        final ProcedureChangeSummary expectedSummary = new ProcedureChangeSummary(1200, 0, 2, 0);
+        when(procedureDao.beginReplacement()).thenReturn(replacement);
+        when(replacement.finish()).thenReturn(expectedSummary);
+        final DefaultAdminService s = new DefaultAdminService(
+                mockVariableDao(),
+                mockRiskModelDao(),
+                mockSpecialtyDao(),
+                mockRuleDao(),
+                procedureDao,
+                fMockModelRegistry,
+                mock(CacheDao.class));
+        final int numProcedures = 1200;
+        
+        final ProcedureChangeSummary summary = s.replaceAllProcedures(new ProcedureSource()
+        {
+            @Override
+            public void readProcedures(final RowHandler<Procedure> handler)
+            {
+                for (int i = 1; i <= numProcedures; ++i)
+                {
+                    handler.handleRow(new Procedure(
+                            String.format("%05d", i), 1.0f, "short", "long", "Complex", true));
+                }
+            }
+        });
+        
+        assertSame(expectedSummary, summary);
+        // 1200 procedures in chunks of 500.
+        verify(replacement, times(3)).apply(anyCollectionOf(Procedure.class));
+        verify(replacement).finish();
+    }
+    
+    @Test
+    public final void testReplaceAllProceduresInvalidSource()
+    {
+        final ProcedureDao procedureDao = mockProcedureDao();
+        final ProcedureReplacement replacement = mock(ProcedureReplacement.class);
+        when(procedureDao.beginReplacement()).thenReturn(replacement);
+        final DefaultAdminService s = new DefaultAdminService(
+                mockVariableDao(),
+                mockRiskModelDao(),
+                mockSpecialtyDao(),
+                mockRuleDao(),
+                procedureDao,
+                fMockModelRegistry,
+                mock(CacheDao.class));
+        final TabularUploadException invalid = new TabularUploadException(
+                ImmutableList.of(TabularUploadError.global("code", null, "invalid")));
+        
+        try
+        {
+            s.replaceAllProcedures(new ProcedureSource()
+            {
+                @Override
+                public void readProcedures(final RowHandler<Procedure> handler)
+                {
+                    throw invalid;
+                }
+            });
+            fail("expected exception");
+        }
+        catch (final TabularUploadException ex)
+        {
+            // The exception must propagate so the transaction is rolled back.
+            assertSame(invalid, ex);
+        }
+        verify(replacement, never()).finish();
+    }
 }
@@ -0,0 +1,219 @@
+package gov.va.med.srcalc.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+
+import gov.va.med.srcalc.db.ModelRegistry;
+import gov.va.med.srcalc.db.ResultsDao;
+import gov.va.med.srcalc.db.RiskSaveOutboxDao;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+import gov.va.med.srcalc.domain.calculation.SampleCalculations;
+import gov.va.med.srcalc.domain.model.*;
+import gov.va.med.srcalc.test.util.TestAuthnProvider;
+import gov.va.med.srcalc.vista.*;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.dao.RecoverableDataAccessException;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Tests the {@link DefaultBatchCalculationService} class. Note that these are unit
+ * tests, not integration tests: tests are accomplished via mocks.
+ */
+public class DefaultBatchCalculationServiceTest
+{
+    private static final String SPECIALTY_NAME = "Batch";
+
+    private static final int FAILING_DFN = 99;
+
+    private MockVistaDaoFactory fVistaDaoFactory;
+    private ModelRegistry fMockModelRegistry;
+    private ResultsDao fMockResultsDao;
+
+    @Rule
+    public final TestAuthnProvider fAuthnProvider = new TestAuthnProvider();
+
+    @Before
+    public void setup()
+    {
+        fVistaDaoFactory = new MockVistaDaoFactory();
+        final VistaPatientDao patientDao = fVistaDaoFactory.getVistaPatientDao();
+        for (int dfn = 1; dfn <= 20; ++dfn)
+        {
+            when(patientDao.getPatient(eq(dfn), any(RetrievalPlan.class)))
+                .thenReturn(SampleCalculations.dummyPatient(dfn));
+        }
+        when(patientDao.getPatient(eq(FAILING_DFN), any(RetrievalPlan.class)))
+            .thenThrow(new RecoverableDataAccessException("VistA is down"));
+
+        final Specialty thoracic = SampleModels.thoracicSpecialty();
+        final ModelSnapshot snapshot =
+                new ModelSnapshot(1, 0, ImmutableList.of(batchSpecialty(), thoracic));
+        fMockModelRegistry = mock(ModelRegistry.class);
+        when(fMockModelRegistry.getSpecialty(anyString()))
+            .thenReturn(Optional.<SpecialtySnapshot>absent());
+        when(fMockModelRegistry.getSpecialty(SPECIALTY_NAME))
+            .thenReturn(snapshot.getSpecialty(SPECIALTY_NAME));
+        when(fMockModelRegistry.getSpecialty(thoracic.getName()))
+            .thenReturn(snapshot.getSpecialty(thoracic.getName()));
+
+        fMockResultsDao = mock(ResultsDao.class);
+    }
+
+    /**
+     * Returns a Specialty whose values can all be determined without user input: age
+     * is automatically retrieved, DNR defaults to false and the procedure is given.
+     */
+    private static Specialty batchSpecialty()
+    {
+        final Specialty s = new Specialty(SPECIALTY_NAME);
+        s.getRiskModels().add(SampleModels.makeSampleRiskModel(
+                "Batch Model",
+                ImmutableSet.<DerivedTerm>of(),
+                SampleModels.procedureVariable(),
+                SampleModels.ageVariable(),
+                SampleModels.dnrVariable()));
+        return s;
+    }
+
+    private DefaultBatchCalculationService createService(final boolean sameThread)
+    {
+        final CalculationService calculationService = new DefaultCalculationService(
+                fMockModelRegistry,
+                fVistaDaoFactory,
+                fMockResultsDao,
+                mock(RiskSaveOutboxDao.class));
+        return new DefaultBatchCalculationService(
+                calculationService,
+                fVistaDaoFactory,
+                sameThread ?
+                        MoreExecutors.newDirectExecutorService() :
+                        Executors.newFixedThreadPool(4));
+    }
+
+    /**
+     * Runs the given items and collects the outcomes by item.
+     */
+    private static Map<BatchCalculationItem, BatchCalculationOutcome> runBatch(
+            final BatchCalculationService service, final List<BatchCalculationItem> items)
+    {
+        final HashMap<BatchCalculationItem, BatchCalculationOutcome> outcomes =
+                new HashMap<>();
+        service.calculateAll(items, new BatchCalculationService.OutcomeHandler()
+        {
+            @Override
+            public void handle(final BatchCalculationOutcome outcome)
+            {
+                assertNull("duplicate outcome", outcomes.put(outcome.getItem(), outcome));
+            }
+        });
+        return outcomes;
+    }
+
+    @Test
+    public final void testCalculateAllSuccessful()
+    {
+        final String cpt = SampleModels.repairLeftProcedure().getCptCode();
+        final ArrayList<BatchCalculationItem> items = new ArrayList<>();
+        for (int dfn = 1; dfn <= 20; ++dfn)
+        {
+            items.add(new BatchCalculationItem(dfn, SPECIALTY_NAME, cpt));
+        }
+
+        final DefaultBatchCalculationService service = createService(false);
+        try
+        {
+            final Map<BatchCalculationItem, BatchCalculationOutcome> outcomes =
+                    runBatch(service, items);
+
+            assertEquals(items.size(), outcomes.size());
+            for (final BatchCalculationItem item : items)
+            {
+                final BatchCalculationOutcome outcome = outcomes.get(item);
+                assertTrue(outcome.toString(), outcome.isSuccessful());
+                assertEquals(item.getPatientDfn(), outcome.getResult().get().getPatientDfn());
+                assertEquals(
+                        Collections.singleton("Batch Model"),
+                        outcome.getResult().get().getOutcomes().keySet());
+            }
+        }
+        finally
+        {
+            service.shutdown();
+        }
+        // The specialty should be loaded only once.
+        verify(fMockModelRegistry, times(1)).getSpecialty(SPECIALTY_NAME);
+        // Batch calculations are not recorded.
+        verifyZeroInteractions(fMockResultsDao);
+    }
+
+    @Test
+    public final void testCalculateAllFailures()
+    {
+        final String cpt = SampleModels.repairLeftProcedure().getCptCode();
+        final BatchCalculationItem good = new BatchCalculationItem(1, SPECIALTY_NAME, cpt);
+        final BatchCalculationItem badSpecialty = new BatchCalculationItem(2, "Bogus", cpt);
+        final BatchCalculationItem badCpt = new BatchCalculationItem(3, SPECIALTY_NAME, "0");
+        final BatchCalculationItem noVista =
+                new BatchCalculationItem(FAILING_DFN, SPECIALTY_NAME, cpt);
+        final BatchCalculationItem missingValues =
+                new BatchCalculationItem(4, SampleModels.thoracicSpecialty().getName(), cpt);
+
+        final Map<BatchCalculationItem, BatchCalculationOutcome> outcomes = runBatch(
+                createService(true),
+                Arrays.asList(good, badSpecialty, badCpt, noVista, missingValues));
+
+        assertTrue(outcomes.get(good).isSuccessful());
+        assertEquals("Unknown specialty.", outcomes.get(badSpecialty).getErrorMessage());
+        assertEquals("Missing values: Procedure", outcomes.get(badCpt).getErrorMessage());
+        assertEquals(
+                "Could not load patient data from VistA.",
+                outcomes.get(noVista).getErrorMessage());
+        assertEquals(
+                "Missing values: Functional Status",
+                outcomes.get(missingValues).getErrorMessage());
+    }
+
+    @Test
+    public final void testHandlerFailureAbortsBatch()
+    {
+        final BatchCalculationItem item = new BatchCalculationItem(1, SPECIALTY_NAME, "");
+        final DefaultBatchCalculationService service = createService(true);
+        try
+        {
+            service.calculateAll(
+                    Arrays.asList(item, item),
+                    new BatchCalculationService.OutcomeHandler()
+                    {
+                        @Override
+                        public void handle(final BatchCalculationOutcome outcome)
+                        {
+                            throw new IllegalStateException("client disconnected");
+                        }
+                    });
+            fail("expected exception");
+        }
+        catch (final IllegalStateException ex)
+        {
+            assertEquals("client disconnected", ex.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testTooManyItems()
+    {
+        final List<BatchCalculationItem> items = Collections.nCopies(
+                BatchCalculationService.MAX_BATCH_SIZE + 1,
+                new BatchCalculationItem(1, SPECIALTY_NAME, ""));
+        runBatch(createService(true), items);
+    }
+}
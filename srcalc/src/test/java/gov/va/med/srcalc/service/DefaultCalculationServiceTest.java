@@ -3,10 +3,12 @@ package gov.va.med.srcalc.service;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
+import gov.va.med.srcalc.db.ModelRegistry;
 import gov.va.med.srcalc.db.ResultsDao;
-import gov.va.med.srcalc.db.SpecialtyDao;
+import gov.va.med.srcalc.db.RiskSaveOutboxDao;
 import gov.va.med.srcalc.domain.calculation.*;
 import gov.va.med.srcalc.domain.model.*;
 import gov.va.med.srcalc.test.util.TestAuthnProvider;
@@ -17,6 +19,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 
 /**
@@ -29,10 +32,13 @@ public class DefaultCalculationServiceTest
     
     private static final String VALID_ESIG_CODE = "eSigCode";
     
-    private SpecialtyDao fMockSpecialtyDao;
+    private static final int MODEL_VERSION = 3;
+    
+    private ModelRegistry fMockModelRegistry;
+    private MockVistaDaoFactory fMockVistaDaos;
     private VistaPatientDao fMockPatientDao;
-    private VistaSurgeryDao fMockSurgeryDao;
     private ResultsDao fMockResultsDao;
+    private RiskSaveOutboxDao fMockOutboxDao;
     
     @Rule
     public final TestAuthnProvider fAuthnProvider = new TestAuthnProvider();
@@ -40,17 +46,22 @@ public class DefaultCalculationServiceTest
     @Before
     public void setup()
     {
-        final MockVistaDaoFactory mockVistaDaos = new MockVistaDaoFactory();
+        fMockVistaDaos = new MockVistaDaoFactory();
         
-        // Make the SpecialtyDao actually return specialties.
-        fMockSpecialtyDao = mock(SpecialtyDao.class);
-        when(fMockSpecialtyDao.getAllSpecialties()).thenReturn(SampleModels.specialtyList());
-        final Specialty specialty = SampleModels.thoracicSpecialty();
-        when(fMockSpecialtyDao.getByName(specialty.getName())).thenReturn(specialty);
+        // Make the ModelRegistry actually return specialties.
+        final ModelSnapshot snapshot =
+                new ModelSnapshot(MODEL_VERSION, 0, SampleModels.specialtyList());
+        fMockModelRegistry = mock(ModelRegistry.class);
+        when(fMockModelRegistry.getSnapshot()).thenReturn(snapshot);
+        when(fMockModelRegistry.getSpecialty(anyString()))
+            .thenReturn(Optional.<SpecialtySnapshot>absent());
+        final String specialtyName = SampleModels.thoracicSpecialty().getName();
+        when(fMockModelRegistry.getSpecialty(specialtyName))
+            .thenReturn(snapshot.getSpecialty(specialtyName));
         
         // And make VistaPatientDao.getPatient actually return a patient.
-        fMockPatientDao = mockVistaDaos.getVistaPatientDao();
-        when(fMockPatientDao.getPatient(SAMPLE_PATIENT_DFN))
+        fMockPatientDao = fMockVistaDaos.getVistaPatientDao();
+        when(fMockPatientDao.getPatient(eq(SAMPLE_PATIENT_DFN), any(RetrievalPlan.class)))
             .thenReturn(SampleCalculations.dummyPatient(SAMPLE_PATIENT_DFN));
         // Default to bad signature.
         when(fMockPatientDao.saveRiskCalculationNote(anyInt(), anyString(), anyString()))
@@ -60,8 +71,8 @@ public class DefaultCalculationServiceTest
             .thenReturn(VistaPatientDao.SaveNoteCode.SUCCESS);
 
         // These don't need any special setup: we just verify certain calls.
-        fMockSurgeryDao = mockVistaDaos.getVistaSurgeryDao();
         fMockResultsDao = mock(ResultsDao.class);
+        fMockOutboxDao = mock(RiskSaveOutboxDao.class);
     }
     
     /**
@@ -70,7 +81,7 @@ public class DefaultCalculationServiceTest
     private DefaultCalculationService createWithMocks()
     {
         return new DefaultCalculationService(
-                fMockSpecialtyDao, fMockPatientDao, fMockSurgeryDao, fMockResultsDao);
+                fMockModelRegistry, fMockVistaDaos, fMockResultsDao, fMockOutboxDao);
     }
     
     @Test
@@ -102,6 +113,30 @@ public class DefaultCalculationServiceTest
                 calc.getStartDateTime().compareTo(testStartDateTime) >= 0);
     }
     
+    @Test
+    public final void testStartNewCalculationPrefetchesSpecialtyData()
+    {
+        final Specialty thoracicSpecialty = SampleModels.thoracicSpecialty();
+        final Specialty labSpecialty = new Specialty("Lab");
+        final RiskModel labModel = new RiskModel("Lab model");
+        labModel.getDiscreteTerms().add(new DiscreteTerm(SampleModels.wbcVariable(), 1, 1.0f));
+        labSpecialty.getRiskModels().add(labModel);
+        final ModelSnapshot snapshot = new ModelSnapshot(
+                MODEL_VERSION, 0, Arrays.asList(thoracicSpecialty, labSpecialty));
+        when(fMockModelRegistry.getSnapshot()).thenReturn(snapshot);
+        final DefaultCalculationService s = createWithMocks();
+        
+        s.startNewCalculation(SAMPLE_PATIENT_DFN);
+        
+        // The union of both specialties' data.
+        verify(fMockPatientDao).getPatient(
+                SAMPLE_PATIENT_DFN,
+                RetrievalPlan.forVariables(thoracicSpecialty.getModelVariables()).union(
+                        RetrievalPlan.forVariables(labSpecialty.getModelVariables())));
+        verify(fMockPatientDao, never()).getPatient(
+                SAMPLE_PATIENT_DFN, RetrievalPlan.REFERENCE_INFO);
+    }
+    
     @Test
     public final void testSetValidSpecialty() throws InvalidIdentifierException
     {
@@ -114,6 +149,21 @@ public class DefaultCalculationServiceTest
         // Behavior verification.
         s.setSpecialty(calc, thoracicSpecialty.getName());
         assertEquals(thoracicSpecialty, calc.getSpecialty());
+        assertEquals(Optional.of(MODEL_VERSION), calc.getModelVersion());
+    }
+    
+    @Test
+    public final void testSetSpecialtyRetrievesPatientData() throws InvalidIdentifierException
+    {
+        final Specialty thoracicSpecialty = SampleModels.thoracicSpecialty();
+        final DefaultCalculationService s = createWithMocks();
+        final Calculation calc = s.startNewCalculation(SAMPLE_PATIENT_DFN);
+        
+        s.setSpecialty(calc, thoracicSpecialty.getName());
+        
+        verify(fMockPatientDao).retrievePatientData(
+                calc.getPatient(),
+                RetrievalPlan.forVariables(thoracicSpecialty.getModelVariables()));
     }
     
     @Test(expected = InvalidIdentifierException.class)
@@ -146,6 +196,10 @@ public class DefaultCalculationServiceTest
         // First run: must persist the HistoricalCalculation.
         verify(fMockResultsDao, times(1))
             .persistHistoricalCalc(calc.getHistoricalCalculation().get());
+        // The snapshot's version is recorded.
+        assertEquals(
+                Optional.of(MODEL_VERSION),
+                calc.getHistoricalCalculation().get().getModelVersion());
         
         // Try now with tweaked values and verify that the service didn't try to
         // re-persist the HistoricalCalculation.
@@ -175,8 +229,9 @@ public class DefaultCalculationServiceTest
         // SignedResult.equals() compares the times at second precision, so this test will
         // fail if the second happens to roll over during this test. The chance of this
         // happening should be <1%.
-        verify(fMockSurgeryDao).saveCalculationResult(expectedSignedResult);
         verify(fMockResultsDao).persistSignedResult(expectedSignedResult);
+        // The result is saved in VistA Surgery later, by the RiskSaveDeliveryJob.
+        verify(fMockOutboxDao).enqueue(any(RiskSaveDelivery.class));
     }
     
     @Test
@@ -192,7 +247,7 @@ public class DefaultCalculationServiceTest
         // Verification
         verify(fMockPatientDao).saveRiskCalculationNote(
                 result.getPatientDfn(), invalidSigCode, result.buildNoteBody());
-        verify(fMockSurgeryDao, never()).saveCalculationResult((SignedResult)anyObject());
         verify(fMockResultsDao, never()).persistSignedResult((SignedResult)anyObject());
+        verify(fMockOutboxDao, never()).enqueue(any(RiskSaveDelivery.class));
     }
 }
@@ -3,8 +3,16 @@ package gov.va.med.srcalc.service;
 import static org.mockito.Mockito.*;
 import gov.va.med.srcalc.db.ResultSearchParameters;
 import gov.va.med.srcalc.db.ResultsDao;
+import gov.va.med.srcalc.db.RollupDao;
+import gov.va.med.srcalc.domain.calculation.DailyOutcome;
+import gov.va.med.srcalc.domain.calculation.DailyUtilization;
 
+import org.joda.time.LocalDate;
 import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Unit tests for {@link DefaultReportService}.
@@ -12,10 +20,12 @@ import org.junit.Test;
 public class DefaultReportServiceTest
 {
     private final ResultsDao fMockResultsDao;
+    private final RollupDao fMockRollupDao;
     
     public DefaultReportServiceTest()
     {
         fMockResultsDao = mock(ResultsDao.class);
+        fMockRollupDao = mock(RollupDao.class);
     }
     
     @Test
@@ -24,7 +34,7 @@ public class DefaultReportServiceTest
         /* Setup */
         final ResultSearchParameters searchParams = new ResultSearchParameters();
         searchParams.setCptCode("1111F");
-        final DefaultReportService service = new DefaultReportService(fMockResultsDao);
+        final DefaultReportService service = new DefaultReportService(fMockResultsDao, fMockRollupDao);
 
         /* Behavior */
         service.getSignedResults(searchParams);
@@ -37,4 +47,31 @@ public class DefaultReportServiceTest
         verify(fMockResultsDao).getSignedResults(searchParams);
     }
     
+    /**
+     * Tests that rebuilding a day locks out the increments before reading the raw data.
+     */
+    @Test
+    public final void testRebuildRollupsLocksFirst()
+    {
+        /* Setup */
+        final LocalDate day = new LocalDate(2015, 3, 4);
+        when(fMockRollupDao.lockForRebuild()).thenReturn(Optional.<LocalDate>absent());
+        when(fMockResultsDao.computeUtilizationRollups(day))
+                .thenReturn(ImmutableList.<DailyUtilization>of());
+        when(fMockResultsDao.computeOutcomeRollups(day))
+                .thenReturn(ImmutableList.<DailyOutcome>of());
+        final DefaultReportService service = new DefaultReportService(fMockResultsDao, fMockRollupDao);
+        
+        /* Behavior */
+        service.rebuildRollups(day);
+        
+        /* Verification */
+        final InOrder inOrder = inOrder(fMockRollupDao, fMockResultsDao);
+        inOrder.verify(fMockRollupDao).lockForRebuild();
+        inOrder.verify(fMockRollupDao).deleteDay(day);
+        inOrder.verify(fMockResultsDao).computeUtilizationRollups(day);
+        inOrder.verify(fMockResultsDao).computeOutcomeRollups(day);
+        inOrder.verify(fMockRollupDao).setCoveredFrom(day);
+    }
+    
 }
@@ -78,6 +78,12 @@ public class MockModelService implements ModelInspectionService
     {
         return getAllProcedures();
     }
+    
+    @Override
+    public ProcedureCatalog getProcedureCatalog()
+    {
+        return new ProcedureCatalog(1L, getAllProcedures());
+    }
 
     @Override
     public ImmutableCollection<Rule> getAllRules()
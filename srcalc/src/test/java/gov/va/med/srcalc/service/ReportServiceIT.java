@@ -0,0 +1,184 @@
+package gov.va.med.srcalc.service;
+
+import static org.junit.Assert.*;
+
+import gov.va.med.srcalc.db.HistoricalSearchParameters;
+import gov.va.med.srcalc.db.ResultsDao;
+import gov.va.med.srcalc.db.RollupDao;
+import gov.va.med.srcalc.db.UtilizationAggregate;
+import gov.va.med.srcalc.db.UtilizationGrouping;
+import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
+import gov.va.med.srcalc.domain.calculation.SignedResult;
+import gov.va.med.srcalc.test.util.IntegrationTest;
+
+import javax.inject.Inject;
+
+import org.hibernate.SessionFactory;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Integration Test for {@link ReportService}'s use of the daily rollups.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration({"/srcalc-context.xml", "/test-context.xml"})
+@Transactional // run each test in its own (rolled-back) transaction
+public class ReportServiceIT extends IntegrationTest
+{
+    private static final String STATION = "500";
+    private static final LocalDate DAY_1 = new LocalDate(2015, 3, 4);
+    private static final LocalDate DAY_2 = new LocalDate(2015, 3, 5);
+    private static final LocalDate DAY_3 = new LocalDate(2015, 3, 6);
+    private static final ImmutableList<UtilizationGrouping> GROUPINGS =
+            ImmutableList.of(UtilizationGrouping.SPECIALTY);
+    
+    @Inject // field-based autowiring only in tests
+    ReportService fReportService;
+    
+    @Inject
+    ResultsDao fResultsDao;
+    
+    @Inject
+    RollupDao fRollupDao;
+    
+    @Inject
+    SessionFactory fSessionFactory;
+    
+    /**
+     * Persists a signed calculation started on the given day.
+     */
+    private void persistSigned(final LocalDate day, final String specialty, final int seconds)
+    {
+        final DateTime start = day.toDateTime(new LocalTime(10, 0));
+        final HistoricalCalculation calc = new HistoricalCalculation(
+                specialty, STATION, start, seconds, Optional.<String>absent());
+        fResultsDao.persistSignedResult(new SignedResult(
+                calc,
+                1000 + seconds,
+                Optional.<String>absent(),
+                start.plusSeconds(2 * seconds),
+                ImmutableMap.of("gender", "Female"),
+                ImmutableMap.of(specialty + " 30-Day", 10.0f)));
+    }
+    
+    @Before
+    public final void setup()
+    {
+        persistSigned(DAY_1, "Thoracic", 10);
+        persistSigned(DAY_2, "Thoracic", 20);
+        persistSigned(DAY_2, "Cardiac", 30);
+        persistSigned(DAY_3, "Cardiac", 40);
+        simulateNewSession();
+    }
+    
+    /**
+     * Returns the raw aggregates for the given parameters, for comparison.
+     */
+    private ImmutableSet<UtilizationAggregate> rawAggregates(
+            final HistoricalSearchParameters params)
+    {
+        return ImmutableSet.copyOf(fResultsDao.getUtilizationAggregates(params, GROUPINGS));
+    }
+    
+    @Test
+    public final void testRebuildRollups()
+    {
+        /* Setup */
+        // Corrupt DAY_2's rollups to show that they are rebuilt from the raw data.
+        fSessionFactory.getCurrentSession()
+            .createQuery("update DailyUtilization set totalCount = 99")
+            .executeUpdate();
+        final HistoricalSearchParameters params = new HistoricalSearchParameters();
+        params.setMinDate(DAY_2);
+        params.setMaxDate(DAY_2);
+        
+        /* Behavior */
+        fReportService.rebuildRollups(DAY_2);
+        
+        /* Verification */
+        assertEquals(Optional.of(DAY_2), fReportService.getRollupsCoveredFrom());
+        assertEquals(
+                rawAggregates(params),
+                ImmutableSet.copyOf(fRollupDao.getUtilizationAggregates(
+                        DAY_2, Optional.of(DAY_2), GROUPINGS)));
+    }
+    
+    @Test
+    public final void testRebuildRollupsExtendsCoverage()
+    {
+        fReportService.rebuildRollups(DAY_3);
+        // Not adjacent to the coverage.
+        fReportService.rebuildRollups(DAY_1);
+        assertEquals(Optional.of(DAY_3), fReportService.getRollupsCoveredFrom());
+        
+        fReportService.rebuildRollups(DAY_2);
+        fReportService.rebuildRollups(DAY_1);
+        assertEquals(Optional.of(DAY_1), fReportService.getRollupsCoveredFrom());
+    }
+    
+    @Test
+    public final void testGetUtilizationAggregatesMerged()
+    {
+        /* Setup */
+        // Rollups cover DAY_2 onward: DAY_1 must come from the raw data.
+        fRollupDao.setCoveredFrom(DAY_2);
+        // Make the rollups distinguishable from the raw data.
+        fSessionFactory.getCurrentSession()
+            .createQuery("update DailyUtilization set secondsToFirstRunSum = 0")
+            .executeUpdate();
+        final HistoricalSearchParameters params = new HistoricalSearchParameters();
+        params.setMinDate(DAY_1);
+        params.setMaxDate(DAY_3);
+        
+        /* Behavior */
+        final ImmutableSet<UtilizationAggregate> actual = ImmutableSet.copyOf(
+                fReportService.getUtilizationAggregates(params, GROUPINGS));
+        
+        /* Verification */
+        assertEquals(
+                ImmutableSet.of(
+                        // Only DAY_1's first-run seconds come from the raw data.
+                        new UtilizationAggregate(
+                                ImmutableList.of("Thoracic"), 2, 10, 2, 20 + 40),
+                        new UtilizationAggregate(
+                                ImmutableList.of("Cardiac"), 2, 0, 2, 60 + 80)),
+                actual);
+    }
+    
+    @Test
+    public final void testGetUtilizationAggregatesMatchRaw()
+    {
+        fReportService.rebuildRollups(DAY_3);
+        fReportService.rebuildRollups(DAY_2);
+        
+        // Ranges before, across and within the coverage.
+        final HistoricalSearchParameters params = new HistoricalSearchParameters();
+        assertEquals(
+                rawAggregates(params),
+                ImmutableSet.copyOf(fReportService.getUtilizationAggregates(
+                        params, GROUPINGS)));
+        params.setMaxDate(DAY_1);
+        assertEquals(
+                rawAggregates(params),
+                ImmutableSet.copyOf(fReportService.getUtilizationAggregates(
+                        params, GROUPINGS)));
+        params.setMinDate(DAY_3);
+        params.setMaxDate(null);
+        assertEquals(
+                rawAggregates(params),
+                ImmutableSet.copyOf(fReportService.getUtilizationAggregates(
+                        params, GROUPINGS)));
+    }
+}
@@ -0,0 +1,112 @@
+package gov.va.med.srcalc.service;
+
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import gov.va.med.srcalc.domain.calculation.RiskSaveDelivery;
+import gov.va.med.srcalc.domain.calculation.SampleCalculations;
+import gov.va.med.srcalc.domain.calculation.SignedResult;
+import gov.va.med.srcalc.vista.MockVistaDaoFactory;
+import gov.va.med.srcalc.vista.VistaSurgeryDao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the {@link RiskSaveDeliveryJob} class.
+ */
+public class RiskSaveDeliveryJobTest
+{
+    private static final String DUZ = "11716";
+
+    private RiskSaveOutboxService fMockOutboxService;
+    private MockVistaDaoFactory fVistaDaoFactory;
+    private VistaSurgeryDao fMockSurgeryDao;
+    private RiskSaveDelivery fDelivery;
+
+    @Before
+    public void setup()
+    {
+        fMockOutboxService = mock(RiskSaveOutboxService.class);
+        fVistaDaoFactory = new MockVistaDaoFactory();
+        fMockSurgeryDao = fVistaDaoFactory.getVistaSurgeryDao("500", DUZ);
+        fDelivery = new RiskSaveDelivery(SampleCalculations.signedThoracic(), DUZ);
+        // Claim the delivery once, then nothing.
+        when(fMockOutboxService.claimDueDeliveries(anyInt()))
+            .thenReturn(ImmutableList.of(fDelivery))
+            .thenReturn(Collections.<RiskSaveDelivery>emptyList());
+    }
+
+    @Test
+    public final void testDelivered()
+    {
+        new RiskSaveDeliveryJob(fMockOutboxService, fVistaDaoFactory).run();
+
+        verify(fMockSurgeryDao).saveCalculationResult(fDelivery.getSignedResult());
+        verify(fMockOutboxService).recordDelivered(fDelivery.getId());
+        verify(fMockOutboxService, never())
+            .recordFailure(anyInt(), anyString(), anyBoolean());
+    }
+
+    @Test
+    public final void testTransientFailure()
+    {
+        doThrow(new RecoverableDataAccessException("timed out"))
+            .when(fMockSurgeryDao).saveCalculationResult(any(SignedResult.class));
+
+        new RiskSaveDeliveryJob(fMockOutboxService, fVistaDaoFactory).run();
+
+        verify(fMockOutboxService).recordFailure(fDelivery.getId(), "timed out", false);
+        verify(fMockOutboxService, never()).recordDelivered(anyInt());
+    }
+
+    @Test
+    public final void testPermanentFailure()
+    {
+        doThrow(new DataIntegrityViolationException("rejected"))
+            .when(fMockSurgeryDao).saveCalculationResult(any(SignedResult.class));
+
+        new RiskSaveDeliveryJob(fMockOutboxService, fVistaDaoFactory).run();
+
+        verify(fMockOutboxService).recordFailure(fDelivery.getId(), "rejected", true);
+        verify(fMockOutboxService, never()).recordDelivered(anyInt());
+    }
+
+    @Test
+    public final void testUnexpectedFailure()
+    {
+        doThrow(new IllegalArgumentException("unknown division"))
+            .when(fMockSurgeryDao).saveCalculationResult(any(SignedResult.class));
+
+        new RiskSaveDeliveryJob(fMockOutboxService, fVistaDaoFactory).run();
+
+        verify(fMockOutboxService)
+            .recordFailure(eq(fDelivery.getId()), contains("unknown division"), eq(false));
+    }
+
+    /**
+     * Tests that the job keeps claiming deliveries while there may be more.
+     */
+    @Test
+    public final void testFullBatch()
+    {
+        final List<RiskSaveDelivery> fullBatch =
+                Collections.nCopies(RiskSaveDeliveryJob.BATCH_SIZE, fDelivery);
+        when(fMockOutboxService.claimDueDeliveries(anyInt()))
+            .thenReturn(fullBatch)
+            .thenReturn(ImmutableList.of(fDelivery))
+            .thenReturn(Collections.<RiskSaveDelivery>emptyList());
+
+        new RiskSaveDeliveryJob(fMockOutboxService, fVistaDaoFactory).run();
+
+        verify(fMockOutboxService, times(2)).claimDueDeliveries(RiskSaveDeliveryJob.BATCH_SIZE);
+        verify(fMockOutboxService, times(RiskSaveDeliveryJob.BATCH_SIZE + 1))
+            .recordDelivered(fDelivery.getId());
+    }
+}
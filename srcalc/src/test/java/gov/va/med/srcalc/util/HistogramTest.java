@@ -0,0 +1,82 @@
+package gov.va.med.srcalc.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link Histogram} class.
+ */
+public class HistogramTest
+{
+    @Test
+    public final void testEmpty()
+    {
+        final Histogram.Snapshot snapshot = new Histogram().snapshot();
+        assertEquals(0L, snapshot.getCount());
+        assertEquals(0.0, snapshot.getMean(), 0.0);
+        assertEquals(0L, snapshot.getMax());
+        assertEquals(0L, snapshot.getMedian());
+        assertEquals(0L, snapshot.get99thPercentile());
+    }
+    
+    @Test
+    public final void testPercentiles()
+    {
+        final Histogram histogram = new Histogram();
+        // 1 to 100
+        for (int i = 1; i <= 100; ++i)
+        {
+            histogram.record(i);
+        }
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100L, snapshot.getCount());
+        assertEquals(50.5, snapshot.getMean(), 0.0001);
+        assertEquals(100L, snapshot.getMax());
+        // The true median (50) is in the 32-63 bucket.
+        assertEquals(63L, snapshot.getMedian());
+        // The true 95th percentile (95) is in the 64-127 bucket, capped at the max.
+        assertEquals(100L, snapshot.get95thPercentile());
+        assertEquals(1L, snapshot.getPercentile(1.0));
+        assertEquals(1L, snapshot.getPercentile(0.0));
+    }
+    
+    @Test
+    public final void testEstimateBounds()
+    {
+        final Histogram histogram = new Histogram();
+        histogram.record(1000L);
+        histogram.record(1000L);
+        histogram.record(1L);
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+        // Never less than the true value and at most double.
+        assertTrue(snapshot.getMedian() >= 1000L);
+        assertTrue(snapshot.getMedian() < 2000L);
+    }
+    
+    @Test
+    public final void testZeroAndNegative()
+    {
+        final Histogram histogram = new Histogram();
+        histogram.record(0L);
+        histogram.record(-5L);
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2L, snapshot.getCount());
+        assertEquals(0L, snapshot.getMax());
+        assertEquals(0L, snapshot.getMedian());
+    }
+    
+    @Test
+    public final void testLargeValue()
+    {
+        final Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.snapshot().getMedian());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public final void testPercentileOutOfRange()
+    {
+        new Histogram().snapshot().getPercentile(100.1);
+    }
+}
@@ -0,0 +1,279 @@
+package gov.va.med.srcalc.vista;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.VistaLabs;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan.Section;
+import gov.va.med.srcalc.domain.calculation.RetrievedValue;
+import gov.va.med.srcalc.domain.calculation.SampleCalculations;
+import gov.va.med.srcalc.domain.model.SampleModels;
+import gov.va.med.srcalc.vista.VistaPatientDao.SaveNoteCode;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests the {@link CachingVistaPatientDao} class.
+ */
+public class CachingVistaPatientDaoTest
+{
+    private static final String DIVISION = "500";
+    private static final String DUZ = "11716";
+    private static final String OTHER_DUZ = "22222";
+    private static final int DFN = 1;
+    private static final RetrievedValue WBC = new RetrievedValue(8.0, new Date(), "x1000/mm^3");
+    /**
+     * The plan for a specialty using the white blood count.
+     */
+    private static final RetrievalPlan WBC_PLAN =
+            RetrievalPlan.forVariables(ImmutableList.of(SampleModels.wbcVariable()));
+
+    private VistaPatientDao fTarget;
+    private PatientCache fCache;
+
+    @Before
+    public void setUp()
+    {
+        fTarget = mock(VistaPatientDao.class);
+        // Return a patient with the requested data.
+        when(fTarget.getPatient(eq(DFN), any(RetrievalPlan.class)))
+            .thenAnswer(new Answer<Patient>()
+            {
+                @Override
+                public Patient answer(final InvocationOnMock invocation)
+                {
+                    final Patient patient = SampleCalculations.dummyPatient(DFN);
+                    patient.addRetrievedData((RetrievalPlan)invocation.getArguments()[1]);
+                    return patient;
+                }
+            });
+        doAnswer(new Answer<Void>()
+            {
+                @Override
+                public Void answer(final InvocationOnMock invocation)
+                {
+                    final Patient patient = (Patient)invocation.getArguments()[0];
+                    patient.getLabs().put(VistaLabs.WBC, WBC);
+                    patient.addRetrievedData((RetrievalPlan)invocation.getArguments()[1]);
+                    return null;
+                }
+            })
+            .when(fTarget).retrievePatientData(any(Patient.class), any(RetrievalPlan.class));
+        when(fTarget.saveRiskCalculationNote(DFN, "sig", "note"))
+            .thenReturn(SaveNoteCode.SUCCESS);
+        fCache = new PatientCache(60000L, 10L);
+    }
+
+    @Test
+    public final void testCacheHit()
+    {
+        final CachingVistaPatientDao dao =
+                new CachingVistaPatientDao(fTarget, fCache, DIVISION, DUZ);
+
+        final Patient first = dao.getPatient(DFN);
+        final Patient second = dao.getPatient(DFN);
+
+        assertEquals(first, second);
+        verify(fTarget, times(1)).getPatient(DFN, RetrievalPlan.ALL);
+        assertEquals(1, fCache.getHitCount());
+        assertEquals(1, fCache.getMissCount());
+    }
+
+    @Test
+    public final void testCopies()
+    {
+        final CachingVistaPatientDao dao =
+                new CachingVistaPatientDao(fTarget, fCache, DIVISION, DUZ);
+        final Patient first = dao.getPatient(DFN);
+        final int medicationCount = first.getActiveMedications().size();
+
+        first.getActiveMedications().add("Modified");
+
+        assertEquals(medicationCount, dao.getPatient(DFN).getActiveMedications().size());
+    }
+
+    @Test
+    public final void testNotSharedBetweenUsers()
+    {
+        new CachingVistaPatientDao(fTarget, fCache, DIVISION, DUZ).getPatient(DFN);
+        new CachingVistaPatientDao(fTarget, fCache, DIVISION, OTHER_DUZ).getPatient(DFN);
+
+        verify(fTarget, times(2)).getPatient(DFN, RetrievalPlan.ALL);
+    }
+
+    @Test
+    public final void testSaveNoteInvalidates()
+    {
+        final CachingVistaPatientDao dao =
+                new CachingVistaPatientDao(fTarget, fCache, DIVISION, DUZ);
+        dao.getPatient(DFN);
+        // Another user's retrieval of the same patient must be invalidated too.
+        new CachingVistaPatientDao(fTarget, fCache, DIVISION, OTHER_DUZ).getPatient(DFN);
+        assertEquals(2, fCache.size());
+
+        assertEquals(SaveNoteCode.SUCCESS, dao.saveRiskCalculationNote(DFN, "sig", "note"));
+
+        assertEquals(0, fCache.size());
+        dao.getPatient(DFN);
+        verify(fTarget, times(3)).getPatient(DFN, RetrievalPlan.ALL);
+    }
+
+    @Test
+    public final void testCachingDisabled()
+    {
+        final CachingVistaPatientDao dao = new CachingVistaPatientDao(
+                fTarget, new PatientCache(0L, 10L), DIVISION, DUZ);
+
+        dao.getPatient(DFN);
+        dao.getPatient(DFN);
+
+        verify(fTarget, times(2)).getPatient(DFN, RetrievalPlan.ALL);
+    }
+
+    /**
+     * Tests that a cached patient is only extended with the data it is missing.
+     */
+    @Test
+    public final void testExtendCachedPatient()
+    {
+        final CachingVistaPatientDao dao =
+                new CachingVistaPatientDao(fTarget, fCache, DIVISION, DUZ);
+        dao.getPatient(DFN, RetrievalPlan.REFERENCE_INFO);
+
+        final Patient patient = dao.getPatient(DFN, WBC_PLAN);
+
+        verify(fTarget, times(1)).getPatient(DFN, RetrievalPlan.REFERENCE_INFO);
+        verify(fTarget).retrievePatientData(
+                any(Patient.class), eq(WBC_PLAN.minus(RetrievalPlan.REFERENCE_INFO)));
+        assertEquals(WBC, patient.getLabs().get(VistaLabs.WBC));
+        // The extended patient is cached.
+        assertEquals(WBC, dao.getPatient(DFN, WBC_PLAN).getLabs().get(VistaLabs.WBC));
+        verifyNoMoreInteractions(fTarget);
+    }
+
+    @Test
+    public final void testRetrieveFromCache()
+    {
+        final CachingVistaPatientDao dao =
+                new CachingVistaPatientDao(fTarget, fCache, DIVISION, DUZ);
+        // Cache a patient with the white blood count, as if from another calculation.
+        dao.getPatient(DFN, WBC_PLAN);
+        final Patient patient = SampleCalculations.dummyPatient(DFN);
+
+        dao.retrievePatientData(patient, WBC_PLAN);
+
+        verify(fTarget, never()).retrievePatientData(any(Patient.class), any(RetrievalPlan.class));
+        assertTrue(patient.getRetrievedData().covers(WBC_PLAN));
+    }
+
+    /**
+     * Tests that each section is only served for its own time to live.
+     */
+    @Test
+    public final void testStaleSectionRetrievedAgain()
+    {
+        final FakeTicker ticker = new FakeTicker();
+        // The labs go stale after 1 second, the rest after 1 minute.
+        final PatientCache cache = new PatientCache(
+                new PatientCacheTtls(60000L, ImmutableMap.<Section, Long>of(), 1000L),
+                10L,
+                ticker);
+        final CachingVistaPatientDao dao =
+                new CachingVistaPatientDao(fTarget, cache, DIVISION, DUZ);
+        dao.getPatient(DFN, WBC_PLAN);
+
+        ticker.advance(2000L);
+        final Patient patient = dao.getPatient(DFN, WBC_PLAN);
+
+        verify(fTarget, times(1)).getPatient(DFN, WBC_PLAN);
+        // Only the stale labs are retrieved again.
+        verify(fTarget).retrievePatientData(
+                any(Patient.class), eq(WBC_PLAN.minus(RetrievalPlan.REFERENCE_INFO)));
+        assertEquals(WBC_PLAN, patient.getRetrievedData());
+        verifyNoMoreInteractions(fTarget);
+    }
+
+    /**
+     * Tests that extending a cached patient does not extend the life of the data it
+     * already had.
+     */
+    @Test
+    public final void testExtendingDoesNotRefresh()
+    {
+        final FakeTicker ticker = new FakeTicker();
+        final PatientCache cache = new PatientCache(new PatientCacheTtls(10000L), 10L, ticker);
+        final CachingVistaPatientDao dao =
+                new CachingVistaPatientDao(fTarget, cache, DIVISION, DUZ);
+        dao.getPatient(DFN, RetrievalPlan.REFERENCE_INFO);
+        ticker.advance(6000L);
+        dao.getPatient(DFN, WBC_PLAN);
+        verify(fTarget, times(1)).getPatient(DFN, RetrievalPlan.REFERENCE_INFO);
+
+        // Only 5 seconds since the labs, but 11 since the demographics.
+        ticker.advance(5000L);
+        dao.getPatient(DFN, RetrievalPlan.REFERENCE_INFO);
+
+        verify(fTarget, times(2)).getPatient(DFN, RetrievalPlan.REFERENCE_INFO);
+    }
+
+    /**
+     * Tests that a patient missing some of the requested data (e.g., because VistA was
+     * too slow) is not cached.
+     */
+    @Test
+    public final void testIncompleteLoadNotCached()
+    {
+        when(fTarget.getPatient(DFN, RetrievalPlan.REFERENCE_INFO))
+            .thenAnswer(new Answer<Patient>()
+            {
+                @Override
+                public Patient answer(final InvocationOnMock invocation)
+                {
+                    final Patient patient = SampleCalculations.dummyPatient(DFN);
+                    patient.addRetrievedData(
+                            RetrievalPlan.REFERENCE_INFO.without(Section.HEALTH_FACTORS));
+                    return patient;
+                }
+            });
+        final CachingVistaPatientDao dao =
+                new CachingVistaPatientDao(fTarget, fCache, DIVISION, DUZ);
+
+        dao.getPatient(DFN, RetrievalPlan.REFERENCE_INFO);
+        dao.getPatient(DFN, RetrievalPlan.REFERENCE_INFO);
+
+        verify(fTarget, times(2)).getPatient(DFN, RetrievalPlan.REFERENCE_INFO);
+        assertEquals(0, fCache.size());
+    }
+
+    /**
+     * A Ticker which only advances when told to.
+     */
+    private static final class FakeTicker extends Ticker
+    {
+        private final AtomicLong fNanos = new AtomicLong();
+
+        public void advance(final long millis)
+        {
+            fNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        @Override
+        public long read()
+        {
+            return fNanos.get();
+        }
+    }
+}
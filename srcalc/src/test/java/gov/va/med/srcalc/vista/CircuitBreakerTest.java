@@ -0,0 +1,129 @@
+package gov.va.med.srcalc.vista;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Tests the {@link CircuitBreaker} class.
+ */
+public class CircuitBreakerTest
+{
+    private static final long OPEN_MILLIS = 1000L;
+
+    /**
+     * A Ticker which only advances when told to.
+     */
+    private static final class ManualTicker extends Ticker
+    {
+        private long fNanos = 0L;
+
+        @Override
+        public long read()
+        {
+            return fNanos;
+        }
+
+        public void advance(final long millis)
+        {
+            fNanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    private final ManualTicker fTicker = new ManualTicker();
+
+    private final CircuitBreaker fBreaker = new CircuitBreaker("test", 3, OPEN_MILLIS, fTicker);
+
+    /**
+     * Makes a call which fails.
+     */
+    private void failCall()
+    {
+        assertTrue(fBreaker.tryAcquirePermission());
+        fBreaker.recordFailure();
+    }
+
+    @Test
+    public final void testOpensAfterThreshold()
+    {
+        failCall();
+        failCall();
+        assertEquals(CircuitBreaker.State.CLOSED, fBreaker.getState());
+        failCall();
+        assertEquals(CircuitBreaker.State.OPEN, fBreaker.getState());
+        assertFalse(fBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public final void testSuccessResetsCount()
+    {
+        failCall();
+        failCall();
+        assertTrue(fBreaker.tryAcquirePermission());
+        fBreaker.recordSuccess();
+        failCall();
+        failCall();
+        assertEquals(CircuitBreaker.State.CLOSED, fBreaker.getState());
+    }
+
+    @Test
+    public final void testProbeSucceeds()
+    {
+        failCall();
+        failCall();
+        failCall();
+        fTicker.advance(OPEN_MILLIS - 1L);
+        assertFalse(fBreaker.tryAcquirePermission());
+        fTicker.advance(1L);
+
+        // Only one probe at a time.
+        assertTrue(fBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, fBreaker.getState());
+        assertFalse(fBreaker.tryAcquirePermission());
+
+        fBreaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, fBreaker.getState());
+        assertTrue(fBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public final void testProbeFails()
+    {
+        failCall();
+        failCall();
+        failCall();
+        fTicker.advance(OPEN_MILLIS);
+        // A single failure reopens the breaker for another period.
+        failCall();
+        assertEquals(CircuitBreaker.State.OPEN, fBreaker.getState());
+        fTicker.advance(OPEN_MILLIS - 1L);
+        assertFalse(fBreaker.tryAcquirePermission());
+        fTicker.advance(1L);
+        assertTrue(fBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public final void testProbeReleased()
+    {
+        failCall();
+        failCall();
+        failCall();
+        fTicker.advance(OPEN_MILLIS);
+        assertTrue(fBreaker.tryAcquirePermission());
+        fBreaker.releasePermission();
+        // The next call probes instead.
+        assertEquals(CircuitBreaker.State.OPEN, fBreaker.getState());
+        assertTrue(fBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, fBreaker.getState());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testInvalidThreshold()
+    {
+        new CircuitBreaker("test", 0, OPEN_MILLIS);
+    }
+}
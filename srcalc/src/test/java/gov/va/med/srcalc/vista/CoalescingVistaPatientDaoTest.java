@@ -0,0 +1,146 @@
+package gov.va.med.srcalc.vista;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+import gov.va.med.srcalc.domain.calculation.SampleCalculations;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests the {@link CoalescingVistaPatientDao} class.
+ */
+public class CoalescingVistaPatientDaoTest
+{
+    private static final String DIVISION = "500";
+    private static final String DUZ = "11716";
+    private static final int DFN = 1;
+
+    private VistaPatientDao fTarget;
+    private ExecutorService fExecutor;
+    /**
+     * Counts the target retrievals which found data missing.
+     */
+    private AtomicInteger fRetrievals;
+    /**
+     * Counts the target retrievals in progress.
+     */
+    private AtomicInteger fInProgress;
+    /**
+     * Whether two target retrievals were ever in progress at once.
+     */
+    private volatile boolean fOverlapped;
+    private Semaphore fRetrievalsStarted;
+    /**
+     * Released to let the target retrievals finish.
+     */
+    private CountDownLatch fFinishRetrievals;
+
+    @Before
+    public void setUp()
+    {
+        fExecutor = Executors.newCachedThreadPool();
+        fRetrievals = new AtomicInteger();
+        fInProgress = new AtomicInteger();
+        fRetrievalsStarted = new Semaphore(0);
+        fFinishRetrievals = new CountDownLatch(1);
+        fTarget = mock(VistaPatientDao.class);
+        // Like RpcVistaPatientDao, only retrieve the missing data, blocking like a VistA
+        // call until released.
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws InterruptedException
+            {
+                final Patient patient = (Patient)invocation.getArguments()[0];
+                final RetrievalPlan missing = ((RetrievalPlan)invocation.getArguments()[1])
+                        .minus(patient.getRetrievedData());
+                if (missing.isEmpty())
+                {
+                    return null;
+                }
+                if (fInProgress.incrementAndGet() > 1)
+                {
+                    fOverlapped = true;
+                }
+                fRetrievals.incrementAndGet();
+                fRetrievalsStarted.release();
+                fFinishRetrievals.await();
+                patient.addRetrievedData(missing);
+                fInProgress.decrementAndGet();
+                return null;
+            }
+        }).when(fTarget).retrievePatientData(any(Patient.class), any(RetrievalPlan.class));
+    }
+
+    @After
+    public void tearDown()
+    {
+        fExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts retrieving the given plan into the given patient in the background.
+     */
+    private Future<?> startRetrieval(final Patient patient, final RetrievalPlan plan)
+    {
+        final CoalescingVistaPatientDao dao = new CoalescingVistaPatientDao(
+                fTarget, new PatientLoadCoalescer(), DIVISION, DUZ);
+        return fExecutor.submit(new Callable<Void>()
+        {
+            @Override
+            public Void call()
+            {
+                dao.retrievePatientData(patient, plan);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Tests two concurrent specialty selections for the same calculation.
+     */
+    @Test
+    public final void testConcurrentRetrievalsSerialized() throws Exception
+    {
+        final Patient patient = SampleCalculations.dummyPatient(DFN);
+        patient.addRetrievedData(RetrievalPlan.REFERENCE_INFO);
+        final Future<?> first = startRetrieval(patient, RetrievalPlan.ALL);
+        fRetrievalsStarted.acquire();
+        final Future<?> second = startRetrieval(patient, RetrievalPlan.ALL);
+        // Give the second retrieval the chance to run into the first.
+        Thread.sleep(100L);
+
+        fFinishRetrievals.countDown();
+
+        first.get(10L, TimeUnit.SECONDS);
+        second.get(10L, TimeUnit.SECONDS);
+        // The second retrieval waited, and then found nothing missing.
+        assertFalse(fOverlapped);
+        assertEquals(1, fRetrievals.get());
+        assertEquals(RetrievalPlan.ALL, patient.getRetrievedData());
+    }
+
+    @Test
+    public final void testDifferentPatientsNotSerialized() throws Exception
+    {
+        final Future<?> first =
+                startRetrieval(SampleCalculations.dummyPatient(DFN), RetrievalPlan.ALL);
+        final Future<?> second =
+                startRetrieval(SampleCalculations.dummyPatient(DFN), RetrievalPlan.ALL);
+        // Both retrievals start without waiting for each other.
+        assertTrue(fRetrievalsStarted.tryAcquire(2, 10L, TimeUnit.SECONDS));
+        fFinishRetrievals.countDown();
+        first.get(10L, TimeUnit.SECONDS);
+        second.get(10L, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,112 @@
+package gov.va.med.srcalc.vista;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.login.LoginException;
+
+/**
+ * A VistaProcedureCaller test double which counts both the calls made to it and the
+ * remote procedure calls they execute in VistA, and delegates the calls to another
+ * VistaProcedureCaller. The two only differ for {@link #doRetrieveMultipleLabsCall(
+ * String, String, List)}, which executes one remote procedure call per lab.
+ */
+public class CountingVistaProcedureCaller implements VistaProcedureCaller
+{
+    private final VistaProcedureCaller fDelegate;
+
+    private final AtomicInteger fCalls = new AtomicInteger();
+
+    private final AtomicInteger fExecutedRpcs = new AtomicInteger();
+
+    /**
+     * Constructs an instance.
+     * @param delegate the VistaProcedureCaller to delegate to
+     */
+    public CountingVistaProcedureCaller(final VistaProcedureCaller delegate)
+    {
+        fDelegate = delegate;
+    }
+
+    /**
+     * Returns the number of calls made to this caller so far.
+     */
+    public int getCalls()
+    {
+        return fCalls.get();
+    }
+
+    /**
+     * Returns the number of remote procedure calls executed in VistA so far.
+     */
+    public int getExecutedRpcs()
+    {
+        return fExecutedRpcs.get();
+    }
+
+    private void count(final int executedRpcs)
+    {
+        fCalls.incrementAndGet();
+        fExecutedRpcs.addAndGet(executedRpcs);
+    }
+
+    @Override
+    public List<String> doRpc(
+            final String duz, final RemoteProcedure procedure, final String... args)
+            throws LoginException
+    {
+        count(1);
+        return fDelegate.doRpc(duz, procedure, args);
+    }
+
+    @Override
+    public String doSaveProgressNoteCall(
+            final String duz,
+            final String encryptedSignature,
+            final String patientDfn,
+            final List<String> noteLines)
+            throws LoginException
+    {
+        count(1);
+        return fDelegate.doSaveProgressNoteCall(
+                duz, encryptedSignature, patientDfn, noteLines);
+    }
+
+    @Override
+    public String doSaveRiskCalculationCall(
+            final String duz,
+            final String patientDfn,
+            final String cptCode,
+            final String dateTime,
+            final List<String> outcomes)
+            throws LoginException
+    {
+        count(1);
+        return fDelegate.doSaveRiskCalculationCall(
+                duz, patientDfn, cptCode, dateTime, outcomes);
+    }
+
+    @Override
+    public String doRetrieveLabsCall(
+            final String duz, final String patientDfn, final List<String> labNames)
+            throws LoginException
+    {
+        count(1);
+        return fDelegate.doRetrieveLabsCall(duz, patientDfn, labNames);
+    }
+
+    @Override
+    public List<String> doRetrieveMultipleLabsCall(
+            final String duz, final String patientDfn, final List<List<String>> labNameLists)
+            throws LoginException
+    {
+        count(labNameLists.size());
+        return fDelegate.doRetrieveMultipleLabsCall(duz, patientDfn, labNameLists);
+    }
+
+    @Override
+    public String getDivision()
+    {
+        return fDelegate.getDivision();
+    }
+}
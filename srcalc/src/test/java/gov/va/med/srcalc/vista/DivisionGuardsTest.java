@@ -0,0 +1,163 @@
+package gov.va.med.srcalc.vista;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import javax.security.auth.login.LoginException;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.RecoverableDataAccessException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests the {@link DivisionGuards} class.
+ */
+public class DivisionGuardsTest
+{
+    private static final String DUZ = "11716";
+    private static final String DFN = "1";
+
+    private static VistaProcedureCaller mockCaller(final String division)
+    {
+        final VistaProcedureCaller caller = mock(VistaProcedureCaller.class);
+        when(caller.getDivision()).thenReturn(division);
+        return caller;
+    }
+
+    /**
+     * Calls {@link RemoteProcedure#GET_PATIENT}, expecting a transient failure.
+     */
+    private static void callExpectingFailure(final VistaProcedureCaller caller)
+            throws LoginException
+    {
+        try
+        {
+            caller.doRpc(DUZ, RemoteProcedure.GET_PATIENT, DFN);
+            fail("should have thrown");
+        }
+        catch (final RecoverableDataAccessException ex)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public final void testFailsFastAfterThreshold() throws Exception
+    {
+        final DivisionGuards guards = new DivisionGuards(4, 0L, 2, 60000L);
+        final VistaProcedureCaller failing = mockCaller("500");
+        when(failing.doRpc(DUZ, RemoteProcedure.GET_PATIENT, DFN))
+                .thenThrow(new RecoverableDataAccessException("timed out"));
+        final VistaProcedureCaller healthy = mockCaller("600");
+        when(healthy.doRpc(DUZ, RemoteProcedure.GET_PATIENT, DFN))
+                .thenReturn(ImmutableList.of("PATIENT"));
+
+        final VistaProcedureCaller guarded = guards.guard(failing);
+        callExpectingFailure(guarded);
+        callExpectingFailure(guarded);
+        // The breaker is shared by all of the division's guarded callers.
+        callExpectingFailure(guards.guard(failing));
+        verify(failing, times(2)).doRpc(DUZ, RemoteProcedure.GET_PATIENT, DFN);
+
+        // Other divisions are unaffected.
+        assertEquals(
+                ImmutableList.of("PATIENT"),
+                guards.guard(healthy).doRpc(DUZ, RemoteProcedure.GET_PATIENT, DFN));
+        assertEquals(
+                ImmutableMap.of(
+                        "500", CircuitBreaker.State.OPEN,
+                        "600", CircuitBreaker.State.CLOSED),
+                guards.getCircuitStates());
+    }
+
+    /**
+     * Verifies that failures which VistA itself reports do not open the breaker.
+     */
+    @Test
+    public final void testLoginFailuresDoNotOpen() throws Exception
+    {
+        final DivisionGuards guards = new DivisionGuards(4, 0L, 1, 60000L);
+        final VistaProcedureCaller caller = mockCaller("500");
+        when(caller.doRpc(DUZ, RemoteProcedure.GET_USER_INFO))
+                .thenThrow(new LoginException("unknown DUZ"));
+        final VistaProcedureCaller guarded = guards.guard(caller);
+        for (int i = 0; i < 2; ++i)
+        {
+            try
+            {
+                guarded.doRpc(DUZ, RemoteProcedure.GET_USER_INFO);
+                fail("should have thrown");
+            }
+            catch (final LoginException ex)
+            {
+                // expected
+            }
+        }
+        assertEquals(
+                ImmutableMap.of("500", CircuitBreaker.State.CLOSED),
+                guards.getCircuitStates());
+    }
+
+    @Test
+    public final void testBulkhead() throws Exception
+    {
+        final DivisionGuards guards = new DivisionGuards(1, 0L, 1, 60000L);
+        final VistaProcedureCaller caller = mockCaller("500");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(caller.doRpc(DUZ, RemoteProcedure.GET_PATIENT, DFN))
+                .thenAnswer(new Answer<List<String>>()
+                {
+                    @Override
+                    public List<String> answer(final InvocationOnMock invocation)
+                            throws InterruptedException
+                    {
+                        started.countDown();
+                        release.await();
+                        return ImmutableList.of("PATIENT");
+                    }
+                });
+        final VistaProcedureCaller guarded = guards.guard(caller);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            final Future<List<String>> first = executor.submit(new Callable<List<String>>()
+            {
+                @Override
+                public List<String> call() throws Exception
+                {
+                    return guarded.doRpc(DUZ, RemoteProcedure.GET_PATIENT, DFN);
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // The division's only permit is taken.
+            callExpectingFailure(guarded);
+            release.countDown();
+            assertEquals(ImmutableList.of("PATIENT"), first.get(5, TimeUnit.SECONDS));
+            // The rejection did not count as a failure of the division.
+            assertEquals(
+                    ImmutableList.of("PATIENT"),
+                    guarded.doRpc(DUZ, RemoteProcedure.GET_PATIENT, DFN));
+            verify(caller, times(2)).doRpc(DUZ, RemoteProcedure.GET_PATIENT, DFN);
+        }
+        finally
+        {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testInvalidConcurrency()
+    {
+        new DivisionGuards(0, 0L, 1, 60000L);
+    }
+}
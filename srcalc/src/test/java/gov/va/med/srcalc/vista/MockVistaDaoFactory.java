@@ -18,9 +18,20 @@ public class MockVistaDaoFactory implements VistaDaoFactory
     private final VistaPatientDao fPatientDao;
     private final VistaSurgeryDao fSurgeryDao;
     
+    /**
+     * Constructs an instance whose {@link #getVistaPatientDao()} returns a Mockito mock.
+     */
     public MockVistaDaoFactory()
     {
-        fPatientDao = mockPatientDao();
+        this(mockPatientDao());
+    }
+    
+    /**
+     * Constructs an instance whose {@link #getVistaPatientDao()} returns the given DAO.
+     */
+    public MockVistaDaoFactory(final VistaPatientDao patientDao)
+    {
+        fPatientDao = patientDao;
         fSurgeryDao = mockSurgeryDao();
         fAuthenticator = mock(VistaAuthenticator.class);
         try
@@ -86,9 +97,10 @@ public class MockVistaDaoFactory implements VistaDaoFactory
     }
 
     /**
-     * <p>Returns a mock VistaPatientDao identical to {@link #mockPatientDao()}, but
-     * repeated calls to this method will return the same object to allow mock
-     * customization or verification.</p>
+     * <p>Returns the VistaPatientDao given to the constructor, or else a mock
+     * VistaPatientDao identical to {@link #mockPatientDao()}. Repeated calls to this
+     * method will return the same object to allow mock customization or
+     * verification.</p>
      */
     @Override
     public VistaPatientDao getVistaPatientDao()
@@ -107,10 +119,11 @@ public class MockVistaDaoFactory implements VistaDaoFactory
 
     /**
      * <p>Returns a mock VistaSurgeryDao identical to {@link #mockSurgeryDao()}, but
-     * repeated calls to this method will return the same object to allow mock
-     * customization or verification.</p>
+     * repeated calls to this method will return the same object, regardless of the
+     * user, to allow mock customization or verification.</p>
      */
-    public VistaSurgeryDao getVistaSurgeryDao()
+    @Override
+    public VistaSurgeryDao getVistaSurgeryDao(final String division, final String duz)
     {
         return fSurgeryDao;
     }
@@ -1,6 +1,7 @@
 package gov.va.med.srcalc.vista;
 
 import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
 import gov.va.med.srcalc.domain.calculation.SampleCalculations;
 
 /**
@@ -14,6 +15,20 @@ public class MockVistaPatientDao implements VistaPatientDao
         return SampleCalculations.dummyPatient(dfn);
     }
 
+    @Override
+    public Patient getPatient(final int dfn, final RetrievalPlan plan)
+    {
+        return getPatient(dfn);
+    }
+
+    /**
+     * Does nothing: the dummy patient has all the data it will ever have.
+     */
+    @Override
+    public void retrievePatientData(final Patient patient, final RetrievalPlan plan)
+    {
+    }
+
     /**
      * Assumes the dummy result is returning a valid save.
      */
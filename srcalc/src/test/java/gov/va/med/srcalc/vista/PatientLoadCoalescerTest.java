@@ -0,0 +1,257 @@
+package gov.va.med.srcalc.vista;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
+import gov.va.med.srcalc.domain.calculation.SampleCalculations;
+
+import java.util.concurrent.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.RecoverableDataAccessException;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the {@link PatientLoadCoalescer} class.
+ */
+public class PatientLoadCoalescerTest
+{
+    private static final String DIVISION = "500";
+    private static final String DUZ = "11716";
+    private static final String OTHER_DUZ = "22222";
+    private static final int DFN = 1;
+
+    private PatientLoadCoalescer fCoalescer;
+    private VistaPatientDao fTarget;
+    private ExecutorService fExecutor;
+    /**
+     * Counts the target loads in progress.
+     */
+    private Semaphore fLoadsStarted;
+    /**
+     * Released to let the target loads finish.
+     */
+    private CountDownLatch fFinishLoads;
+
+    @Before
+    public void setUp()
+    {
+        fCoalescer = new PatientLoadCoalescer();
+        fExecutor = Executors.newCachedThreadPool();
+        fLoadsStarted = new Semaphore(0);
+        fFinishLoads = new CountDownLatch(1);
+        fTarget = mock(VistaPatientDao.class);
+        // Block like a VistA call until released.
+        when(fTarget.getPatient(eq(DFN), any(RetrievalPlan.class)))
+            .thenAnswer(new Answer<Patient>()
+            {
+                @Override
+                public Patient answer(final InvocationOnMock invocation)
+                {
+                    fLoadsStarted.release();
+                    try
+                    {
+                        fFinishLoads.await();
+                    }
+                    catch (final InterruptedException ex)
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new RecoverableDataAccessException("Interrupted", ex);
+                    }
+                    final Patient patient = SampleCalculations.dummyPatient(DFN);
+                    patient.addRetrievedData((RetrievalPlan)invocation.getArguments()[1]);
+                    return patient;
+                }
+            });
+    }
+
+    @After
+    public void tearDown()
+    {
+        fExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts loading the patient in the background.
+     */
+    private Future<Patient> startLoad(final String duz, final RetrievalPlan plan)
+    {
+        return fExecutor.submit(new Callable<Patient>()
+        {
+            @Override
+            public Patient call()
+            {
+                return fCoalescer.getPatient(DIVISION, duz, DFN, plan, fTarget);
+            }
+        });
+    }
+
+    /**
+     * Waits until the given number of callers are waiting for another caller's load.
+     */
+    private void awaitDeduplicated(final long count) throws InterruptedException
+    {
+        while (fCoalescer.getDeduplicatedCount() < count)
+        {
+            Thread.sleep(10L);
+        }
+    }
+
+    @Test
+    public final void testConcurrentLoadsShared() throws Exception
+    {
+        final Future<Patient> first = startLoad(DUZ, RetrievalPlan.ALL);
+        fLoadsStarted.acquire();
+        final Future<Patient> second = startLoad(DUZ, RetrievalPlan.REFERENCE_INFO);
+        final Future<Patient> third = startLoad(DUZ, RetrievalPlan.ALL);
+        awaitDeduplicated(2);
+
+        fFinishLoads.countDown();
+
+        final Patient patient = first.get();
+        assertEquals(patient, second.get());
+        assertEquals(patient, third.get());
+        // Each caller may modify its own Patient.
+        assertNotSame(second.get(), third.get());
+        verify(fTarget, times(1)).getPatient(DFN, RetrievalPlan.ALL);
+        verifyNoMoreInteractions(fTarget);
+        assertEquals(1, fCoalescer.getLoadCount());
+        assertEquals(2, fCoalescer.getDeduplicatedCount());
+    }
+
+    @Test
+    public final void testSequentialLoadsNotShared()
+    {
+        fFinishLoads.countDown();
+
+        fCoalescer.getPatient(DIVISION, DUZ, DFN, RetrievalPlan.ALL, fTarget);
+        fCoalescer.getPatient(DIVISION, DUZ, DFN, RetrievalPlan.ALL, fTarget);
+
+        verify(fTarget, times(2)).getPatient(DFN, RetrievalPlan.ALL);
+        assertEquals(0, fCoalescer.getDeduplicatedCount());
+    }
+
+    @Test
+    public final void testNotSharedBetweenUsers() throws Exception
+    {
+        final Future<Patient> first = startLoad(DUZ, RetrievalPlan.ALL);
+        final Future<Patient> second = startLoad(OTHER_DUZ, RetrievalPlan.ALL);
+        fLoadsStarted.acquire(2);
+
+        fFinishLoads.countDown();
+
+        first.get();
+        second.get();
+        verify(fTarget, times(2)).getPatient(DFN, RetrievalPlan.ALL);
+        assertEquals(0, fCoalescer.getDeduplicatedCount());
+    }
+
+    /**
+     * Tests that a caller needing more data than the load in progress loads it itself.
+     */
+    @Test
+    public final void testLargerPlanNotShared() throws Exception
+    {
+        final Future<Patient> first = startLoad(DUZ, RetrievalPlan.REFERENCE_INFO);
+        fLoadsStarted.acquire();
+        final Future<Patient> second = startLoad(DUZ, RetrievalPlan.ALL);
+        fLoadsStarted.acquire();
+        // Shares the larger load.
+        final Future<Patient> third = startLoad(DUZ, RetrievalPlan.REFERENCE_INFO);
+        awaitDeduplicated(1);
+
+        fFinishLoads.countDown();
+
+        assertEquals(RetrievalPlan.REFERENCE_INFO, first.get().getRetrievedData());
+        assertEquals(RetrievalPlan.ALL, second.get().getRetrievedData());
+        assertEquals(RetrievalPlan.ALL, third.get().getRetrievedData());
+        assertEquals(2, fCoalescer.getLoadCount());
+    }
+
+    @Test
+    public final void testFailureShared() throws Exception
+    {
+        final NonTransientDataAccessResourceException failure =
+                new NonTransientDataAccessResourceException("VistA error");
+        doAnswer(new Answer<Patient>()
+            {
+                @Override
+                public Patient answer(final InvocationOnMock invocation) throws Exception
+                {
+                    fLoadsStarted.release();
+                    fFinishLoads.await();
+                    throw failure;
+                }
+            })
+            .when(fTarget).getPatient(DFN, RetrievalPlan.ALL);
+        final Future<Patient> first = startLoad(DUZ, RetrievalPlan.ALL);
+        fLoadsStarted.acquire();
+        final Future<Patient> second = startLoad(DUZ, RetrievalPlan.ALL);
+        awaitDeduplicated(1);
+
+        fFinishLoads.countDown();
+
+        for (final Future<Patient> future : ImmutableList.of(first, second))
+        {
+            try
+            {
+                future.get();
+                fail("should have thrown");
+            }
+            catch (final ExecutionException ex)
+            {
+                assertSame(failure, ex.getCause());
+            }
+        }
+        verify(fTarget, times(1)).getPatient(DFN, RetrievalPlan.ALL);
+    }
+
+    /**
+     * Tests that cancelling the caller performing a load does not fail the callers
+     * waiting for it.
+     */
+    @Test
+    public final void testLoadingCallerCancelled() throws Exception
+    {
+        final Future<Patient> first = startLoad(DUZ, RetrievalPlan.ALL);
+        fLoadsStarted.acquire();
+        final Future<Patient> second = startLoad(DUZ, RetrievalPlan.ALL);
+        awaitDeduplicated(1);
+
+        first.cancel(true);
+
+        // The waiting caller loads the patient itself.
+        fLoadsStarted.acquire();
+        assertEquals(0, fCoalescer.getDeduplicatedCount());
+        fFinishLoads.countDown();
+        assertEquals(DFN, second.get().getDfn());
+        verify(fTarget, times(2)).getPatient(DFN, RetrievalPlan.ALL);
+        assertEquals(2, fCoalescer.getLoadCount());
+    }
+
+    /**
+     * Tests that cancelling a waiting caller does not affect the load.
+     */
+    @Test
+    public final void testWaitingCallerCancelled() throws Exception
+    {
+        final Future<Patient> first = startLoad(DUZ, RetrievalPlan.ALL);
+        fLoadsStarted.acquire();
+        final Future<Patient> second = startLoad(DUZ, RetrievalPlan.ALL);
+        awaitDeduplicated(1);
+
+        second.cancel(true);
+        fFinishLoads.countDown();
+
+        assertEquals(DFN, first.get().getDfn());
+        verify(fTarget, times(1)).getPatient(DFN, RetrievalPlan.ALL);
+    }
+}
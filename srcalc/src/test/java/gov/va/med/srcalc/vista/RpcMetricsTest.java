@@ -0,0 +1,119 @@
+package gov.va.med.srcalc.vista;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Test;
+import org.springframework.dao.RecoverableDataAccessException;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests the {@link RpcMetrics} class.
+ */
+public class RpcMetricsTest
+{
+    private static final String DIVISION = "500";
+    
+    @Test
+    public final void testRecording()
+    {
+        final RpcMetrics metrics = new RpcMetrics();
+        metrics.recordConnection(DIVISION, RemoteProcedure.GET_PATIENT, 5L);
+        metrics.recordCall(DIVISION, RemoteProcedure.GET_PATIENT, 100L, 80L, 4L);
+        metrics.recordCall(DIVISION, RemoteProcedure.GET_PATIENT, 300L, 90L, 4L);
+        metrics.recordFailure(
+                DIVISION, RemoteProcedure.GET_PATIENT, new RecoverableDataAccessException("1"));
+        metrics.recordFailure(
+                DIVISION, RemoteProcedure.GET_PATIENT, new RecoverableDataAccessException("2"));
+        metrics.recordFailure(
+                DIVISION, RemoteProcedure.GET_PATIENT, new IllegalStateException());
+        
+        final List<RpcStatistics> statistics = metrics.getStatistics();
+        assertEquals(1, statistics.size());
+        final RpcStatistics patient = statistics.get(0);
+        assertEquals(DIVISION, patient.getDivision());
+        assertEquals(RemoteProcedure.GET_PATIENT, patient.getProcedure());
+        assertEquals(2L, patient.getSuccessCount());
+        assertEquals(3L, patient.getFailureCount());
+        assertEquals(
+                ImmutableMap.of(
+                        IllegalStateException.class.getName(), 1L,
+                        RecoverableDataAccessException.class.getName(), 2L),
+                patient.getFailuresByClass());
+        assertEquals(1L, patient.getConnectionMillis().getCount());
+        assertEquals(300L, patient.getCallMillis().getMax());
+        assertEquals(90L, patient.getResponseCharacters().getMax());
+        assertEquals(4L, patient.getResponseLines().getMedian());
+    }
+    
+    @Test
+    public final void testOrdering()
+    {
+        final RpcMetrics metrics = new RpcMetrics();
+        metrics.recordCall("600", RemoteProcedure.GET_PATIENT, 1L, 1L, 1L);
+        metrics.recordCall(DIVISION, RemoteProcedure.GET_LABS, 1L, 1L, 1L);
+        metrics.recordCall(DIVISION, RemoteProcedure.GET_PATIENT, 1L, 1L, 1L);
+        
+        final List<RpcStatistics> statistics = metrics.getStatistics();
+        assertEquals(3, statistics.size());
+        assertEquals(DIVISION, statistics.get(0).getDivision());
+        assertEquals(RemoteProcedure.GET_PATIENT, statistics.get(0).getProcedure());
+        assertEquals(DIVISION, statistics.get(1).getDivision());
+        assertEquals(RemoteProcedure.GET_LABS, statistics.get(1).getProcedure());
+        assertEquals("600", statistics.get(2).getDivision());
+    }
+    
+    @Test
+    public final void testReset()
+    {
+        final RpcMetrics metrics = new RpcMetrics();
+        final Date before = metrics.getCollectedSince();
+        metrics.recordCall(DIVISION, RemoteProcedure.GET_PATIENT, 1L, 1L, 1L);
+        metrics.reset();
+        assertTrue(metrics.getStatistics().isEmpty());
+        assertFalse(metrics.getCollectedSince().before(before));
+    }
+    
+    /**
+     * Verifies that the statistics can be read via JMX, i.e., that they map to open
+     * types.
+     */
+    @Test
+    public final void testMXBean() throws Exception
+    {
+        final RpcMetrics metrics = new RpcMetrics();
+        metrics.recordCall(DIVISION, RemoteProcedure.GET_PATIENT, 100L, 80L, 4L);
+        metrics.recordFailure(
+                DIVISION, RemoteProcedure.GET_PATIENT, new IllegalStateException());
+        
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("gov.va.med.srcalc:type=RpcMetricsTest");
+        server.registerMBean(metrics, name);
+        try
+        {
+            final CompositeData[] statistics =
+                    (CompositeData[])server.getAttribute(name, "Statistics");
+            assertEquals(1, statistics.length);
+            assertEquals(DIVISION, statistics[0].get("division"));
+            assertEquals(RemoteProcedure.GET_PATIENT.name(), statistics[0].get("procedure"));
+            assertEquals(1L, statistics[0].get("failureCount"));
+            final CompositeData callMillis = (CompositeData)statistics[0].get("callMillis");
+            assertEquals(100L, callMillis.get("max"));
+            
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertTrue(metrics.getStatistics().isEmpty());
+        }
+        finally
+        {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package gov.va.med.srcalc.vista;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
 import gov.va.med.srcalc.domain.*;
+import gov.va.med.srcalc.domain.calculation.RetrievalPlan;
 import gov.va.med.srcalc.domain.calculation.RetrievedValue;
+import gov.va.med.srcalc.domain.model.SampleModels;
 import gov.va.med.srcalc.vista.VistaPatientDao.SaveNoteCode;
 
 import java.util.ArrayList;
@@ -15,6 +21,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.login.LoginException;
 
@@ -22,8 +33,13 @@ import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.RecoverableDataAccessException;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * Tests the {@link RpcVistaPatientDao} class.
@@ -86,6 +102,29 @@ public class RpcVistaPatientDaoTest
             when(caller.doRetrieveLabsCall(
                     eq(RADIOLOGIST_DUZ), eq(String.valueOf(PATIENT_DFN)), anyListOf(String.class)))
                 .thenReturn("");
+            // Emulate the batched lab call using the single lab calls stubbed above
+            // and by callers.
+            when(caller.doRetrieveMultipleLabsCall(
+                    eq(RADIOLOGIST_DUZ),
+                    eq(String.valueOf(PATIENT_DFN)),
+                    Matchers.<List<List<String>>>any()))
+                .thenAnswer(new Answer<List<String>>()
+                {
+                    @Override
+                    public List<String> answer(final InvocationOnMock invocation)
+                            throws LoginException
+                    {
+                        final ArrayList<String> results = new ArrayList<>();
+                        for (final Object labNames : (List<?>)invocation.getArguments()[2])
+                        {
+                            @SuppressWarnings("unchecked")
+                            final List<String> typedLabNames = (List<String>)labNames;
+                            results.add(caller.doRetrieveLabsCall(
+                                    RADIOLOGIST_DUZ, String.valueOf(PATIENT_DFN), typedLabNames));
+                        }
+                        return results;
+                    }
+                });
             // Setup the necessary actions for getting patient data.
             when(caller.doRpc(RADIOLOGIST_DUZ, RemoteProcedure.GET_PATIENT, String.valueOf(PATIENT_DFN)))
                 .thenReturn(Arrays.asList(PATIENT_RPC_RETURN));
@@ -367,4 +406,345 @@ public class RpcVistaPatientDaoTest
         // This would fail to retrieve DNR notes and the notes would be empty.
         assertEquals(0, patient.getDnrNotes().size());
     }
+    
+    @Test
+    public final void testConcurrentRetrieval() throws Exception
+    {
+        final VistaProcedureCaller caller = mockVistaProcedureCaller();
+        when(caller.doRetrieveLabsCall(
+                RADIOLOGIST_DUZ, 
+                String.valueOf(PATIENT_DFN),
+                VistaLabs.ALBUMIN.getPossibleLabNames()))
+            .thenReturn(ALBUMIN_SUCCESS);
+        when(caller.doRpc(
+                RADIOLOGIST_DUZ,
+                RemoteProcedure.GET_HEALTH_FACTORS,
+                String.valueOf(PATIENT_DFN)))
+            .thenReturn(VALID_HEALTH_FACTORS);
+        final DivisionExecutors executors = new DivisionExecutors(4);
+        try
+        {
+            final RpcVistaPatientDao dao = new RpcVistaPatientDao(
+                    caller, RADIOLOGIST_DUZ, executors.forDivision("500"), 10000L);
+            final Patient patient = dao.getPatient(PATIENT_DFN);
+            assertEquals("TESTPATIENT", patient.getName());
+            assertEquals(1, patient.getLabs().size());
+            assertEquals(3, patient.getHealthFactors().size());
+        }
+        finally
+        {
+            executors.shutdown();
+        }
+    }
+    
+    @Test
+    public final void testRetrievalTimeout() throws Exception
+    {
+        final VistaProcedureCaller caller = mockVistaProcedureCaller();
+        when(caller.doRetrieveLabsCall(
+                RADIOLOGIST_DUZ, 
+                String.valueOf(PATIENT_DFN),
+                VistaLabs.ALBUMIN.getPossibleLabNames()))
+            .thenReturn(ALBUMIN_SUCCESS);
+        // Simulate a very slow health factors call.
+        when(caller.doRpc(
+                RADIOLOGIST_DUZ,
+                RemoteProcedure.GET_HEALTH_FACTORS,
+                String.valueOf(PATIENT_DFN)))
+            .thenAnswer(new Answer<List<String>>()
+            {
+                @Override
+                public List<String> answer(final InvocationOnMock invocation)
+                        throws InterruptedException
+                {
+                    Thread.sleep(5000L);
+                    return VALID_HEALTH_FACTORS;
+                }
+            });
+        final DivisionExecutors executors = new DivisionExecutors(4);
+        try
+        {
+            final RpcVistaPatientDao dao = new RpcVistaPatientDao(
+                    caller, RADIOLOGIST_DUZ, executors.forDivision("500"), 500L);
+            final long start = System.currentTimeMillis();
+            final Patient patient = dao.getPatient(PATIENT_DFN);
+            assertTrue(System.currentTimeMillis() - start < 5000L);
+            // Everything but the health factors is still present.
+            assertEquals("TESTPATIENT", patient.getName());
+            assertEquals(1, patient.getLabs().size());
+            assertEquals(0, patient.getHealthFactors().size());
+        }
+        finally
+        {
+            executors.shutdown();
+        }
+    }
+    
+    @Test(expected = RecoverableDataAccessException.class)
+    public final void testDemographicsTimeout() throws Exception
+    {
+        final VistaProcedureCaller caller = mockVistaProcedureCaller();
+        when(caller.doRpc(RADIOLOGIST_DUZ, RemoteProcedure.GET_PATIENT, String.valueOf(PATIENT_DFN)))
+            .thenAnswer(new Answer<List<String>>()
+            {
+                @Override
+                public List<String> answer(final InvocationOnMock invocation)
+                        throws InterruptedException
+                {
+                    Thread.sleep(5000L);
+                    return Arrays.asList(PATIENT_RPC_RETURN);
+                }
+            });
+        final DivisionExecutors executors = new DivisionExecutors(4);
+        try
+        {
+            new RpcVistaPatientDao(caller, RADIOLOGIST_DUZ, executors.forDivision("500"), 200L)
+                .getPatient(PATIENT_DFN);
+        }
+        finally
+        {
+            executors.shutdown();
+        }
+    }
+    
+    @Test
+    public final void testBatchedLabs() throws Exception
+    {
+        final VistaProcedureCaller mockCaller = mockVistaProcedureCaller();
+        when(mockCaller.doRetrieveLabsCall(
+                RADIOLOGIST_DUZ, 
+                String.valueOf(PATIENT_DFN),
+                VistaLabs.ALBUMIN.getPossibleLabNames()))
+            .thenReturn(ALBUMIN_SUCCESS);
+        final CountingVistaProcedureCaller caller =
+                new CountingVistaProcedureCaller(mockCaller);
+        final RpcVistaPatientDao dao = new RpcVistaPatientDao(caller, RADIOLOGIST_DUZ);
+        
+        final Patient patient = dao.getPatient(PATIENT_DFN);
+        assertEquals(1, patient.getLabs().size());
+        // Demographics, vitals, one per lab batch, health factors, medications, ADL and
+        // DNR notes. (No weight 6 months ago since there is no current weight.)
+        final int labBatches = (VistaLabs.values().length + RpcVistaPatientDao.LAB_BATCH_SIZE - 1)
+                / RpcVistaPatientDao.LAB_BATCH_SIZE;
+        assertEquals(6 + labBatches, caller.getCalls());
+        // The lab calls still execute one RPC per lab.
+        assertEquals(6 + VistaLabs.values().length, caller.getExecutedRpcs());
+    }
+    
+    @Test
+    public final void testLabBatchTimeout() throws Exception
+    {
+        final VistaProcedureCaller caller = mockVistaProcedureCaller();
+        // Simulate a very slow call for a lab in the first batch.
+        when(caller.doRetrieveLabsCall(
+                RADIOLOGIST_DUZ, 
+                String.valueOf(PATIENT_DFN),
+                VistaLabs.ALBUMIN.getPossibleLabNames()))
+            .thenAnswer(new Answer<String>()
+            {
+                @Override
+                public String answer(final InvocationOnMock invocation)
+                        throws InterruptedException
+                {
+                    Thread.sleep(5000L);
+                    return ALBUMIN_SUCCESS;
+                }
+            });
+        when(caller.doRetrieveLabsCall(
+                RADIOLOGIST_DUZ, 
+                String.valueOf(PATIENT_DFN),
+                VistaLabs.WBC.getPossibleLabNames()))
+            .thenReturn("WBC^8.0^02/02/2015@14:35:12^x1000/mm^3");
+        final DivisionExecutors executors = new DivisionExecutors(16);
+        try
+        {
+            final RpcVistaPatientDao dao = new RpcVistaPatientDao(
+                    caller, RADIOLOGIST_DUZ, executors.forDivision("500"), 1000L);
+            final long start = System.currentTimeMillis();
+            final Patient patient = dao.getPatient(PATIENT_DFN);
+            assertTrue(System.currentTimeMillis() - start < 5000L);
+            // The other batches' labs are kept, and only the slow batch's labs are
+            // retrieved again next time.
+            assertEquals(ImmutableSet.of(VistaLabs.WBC), patient.getLabs().keySet());
+            final List<VistaLabs> slowBatch = Arrays.asList(VistaLabs.values())
+                    .subList(0, RpcVistaPatientDao.LAB_BATCH_SIZE);
+            assertEquals(
+                    RetrievalPlan.ALL.withoutLabs(slowBatch),
+                    patient.getRetrievedData());
+        }
+        finally
+        {
+            executors.shutdown();
+        }
+    }
+    
+    @Test
+    public final void testSelectiveRetrieval() throws Exception
+    {
+        final VistaProcedureCaller mockCaller = mockVistaProcedureCaller();
+        when(mockCaller.doRetrieveLabsCall(
+                RADIOLOGIST_DUZ, 
+                String.valueOf(PATIENT_DFN),
+                VistaLabs.WBC.getPossibleLabNames()))
+            .thenReturn("WBC^8.0^02/02/2015@14:35:12^x1000/mm^3");
+        final CountingVistaProcedureCaller caller =
+                new CountingVistaProcedureCaller(mockCaller);
+        final RpcVistaPatientDao dao = new RpcVistaPatientDao(caller, RADIOLOGIST_DUZ);
+        final RetrievalPlan plan =
+                RetrievalPlan.forVariables(ImmutableList.of(SampleModels.wbcVariable()));
+        
+        final Patient patient = dao.getPatient(PATIENT_DFN, plan);
+        
+        assertEquals(ImmutableSet.of(VistaLabs.WBC), patient.getLabs().keySet());
+        assertEquals(plan, patient.getRetrievedData());
+        // Demographics, labs, health factors and medications.
+        assertEquals(4, caller.getCalls());
+        assertEquals(4, caller.getExecutedRpcs());
+        verify(mockCaller).doRetrieveMultipleLabsCall(
+                RADIOLOGIST_DUZ,
+                String.valueOf(PATIENT_DFN),
+                ImmutableList.of(VistaLabs.WBC.getPossibleLabNames()));
+        verify(mockCaller, never()).doRpc(
+                RADIOLOGIST_DUZ, RemoteProcedure.GET_RECENT_VITALS, String.valueOf(PATIENT_DFN));
+    }
+    
+    @Test
+    public final void testRetrieveMissingData() throws Exception
+    {
+        final CountingVistaProcedureCaller caller =
+                new CountingVistaProcedureCaller(mockVistaProcedureCaller());
+        final RpcVistaPatientDao dao = new RpcVistaPatientDao(caller, RADIOLOGIST_DUZ);
+        final Patient patient = dao.getPatient(PATIENT_DFN, RetrievalPlan.REFERENCE_INFO);
+        assertEquals(3, caller.getCalls());
+        final RetrievalPlan plan =
+                RetrievalPlan.forVariables(ImmutableList.of(SampleModels.wbcVariable()));
+        
+        dao.retrievePatientData(patient, plan);
+        // Only the labs were missing.
+        assertEquals(4, caller.getCalls());
+        assertEquals(plan, patient.getRetrievedData());
+        
+        // Nothing is missing now.
+        dao.retrievePatientData(patient, plan);
+        assertEquals(4, caller.getCalls());
+    }
+    
+    /**
+     * Verifies that optional data omitted due to a transient failure (e.g., an open
+     * circuit breaker) is retrieved again next time.
+     */
+    @Test
+    public final void testTransientFailureRetriedLater() throws Exception
+    {
+        final VistaProcedureCaller caller = mockVistaProcedureCaller();
+        when(caller.doRpc(
+                RADIOLOGIST_DUZ,
+                RemoteProcedure.GET_HEALTH_FACTORS,
+                String.valueOf(PATIENT_DFN)))
+            .thenThrow(new RecoverableDataAccessException("VistA is failing"))
+            .thenReturn(VALID_HEALTH_FACTORS);
+        final RpcVistaPatientDao dao = new RpcVistaPatientDao(caller, RADIOLOGIST_DUZ);
+        
+        final Patient patient = dao.getPatient(PATIENT_DFN, RetrievalPlan.REFERENCE_INFO);
+        assertTrue(patient.getHealthFactors().isEmpty());
+        assertEquals(
+                ImmutableSet.of(RetrievalPlan.Section.ACTIVE_MEDICATIONS),
+                patient.getRetrievedData().getSections());
+        
+        dao.retrievePatientData(patient, RetrievalPlan.REFERENCE_INFO);
+        assertEquals(3, patient.getHealthFactors().size());
+        assertEquals(RetrievalPlan.REFERENCE_INFO, patient.getRetrievedData());
+    }
+    
+    /**
+     * Verifies that sections omitted because of the deadline are retrieved again next
+     * time instead of being considered retrieved.
+     */
+    @Test
+    public final void testTimedOutSectionRetriedLater() throws Exception
+    {
+        final Answer<List<String>> slowAnswer = new Answer<List<String>>()
+        {
+            @Override
+            public List<String> answer(final InvocationOnMock invocation)
+                    throws InterruptedException
+            {
+                Thread.sleep(5000L);
+                return ImmutableList.of();
+            }
+        };
+        final VistaProcedureCaller caller = mockVistaProcedureCaller();
+        when(caller.doRpc(
+                RADIOLOGIST_DUZ,
+                RemoteProcedure.GET_HEALTH_FACTORS,
+                String.valueOf(PATIENT_DFN)))
+            .thenAnswer(slowAnswer)
+            .thenReturn(VALID_HEALTH_FACTORS);
+        when(caller.doRpc(
+                RADIOLOGIST_DUZ, RemoteProcedure.GET_RECENT_VITALS, String.valueOf(PATIENT_DFN)))
+            .thenAnswer(slowAnswer)
+            .thenReturn(new ArrayList<String>());
+        final DivisionExecutors executors = new DivisionExecutors(8);
+        try
+        {
+            final RpcVistaPatientDao dao = new RpcVistaPatientDao(
+                    caller, RADIOLOGIST_DUZ, executors.forDivision("500"), 500L);
+            final Patient patient = dao.getPatient(PATIENT_DFN);
+            assertEquals(0, patient.getHealthFactors().size());
+            assertEquals(
+                    RetrievalPlan.ALL
+                        .without(RetrievalPlan.Section.VITALS)
+                        .without(RetrievalPlan.Section.HEALTH_FACTORS),
+                    patient.getRetrievedData());
+            
+            dao.retrievePatientData(patient, RetrievalPlan.ALL);
+            assertEquals(3, patient.getHealthFactors().size());
+            assertEquals(RetrievalPlan.ALL, patient.getRetrievedData());
+        }
+        finally
+        {
+            executors.shutdown();
+        }
+    }
+    
+    @Test
+    public final void testSaturatedExecutor() throws Exception
+    {
+        final VistaProcedureCaller caller = mockVistaProcedureCaller();
+        // One thread and room for two waiting calls: the demographics and vitals calls
+        // are queued but the labs call is rejected.
+        final DivisionExecutors executors = new DivisionExecutors(1, 2);
+        final ExecutorService executor = executors.forDivision("500");
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(new Callable<Boolean>()
+        {
+            @Override
+            public Boolean call() throws InterruptedException
+            {
+                return release.await(10L, TimeUnit.SECONDS);
+            }
+        });
+        try
+        {
+            new RpcVistaPatientDao(caller, RADIOLOGIST_DUZ, executor, 10000L)
+                .getPatient(PATIENT_DFN);
+            fail("Expected the saturated executor to fail fast.");
+        }
+        catch (final RecoverableDataAccessException ex)
+        {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        finally
+        {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(10L, TimeUnit.SECONDS);
+            executors.shutdown();
+        }
+        // The calls submitted before the rejection were cancelled.
+        verify(caller, never()).doRpc(
+                RADIOLOGIST_DUZ, RemoteProcedure.GET_PATIENT, String.valueOf(PATIENT_DFN));
+        verify(caller, never()).doRpc(
+                RADIOLOGIST_DUZ, RemoteProcedure.GET_RECENT_VITALS, String.valueOf(PATIENT_DFN));
+    }
 }
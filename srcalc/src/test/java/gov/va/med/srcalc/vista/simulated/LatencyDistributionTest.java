@@ -0,0 +1,47 @@
+package gov.va.med.srcalc.vista.simulated;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LatencyDistribution}.
+ */
+public class LatencyDistributionTest
+{
+    @Test
+    public final void testConstant()
+    {
+        final LatencyDistribution d = new LatencyDistribution(25L, 25L);
+        final Random random = new Random(1L);
+        for (int i = 0; i < 100; ++i)
+        {
+            assertEquals(25L, d.sample(random));
+        }
+    }
+    
+    @Test
+    public final void testPercentiles()
+    {
+        final LatencyDistribution d = new LatencyDistribution(100L, 400L);
+        final Random random = new Random(1L);
+        final long[] samples = new long[10000];
+        for (int i = 0; i < samples.length; ++i)
+        {
+            samples[i] = d.sample(random);
+        }
+        Arrays.sort(samples);
+        assertEquals(100L, samples[samples.length / 2], 5.0);
+        assertEquals(400L, samples[samples.length * 95 / 100], 25.0);
+        assertTrue(samples[0] >= 0L);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public final void testInvalidPercentile()
+    {
+        new LatencyDistribution(100L, 50L);
+    }
+}
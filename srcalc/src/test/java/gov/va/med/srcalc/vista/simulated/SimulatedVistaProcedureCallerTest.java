@@ -0,0 +1,195 @@
+package gov.va.med.srcalc.vista.simulated;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+
+import gov.va.med.srcalc.domain.Patient;
+import gov.va.med.srcalc.vista.RemoteProcedure;
+import gov.va.med.srcalc.vista.RpcMetrics;
+import gov.va.med.srcalc.vista.RpcStatistics;
+import gov.va.med.srcalc.vista.RpcTimeouts;
+import gov.va.med.srcalc.vista.RpcVistaPatientDao;
+import gov.va.med.srcalc.vista.VistaPatientDao.SaveNoteCode;
+
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@link SimulatedVistaProcedureCaller}, mainly that {@link RpcVistaPatientDao} can
+ * parse its responses.
+ */
+public class SimulatedVistaProcedureCallerTest
+{
+    private static final String DIVISION = "500";
+    private static final String DUZ = "11716";
+    private static final int POPULATION_SIZE = 50;
+    
+    private static SimulationSettings settings(
+            final long latencyMillis, final double errorRate, final int connections)
+    {
+        return new SimulationSettings(
+                new LatencyDistribution(latencyMillis, latencyMillis),
+                ImmutableMap.<RemoteProcedure, LatencyDistribution>of(),
+                errorRate,
+                connections,
+                0L,
+                POPULATION_SIZE);
+    }
+    
+    private static SimulatedVistaProcedureCaller makeCaller(final SimulationSettings settings)
+    {
+        return new SimulatedVistaProcedureCaller(
+                DIVISION, settings, new SyntheticPatients(1L, POPULATION_SIZE));
+    }
+    
+    @Test
+    public final void testPopulationParses()
+    {
+        final RpcVistaPatientDao dao =
+                new RpcVistaPatientDao(makeCaller(settings(0L, 0.0, 4)), DUZ);
+        int withVitals = 0, withPastWeight = 0, withLabs = 0, withMeds = 0, withNotes = 0;
+        for (int dfn = 1; dfn <= POPULATION_SIZE; ++dfn)
+        {
+            final Patient patient = dao.getPatient(dfn);
+            assertTrue(patient.getName().startsWith("ZZ"));
+            assertNotEquals(Patient.Gender.Unknown, patient.getGender());
+            if (patient.getHeight() != null)
+            {
+                ++withVitals;
+                assertNotNull(patient.getWeight());
+                assertNotNull(patient.getBmi());
+            }
+            withPastWeight += (patient.getWeight6MonthsAgo() != null) ? 1 : 0;
+            withLabs += patient.getLabs().isEmpty() ? 0 : 1;
+            withMeds += patient.getActiveMedications().isEmpty() ? 0 : 1;
+            withNotes += patient.getAdlNotes().size() + patient.getDnrNotes().size();
+        }
+        // Each kind of data is present for some patients, so it must have parsed.
+        assertTrue(withVitals > 0);
+        assertTrue(withPastWeight > 0);
+        assertTrue(withLabs > 0);
+        assertTrue(withMeds > 0);
+        assertTrue(withNotes > 0);
+    }
+    
+    @Test
+    public final void testPatientConsistent()
+    {
+        final RpcVistaPatientDao dao =
+                new RpcVistaPatientDao(makeCaller(settings(0L, 0.0, 4)), DUZ);
+        final Patient first = dao.getPatient(7);
+        final Patient second = dao.getPatient(7);
+        assertEquals(first.getName(), second.getName());
+        assertEquals(first.getAge(), second.getAge());
+        assertEquals(first.getGender(), second.getGender());
+        assertEquals(first.getLabs().keySet(), second.getLabs().keySet());
+        assertEquals(first.getActiveMedications(), second.getActiveMedications());
+    }
+    
+    @Test(expected = DataAccessException.class)
+    public final void testUnknownPatient()
+    {
+        new RpcVistaPatientDao(makeCaller(settings(0L, 0.0, 4)), DUZ)
+                .getPatient(POPULATION_SIZE + 1);
+    }
+    
+    @Test
+    public final void testSaves() throws Exception
+    {
+        final SimulatedVistaProcedureCaller caller = makeCaller(settings(0L, 0.0, 4));
+        assertEquals(
+                SaveNoteCode.SUCCESS,
+                new RpcVistaPatientDao(caller, DUZ).saveRiskCalculationNote(1, "SIG", "Body"));
+        assertEquals(
+                RemoteProcedure.RISK_SAVED_RETURN,
+                caller.doSaveRiskCalculationCall(DUZ, "1", "", "01/01/2016@1200", null));
+    }
+    
+    @Test(expected = RecoverableDataAccessException.class)
+    public final void testErrorRate() throws Exception
+    {
+        makeCaller(settings(0L, 1.0, 4)).doRpc(DUZ, RemoteProcedure.GET_PATIENT, "1");
+    }
+    
+    @Test(expected = RecoverableDataAccessException.class)
+    public final void testTimeout() throws Exception
+    {
+        new SimulatedVistaProcedureCaller(
+                DIVISION,
+                settings(50L, 0.0, 4),
+                new SyntheticPatients(1L, POPULATION_SIZE),
+                new RpcMetrics(),
+                new RpcTimeouts(
+                        1000L, ImmutableMap.of(RemoteProcedure.GET_PATIENT, 10L)))
+                .doRpc(DUZ, RemoteProcedure.GET_PATIENT, "1");
+    }
+    
+    @Test
+    public final void testRecordsMetrics() throws Exception
+    {
+        final RpcMetrics metrics = new RpcMetrics();
+        new SimulatedVistaProcedureCaller(
+                DIVISION, settings(0L, 0.0, 4), new SyntheticPatients(1L, POPULATION_SIZE), metrics)
+                .doRpc(DUZ, RemoteProcedure.GET_PATIENT, "1");
+        try
+        {
+            new SimulatedVistaProcedureCaller(
+                    DIVISION, settings(0L, 1.0, 4), new SyntheticPatients(1L, POPULATION_SIZE), metrics)
+                    .doRpc(DUZ, RemoteProcedure.GET_PATIENT, "1");
+            fail("should have thrown");
+        }
+        catch (final RecoverableDataAccessException ex)
+        {
+            // expected
+        }
+        
+        final RpcStatistics statistics = metrics.getStatistics().get(0);
+        assertEquals(DIVISION, statistics.getDivision());
+        assertEquals(RemoteProcedure.GET_PATIENT, statistics.getProcedure());
+        assertEquals(1L, statistics.getSuccessCount());
+        assertEquals(1L, statistics.getFailureCount());
+        assertTrue(statistics.getResponseCharacters().getMax() > 0L);
+    }
+    
+    @Test
+    public final void testConnectionLimit() throws Exception
+    {
+        final SimulatedVistaProcedureCaller caller = makeCaller(settings(2000L, 0.0, 1));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            // Occupy the only connection.
+            final Future<?> first = executor.submit(new Callable<Object>()
+            {
+                @Override
+                public Object call() throws Exception
+                {
+                    return caller.doRpc(DUZ, RemoteProcedure.GET_PATIENT, "1");
+                }
+            });
+            while (caller.getAvailableConnections() > 0)
+            {
+                Thread.sleep(10L);
+            }
+            
+            try
+            {
+                caller.doRpc(DUZ, RemoteProcedure.GET_PATIENT, "2");
+                fail("should have thrown");
+            }
+            catch (final RecoverableDataAccessException ex)
+            {
+                assertTrue(ex.getMessage().contains("connection"));
+            }
+            first.cancel(true);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -106,6 +106,11 @@ public class MockVistaLinkConnection implements VistaLinkConnection
      */
     public final static String ALBUMIN_LAB_DATA = "";
     
+    /**
+     * Lab names for which {@link RemoteProcedure#GET_LABS} fails with a VistALink error.
+     */
+    public final static List<String> FAILING_LAB_NAMES = ImmutableList.of("FAILING LAB");
+    
     private static final Logger LOGGER =
             LoggerFactory.getLogger(MockVistaLinkConnection.class);
 
@@ -333,6 +338,10 @@ public class MockVistaLinkConnection implements VistaLinkConnection
             {
                 return makeStringResponse(SGOT_LAB_DATA);
             }
+            else if (request.getParams().getParam(2).equals(FAILING_LAB_NAMES))
+            {
+                throw new VistaLinkFaultException("Simulated lab failure");
+            }
             else
             {
                 return makeStringResponse("");
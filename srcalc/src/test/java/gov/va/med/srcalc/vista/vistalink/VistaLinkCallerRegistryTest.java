@@ -0,0 +1,89 @@
+package gov.va.med.srcalc.vista.vistalink;
+
+import static org.junit.Assert.*;
+
+import gov.va.med.srcalc.vista.PatientLoadCoalescer;
+import gov.va.med.srcalc.vista.VistaClientMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+/**
+ * Tests the {@link VistaLinkCallerRegistry} class.
+ */
+public class VistaLinkCallerRegistryTest
+{
+    @Before
+    public void setUp() throws Exception
+    {
+        VistaLinkUtilTest.setupJndiForVistaLink();
+    }
+    
+    @Test
+    public final void testCallerShared()
+    {
+        final VistaLinkCallerRegistry registry = new VistaLinkCallerRegistry();
+        
+        final VistaLinkProcedureCaller first =
+                registry.getCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        final VistaLinkProcedureCaller second =
+                registry.getCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        
+        assertSame(first, second);
+        assertEquals(VistaLinkUtilTest.SUPPORTED_DIVISON, first.getDivision());
+        assertEquals(1, registry.getCachedDivisionCount());
+        assertEquals(1, registry.getMissCount());
+        assertEquals(1, registry.getHitCount());
+    }
+    
+    @Test
+    public final void testInvalidate()
+    {
+        final VistaLinkCallerRegistry registry = new VistaLinkCallerRegistry();
+        final VistaLinkProcedureCaller first =
+                registry.getCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        
+        registry.invalidate(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        assertEquals(0, registry.getCachedDivisionCount());
+        assertEquals(1, registry.getInvalidationCount());
+        
+        final VistaLinkProcedureCaller second =
+                registry.getCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        assertNotSame(first, second);
+        assertEquals(2, registry.getMissCount());
+        
+        // A stale caller must not invalidate its replacement.
+        registry.invalidate(first);
+        assertSame(second, registry.getCaller(VistaLinkUtilTest.SUPPORTED_DIVISON));
+        assertEquals(1, registry.getInvalidationCount());
+        
+        registry.invalidateAll();
+        assertEquals(0, registry.getCachedDivisionCount());
+        assertEquals(2, registry.getInvalidationCount());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public final void testUnknownDivision()
+    {
+        new VistaLinkCallerRegistry().getCaller("600");
+    }
+    
+    @Test
+    public final void testClientMetrics()
+    {
+        final VistaLinkCallerRegistry registry = new VistaLinkCallerRegistry();
+        final VistaClientMetrics metrics =
+                new VistaClientMetrics(new PatientLoadCoalescer(), Optional.of(registry));
+        
+        registry.getCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        registry.getCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        registry.invalidate(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        
+        assertEquals(0, metrics.getCachedCallerDivisionCount());
+        assertEquals(1, metrics.getCallerHitCount());
+        assertEquals(1, metrics.getCallerMissCount());
+        assertEquals(1, metrics.getCallerInvalidationCount());
+    }
+}
@@ -10,11 +10,14 @@ import javax.security.auth.login.LoginException;
 
 import gov.va.med.srcalc.domain.VistaLabs;
 import gov.va.med.srcalc.vista.RemoteProcedure;
+import gov.va.med.srcalc.vista.RpcMetrics;
+import gov.va.med.srcalc.vista.RpcStatistics;
 import gov.va.med.srcalc.vista.vistalink.VistaLinkProcedureCaller;
 import gov.va.med.vistalink.adapter.cci.VistaLinkDuzConnectionSpec;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.dao.RecoverableDataAccessException;
 
 /**
  * Tests the {@link VistaLinkProcedureCaller} class.
@@ -99,6 +102,56 @@ public class VistaLinkProcedureCallerTest
         assertEquals(MockVistaLinkConnection.SGOT_LAB_DATA, result);
     }
     
+    @Test
+    public final void testDoRetrieveMultipleLabsCall() throws Exception
+    {
+        final VistaLinkProcedureCaller caller =
+                new VistaLinkProcedureCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        final List<String> results = caller.doRetrieveMultipleLabsCall(
+                MockVistaLinkConnection.RADIOLOGIST_DUZ,
+                MockVistaLinkConnection.PATIENT_DFN,
+                Arrays.asList(
+                        VistaLabs.SGOT.getPossibleLabNames(),
+                        VistaLabs.ALBUMIN.getPossibleLabNames()));
+        
+        assertEquals(
+                Arrays.asList(
+                        MockVistaLinkConnection.SGOT_LAB_DATA,
+                        MockVistaLinkConnection.ALBUMIN_LAB_DATA),
+                results);
+    }
+    
+    /**
+     * Verifies that one failing lab does not cost the others.
+     */
+    @Test
+    public final void testDoRetrieveMultipleLabsCallPartialFailure() throws Exception
+    {
+        final VistaLinkProcedureCaller caller =
+                new VistaLinkProcedureCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        final List<String> results = caller.doRetrieveMultipleLabsCall(
+                MockVistaLinkConnection.RADIOLOGIST_DUZ,
+                MockVistaLinkConnection.PATIENT_DFN,
+                Arrays.asList(
+                        MockVistaLinkConnection.FAILING_LAB_NAMES,
+                        VistaLabs.SGOT.getPossibleLabNames()));
+        
+        assertEquals(Arrays.asList("", MockVistaLinkConnection.SGOT_LAB_DATA), results);
+    }
+    
+    @Test(expected = RecoverableDataAccessException.class)
+    public final void testDoRetrieveMultipleLabsCallTotalFailure() throws Exception
+    {
+        final VistaLinkProcedureCaller caller =
+                new VistaLinkProcedureCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        caller.doRetrieveMultipleLabsCall(
+                MockVistaLinkConnection.RADIOLOGIST_DUZ,
+                MockVistaLinkConnection.PATIENT_DFN,
+                Arrays.asList(
+                        MockVistaLinkConnection.FAILING_LAB_NAMES,
+                        MockVistaLinkConnection.FAILING_LAB_NAMES));
+    }
+    
     @Test
     public final void testDoRetrieveLabsCallAlbumin() throws Exception
     {
@@ -157,5 +210,52 @@ public class VistaLinkProcedureCallerTest
         
         caller.doRpc(MockVistaLinkConnection.DISABLED_DUZ, RemoteProcedure.GET_USER_INFO);
     }
-    
+
+    /**
+     * Verifies that the caller records each call, and each failure, in its registry's
+     * metrics.
+     */
+    @Test
+    public final void testRecordsMetrics() throws Exception
+    {
+        final VistaLinkCallerRegistry registry = new VistaLinkCallerRegistry();
+        final VistaLinkProcedureCaller caller =
+                registry.getCaller(VistaLinkUtilTest.SUPPORTED_DIVISON);
+        caller.doRetrieveMultipleLabsCall(
+                MockVistaLinkConnection.RADIOLOGIST_DUZ,
+                MockVistaLinkConnection.PATIENT_DFN,
+                Arrays.asList(
+                        VistaLabs.SGOT.getPossibleLabNames(),
+                        VistaLabs.ALBUMIN.getPossibleLabNames()));
+        try
+        {
+            caller.doRpc("12222", RemoteProcedure.GET_USER_PERSON_CLASSES);
+            fail("should have thrown");
+        }
+        catch (final LoginException ex)
+        {
+            // expected
+        }
+
+        final RpcMetrics metrics = registry.getRpcMetrics();
+        final List<RpcStatistics> statistics = metrics.getStatistics();
+        assertEquals(2, statistics.size());
+        // Sorted by procedure declaration order.
+        final RpcStatistics failed = statistics.get(0);
+        assertEquals(RemoteProcedure.GET_USER_PERSON_CLASSES, failed.getProcedure());
+        assertEquals(0L, failed.getSuccessCount());
+        assertEquals(1L, failed.getFailureCount());
+        final RpcStatistics labs = statistics.get(1);
+        assertEquals(VistaLinkUtilTest.SUPPORTED_DIVISON, labs.getDivision());
+        assertEquals(RemoteProcedure.GET_LABS, labs.getProcedure());
+        // Both calls share one connection.
+        assertEquals(1L, labs.getConnectionMillis().getCount());
+        assertEquals(2L, labs.getSuccessCount());
+        assertEquals(0L, labs.getFailureCount());
+        assertEquals(
+                Math.max(
+                        MockVistaLinkConnection.SGOT_LAB_DATA.length(),
+                        MockVistaLinkConnection.ALBUMIN_LAB_DATA.length()),
+                labs.getResponseCharacters().getMax());
+    }
 }
@@ -0,0 +1,58 @@
+package gov.va.med.srcalc.web;
+
+import static org.junit.Assert.*;
+
+import javax.naming.NamingException;
+
+import gov.va.med.srcalc.security.SimulatedVistaDaoFactory;
+import gov.va.med.srcalc.vista.DivisionGuards;
+import gov.va.med.srcalc.vista.VistaDaoFactory;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.jndi.SimpleNamingContextBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+/**
+ * Tests the WebApplicationContext with the "simulated-vista" profile.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(
+        "file:src/main/webapp/WEB-INF/applicationContext.xml")
+@ActiveProfiles("simulated-vista")
+public class SimulatedVistaWebConfigIT
+{
+    @Autowired
+    VistaDaoFactory fVistaDaoFactory;
+
+    @Autowired
+    DivisionGuards fDivisionGuards;
+
+    @BeforeClass
+    public static void setupJndi() throws NamingException
+    {
+        final SimpleNamingContextBuilder builder =
+                SimpleNamingContextBuilder.emptyActivatedContextBuilder();
+        final JDBCDataSource dataSource = new JDBCDataSource();
+        dataSource.setUrl("jdbc:hsqldb:mem:srcalctest");
+        builder.bind("java:comp/env/jdbc/srcalcDB", dataSource);
+    }
+
+    @Test
+    public void testSimulatedVista()
+    {
+        assertTrue(fVistaDaoFactory instanceof SimulatedVistaDaoFactory);
+        assertTrue(fVistaDaoFactory.isDivisionKnown("500"));
+        // Configured like the real VistA.
+        assertSame(
+                fDivisionGuards,
+                ((SimulatedVistaDaoFactory)fVistaDaoFactory).getDivisionGuards());
+    }
+}
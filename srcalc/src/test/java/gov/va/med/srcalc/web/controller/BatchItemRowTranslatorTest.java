@@ -0,0 +1,51 @@
+package gov.va.med.srcalc.web.controller;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import gov.va.med.srcalc.service.BatchCalculationItem;
+import gov.va.med.srcalc.util.csv.CsvReader;
+import gov.va.med.srcalc.util.csv.TabularParseResult;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link BatchItemRowTranslator} class.
+ */
+public class BatchItemRowTranslatorTest
+{
+    private static TabularParseResult<BatchCalculationItem> parse(final String csv)
+    {
+        return new CsvReader<>(new BatchItemRowTranslator())
+                .readObjects(new StringReader(csv));
+    }
+
+    @Test
+    public final void testValid()
+    {
+        final TabularParseResult<BatchCalculationItem> result = parse(
+                "DFN,Specialty,CPT\r\n" +
+                "1,Thoracic,10000\r\n" +
+                "22,Cardiac,\r\n");
+
+        assertFalse(result.hasErrors());
+        assertEquals(
+                Arrays.asList(
+                        new BatchCalculationItem(1, "Thoracic", "10000"),
+                        new BatchCalculationItem(22, "Cardiac", "")),
+                result.getRowObjects());
+    }
+
+    @Test
+    public final void testInvalid()
+    {
+        final TabularParseResult<BatchCalculationItem> result = parse(
+                "abc,Thoracic,10000\r\n" +
+                "5,,10000\r\n");
+
+        assertEquals(2, result.getErrors().size());
+        assertEquals(Arrays.asList(null, null), result.getRowObjects());
+    }
+}
@@ -1,5 +1,6 @@
 package gov.va.med.srcalc.web.controller;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -79,9 +80,12 @@ public class CalculationControllerIT extends IntegrationTest
     @Test
     public void testStartNewCalculationWithDfn() throws Exception
     {
-        fMockMvc.perform(get("/newCalc")
-                .param("patientDfn", Integer.toString(MOCK_DFN)).session(fSession)).
-            andExpect(model().attributeExists("specialties", "calculation"));
+        final MvcResult asyncResult = fMockMvc.perform(get("/newCalc")
+                .param("patientDfn", Integer.toString(MOCK_DFN)).session(fSession))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        fMockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(model().attributeExists("specialties", "calculation"));
     }
     
     @Test
@@ -103,8 +107,11 @@ public class CalculationControllerIT extends IntegrationTest
         
         simulateNewSession();
 
-        fMockMvc.perform(get("/newCalc").session(fSession)
+        final MvcResult asyncResult = fMockMvc.perform(get("/newCalc").session(fSession)
             .param("patientDfn", Integer.toString(MOCK_DFN)).session(fSession))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        fMockMvc.perform(asyncDispatch(asyncResult))
             .andExpect(model().attributeExists("calculation", "newPatientDfn"));
     }
     
@@ -119,9 +126,12 @@ public class CalculationControllerIT extends IntegrationTest
         
         simulateNewSession();
 
-        fMockMvc.perform(post("/selectSpecialty").session(fSession)
-                .param("specialty", specialtyName)).
-            andExpect(redirectedUrl("/enterVars"));
+        final MvcResult asyncResult = fMockMvc.perform(post("/selectSpecialty")
+                .session(fSession).param("specialty", specialtyName))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        fMockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(redirectedUrl("/enterVars"));
         
         fMockMvc.perform(get("/enterVars").session(fSession))
             .andExpect(model().attributeExists("calculation", "variableEntry", "displayGroups"));
@@ -272,13 +282,7 @@ public class CalculationControllerIT extends IntegrationTest
     public void checkHeaders() throws Exception
     {
         // Specialty does not matter here
-        testStartNewCalculationWithDfn();
-        
-        simulateNewSession();
-
-        fMockMvc.perform(post("/selectSpecialty").session(fSession)
-            .param("specialty", "Cardiac"))
-            .andExpect(redirectedUrl("/enterVars"));
+        selectSpecialty("Cardiac");
         
         fMockMvc.perform(get("/enterVars").session(fSession))
             .andExpect(header().string("Cache-Control", "no-cache, no-store, must-revalidate"))
@@ -293,8 +297,15 @@ public class CalculationControllerIT extends IntegrationTest
         
         simulateNewSession();
         
-        fMockMvc.perform(post("/signCalculation").session(fSession)
-            .param("eSig", ELECTRONIC_SIGNATURE))
+        final MvcResult asyncResult = fMockMvc.perform(post("/signCalculation")
+                .session(fSession).param("eSig", ELECTRONIC_SIGNATURE))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        // Longer than the signing RPC's own timeout.
+        assertEquals(
+                DisplayResultsController.SIGN_TIMEOUT_MILLIS,
+                asyncResult.getRequest().getAsyncContext().getTimeout());
+        fMockMvc.perform(asyncDispatch(asyncResult))
             .andExpect(status().isOk())
             .andExpect(content().contentType(new MediaType(MediaType.APPLICATION_JSON.getType(),
                     MediaType.APPLICATION_JSON.getSubtype())))
@@ -306,5 +317,11 @@ public class CalculationControllerIT extends IntegrationTest
         assertEquals(
                 "should be 1 SignedResult in the database now",
                 1, resultsInDb.size());
+        // Saving the result in VistA Surgery is deferred to the RiskSaveDeliveryJob.
+        final List<?> deliveriesInDb =
+                getHibernateSession().createQuery("from RiskSaveDelivery").list();
+        assertEquals(
+                "should be 1 RiskSaveDelivery in the database now",
+                1, deliveriesInDb.size());
     }
 }
@@ -0,0 +1,93 @@
+package gov.va.med.srcalc.web.controller;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+
+import gov.va.med.srcalc.domain.calculation.Calculation;
+import gov.va.med.srcalc.domain.calculation.SampleCalculations;
+
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.util.SerializationUtils;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Tests the {@link CalculationSession} class.
+ */
+public class CalculationSessionTest
+{
+    private static final String ATTRIBUTE_NAME = "calculationSession";
+
+    private static Calculation newCalculation()
+    {
+        return Calculation.forPatient(SampleCalculations.dummyPatient(1));
+    }
+
+    @Test
+    public final void testReadyCalculation()
+    {
+        final Calculation calc = newCalculation();
+        final CalculationSession cs = new CalculationSession(calc);
+
+        assertTrue(cs.isCalculationReady());
+        assertSame(calc, cs.getCalculation());
+    }
+
+    @Test
+    public final void testPendingCalculation()
+    {
+        final SettableFuture<Calculation> pending = SettableFuture.create();
+        final CalculationSession cs = new CalculationSession(pending);
+
+        assertFalse(cs.isCalculationReady());
+
+        final Calculation calc = newCalculation();
+        pending.set(calc);
+        assertTrue(cs.isCalculationReady());
+        assertSame(calc, cs.getCalculation());
+    }
+
+    @Test(expected = DataAccessResourceFailureException.class)
+    public final void testFailedCalculation()
+    {
+        final SettableFuture<Calculation> pending = SettableFuture.create();
+        final CalculationSession cs = new CalculationSession(pending);
+
+        pending.setException(new DataAccessResourceFailureException("VistA is down"));
+
+        assertFalse(cs.isCalculationReady());
+        cs.getCalculation();
+    }
+
+    /**
+     * Tests that removing the session attribute cancels the pending load.
+     */
+    @Test(expected = CancellationException.class)
+    public final void testCancelOnUnbind()
+    {
+        final SettableFuture<Calculation> pending = SettableFuture.create();
+        final CalculationSession cs = new CalculationSession(pending);
+        final MockHttpSession httpSession = new MockHttpSession();
+        httpSession.setAttribute(ATTRIBUTE_NAME, cs);
+
+        httpSession.removeAttribute(ATTRIBUTE_NAME);
+
+        assertTrue(pending.isCancelled());
+        cs.getCalculation();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public final void testSerializePending()
+    {
+        final CalculationSession cs =
+                new CalculationSession(SettableFuture.<Calculation>create());
+
+        final CalculationSession restored = (CalculationSession)
+                SerializationUtils.deserialize(SerializationUtils.serialize(cs));
+
+        restored.getCalculation();
+    }
+}
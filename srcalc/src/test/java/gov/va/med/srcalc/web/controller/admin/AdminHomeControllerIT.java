@@ -62,4 +62,12 @@ public class AdminHomeControllerIT extends IntegrationTest
             .andExpect(model().attributeExists("riskModels"));
     }
     
+    @Test
+    public final void testCacheStatistics() throws Exception
+    {
+        fMockMvc.perform(get(SrcalcUrls.CACHE_STATISTICS))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("statistics"));
+    }
+    
 }
@@ -74,6 +74,19 @@ public class EditProceduresControllerIT extends IntegrationTest
                 fModelService.getAllProcedures());
     }
     
+    @Test
+    public final void testProcedureUploadInvalid() throws Exception
+    {
+        final ByteSource invalidUpload = Resources.asByteSource(
+                ProcedureRowTranslatorTest.INVALID_PROCEDURES_RESOURCE);
+
+        fMockMvc.perform(fileUpload(EditProceduresController.BASE_URL)
+                .file("newProceduresFile", invalidUpload.read()))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("validationErrors"))
+            .andExpect(flash().attributeCount(0));
+    }
+    
     @Test
     public final void testSampleUploadResource() throws Exception
     {
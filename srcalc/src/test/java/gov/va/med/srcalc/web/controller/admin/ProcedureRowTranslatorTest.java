@@ -3,12 +3,12 @@ package gov.va.med.srcalc.web.controller.admin;
 import static org.junit.Assert.*;
 import gov.va.med.srcalc.domain.model.Procedure;
 import gov.va.med.srcalc.util.*;
-import gov.va.med.srcalc.util.csv.CsvReader;
-import gov.va.med.srcalc.util.csv.TabularParseResult;
-import gov.va.med.srcalc.util.csv.TabularUploadError;
+import gov.va.med.srcalc.util.csv.*;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -134,4 +134,58 @@ public class ProcedureRowTranslatorTest
         assertEquals(expectedErrors, ImmutableSet.copyOf(result.getErrors()));
     }
     
+    @Test
+    public final void testStreamProceduresValid() throws IOException
+    {
+        final CharSource validCsv =
+                Resources.asCharSource(VALID_PROCEDURES_RESOURCE, Charsets.US_ASCII);
+        final ArrayList<Procedure> handled = new ArrayList<>();
+        
+        final CsvReader<Procedure> procedureReader =
+                new CsvReader<>(new ProcedureRowTranslator());
+        final TabularStreamResult result = procedureReader.streamObjects(
+                validCsv.openStream(), collectInto(handled), CsvReader.DEFAULT_MAX_ERRORS);
+        
+        /* Verification */
+        assertFalse(result.hasErrors());
+        assertEquals(VALID_PROCEDURES.size(), result.getRowCount());
+        assertEquals(VALID_PROCEDURES, handled);
+    }
+    
+    @Test
+    public final void testStreamProceduresErrorLimit() throws IOException
+    {
+        final CharSource invalidCsv = Resources.asCharSource(
+                INVALID_PROCEDURES_RESOURCE, Charsets.US_ASCII);
+        final ArrayList<Procedure> handled = new ArrayList<>();
+        final int maxErrors = 3;
+        
+        final CsvReader<Procedure> procedureReader =
+                new CsvReader<>(new ProcedureRowTranslator());
+        final TabularStreamResult result = procedureReader.streamObjects(
+                invalidCsv.openStream(), collectInto(handled), maxErrors);
+        
+        /* Verification */
+        assertTrue(result.isErrorLimitReached());
+        // The first row has more errors than the limit: reading should stop there.
+        assertEquals(1, result.getRowCount());
+        // The capped row errors plus one global error.
+        assertEquals(maxErrors + 1, result.getErrors().size());
+        assertEquals(
+                ValidationCodes.TOO_LONG,
+                result.getErrors().asList().get(maxErrors).getCode());
+        assertEquals(ImmutableList.of(), handled);
+    }
+    
+    private static RowHandler<Procedure> collectInto(final List<Procedure> procedures)
+    {
+        return new RowHandler<Procedure>()
+        {
+            @Override
+            public void handleRow(final Procedure rowObject)
+            {
+                procedures.add(rowObject);
+            }
+        };
+    }
 }
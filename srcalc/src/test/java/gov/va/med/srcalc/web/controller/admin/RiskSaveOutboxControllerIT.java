@@ -0,0 +1,101 @@
+package gov.va.med.srcalc.web.controller.admin;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.*;
+
+import gov.va.med.srcalc.db.ResultsDao;
+import gov.va.med.srcalc.db.RiskSaveOutboxDao;
+import gov.va.med.srcalc.domain.calculation.RiskSaveDelivery;
+import gov.va.med.srcalc.domain.calculation.SampleCalculations;
+import gov.va.med.srcalc.domain.calculation.SignedResult;
+import gov.va.med.srcalc.service.InvalidIdentifierException;
+import gov.va.med.srcalc.test.util.IntegrationTest;
+import gov.va.med.srcalc.web.SrcalcUrls;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.util.NestedServletException;
+
+/**
+ * Integration Test for the {@link RiskSaveOutboxController}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration  // need to tell Spring to instantiate a WebApplicationContext.
+@ContextConfiguration({"/srcalc-context.xml", "/srcalc-controller.xml", "/test-context.xml"})
+@Transactional // run each test in its own (rolled-back) transaction
+public class RiskSaveOutboxControllerIT extends IntegrationTest
+{
+    @Autowired
+    WebApplicationContext fWac;
+
+    @Autowired
+    ResultsDao fResultsDao;
+
+    @Autowired
+    RiskSaveOutboxDao fOutboxDao;
+
+    private MockMvc fMockMvc;
+
+    private SignedResult fFailedResult;
+
+    @Before
+    public void setup()
+    {
+        fMockMvc = MockMvcBuilders.webAppContextSetup(fWac).build();
+
+        fFailedResult = SampleCalculations.signedThoracic();
+        fResultsDao.persistSignedResult(fFailedResult);
+        final RiskSaveDelivery delivery = new RiskSaveDelivery(fFailedResult, "11716");
+        delivery.recordFailure(new DateTime(), "rejected", true);
+        fOutboxDao.enqueue(delivery);
+        simulateNewSession();
+    }
+
+    @Test
+    public final void testDisplayOutbox() throws Exception
+    {
+        fMockMvc.perform(get(SrcalcUrls.RISK_SAVE_OUTBOX))
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("deliveries", hasSize(1)));
+    }
+
+    @Test
+    public final void testRetry() throws Exception
+    {
+        fMockMvc.perform(post(SrcalcUrls.RISK_SAVE_OUTBOX)
+                .param("deliveryId", String.valueOf(fFailedResult.getId())))
+            .andExpect(redirectedUrl(SrcalcUrls.RISK_SAVE_OUTBOX));
+
+        simulateNewSession();
+        assertEquals(
+                RiskSaveDelivery.Status.PENDING,
+                fOutboxDao.getDelivery(fFailedResult.getId()).get().getStatus());
+    }
+
+    @Test
+    public final void testRetryUnknownDelivery() throws Exception
+    {
+        try
+        {
+            fMockMvc.perform(post(SrcalcUrls.RISK_SAVE_OUTBOX).param("deliveryId", "-1"));
+            fail("should have thrown");
+        }
+        catch (final NestedServletException ex)
+        {
+            assertTrue(ex.getCause() instanceof InvalidIdentifierException);
+        }
+    }
+}
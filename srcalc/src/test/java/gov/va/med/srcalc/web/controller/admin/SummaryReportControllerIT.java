@@ -1,9 +1,15 @@
 package gov.va.med.srcalc.web.controller.admin;
 
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.List;
+
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.joda.time.format.DateTimeFormat;
@@ -20,6 +26,9 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import gov.va.med.srcalc.db.ResultSearchParameters;
@@ -126,6 +135,42 @@ public class SummaryReportControllerIT extends IntegrationTest
                     new SummaryReport(expectedParameters, expectedResults)));
     }
     
+    @Test
+    public final void testExportReport() throws Exception
+    {
+        final SignedResult result = SampleCalculations.signedThoracic();
+        
+        final String content = fMockMvc.perform(post(SrcalcUrls.SUMMARY_REPORT_EXPORT)
+                .param("cptCode", result.getCptCode().get())
+                .param("_specialtyNames", "on"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv"))
+            .andReturn().getResponse().getContentAsString();
+        
+        final List<String> lines = Splitter.on("\r\n").omitEmptyStrings().splitToList(content);
+        assertEquals(Joiner.on(',').join(SummaryReportController.EXPORT_HEADER), lines.get(0));
+        // One row per outcome.
+        final ImmutableList<SummaryReportRow> expectedRows =
+                SummaryReportRow.fromSignedResult(result);
+        assertEquals(expectedRows.size() + 1, lines.size());
+        for (int i = 0; i < expectedRows.size(); ++i)
+        {
+            final SummaryReportRow expectedRow = expectedRows.get(i);
+            assertThat(lines.get(i + 1), allOf(
+                    startsWith(expectedRow.getCptCode() + ","),
+                    containsString(expectedRow.getSpecialtyName()),
+                    containsString(expectedRow.getRiskModelName())));
+        }
+    }
+    
+    @Test
+    public final void testExportReportErrors() throws Exception
+    {
+        fMockMvc.perform(post(SrcalcUrls.SUMMARY_REPORT_EXPORT)
+                .param("maxDate", "1111"))
+            .andExpect(status().isBadRequest());
+    }
+    
     @Test
     public final void testDisplayReportErrors() throws Exception
     {
@@ -5,11 +5,12 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import gov.va.med.srcalc.db.HistoricalSearchParameters;
 import gov.va.med.srcalc.db.ResultsDao;
-import gov.va.med.srcalc.domain.calculation.HistoricalRunInfo;
+import gov.va.med.srcalc.db.UtilizationAggregate;
+import gov.va.med.srcalc.db.UtilizationGrouping;
+import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
 import gov.va.med.srcalc.domain.calculation.SampleCalculations;
 import gov.va.med.srcalc.domain.calculation.SignedResult;
 import gov.va.med.srcalc.test.util.IntegrationTest;
-import gov.va.med.srcalc.util.SearchResults;
 import gov.va.med.srcalc.web.SrcalcUrls;
 import gov.va.med.srcalc.web.view.Views;
 import gov.va.med.srcalc.web.view.admin.UtilizationReport;
@@ -73,9 +74,14 @@ public class UtilizationReportControllerIT extends IntegrationTest
     public final void testDisplayReport() throws Exception
     {
         final SignedResult result = SampleCalculations.signedThoracic();
-        final HistoricalRunInfo expectedRunInfo = HistoricalRunInfo.signed(result);
-        final SearchResults<HistoricalRunInfo> expectedResults = new SearchResults<>(
-                ImmutableList.of(expectedRunInfo), false);
+        final HistoricalCalculation calc = result.getHistoricalCalculation();
+        final ImmutableList<UtilizationAggregate> expectedAggregates = ImmutableList.of(
+                new UtilizationAggregate(
+                        ImmutableList.of(calc.getSpecialtyName()),
+                        1,
+                        calc.getSecondsToFirstRun(),
+                        1,
+                        result.getSecondsToSign()));
         final HistoricalSearchParameters expectedParams = new HistoricalSearchParameters();
         
         fMockMvc.perform(post(SrcalcUrls.UTILIZATION_REPORT)
@@ -85,7 +91,10 @@ public class UtilizationReportControllerIT extends IntegrationTest
             .andExpect(status().isOk())
             .andExpect(model().attribute(
                     UtilizationReportController.ATTRIBUTE_REPORT,
-                    new UtilizationReport(expectedParams, expectedResults)));
+                    new UtilizationReport(
+                            expectedParams,
+                            ImmutableList.of(UtilizationGrouping.SPECIALTY),
+                            expectedAggregates)));
                 
     }
     
@@ -93,9 +102,14 @@ public class UtilizationReportControllerIT extends IntegrationTest
     public final void testDisplayReportFilters() throws Exception
     {
         final SignedResult result = SampleCalculations.signedThoracic();
-        final HistoricalRunInfo expectedRunInfo = HistoricalRunInfo.signed(result);
-        final SearchResults<HistoricalRunInfo> expectedResults = new SearchResults<>(
-                ImmutableList.of(expectedRunInfo), false);
+        final HistoricalCalculation calc = result.getHistoricalCalculation();
+        final ImmutableList<UtilizationAggregate> expectedAggregates = ImmutableList.of(
+                new UtilizationAggregate(
+                        ImmutableList.of(calc.getSpecialtyName()),
+                        1,
+                        calc.getSecondsToFirstRun(),
+                        1,
+                        result.getSecondsToSign()));
         final HistoricalSearchParameters expectedParams = new HistoricalSearchParameters();
         final DateTime startTimestamp = result.getHistoricalCalculation().getStartTimestamp();
         final LocalDate minDate = new LocalDate(startTimestamp).minusDays(2);
@@ -110,7 +124,37 @@ public class UtilizationReportControllerIT extends IntegrationTest
             .andExpect(status().isOk())
             .andExpect(model().attribute(
                     UtilizationReportController.ATTRIBUTE_REPORT,
-                    new UtilizationReport(expectedParams, expectedResults)));
+                    new UtilizationReport(
+                            expectedParams,
+                            ImmutableList.of(UtilizationGrouping.SPECIALTY),
+                            expectedAggregates)));
+    }
+    
+    @Test
+    public final void testDisplayReportGroupings() throws Exception
+    {
+        final SignedResult result = SampleCalculations.signedThoracic();
+        final HistoricalCalculation calc = result.getHistoricalCalculation();
+        final ImmutableList<UtilizationGrouping> expectedGroupings = ImmutableList.of(
+                UtilizationGrouping.STATION, UtilizationGrouping.PROVIDER_TYPE);
+        final ImmutableList<UtilizationAggregate> expectedAggregates = ImmutableList.of(
+                new UtilizationAggregate(
+                        ImmutableList.of(
+                                calc.getUserStation(), calc.getProviderType().get()),
+                        1,
+                        calc.getSecondsToFirstRun(),
+                        1,
+                        result.getSecondsToSign()));
+        
+        fMockMvc.perform(post(SrcalcUrls.UTILIZATION_REPORT)
+                .param("groupBy", "STATION", "PROVIDER_TYPE", "STATION"))
+            .andExpect(status().isOk())
+            .andExpect(model().attribute(
+                    UtilizationReportController.ATTRIBUTE_REPORT,
+                    new UtilizationReport(
+                            new HistoricalSearchParameters(),
+                            expectedGroupings,
+                            expectedAggregates)));
     }
     
     @Test
@@ -0,0 +1,60 @@
+package gov.va.med.srcalc.web.controller.admin;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.*;
+
+import gov.va.med.srcalc.test.util.IntegrationTest;
+import gov.va.med.srcalc.vista.RemoteProcedure;
+import gov.va.med.srcalc.vista.RpcMetrics;
+import gov.va.med.srcalc.web.SrcalcUrls;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Integration Test for the {@link VistaCallMetricsController}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration  // need to tell Spring to instantiate a WebApplicationContext.
+@ContextConfiguration({"/srcalc-context.xml", "/srcalc-controller.xml", "/test-context.xml"})
+@Transactional // run each test in its own (rolled-back) transaction
+public class VistaCallMetricsControllerIT extends IntegrationTest
+{
+    @Autowired
+    WebApplicationContext fWac;
+
+    @Autowired
+    RpcMetrics fRpcMetrics;
+
+    private MockMvc fMockMvc;
+
+    @Before
+    public void setup()
+    {
+        fMockMvc = MockMvcBuilders.webAppContextSetup(fWac).build();
+        fRpcMetrics.reset();
+    }
+
+    @Test
+    public final void testDisplayMetrics() throws Exception
+    {
+        fRpcMetrics.recordCall("500", RemoteProcedure.GET_PATIENT, 100L, 80L, 4L);
+
+        fMockMvc.perform(get(SrcalcUrls.VISTA_CALL_METRICS))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("collectedSince"))
+            .andExpect(model().attribute("statistics", hasSize(1)))
+            .andExpect(model().attribute(
+                    "clientMetrics", hasProperty("patientLoadCount", equalTo(0L))));
+    }
+}
@@ -2,86 +2,54 @@ package gov.va.med.srcalc.web.view.admin;
 
 import static org.junit.Assert.*;
 import gov.va.med.srcalc.db.HistoricalSearchParameters;
-import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
-import gov.va.med.srcalc.domain.calculation.HistoricalRunInfo;
-import gov.va.med.srcalc.domain.calculation.SignedResult;
-import gov.va.med.srcalc.util.SearchResults;
+import gov.va.med.srcalc.db.UtilizationAggregate;
+import gov.va.med.srcalc.db.UtilizationGrouping;
 import nl.jqno.equalsverifier.EqualsVerifier;
 
-import org.joda.time.DateTime;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
-import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 
 /**
  * Unit tests for the {@link UtilizationReport} class.
  */
 public class UtilizationReportTest
 {
-    /**
-     * Constructs a {@link HistoricalCalculation} with specified values for the properties
-     * we care about. Other properties are arbitrary.
-     */
-    private HistoricalCalculation makeHistoricalCalc(
-            final String specialty, final int secondsToFirstRun)
-    {
-        return new HistoricalCalculation(
-                specialty,
-                "442",
-                new DateTime(2014, 02, 02, 10, 21),
-                secondsToFirstRun,
-                Optional.of("provider type"));
-    }
-    
-    /**
-     * Constructs a {@link SignedResult} with specified values for the properties we care
-     * about. Other properties are arbitrary.
-     */
-    private SignedResult makeSignedResult(
-            final String specialty, final int secondsToFirstRun, final int secondsToSign)
-    {
-        final HistoricalCalculation calc = makeHistoricalCalc(specialty, secondsToFirstRun);
-        return new SignedResult(
-                calc,
-                100,
-                Optional.<String>absent(),
-                calc.getStartTimestamp().plusSeconds(secondsToSign),
-                ImmutableMap.<String, String>of(),
-                ImmutableMap.<String, Float>of());
-    }
-
     @Test
-    public final void testGetSpecialtySummaries()
+    public final void testGetSummaries()
     {
         /* Setup */
-        final String specialty1 = "One";
-        final int firstRun1 = 40;
-        final int signed1 = 60;
-        final SignedResult result1 = makeSignedResult(specialty1, firstRun1, signed1);
-        final String specialty2 = "Two";
-        final int firstRun2 = 111;
-        final int signed2 = 222;
-        final SignedResult result2 = makeSignedResult(specialty2, firstRun2, signed2);
-        final int firstRun3 = 100;
-        final int signed3 = 70;
-        // Put this one in the same specialty as result1.
-        final SignedResult result3 = makeSignedResult(specialty1, firstRun3, signed3);
-        final ImmutableList<HistoricalRunInfo> runInfos = ImmutableList.of(
-                HistoricalRunInfo.signed(result1),
-                HistoricalRunInfo.signed(result2),
-                HistoricalRunInfo.signed(result3));
-        final ImmutableMap<String, UtilizationSummary> expectedSummaries = ImmutableMap.of(
-                specialty1,
-                new UtilizationSummary(2, 2, 70, 65),
-                specialty2,
-                new UtilizationSummary(1, 1, firstRun2, signed2));
+        final ImmutableList<UtilizationGrouping> groupings = ImmutableList.of(
+                UtilizationGrouping.SPECIALTY, UtilizationGrouping.PROVIDER_TYPE);
+        final List<String> group1 = Arrays.asList("two", "Physician");
+        final List<String> group2 = Arrays.asList("One", "Physician");
+        // A missing provider type.
+        final List<String> group3 = Arrays.asList("One", null);
+        final ImmutableList<UtilizationAggregate> aggregates = ImmutableList.of(
+                new UtilizationAggregate(group1, 1, 111L, 1, 222L),
+                new UtilizationAggregate(group2, 2, 140L, 2, 130L),
+                new UtilizationAggregate(group3, 1, 50L, 0, 0L));
         
-        /* Behavior & Verification */
+        /* Behavior */
         final UtilizationReport actualReport = new UtilizationReport(
-                new HistoricalSearchParameters(), new SearchResults<>(runInfos, false));
-        assertEquals(expectedSummaries, actualReport.getSpecialtySummaries());
+                new HistoricalSearchParameters(), groupings, aggregates);
+        
+        /* Verification */
+        assertEquals(groupings, actualReport.getGroupings());
+        // Should be sorted case-insensitively with missing values first.
+        assertEquals(
+                ImmutableList.of(group3, group2, group1),
+                ImmutableList.copyOf(actualReport.getSummaries().keySet()));
+        assertEquals(
+                new UtilizationSummary(2, 2, 70, 65),
+                actualReport.getSummaries().get(group2));
+        assertEquals(
+                new UtilizationSummary(1, 0, 50, -1),
+                actualReport.getSummaries().get(group3));
+        assertFalse(actualReport.getResults().isTruncated());
     }
     
     @Test
@@ -3,6 +3,7 @@ package gov.va.med.srcalc.web.view.admin;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.*;
+import gov.va.med.srcalc.db.UtilizationAggregate;
 import gov.va.med.srcalc.domain.calculation.HistoricalCalculation;
 import gov.va.med.srcalc.domain.calculation.HistoricalRunInfo;
 import gov.va.med.srcalc.domain.calculation.SignedResult;
@@ -113,6 +114,28 @@ public class UtilizationSummaryTest
         assertEquals(-1, actualSummary.getSecondsToSignAverage());
     }
     
+    @Test
+    public final void testFromAggregate()
+    {
+        final UtilizationAggregate aggregate = new UtilizationAggregate(
+                ImmutableList.of("specialty"), 3, 210L, 2, 220L);
+        
+        assertEquals(
+                new UtilizationSummary(3, 2, 70, 110),
+                UtilizationSummary.fromAggregate(aggregate));
+    }
+    
+    @Test
+    public final void testFromAggregateNoSigned()
+    {
+        final UtilizationAggregate aggregate = new UtilizationAggregate(
+                ImmutableList.of("specialty"), 1, 67L, 0, 0L);
+        
+        assertEquals(
+                new UtilizationSummary(1, 0, 67, -1),
+                UtilizationSummary.fromAggregate(aggregate));
+    }
+    
     @Test
     public final void testEquals()
     {